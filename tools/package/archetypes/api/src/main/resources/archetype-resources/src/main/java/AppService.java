@@ -18,9 +18,49 @@
  */
 package ${package};
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Skeletal ONOS application API.
+ * <p>
+ * Items are submitted asynchronously; implementations are expected to
+ * coalesce submissions into batches, so that callers submitting many items
+ * should not wait for each of them before submitting the next one. The
+ * returned futures complete once the items have been processed, and
+ * listeners are notified of every processed batch.
+ * </p>
  */
 public interface AppService {
 
+    /**
+     * Submits the given item for processing.
+     *
+     * @param item item to process
+     * @return future completed once the item has been processed
+     */
+    CompletableFuture<Void> submit(String item);
+
+    /**
+     * Submits the given items for processing.
+     *
+     * @param items items to process
+     * @return future completed once all items have been processed
+     */
+    CompletableFuture<Void> submit(Collection<String> items);
+
+    /**
+     * Adds the specified listener of processed batches.
+     *
+     * @param listener listener to add
+     */
+    void addListener(AppListener listener);
+
+    /**
+     * Removes the specified listener of processed batches.
+     *
+     * @param listener listener to remove
+     */
+    void removeListener(AppListener listener);
+
 }
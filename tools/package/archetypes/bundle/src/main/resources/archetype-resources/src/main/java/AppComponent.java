@@ -18,29 +18,222 @@
  */
 package ${package};
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onlab.util.AbstractAccumulator;
+import org.onosproject.event.ListenerRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static ${package}.AppEvent.Type.BATCH_PROCESSED;
+import static java.util.stream.Collectors.toList;
+import static org.onlab.util.Tools.groupedThreads;
+
 /**
  * Skeletal ONOS application component.
+ * <p>
+ * Events are handled by a bounded pool of named threads; when its queue
+ * is full, events are handled by the submitting thread, which slows the
+ * producers down instead of letting the backlog grow without bounds. The
+ * event rate, latency, rejections and queue depth are registered with the
+ * metrics service and can be inspected via the {@code sample-metrics}
+ * command.
+ * </p>
+ * <p>
+ * Items submitted for processing are coalesced into batches, which are
+ * processed once they reach the size limit or once the time limit since
+ * the first item of the batch has elapsed. Listeners are notified of every
+ * processed batch. Items still pending when the component is deactivated
+ * are cancelled.
+ * </p>
  */
 @Component(immediate = true)
-public class AppComponent {
+@Service
+public class AppComponent implements AppService {
+
+    static final String METRICS_COMPONENT = "${package}";
+    static final String METRICS_FEATURE = "events";
+
+    private static final int EVENT_THREADS = 4;
+    private static final int EVENT_QUEUE_SIZE = 1024;
+
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_BATCH_MS = 50;
+    private static final int MAX_IDLE_MS = 10;
+
+    private static final String HANDLED = "handled";
+    private static final String REJECTED = "rejected";
+    private static final String LATENCY = "latency";
+    private static final String QUEUE_DEPTH = "queueDepth";
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private MetricsComponent metricsComponent;
+    private MetricsFeature metricsFeature;
+    private Counter handled;
+    private Counter rejected;
+    private com.codahale.metrics.Timer latency;
+
+    private final ListenerRegistry<AppEvent, AppListener> listenerRegistry =
+            new ListenerRegistry<>();
+    private final Set<PendingItem> pendingItems = Sets.newConcurrentHashSet();
+
+    private ThreadPoolExecutor eventExecutor;
+    private Timer batchTimer;
+    private ItemAccumulator accumulator;
+
     @Activate
     protected void activate() {
+        metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        metricsFeature = metricsComponent.registerFeature(METRICS_FEATURE);
+        handled = metricsService.createCounter(metricsComponent, metricsFeature, HANDLED);
+        rejected = metricsService.createCounter(metricsComponent, metricsFeature, REJECTED);
+        latency = metricsService.createTimer(metricsComponent, metricsFeature, LATENCY);
+
+        eventExecutor = new ThreadPoolExecutor(EVENT_THREADS, EVENT_THREADS,
+                                               0L, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(EVENT_QUEUE_SIZE),
+                                               groupedThreads("${package}", "event-%d"),
+                                               new CallerHandles());
+        metricsService.registerMetric(metricsComponent, metricsFeature, QUEUE_DEPTH,
+                                      (Gauge<Integer>) () -> eventExecutor.getQueue().size());
+
+        batchTimer = new Timer("${package}-batch", true);
+        accumulator = new ItemAccumulator(batchTimer);
         log.info("Started");
     }
 
     @Deactivate
     protected void deactivate() {
+        batchTimer.cancel();
+        eventExecutor.shutdownNow();
+        CancellationException cancelled = new CancellationException("Component deactivated");
+        pendingItems.forEach(p -> p.future.completeExceptionally(cancelled));
+        pendingItems.clear();
+        for (String name : new String[]{HANDLED, REJECTED, LATENCY, QUEUE_DEPTH}) {
+            metricsService.removeMetric(metricsComponent, metricsFeature, name);
+        }
         log.info("Stopped");
     }
 
+    /**
+     * Submits the given event handler for execution on the event threads.
+     *
+     * @param handler event handler
+     */
+    public void submit(Runnable handler) {
+        eventExecutor.execute(() -> handle(handler));
+    }
+
+    @Override
+    public CompletableFuture<Void> submit(String item) {
+        PendingItem pending = new PendingItem(item);
+        pendingItems.add(pending);
+        pending.future.whenComplete((r, e) -> pendingItems.remove(pending));
+        accumulator.add(pending);
+        return pending.future;
+    }
+
+    @Override
+    public CompletableFuture<Void> submit(Collection<String> items) {
+        return CompletableFuture.allOf(items.stream()
+                                               .map(this::submit)
+                                               .toArray(CompletableFuture[]::new));
+    }
+
+    @Override
+    public void addListener(AppListener listener) {
+        listenerRegistry.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(AppListener listener) {
+        listenerRegistry.removeListener(listener);
+    }
+
+    // Processes the given batch of items and notifies the listeners.
+    private void processBatch(List<String> items) {
+        log.debug("Processing batch of {} items", items.size());
+        listenerRegistry.process(new AppEvent(BATCH_PROCESSED, items));
+    }
+
+    // Runs the given handler, recording its latency.
+    private void handle(Runnable handler) {
+        long start = System.nanoTime();
+        try {
+            handler.run();
+        } catch (RuntimeException e) {
+            log.warn("Unable to handle event", e);
+        } finally {
+            latency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            handled.inc();
+        }
+    }
+
+    // Item submitted for processing, with the future of its completion.
+    private static final class PendingItem {
+        private final String item;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingItem(String item) {
+            this.item = item;
+        }
+    }
+
+    // Accumulates submitted items and hands their batches to the event
+    // threads.
+    private final class ItemAccumulator extends AbstractAccumulator<PendingItem> {
+        private ItemAccumulator(Timer timer) {
+            super(timer, MAX_BATCH_SIZE, MAX_BATCH_MS, MAX_IDLE_MS);
+        }
+
+        @Override
+        public void processItems(List<PendingItem> batch) {
+            eventExecutor.execute(() -> handle(() -> {
+                try {
+                    processBatch(batch.stream().map(p -> p.item).collect(toList()));
+                    batch.forEach(p -> p.future.complete(null));
+                } catch (RuntimeException e) {
+                    batch.forEach(p -> p.future.completeExceptionally(e));
+                }
+            }));
+        }
+    }
+
+    // Handles rejected events in the submitting thread, unless the executor
+    // has been shut down.
+    private class CallerHandles implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            rejected.inc();
+            if (!executor.isShutdown()) {
+                task.run();
+            }
+        }
+    }
+
 }
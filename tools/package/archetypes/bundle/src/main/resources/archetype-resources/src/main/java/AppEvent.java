@@ -0,0 +1,50 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ${package};
+
+import org.onosproject.event.AbstractEvent;
+
+import java.util.List;
+
+/**
+ * Application event; its subject is the list of items of a batch.
+ */
+public class AppEvent extends AbstractEvent<AppEvent.Type, List<String>> {
+
+    /**
+     * Type of application events.
+     */
+    public enum Type {
+        /**
+         * Signifies that a batch of items has been processed.
+         */
+        BATCH_PROCESSED
+    }
+
+    /**
+     * Creates an event of the given type for the given batch of items.
+     *
+     * @param type  event type
+     * @param items batch of items
+     */
+    public AppEvent(Type type, List<String> items) {
+        super(type, items);
+    }
+
+}
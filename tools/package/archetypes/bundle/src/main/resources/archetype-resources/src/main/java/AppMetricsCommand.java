@@ -0,0 +1,75 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ${package};
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.apache.karaf.shell.commands.Command;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.cli.AbstractShellCommand;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists the metrics of the application component.
+ */
+@Command(scope = "onos", name = "sample-metrics",
+         description = "Lists the metrics of the application component")
+public class AppMetricsCommand extends AbstractShellCommand {
+
+    private static final String PREFIX = AppComponent.METRICS_COMPONENT + ".";
+
+    @Override
+    protected void execute() {
+        Map<String, Metric> metrics = new TreeMap<>();
+        get(MetricsService.class).getMetrics().forEach((name, metric) -> {
+            if (name.startsWith(PREFIX)) {
+                metrics.put(name.substring(PREFIX.length()), metric);
+            }
+        });
+        metrics.forEach(this::printMetric);
+    }
+
+    // Prints the given metric.
+    private void printMetric(String name, Metric metric) {
+        if (metric instanceof Counter) {
+            print("%s count=%d", name, ((Counter) metric).getCount());
+        } else if (metric instanceof Gauge) {
+            print("%s value=%s", name, ((Gauge<?>) metric).getValue());
+        } else if (metric instanceof Timer) {
+            Timer timer = (Timer) metric;
+            Snapshot snapshot = timer.getSnapshot();
+            print("%s count=%d rate=%.2f/s p50=%.3fms p99=%.3fms max=%.3fms",
+                  name, timer.getCount(), timer.getOneMinuteRate(),
+                  millis(snapshot.getMedian()), millis(snapshot.get99thPercentile()),
+                  millis(snapshot.getMax()));
+        }
+    }
+
+    // Converts the given duration in nanoseconds to milliseconds.
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
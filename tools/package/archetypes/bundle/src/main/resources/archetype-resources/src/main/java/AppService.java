@@ -0,0 +1,66 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+/*
+ * Copyright 2014 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ${package};
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Skeletal ONOS application API.
+ * <p>
+ * Items are submitted asynchronously; implementations are expected to
+ * coalesce submissions into batches, so that callers submitting many items
+ * should not wait for each of them before submitting the next one. The
+ * returned futures complete once the items have been processed, and
+ * listeners are notified of every processed batch.
+ * </p>
+ */
+public interface AppService {
+
+    /**
+     * Submits the given item for processing.
+     *
+     * @param item item to process
+     * @return future completed once the item has been processed
+     */
+    CompletableFuture<Void> submit(String item);
+
+    /**
+     * Submits the given items for processing.
+     *
+     * @param items items to process
+     * @return future completed once all items have been processed
+     */
+    CompletableFuture<Void> submit(Collection<String> items);
+
+    /**
+     * Adds the specified listener of processed batches.
+     *
+     * @param listener listener to add
+     */
+    void addListener(AppListener listener);
+
+    /**
+     * Removes the specified listener of processed batches.
+     *
+     * @param listener listener to remove
+     */
+    void removeListener(AppListener listener);
+
+}
@@ -18,9 +18,20 @@
  */
 package ${package};
 
+import com.google.common.collect.ImmutableList;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.metrics.MetricsManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Set of tests of the ONOS application component.
@@ -32,18 +43,48 @@ public class AppComponentTest {
     @Before
     public void setUp() {
         component = new AppComponent();
+        component.metricsService = new MetricsManager();
         component.activate();
-
     }
 
     @After
     public void tearDown() {
-        component.deactivate();
+        if (component != null) {
+            component.deactivate();
+        }
+    }
+
+    @Test
+    public void basics() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        component.submit(latch::countDown);
+        assertTrue("event not handled", latch.await(5, TimeUnit.SECONDS));
     }
 
     @Test
-    public void basics() {
+    public void batches() throws Exception {
+        component.submit(ImmutableList.of("foo", "bar", "baz")).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void listeners() throws Exception {
+        List<String> processed = new CopyOnWriteArrayList<>();
+        AppListener listener = event -> processed.addAll(event.subject());
+        component.addListener(listener);
+        component.submit(ImmutableList.of("foo", "bar")).get(5, TimeUnit.SECONDS);
+        assertEquals("incorrect items", ImmutableList.of("foo", "bar"), processed);
 
+        component.removeListener(listener);
+        component.submit("baz").get(5, TimeUnit.SECONDS);
+        assertEquals("listener not removed", 2, processed.size());
+    }
+
+    @Test
+    public void deactivation() {
+        CompletableFuture<Void> future = component.submit("foo");
+        component.deactivate();
+        component = null;
+        assertTrue("pending item not completed", future.isDone());
     }
 
 }
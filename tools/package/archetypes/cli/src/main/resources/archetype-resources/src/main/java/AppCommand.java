@@ -15,19 +15,120 @@
  */
 package ${package};
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.Iterators;
 import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
 import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.codec.JsonCodec;
+import org.onosproject.net.Device;
+import org.onosproject.net.device.DeviceService;
+
+import java.io.IOException;
+import java.util.Iterator;
 
 /**
- * Sample Apache Karaf CLI command
+ * Sample Apache Karaf CLI command; lists the devices page by page without
+ * materializing the whole list, streaming them incrementally when JSON
+ * output is requested.
  */
 @Command(scope = "onos", name = "sample",
          description = "Sample Apache Karaf CLI command")
 public class AppCommand extends AbstractShellCommand {
 
+    private static final String FMT = "id=%s, type=%s, available=%s";
+    private static final int FLUSH_INTERVAL = 1000;
+
+    @Option(name = "--offset", description = "Number of entries to skip")
+    private int offset = 0;
+
+    @Option(name = "--limit", description = "Maximum number of entries to list; " +
+            "0 lists all remaining entries")
+    private int limit = 0;
+
+    @Option(name = "-c", aliases = "--count",
+            description = "Prints only the number of entries")
+    private boolean countOnly = false;
+
     @Override
     protected void execute() {
-        print("Hello %s", "World");
+        DeviceService service = get(DeviceService.class);
+        if (countOnly) {
+            printCount(page(service.getDeviceCount()));
+            return;
+        }
+
+        Iterator<Device> devices = service.getDevices().iterator();
+        Iterators.advance(devices, Math.max(0, offset));
+        if (limit > 0) {
+            devices = Iterators.limit(devices, limit);
+        }
+        if (outputJson()) {
+            try {
+                writeDevices(devices);
+            } catch (IOException e) {
+                error("Unable to write JSON output: %s", e.getMessage());
+            }
+        } else {
+            while (devices.hasNext()) {
+                Device device = devices.next();
+                print(FMT, device.id(), device.type(), service.isAvailable(device.id()));
+            }
+        }
+    }
+
+    // Returns the number of entries on the requested page, given the total
+    // number of entries.
+    private int page(int total) {
+        int remaining = Math.max(0, total - Math.max(0, offset));
+        return limit > 0 ? Math.min(limit, remaining) : remaining;
+    }
+
+    // Prints the given entry count.
+    private void printCount(int count) {
+        if (outputJson()) {
+            try {
+                writeJson(generator -> {
+                    generator.writeStartObject();
+                    generator.writeNumberField("count", count);
+                    generator.writeEndObject();
+                });
+            } catch (IOException e) {
+                error("Unable to write JSON output: %s", e.getMessage());
+            }
+        } else {
+            print("count=%d", count);
+        }
+    }
+
+    // Streams the given devices as a JSON array, one element at a time.
+    private void writeDevices(Iterator<Device> devices) throws IOException {
+        JsonCodec<Device> codec = codec(Device.class);
+        writeJson(generator -> {
+            generator.writeStartArray();
+            for (int i = 1; devices.hasNext(); i++) {
+                generator.writeTree(codec.encode(devices.next(), this));
+                if (i % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    // Writes JSON output through a generator streaming to the console, which
+    // is closed even if writing fails, while the console itself stays open.
+    private void writeJson(JsonWriter writer) throws IOException {
+        try (JsonGenerator generator = mapper().getFactory().createGenerator(System.out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writer.write(generator);
+        }
+        System.out.println();
+    }
+
+    // Producer of JSON output.
+    private interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException;
     }
 
 }
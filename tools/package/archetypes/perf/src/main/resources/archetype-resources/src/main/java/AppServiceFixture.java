@@ -0,0 +1,121 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ${package};
+
+import com.google.common.collect.ImmutableList;
+import org.onlab.metrics.MetricsManager;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark state which activates the application component in-process,
+ * with stub implementations of the services it references, and exposes it
+ * through its service interface.
+ */
+@State(Scope.Benchmark)
+public class AppServiceFixture {
+
+    /**
+     * Number of items in each of the pre-generated batches.
+     */
+    static final int BATCH_SIZE = 100;
+
+    private static final int BATCH_COUNT = 64;
+
+    /**
+     * Size of the generated items, in characters.
+     */
+    @Param({"16", "1024"})
+    public int itemSize;
+
+    private AppComponent component;
+    private AppService service;
+    private List<List<String>> batches;
+    private int next;
+
+    /**
+     * Activates the component and generates the item batches.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        component = new AppComponent();
+        component.metricsService = new MetricsManager();
+        component.activate();
+        service = component;
+
+        Random random = new Random(itemSize);
+        ImmutableList.Builder<List<String>> builder = ImmutableList.builder();
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            ImmutableList.Builder<String> batch = ImmutableList.builder();
+            for (int j = 0; j < BATCH_SIZE; j++) {
+                char[] chars = new char[itemSize];
+                for (int k = 0; k < itemSize; k++) {
+                    chars[k] = (char) ('a' + random.nextInt(26));
+                }
+                batch.add(new String(chars));
+            }
+            builder.add(batch.build());
+        }
+        batches = builder.build();
+    }
+
+    /**
+     * Deactivates the component.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        component.deactivate();
+    }
+
+    /**
+     * Returns the service under measurement.
+     *
+     * @return application service
+     */
+    public AppService service() {
+        return service;
+    }
+
+    /**
+     * Returns the next of the pre-generated batches, cycling through them.
+     *
+     * @return batch of items
+     */
+    public List<String> batch() {
+        next = (next + 1) & (BATCH_COUNT - 1);
+        return batches.get(next);
+    }
+
+    /**
+     * Returns the first item of the next pre-generated batch.
+     *
+     * @return item
+     */
+    public String item() {
+        return batch().get(0);
+    }
+
+}
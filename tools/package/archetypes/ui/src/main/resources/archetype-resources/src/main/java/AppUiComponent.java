@@ -18,26 +18,30 @@
  */
 package ${package};
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
-import org.apache.felix.scr.annotations.Service;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
-import org.onosproject.ui.RequestHandler;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.ui.UiExtension;
 import org.onosproject.ui.UiExtensionService;
-import org.onosproject.ui.UiMessageHandler;
 import org.onosproject.ui.UiMessageHandlerFactory;
 import org.onosproject.ui.UiView;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
+import java.util.Dictionary;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.onlab.util.Tools.groupedThreads;
 
 /**
  * Skeletal ONOS UI application component.
@@ -45,11 +49,32 @@ import java.util.List;
 @Component(immediate = true)
 public class AppUiComponent {
 
+    private static final int DEFAULT_BATCH_WINDOW_MS = 100;
+    private static final int DEFAULT_INBOUND_CAPACITY = 256;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected UiExtensionService uiExtensionService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
+
+    @Property(name = "batchWindowMs", intValue = DEFAULT_BATCH_WINDOW_MS,
+            label = "Window within which outbound UI updates are coalesced into " +
+                    "a single message, in milliseconds")
+    private int batchWindowMs = DEFAULT_BATCH_WINDOW_MS;
+
+    @Property(name = "inboundCapacity", intValue = DEFAULT_INBOUND_CAPACITY,
+            label = "Maximum number of distinct UI requests pending per connection; " +
+                    "further requests are dropped")
+    private int inboundCapacity = DEFAULT_INBOUND_CAPACITY;
+
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong mergedMessages = new AtomicLong();
+
+    private ScheduledExecutorService executor;
+
     // List of application views
     private final List<UiView> uiViews = ImmutableList.of(
             new UiView(UiView.Category.OTHER, "sample", "Sample")
@@ -58,7 +83,7 @@ public class AppUiComponent {
     // Factory for UI message handlers
     private final UiMessageHandlerFactory messageHandlerFactory =
             () -> ImmutableList.of(
-                    new AppUiMessageHandler()
+                    new AppUiMessageHandler(this)
             );
 
     // Application UI extension
@@ -66,7 +91,10 @@ public class AppUiComponent {
                                                       getClass().getClassLoader());
 
     @Activate
-    protected void activate() {
+    protected void activate(ComponentContext context) {
+        cfgService.registerProperties(getClass());
+        executor = newSingleThreadScheduledExecutor(groupedThreads("onos/ui-app", "batch-%d"));
+        modified(context);
         uiExtensionService.register(extension);
         log.info("Started");
     }
@@ -74,27 +102,78 @@ public class AppUiComponent {
     @Deactivate
     protected void deactivate() {
         uiExtensionService.unregister(extension);
+        cfgService.unregisterProperties(getClass(), false);
+        executor.shutdownNow();
         log.info("Stopped");
     }
 
-    // Application UI message handler
-    private class AppUiMessageHandler extends UiMessageHandler {
+    @Modified
+    protected void modified(ComponentContext context) {
+        Dictionary<?, ?> properties = context != null ? context.getProperties() : null;
+        batchWindowMs = intProperty(properties, "batchWindowMs", DEFAULT_BATCH_WINDOW_MS);
+        inboundCapacity = intProperty(properties, "inboundCapacity", DEFAULT_INBOUND_CAPACITY);
+        log.info("Configured with batchWindowMs={}, inboundCapacity={}",
+                 batchWindowMs, inboundCapacity);
+    }
 
-        @Override
-        protected Collection<RequestHandler> createRequestHandlers() {
-            return ImmutableSet.of(new SampleRequest());
+    // Returns the positive integer value of the given property or the
+    // default value if the property is missing or malformed.
+    private static int intProperty(Dictionary<?, ?> properties, String name, int def) {
+        Object value = properties != null ? properties.get(name) : null;
+        try {
+            int i = value == null ? def : Integer.parseInt(value.toString().trim());
+            return i > 0 ? i : def;
+        } catch (NumberFormatException e) {
+            return def;
         }
+    }
 
-        private class SampleRequest extends RequestHandler {
-            public SampleRequest() {
-                super("sampleRequest");
-            }
+    /**
+     * Returns the executor on which UI requests are processed and outbound
+     * batches are sent.
+     *
+     * @return scheduled executor
+     */
+    ScheduledExecutorService executor() {
+        return executor;
+    }
 
-            @Override
-            public void process(long sid, ObjectNode objectNode) {
-                log.info("We got a message: {}", objectNode);
-            }
-        }
+    /**
+     * Returns the window within which outbound updates are coalesced.
+     *
+     * @return window in milliseconds
+     */
+    int batchWindowMs() {
+        return batchWindowMs;
+    }
+
+    /**
+     * Returns the maximum number of distinct requests pending per
+     * connection.
+     *
+     * @return inbound queue capacity
+     */
+    int inboundCapacity() {
+        return inboundCapacity;
+    }
+
+    /**
+     * Returns the counter of messages dropped because a client fell behind.
+     *
+     * @return dropped message counter
+     */
+    AtomicLong droppedMessages() {
+        return droppedMessages;
+    }
+
+    /**
+     * Returns the counter of messages merged with pending messages of the
+     * same key.
+     *
+     * @return merged message counter
+     */
+    AtomicLong mergedMessages() {
+        return mergedMessages;
     }
 
 }
@@ -0,0 +1,225 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ${package};
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.onosproject.ui.RequestHandler;
+import org.onosproject.ui.UiMessageHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application UI message handler.
+ * <p>
+ * Requests received from the client are queued and processed off the web
+ * socket thread. The inbound queue is bounded; a request with the same key
+ * as a pending one replaces it and requests beyond the capacity are
+ * dropped. Outbound updates are coalesced per key within the configured
+ * window and sent to the client as a single batch message. Once the
+ * component is deactivated, pending and further messages are dropped.
+ * </p>
+ */
+class AppUiMessageHandler extends UiMessageHandler {
+
+    private static final String SAMPLE_REQ = "sampleRequest";
+    private static final String SAMPLE_BATCH = "sampleBatch";
+    private static final String STATS_REQ = "sampleStatsRequest";
+    private static final String STATS = "sampleStats";
+
+    private static final String KEY = "key";
+    private static final String UPDATES = "updates";
+    private static final String DROPPED = "dropped";
+    private static final String MERGED = "merged";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final AppUiComponent component;
+    private final SampleRequest sampleRequest = new SampleRequest();
+
+    // Pending inbound requests and outbound updates, keyed by their key;
+    // all guarded by this handler
+    private final Map<String, ObjectNode> inbound = Maps.newLinkedHashMap();
+    private final Map<String, ObjectNode> outbound = Maps.newLinkedHashMap();
+    private boolean draining = false;
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+
+    AppUiMessageHandler(AppUiComponent component) {
+        this.component = component;
+    }
+
+    @Override
+    protected Collection<RequestHandler> createRequestHandlers() {
+        return ImmutableSet.of(sampleRequest, new StatsRequest());
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            closed = true;
+            inbound.clear();
+            outbound.clear();
+        }
+        super.destroy();
+    }
+
+    /**
+     * Posts an update to the client; it is sent with the next batch,
+     * replacing any pending update with the same key.
+     *
+     * @param key    update key
+     * @param update update payload
+     */
+    public synchronized void post(String key, ObjectNode update) {
+        if (closed) {
+            return;
+        }
+        if (outbound.put(key, update) != null) {
+            component.mergedMessages().incrementAndGet();
+        }
+        if (!flushScheduled) {
+            try {
+                component.executor().schedule(this::flush, component.batchWindowMs(),
+                                              TimeUnit.MILLISECONDS);
+                flushScheduled = true;
+            } catch (RejectedExecutionException e) {
+                discard();
+            }
+        }
+    }
+
+    // Queues the given request for processing, merging it with a pending
+    // request of the same key or dropping it if the queue is full.
+    private synchronized void enqueue(ObjectNode payload) {
+        if (closed) {
+            return;
+        }
+        String key = payload.path(KEY).asText();
+        if (inbound.containsKey(key)) {
+            inbound.put(key, payload);
+            component.mergedMessages().incrementAndGet();
+        } else if (inbound.size() >= component.inboundCapacity()) {
+            component.droppedMessages().incrementAndGet();
+        } else {
+            inbound.put(key, payload);
+            if (!draining) {
+                try {
+                    component.executor().execute(this::drain);
+                    draining = true;
+                } catch (RejectedExecutionException e) {
+                    discard();
+                }
+            }
+        }
+    }
+
+    // Drops all pending messages and any further ones, because the
+    // component executor has been shut down.
+    private synchronized void discard() {
+        log.debug("Component deactivated; dropping pending messages");
+        closed = true;
+        component.droppedMessages().addAndGet(inbound.size() + outbound.size());
+        inbound.clear();
+        outbound.clear();
+    }
+
+    // Processes the pending requests until none are left.
+    private void drain() {
+        while (true) {
+            ObjectNode[] requests;
+            synchronized (this) {
+                if (inbound.isEmpty() || closed) {
+                    draining = false;
+                    return;
+                }
+                requests = inbound.values().toArray(new ObjectNode[inbound.size()]);
+                inbound.clear();
+            }
+            for (ObjectNode request : requests) {
+                try {
+                    handle(request);
+                } catch (RuntimeException e) {
+                    log.warn("Unable to process request {}", request, e);
+                }
+            }
+        }
+    }
+
+    // Processes the given request.
+    private void handle(ObjectNode request) {
+        log.debug("We got a message: {}", request);
+        String key = request.path(KEY).asText();
+        ObjectNode update = objectNode().put(KEY, key);
+        update.set("request", request);
+        post(key, update);
+    }
+
+    // Sends all pending updates to the client as a single message.
+    private void flush() {
+        ObjectNode payload = objectNode();
+        ArrayNode updates = payload.putArray(UPDATES);
+        synchronized (this) {
+            flushScheduled = false;
+            if (closed || outbound.isEmpty()) {
+                return;
+            }
+            outbound.values().forEach(updates::add);
+            outbound.clear();
+        }
+        sampleRequest.send(SAMPLE_BATCH, payload);
+    }
+
+    private final class SampleRequest extends RequestHandler {
+        private SampleRequest() {
+            super(SAMPLE_REQ);
+        }
+
+        @Override
+        public void process(long sid, ObjectNode payload) {
+            enqueue(payload);
+        }
+
+        // Sends the given message to the client.
+        private void send(String type, ObjectNode payload) {
+            sendMessage(type, 0, payload);
+        }
+    }
+
+    private final class StatsRequest extends RequestHandler {
+        private StatsRequest() {
+            super(STATS_REQ);
+        }
+
+        @Override
+        public void process(long sid, ObjectNode payload) {
+            sendMessage(STATS, sid, objectNode()
+                    .put(DROPPED, component.droppedMessages().get())
+                    .put(MERGED, component.mergedMessages().get()));
+        }
+    }
+
+}
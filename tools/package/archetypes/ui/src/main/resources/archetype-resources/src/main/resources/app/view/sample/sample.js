@@ -2,15 +2,49 @@
 (function () {
     'use strict';
 
+    var sampleReq = 'sampleRequest',
+        sampleBatch = 'sampleBatch',
+        statsReq = 'sampleStatsRequest',
+        statsResp = 'sampleStats';
+
     angular.module('ovSample', [])
         .controller('OvSampleCtrl',
-        ['$log', '$scope',
+        ['$log', '$scope', 'WebSocketService',
 
-            function ($log, $scope) {
-                var self = this;
+            function ($log, $scope, wss) {
+                var self = this,
+                    handlers = {},
+                    count = 0;
 
                 self.msg = 'A message from our app...';
+                self.updates = [];
+                self.stats = {};
+
+                // updates arrive coalesced per key, in batches
+                handlers[sampleBatch] = function (data) {
+                    $scope.$apply(function () {
+                        self.updates = self.updates.concat(data.updates).slice(-10);
+                    });
+                };
+                handlers[statsResp] = function (data) {
+                    $scope.$apply(function () {
+                        self.stats = data;
+                    });
+                };
+                wss.bindHandlers(handlers);
+
+                self.request = function () {
+                    count += 1;
+                    wss.sendEvent(sampleReq, { key: 'sample-' + (count % 3) });
+                    wss.sendEvent(statsReq, {});
+                };
+
+                $scope.$on('$destroy', function () {
+                    wss.unbindHandlers(handlers);
+                    $log.log('OvSampleCtrl has been destroyed');
+                });
 
+                self.request();
                 $log.log('OvSampleCtrl has been created');
             }]);
 }());
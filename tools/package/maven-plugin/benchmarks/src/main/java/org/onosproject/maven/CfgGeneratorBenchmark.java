@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the component configuration catalogue generation, as
+ * performed by the cfg goal, over synthetic source trees with 100 to
+ * 10,000 classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CfgGeneratorBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int classes;
+
+    @Param({"0.1"})
+    public double componentShare;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"true"})
+    public boolean catalog;
+
+    private File dir;
+    private File sourceRoot;
+    private File outputDir;
+    private CfgModel model;
+    private int version;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDir();
+        sourceRoot = new File(dir, "src/main/java");
+        outputDir = new File(dir, "target/classes");
+        SyntheticInputs.sourceTree(sourceRoot, classes, componentShare, 42L);
+        model = new CfgModel();
+        generate(model);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticInputs.delete(dir);
+    }
+
+    /**
+     * Measures a full, non-incremental catalogue generation.
+     *
+     * @return number of processed sources
+     * @throws IOException if unable to generate the catalogues
+     */
+    @Benchmark
+    public int fullBuild() throws IOException {
+        return generate(new CfgModel());
+    }
+
+    /**
+     * Measures an incremental catalogue generation with no changes.
+     *
+     * @return number of processed sources
+     * @throws IOException if unable to generate the catalogues
+     */
+    @Benchmark
+    public int noChangeBuild() throws IOException {
+        return generate(model);
+    }
+
+    /**
+     * Measures an incremental catalogue generation after a change of a
+     * single component.
+     *
+     * @return number of processed sources
+     * @throws IOException if unable to generate the catalogues
+     */
+    @Benchmark
+    public int singleChangeBuild() throws IOException {
+        SyntheticInputs.touchComponent(sourceRoot, classes / 2, ++version);
+        return generate(model);
+    }
+
+    // Generates the catalogues the same way as the cfg goal does.
+    private int generate(CfgModel cfgModel) throws IOException {
+        CfgGenerator generator = new CfgGenerator(threads, catalog);
+        generator.addModule(sourceRoot, outputDir, cfgModel);
+        return generator.generate();
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the application archive packaging, as performed by the
+ * app goal, over synthetic applications with 1 to 200 artifacts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OarPackagingBenchmark {
+
+    private static final byte[] APP_XML = ("<app name=\"org.bench.app\" origin=\"ON.Lab\" " +
+            "version=\"1.0\"><description>Benchmark</description></app>")
+            .getBytes(Charsets.UTF_8);
+
+    @Param({"1", "20", "200"})
+    public int artifacts;
+
+    @Param({"jar,oar,zip,gz", "none"})
+    public String storedTypes;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"-1"})
+    public int compressionLevel;
+
+    @Param({"true"})
+    public boolean index;
+
+    private File dir;
+    private File target;
+    private Map<String, File> sources;
+    private Set<String> stored;
+    private long totalBytes;
+
+    /**
+     * Counts the bytes of artifact contents packaged per second.
+     */
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Throughput {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDir();
+        target = new File(dir, "app.oar");
+        sources = SyntheticInputs.artifacts(dir, artifacts, "jar", 42L);
+        stored = ImmutableSet.copyOf(Splitter.on(',').trimResults()
+                                             .omitEmptyStrings().split(storedTypes));
+        totalBytes = sources.values().stream().mapToLong(File::length).sum();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticInputs.delete(dir);
+    }
+
+    /**
+     * Measures time to produce the complete application archive.
+     *
+     * @return archive length
+     * @throws IOException if unable to write the archive
+     */
+    @Benchmark
+    public long packageApp() throws IOException {
+        return writeArchive();
+    }
+
+    /**
+     * Measures the archive writer throughput in bytes of artifact contents
+     * per second.
+     *
+     * @param throughput throughput counter
+     * @return archive length
+     * @throws IOException if unable to write the archive
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long zipThroughput(Throughput throughput) throws IOException {
+        long length = writeArchive();
+        throughput.bytes += totalBytes;
+        return length;
+    }
+
+    // Writes the archive the same way as the app goal does.
+    private long writeArchive() throws IOException {
+        OarWriter writer = new OarWriter(stored, compressionLevel, threads, index);
+        writer.add("app.xml", APP_XML);
+        sources.forEach(writer::add);
+        writer.write(target);
+        return target.length();
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generator of reproducible synthetic inputs for the plugin benchmarks.
+ */
+final class SyntheticInputs {
+
+    private static final int MIN_ARTIFACT_SIZE = 4 * 1024;
+    private static final int MAX_ARTIFACT_SIZE = 2 * 1024 * 1024;
+    private static final int BLOCK = 4 * 1024;
+    private static final int CLASSES_PER_PACKAGE = 100;
+
+    private static final String[] WORDS = {
+            "onos", "device", "link", "host", "flow", "rule", "intent", "topology",
+            "packet", "port", "cluster", "store", "service", "provider", "event"
+    };
+
+    private SyntheticInputs() {
+    }
+
+    /**
+     * Writes the given number of artifacts with sizes distributed
+     * log-uniformly between 4 KB and 2 MB into the given directory. Half of
+     * the contents of each artifact is random and half is compressible text.
+     *
+     * @param dir       target directory
+     * @param count     number of artifacts
+     * @param extension artifact file extension
+     * @param seed      random seed
+     * @return map of package paths to artifact files
+     * @throws IOException if unable to write the artifacts
+     */
+    static Map<String, File> artifacts(File dir, int count, String extension, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+        Map<String, File> artifacts = Maps.newTreeMap();
+        double range = Math.log((double) MAX_ARTIFACT_SIZE / MIN_ARTIFACT_SIZE);
+        for (int i = 0; i < count; i++) {
+            int size = (int) (MIN_ARTIFACT_SIZE * Math.exp(random.nextDouble() * range));
+            String path = "m2/org/bench/artifact-" + i + "/1.0/artifact-" + i + "-1.0." + extension;
+            File file = new File(dir, path);
+            file.getParentFile().mkdirs();
+            Files.write(contents(random, size), file);
+            artifacts.put(path, file);
+        }
+        return artifacts;
+    }
+
+    // Produces artifact contents of the given size.
+    private static byte[] contents(Random random, int size) {
+        byte[] bytes = new byte[size];
+        for (int offset = 0; offset < size; offset += BLOCK) {
+            int length = Math.min(BLOCK, size - offset);
+            if (random.nextBoolean()) {
+                byte[] block = new byte[length];
+                random.nextBytes(block);
+                System.arraycopy(block, 0, bytes, offset, length);
+            } else {
+                for (int i = 0; i < length; ) {
+                    byte[] word = (WORDS[random.nextInt(WORDS.length)] + ' ')
+                            .getBytes(Charsets.US_ASCII);
+                    int n = Math.min(word.length, length - i);
+                    System.arraycopy(word, 0, bytes, offset + i, n);
+                    i += n;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes a Java source tree with the given number of classes into the
+     * given directory; the specified share of the classes are components
+     * with configuration properties, some of which refer to constants of
+     * other classes.
+     *
+     * @param root           source root directory
+     * @param classes        number of classes
+     * @param componentShare share of component classes between 0 and 1
+     * @param seed           random seed
+     * @throws IOException if unable to write the sources
+     */
+    static void sourceTree(File root, int classes, double componentShare, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+        for (int i = 0; i < classes; i++) {
+            int pkg = i / CLASSES_PER_PACKAGE;
+            boolean component = random.nextDouble() < componentShare;
+            writeSource(root, pkg, "Class" + i, component ?
+                    componentSource(pkg, i, random) : plainSource(pkg, i, random));
+        }
+        for (int pkg = 0; pkg <= (classes - 1) / CLASSES_PER_PACKAGE; pkg++) {
+            writeSource(root, pkg, "Constants",
+                        "package org.bench.p" + pkg + ";\n\n" +
+                                "public final class Constants {\n" +
+                                "    public static final String NAME = \"name-" + pkg + "\";\n" +
+                                "    public static final int SIZE = " + pkg + ";\n" +
+                                "}\n");
+        }
+    }
+
+    /**
+     * Rewrites the given class of a previously generated source tree with
+     * a different property default value.
+     *
+     * @param root    source root directory
+     * @param index   class index
+     * @param version version used as the property default value
+     * @throws IOException if unable to write the source
+     */
+    static void touchComponent(File root, int index, int version) throws IOException {
+        int pkg = index / CLASSES_PER_PACKAGE;
+        writeSource(root, pkg, "Class" + index,
+                    componentSource(pkg, index, new Random(version)));
+    }
+
+    // Writes the source of the given class.
+    private static void writeSource(File root, int pkg, String name, String source)
+            throws IOException {
+        File file = new File(root, "org/bench/p" + pkg + "/" + name + ".java");
+        file.getParentFile().mkdirs();
+        Files.write(source.getBytes(Charsets.UTF_8), file);
+    }
+
+    // Produces the source of a component class.
+    private static String componentSource(int pkg, int index, Random random) {
+        return "package org.bench.p" + pkg + ";\n\n" +
+                "import org.apache.felix.scr.annotations.Activate;\n" +
+                "import org.apache.felix.scr.annotations.Component;\n" +
+                "import org.apache.felix.scr.annotations.Property;\n" +
+                "import org.bench.p0.Constants;\n\n" +
+                "@Component(immediate = true)\n" +
+                "public class Class" + index + " {\n\n" +
+                "    private static final int DEFAULT_TIMEOUT = " + random.nextInt(1000) + ";\n\n" +
+                "    @Property(name = \"timeout\", intValue = DEFAULT_TIMEOUT,\n" +
+                "            label = \"Timeout in milliseconds; default is \" + DEFAULT_TIMEOUT)\n" +
+                "    private int timeout = DEFAULT_TIMEOUT;\n\n" +
+                "    @Property(name = \"enabled\", boolValue = " + random.nextBoolean() + ",\n" +
+                "            label = \"Enables the component\")\n" +
+                "    private boolean enabled;\n\n" +
+                "    @Property(name = \"name\", value = Constants.NAME,\n" +
+                "            label = \"Name of the component\")\n" +
+                "    private String name = Constants.NAME;\n\n" +
+                "    @Activate\n" +
+                "    public void activate() {\n" +
+                "        timeout = Math.max(timeout, Constants.SIZE);\n" +
+                "    }\n" +
+                methods(random) +
+                "}\n";
+    }
+
+    // Produces the source of a plain class.
+    private static String plainSource(int pkg, int index, Random random) {
+        return "package org.bench.p" + pkg + ";\n\n" +
+                "import java.util.List;\n\n" +
+                "/**\n * Plain class " + index + ".\n */\n" +
+                "public class Class" + index + " {\n\n" +
+                "    private final List<String> items = new java.util.ArrayList<>();\n" +
+                methods(random) +
+                "}\n";
+    }
+
+    // Produces a random number of methods.
+    private static String methods(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int count = 1 + random.nextInt(10);
+        for (int i = 0; i < count; i++) {
+            sb.append("\n    public int method").append(i).append("(int a, int b) {\n")
+                    .append("        int c = a * ").append(random.nextInt(100)).append(" + b;\n")
+                    .append("        return c > 0 ? c : -c;\n")
+                    .append("    }\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Deletes the given directory recursively.
+     *
+     * @param dir directory to delete
+     */
+    static void delete(File dir) {
+        for (File file : Files.fileTreeTraverser().postOrderTraversal(dir)) {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Benchmarks of the property substitution used by the app goal to evaluate
+ * app.xml and features.xml files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TemplateBenchmark {
+
+    @Param({"4", "32", "256"})
+    public int placeholders;
+
+    private String text;
+    private Template template;
+    private Function<String, String> resolver;
+
+    @Setup
+    public void setUp() {
+        Map<String, String> properties = Maps.newHashMap();
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                                                     "<features name=\"bench\">\n");
+        for (int i = 0; i < placeholders; i++) {
+            String name = "project.property" + (i % 16);
+            properties.put(name, "value-of-property-" + (i % 16));
+            sb.append("    <bundle>mvn:${").append(name).append("}/artifact-")
+                    .append(i).append("/${").append(name).append("}</bundle>\n");
+        }
+        text = sb.append("</features>\n").toString();
+        template = Template.compile(text);
+        resolver = properties::get;
+    }
+
+    /**
+     * Measures the complete eval() cost, i.e. compiling and rendering.
+     *
+     * @return rendered text
+     */
+    @Benchmark
+    public String eval() {
+        return Template.compile(text).render(resolver);
+    }
+
+    /**
+     * Measures the cost of compiling the template text.
+     *
+     * @return compiled template
+     */
+    @Benchmark
+    public Template compile() {
+        return Template.compile(text);
+    }
+
+    /**
+     * Measures the cost of rendering a precompiled template.
+     *
+     * @return rendered text
+     */
+    @Benchmark
+    public String render() {
+        return template.render(resolver);
+    }
+
+}
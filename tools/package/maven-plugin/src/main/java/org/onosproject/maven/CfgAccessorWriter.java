@@ -0,0 +1,388 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+import javax.lang.model.SourceVersion;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.io.ByteStreams.toByteArray;
+
+/**
+ * Writer of typed, immutable configuration snapshot classes for components
+ * with catalogued configuration properties.
+ * <p>
+ * For a component {@code Foo}, class {@code FooConfig} is generated in the
+ * same package. It holds the property values in final primitive fields and
+ * parses them from the component properties dictionary in a single pass.
+ * </p>
+ * <p>
+ * The locals of the generated parser carry a {@value #LOCAL_SUFFIX} suffix,
+ * so that they never clash with the parser's own variables, whatever the
+ * property names. Properties whose names map to the same constant or
+ * field name are rejected.
+ * </p>
+ */
+final class CfgAccessorWriter {
+
+    private static final String TEMPLATE = "config.template";
+    private static final String SUFFIX = "Config";
+    private static final String JAVA = ".java";
+    private static final String LOCAL_SUFFIX = "Value";
+    private static final String HEADER = "/*";
+    private static final String MARKER =
+            " * This file is auto-generated by onos-maven-plugin from the configuration";
+    private static final Set<String> RESERVED_MEMBERS = ImmutableSet.of("DEFAULTS");
+
+    private static final Template CONSTANT = Template.compile(
+            "    /**\n" +
+            "     * Name of the ${nameDoc} property.\n" +
+            "     */\n" +
+            "    public static final String ${constant} = \"${name}\";\n\n");
+    private static final Template FIELD = Template.compile(
+            "    /**\n" +
+            "     * ${description}\n" +
+            "     */\n" +
+            "    public final ${type} ${field};\n\n");
+    private static final Template ASSIGNMENT = Template.compile(
+            "        this.${field} = ${field};\n");
+    private static final Template LOCAL = Template.compile(
+            "        ${type} ${local} = DEFAULTS.${field};\n");
+    private static final Template CASE = Template.compile(
+            "                case ${constant}:\n" +
+            "                    ${local} = ${parser}(value, ${local});\n" +
+            "                    break;\n");
+    private static final Template TO_STRING = Template.compile(
+            "                \"${separator}${field}=\" + ${field} +\n");
+
+    // Java types, parsers and default literals keyed by the catalogue type.
+    private static final Map<String, Type> TYPES = ImmutableMap.<String, Type>builder()
+            .put("BOOLEAN", new Type("boolean", "booleanValue", "false"))
+            .put("BYTE", new Type("byte", "byteValue", "(byte) 0"))
+            .put("SHORT", new Type("short", "shortValue", "(short) 0"))
+            .put("INTEGER", new Type("int", "intValue", "0"))
+            .put("LONG", new Type("long", "longValue", "0L"))
+            .put("FLOAT", new Type("float", "floatValue", "0.0f"))
+            .put("DOUBLE", new Type("double", "doubleValue", "0.0"))
+            .put("STRING", new Type("String", "stringValue", "\"\""))
+            .build();
+
+    // Parser helpers keyed by the Java type.
+    private static final Map<String, String> HELPERS = ImmutableMap.<String, String>builder()
+            .put("boolean",
+                 "    private static boolean booleanValue(Object value, boolean def) {\n" +
+                 "        if (value instanceof Boolean) {\n" +
+                 "            return (Boolean) value;\n" +
+                 "        }\n" +
+                 "        String s = value == null ? \"\" : value.toString().trim();\n" +
+                 "        return s.isEmpty() ? def : Boolean.parseBoolean(s);\n" +
+                 "    }\n")
+            .put("byte", numberHelper("byte", "Byte.parseByte(s)", "byteValue"))
+            .put("short", numberHelper("short", "Short.parseShort(s)", "shortValue"))
+            .put("int", numberHelper("int", "Integer.parseInt(s)", "intValue"))
+            .put("long", numberHelper("long", "Long.parseLong(s)", "longValue"))
+            .put("float", numberHelper("float", "Float.parseFloat(s)", "floatValue"))
+            .put("double", numberHelper("double", "Double.parseDouble(s)", "doubleValue"))
+            .put("String",
+                 "    private static String stringValue(Object value, String def) {\n" +
+                 "        String s = value == null ? \"\" : value.toString();\n" +
+                 "        return s.isEmpty() ? def : s;\n" +
+                 "    }\n")
+            .build();
+
+    private final Template template;
+
+    /**
+     * Creates a new accessor writer.
+     *
+     * @throws IOException if unable to load the class template
+     */
+    CfgAccessorWriter() throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream(TEMPLATE)) {
+            this.template = Template.compile(new String(toByteArray(stream), Charsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes snapshot classes for all given components into the specified
+     * source directory, removing any previously generated classes which
+     * are no longer needed; other files in the directory are never removed.
+     * Files are only rewritten if their contents changed.
+     *
+     * @param catalogue properties keyed by the canonical name of top-level
+     *                  components
+     * @param directory generated sources directory
+     * @param excluded  names of classes which must not be generated, because
+     *                  they are declared by the module sources; classes are
+     *                  not generated for components in the default package
+     *                  either
+     * @throws IOException if unable to write the classes or if properties
+     *                     of a component map to the same constant or field
+     */
+    void write(Map<String, List<CfgCatalog.Property>> catalogue, File directory,
+               Set<String> excluded) throws IOException {
+        Set<File> generated = Sets.newHashSet();
+        for (Map.Entry<String, List<CfgCatalog.Property>> entry : catalogue.entrySet()) {
+            String className = entry.getKey() + SUFFIX;
+            if (excluded.contains(className) || entry.getKey().indexOf('.') < 0) {
+                continue;
+            }
+            File file = new File(directory, className.replace('.', '/') + JAVA);
+            byte[] bytes = render(entry.getKey(), entry.getValue()).getBytes(Charsets.UTF_8);
+            if (!file.exists() || !Arrays.equals(bytes, Files.toByteArray(file))) {
+                file.getParentFile().mkdirs();
+                Files.write(bytes, file);
+            }
+            generated.add(file);
+        }
+
+        if (directory.isDirectory()) {
+            for (File file : Files.fileTreeTraverser().postOrderTraversal(directory)) {
+                if (file.isFile() && !generated.contains(file) && isGenerated(file)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    // Indicates whether the given file is a class generated by this writer,
+    // i.e. a Java source starting with the header of the class template.
+    private static boolean isGenerated(File file) throws IOException {
+        if (!file.getName().endsWith(JAVA)) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newReader(file, Charsets.UTF_8)) {
+            return HEADER.equals(reader.readLine()) && MARKER.equals(reader.readLine());
+        }
+    }
+
+    // Renders the snapshot class of the given component.
+    private String render(String component, List<CfgCatalog.Property> properties)
+            throws IOException {
+        int i = component.lastIndexOf('.');
+        String simpleName = component.substring(i + 1);
+
+        StringBuilder constants = new StringBuilder();
+        StringBuilder fields = new StringBuilder();
+        StringBuilder assignments = new StringBuilder();
+        StringBuilder locals = new StringBuilder();
+        StringBuilder cases = new StringBuilder();
+        StringBuilder toString = new StringBuilder();
+        StringBuilder defaults = new StringBuilder();
+        StringBuilder parameters = new StringBuilder();
+        StringBuilder arguments = new StringBuilder();
+        Set<String> helpers = Sets.newTreeSet();
+        Map<String, String> members = Maps.newHashMap();
+        RESERVED_MEMBERS.forEach(m -> members.put(m, "snapshot class itself"));
+
+        int count = 0;
+        for (CfgCatalog.Property property : properties) {
+            String field = fieldName(property.name());
+            String constant = constantName(field);
+            claim(members, component, constant, "constant of property " + property.name());
+            claim(members, component, field, "field of property " + property.name());
+            Type type = TYPES.getOrDefault(property.type(), TYPES.get("STRING"));
+            String separator = count++ == 0 ? "" : ", ";
+            Map<String, String> values = ImmutableMap.<String, String>builder()
+                    .put("name", javaString(property.name()))
+                    .put("constant", constant)
+                    .put("nameDoc", javadoc(property.name()))
+                    .put("description", javadoc(property.description()))
+                    .put("type", type.name)
+                    .put("field", field)
+                    .put("local", field + LOCAL_SUFFIX)
+                    .put("parser", type.parser)
+                    .put("separator", separator)
+                    .build();
+
+            constants.append(CONSTANT.render(values::get));
+            fields.append(FIELD.render(values::get));
+            assignments.append(ASSIGNMENT.render(values::get));
+            locals.append(LOCAL.render(values::get));
+            cases.append(CASE.render(values::get));
+            toString.append(TO_STRING.render(values::get));
+            defaults.append(separator).append(type.literal(property.defaultValue()));
+            parameters.append(separator).append(type.name).append(' ').append(field);
+            arguments.append(separator).append(field).append(LOCAL_SUFFIX);
+            helpers.add(HELPERS.get(type.name));
+        }
+
+        StringBuilder helperMethods = new StringBuilder();
+        helpers.forEach(h -> helperMethods.append('\n').append(h));
+
+        Map<String, String> values = Maps.newHashMap();
+        values.put("package", component.substring(0, Math.max(i, 0)));
+        values.put("component", simpleName);
+        values.put("class", simpleName + SUFFIX);
+        values.put("constants", constants.toString());
+        values.put("fields", fields.toString());
+        values.put("assignments", assignments.toString());
+        values.put("locals", locals.toString());
+        values.put("cases", cases.toString());
+        values.put("toString", toString.toString());
+        values.put("defaults", defaults.toString());
+        values.put("parameters", parameters.toString());
+        values.put("arguments", arguments.toString());
+        values.put("helpers", helperMethods.toString());
+        return template.render(values::get);
+    }
+
+    // Records the given member name as used by the given owner, failing if
+    // the name is already in use.
+    private static void claim(Map<String, String> members, String component,
+                              String name, String owner) throws IOException {
+        String previous = members.putIfAbsent(name, owner);
+        if (previous != null) {
+            throw new IOException("The " + owner + " of " + component + " would be named " +
+                                          name + ", which is already used by the " +
+                                          previous + "; rename one of the properties");
+        }
+    }
+
+    // Returns a valid Java field name for the given property name.
+    private static String fieldName(String name) {
+        StringBuilder sb = new StringBuilder();
+        boolean upper = false;
+        for (char c : name.toCharArray()) {
+            if (!Character.isJavaIdentifierPart(c)) {
+                upper = sb.length() > 0;
+            } else {
+                sb.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        String field = sb.toString();
+        if (field.isEmpty() || !Character.isJavaIdentifierStart(field.charAt(0))) {
+            field = "p" + field;
+        }
+        return SourceVersion.isKeyword(field) ? field + "Value" : field;
+    }
+
+    // Returns the constant name for the given field name.
+    private static String constantName(String field) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 &&
+                    !Character.isUpperCase(field.charAt(i - 1))) {
+                sb.append('_');
+            }
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    // Returns the given text escaped for use in a documentation comment;
+    // backslashes are escaped too, as javac translates Unicode escapes
+    // even within comments.
+    private static String javadoc(String text) {
+        return text.replace("\\", "&#92;").replace("*/", "*&#47;");
+    }
+
+    // Returns the Java string literal of the given string.
+    private static String javaString(String string) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : string.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Produces the parser helper of a numeric type.
+    private static String numberHelper(String type, String parse, String accessor) {
+        return "    private static " + type + " " + type + "Value(Object value, " +
+                type + " def) {\n" +
+                "        if (value instanceof Number) {\n" +
+                "            return ((Number) value)." + accessor + "();\n" +
+                "        }\n" +
+                "        String s = value == null ? \"\" : value.toString().trim();\n" +
+                "        try {\n" +
+                "            return s.isEmpty() ? def : " + parse + ";\n" +
+                "        } catch (NumberFormatException e) {\n" +
+                "            return def;\n" +
+                "        }\n" +
+                "    }\n";
+    }
+
+    // Java type of a configuration property.
+    private static final class Type {
+        private final String name;
+        private final String parser;
+        private final String zero;
+
+        private Type(String name, String parser, String zero) {
+            this.name = name;
+            this.parser = parser;
+            this.zero = zero;
+        }
+
+        // Returns the Java literal of the given catalogued default value;
+        // values which are not literals of this type yield the type default.
+        private String literal(String value) {
+            String v = value.trim();
+            try {
+                switch (name) {
+                    case "boolean":
+                        return Boolean.toString(Boolean.parseBoolean(v));
+                    case "byte":
+                        return "(byte) " + Byte.parseByte(number(v, "lL"));
+                    case "short":
+                        return "(short) " + Short.parseShort(number(v, "lL"));
+                    case "int":
+                        return Integer.toString(Integer.parseInt(number(v, "lL")));
+                    case "long":
+                        return Long.parseLong(number(v, "lL")) + "L";
+                    case "float":
+                        float f = Float.parseFloat(number(v, "fFdD"));
+                        return Float.isInfinite(f) || Float.isNaN(f) ? zero : f + "f";
+                    case "double":
+                        double d = Double.parseDouble(number(v, "fFdD"));
+                        return Double.isInfinite(d) || Double.isNaN(d) ? zero : Double.toString(d);
+                    default:
+                        return "\"" + javaString(value) + "\"";
+                }
+            } catch (NumberFormatException e) {
+                return zero;
+            }
+        }
+
+        // Strips any of the given literal suffixes from the number.
+        private static String number(String value, String suffixes) {
+            return !value.isEmpty() && suffixes.indexOf(value.charAt(value.length() - 1)) >= 0 ?
+                    value.substring(0, value.length() - 1) : value;
+        }
+    }
+
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Consolidated catalogue of the configuration properties of all components
+ * of a bundle.
+ * <p>
+ * The catalogue holds the same information as the individual .cfgdef
+ * resources, in a compact form which is loaded with a single read. All
+ * strings are interned in a string table and referenced by their index;
+ * properties are fixed-width records and components are sorted by name,
+ * so that the properties of a component are found by binary search. All
+ * values are encoded in network byte order:
+ * </p>
+ * <pre>
+ *     int magic, short version,
+ *     int stringCount, stringCount * (int length, byte[] utf8),
+ *     int componentCount, componentCount * (int name, int first, int count),
+ *     int propertyCount, propertyCount * (int name, int type,
+ *                                         int defaultValue, int description)
+ * </pre>
+ */
+public final class CfgCatalog {
+
+    /**
+     * Path of the catalogue resource within the bundle.
+     */
+    public static final String PATH = "META-INF/onos/cfgdef.cat";
+
+    private static final int MAGIC = 0x4f434647; // "OCFG"
+    private static final short VERSION = 1;
+    private static final int COMPONENT_LENGTH = 3;
+    private static final int PROPERTY_LENGTH = 4;
+
+    private final String[] strings;
+    private final int[] components;
+    private final int[] properties;
+
+    private CfgCatalog(String[] strings, int[] components, int[] properties) {
+        this.strings = strings;
+        this.components = components;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the names of all catalogued components, in sorted order.
+     *
+     * @return list of component names
+     */
+    public List<String> components() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return strings[components[index * COMPONENT_LENGTH]];
+            }
+
+            @Override
+            public int size() {
+                return components.length / COMPONENT_LENGTH;
+            }
+        };
+    }
+
+    /**
+     * Returns the configuration properties of the given component.
+     *
+     * @param component component name, i.e. package name and simple name
+     *                  of the component class
+     * @return list of properties; empty if the component is not catalogued
+     */
+    public List<Property> properties(String component) {
+        int low = 0;
+        int high = components.length / COMPONENT_LENGTH - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = strings[components[mid * COMPONENT_LENGTH]].compareTo(component);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return properties(components[mid * COMPONENT_LENGTH + 1],
+                                  components[mid * COMPONENT_LENGTH + 2]);
+            }
+        }
+        return ImmutableList.of();
+    }
+
+    // Materializes the given range of property records.
+    private List<Property> properties(int first, int count) {
+        ImmutableList.Builder<Property> builder = ImmutableList.builder();
+        for (int i = first; i < first + count; i++) {
+            int r = i * PROPERTY_LENGTH;
+            builder.add(new Property(strings[properties[r]], strings[properties[r + 1]],
+                                     strings[properties[r + 2]], strings[properties[r + 3]]));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Encodes the given component properties into the catalogue form.
+     *
+     * @param catalogue properties keyed by component name
+     * @return encoded catalogue
+     */
+    static byte[] encode(SortedMap<String, List<Property>> catalogue) {
+        Map<String, Integer> index = Maps.newHashMap();
+        List<String> strings = Lists.newArrayList();
+        List<int[]> records = Lists.newArrayList();
+        int[] components = new int[catalogue.size() * COMPONENT_LENGTH];
+
+        int c = 0;
+        for (Map.Entry<String, List<Property>> entry : catalogue.entrySet()) {
+            components[c++] = intern(entry.getKey(), index, strings);
+            components[c++] = records.size();
+            components[c++] = entry.getValue().size();
+            for (Property p : entry.getValue()) {
+                records.add(new int[]{intern(p.name, index, strings),
+                        intern(p.type, index, strings),
+                        intern(p.defaultValue, index, strings),
+                        intern(p.description, index, strings)});
+            }
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(bos)) {
+            dos.writeInt(MAGIC);
+            dos.writeShort(VERSION);
+            dos.writeInt(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(Charsets.UTF_8);
+                dos.writeInt(bytes.length);
+                dos.write(bytes);
+            }
+            dos.writeInt(catalogue.size());
+            for (int value : components) {
+                dos.writeInt(value);
+            }
+            dos.writeInt(records.size());
+            for (int[] record : records) {
+                for (int value : record) {
+                    dos.writeInt(value);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode configuration catalogue", e);
+        }
+        return bos.toByteArray();
+    }
+
+    // Returns index of the given string in the string table, adding it first
+    // if necessary.
+    private static int intern(String string, Map<String, Integer> index,
+                              List<String> strings) {
+        return index.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * Decodes the catalogue from the given buffer.
+     *
+     * @param buffer buffer holding the encoded catalogue
+     * @return decoded catalogue
+     * @throws IOException if the buffer does not hold a valid catalogue
+     */
+    public static CfgCatalog decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Unsupported configuration catalogue format");
+            }
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, Charsets.UTF_8);
+            }
+            int[] components = ints(buffer, buffer.getInt() * COMPONENT_LENGTH);
+            int[] properties = ints(buffer, buffer.getInt() * PROPERTY_LENGTH);
+            validate(strings.length, components, properties.length / PROPERTY_LENGTH);
+            if (Arrays.stream(properties).anyMatch(i -> i < 0 || i >= strings.length)) {
+                throw new IOException("Corrupted configuration catalogue");
+            }
+            return new CfgCatalog(strings, components, properties);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Truncated configuration catalogue", e);
+        }
+    }
+
+    // Validates that the component records refer to existing strings and
+    // property records.
+    private static void validate(int stringCount, int[] components, int propertyCount)
+            throws IOException {
+        for (int c = 0; c < components.length; c += COMPONENT_LENGTH) {
+            int name = components[c];
+            int first = components[c + 1];
+            int count = components[c + 2];
+            if (name < 0 || name >= stringCount || first < 0 || count < 0 ||
+                    first > propertyCount - count) {
+                throw new IOException("Corrupted configuration catalogue");
+            }
+        }
+    }
+
+    // Reads the given number of integers from the buffer.
+    private static int[] ints(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    /**
+     * Reads the catalogue from the given stream.
+     *
+     * @param stream catalogue stream
+     * @return decoded catalogue
+     * @throws IOException if the stream cannot be read or does not hold a
+     *                     valid catalogue
+     */
+    public static CfgCatalog read(InputStream stream) throws IOException {
+        return decode(ByteBuffer.wrap(ByteStreams.toByteArray(stream)));
+    }
+
+    /**
+     * Catalogued configuration property.
+     */
+    public static final class Property implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final String type;
+        private final String defaultValue;
+        private final String description;
+
+        Property(String name, String type, String defaultValue, String description) {
+            this.name = name;
+            this.type = type;
+            this.defaultValue = defaultValue;
+            this.description = description;
+        }
+
+        /**
+         * Returns the property name.
+         *
+         * @return property name
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Returns the property type, e.g. INTEGER or STRING.
+         *
+         * @return property type
+         */
+        public String type() {
+            return type;
+        }
+
+        /**
+         * Returns the default value of the property.
+         *
+         * @return default value; empty if there is none
+         */
+        public String defaultValue() {
+            return defaultValue;
+        }
+
+        /**
+         * Returns the property description.
+         *
+         * @return description
+         */
+        public String description() {
+            return description;
+        }
+    }
+
+    /**
+     * Prints properties of all or of the given catalogued components in
+     * the .cfgdef format.
+     * <p>
+     * Usage: {@code CfgCatalog catalogue [component]}
+     * </p>
+     *
+     * @param args command-line arguments
+     * @throws IOException if the catalogue cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: CfgCatalog catalogue [component]");
+            System.exit(1);
+        }
+        CfgCatalog catalog;
+        try (InputStream stream = new FileInputStream(new File(args[0]))) {
+            catalog = read(stream);
+        }
+        List<String> names = args.length > 1 ?
+                ImmutableList.of(args[1]) : catalog.components();
+        for (String name : names) {
+            System.out.println("# " + name);
+            catalog.properties(name).forEach(p -> System.out.println(
+                    p.name + "|" + p.type + "|" + p.defaultValue + "|" + p.description));
+        }
+    }
+
+}
@@ -0,0 +1,621 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.io.Files;
+import com.thoughtworks.qdox.JavaProjectBuilder;
+import com.thoughtworks.qdox.model.JavaAnnotation;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaField;
+import com.thoughtworks.qdox.model.JavaSource;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Generator of ONOS component configuration catalogues from the Java
+ * sources of one or more modules.
+ * <p>
+ * The generator works on models of the module sources which are kept
+ * between builds, so that only the sources which changed, and the sources
+ * which refer to constants declared by them, need to be processed again.
+ * Sources which do not mention the component annotations at all are only
+ * parsed when their constants are referenced. Constants are resolved
+ * across all modules given to the generator; sources are parsed and
+ * catalogues are written in parallel.
+ * </p>
+ */
+final class CfgGenerator {
+
+    private static final String COMPONENT = "org.apache.felix.scr.annotations.Component";
+    private static final String PROPERTY = "org.apache.felix.scr.annotations.Property";
+    private static final String SEP = "|";
+    private static final String JAVA = ".java";
+    private static final String CFGDEF = ".cfgdef";
+
+    private static final byte[] ANNOTATIONS =
+            "org.apache.felix.scr.annotations".getBytes(Charsets.UTF_8);
+    private static final Pattern CONSTANT =
+            Pattern.compile("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)+");
+
+    private final int threads;
+    private final boolean catalog;
+    private final List<Module> modules = Lists.newArrayList();
+    private CfgAccessorWriter accessorWriter;
+
+    /**
+     * Creates a new catalogue generator.
+     *
+     * @param threads number of worker threads
+     * @param catalog true to also produce consolidated bundle catalogues;
+     *                false to remove any produced by earlier builds
+     */
+    CfgGenerator(int threads, boolean catalog) {
+        this.threads = Math.max(1, threads);
+        this.catalog = catalog;
+    }
+
+    /**
+     * Adds a module whose catalogues should be generated.
+     *
+     * @param sourceRoot   root of the module Java sources
+     * @param dstDirectory directory where the catalogues will be put
+     * @param model        model of the module sources from the previous
+     *                     build; updated by the generator
+     */
+    void addModule(File sourceRoot, File dstDirectory, CfgModel model) {
+        addModule(sourceRoot, dstDirectory, model, null);
+    }
+
+    /**
+     * Adds a module whose catalogues and configuration snapshot classes
+     * should be generated.
+     *
+     * @param sourceRoot   root of the module Java sources
+     * @param dstDirectory directory where the catalogues will be put
+     * @param model        model of the module sources from the previous
+     *                     build; updated by the generator
+     * @param accessorRoot directory where the configuration snapshot
+     *                     classes will be put; null to generate none
+     * @see CfgAccessorWriter
+     */
+    void addModule(File sourceRoot, File dstDirectory, CfgModel model, File accessorRoot) {
+        modules.add(new Module(sourceRoot, dstDirectory, model, accessorRoot));
+    }
+
+    /**
+     * Generates the catalogues of all modules which are affected by changes
+     * since the previous build.
+     *
+     * @return number of sources which were processed
+     * @throws IOException if unable to read a source or write a catalogue
+     */
+    int generate() throws IOException {
+        Set<String> affected = Sets.newHashSet();
+        for (Module module : modules) {
+            module.files = javaSources(module.sourceRoot);
+            removeSources(module, affected);
+        }
+        parseSources(affected);
+        modules.forEach(module -> findDependents(module, affected));
+        parseReferencedSources();
+
+        Map<String, CfgModel.Source> index = Maps.newHashMap();
+        modules.forEach(module -> index.putAll(module.model.classIndex()));
+        List<Callable<Void>> tasks = Lists.newArrayList();
+        modules.forEach(module -> module.stale.keySet().forEach(path -> tasks.add(() -> {
+            processSource(index, module.dstDirectory, module.model.sources().get(path));
+            return null;
+        })));
+        runAll(tasks);
+
+        for (Module module : modules) {
+            CfgModel model = module.model;
+            module.stale.forEach((path, outputs) -> outputs.stream()
+                    .filter(o -> !model.sources().get(path).outputs().contains(o))
+                    .forEach(module.obsolete::add));
+            model.sources().values().forEach(s -> module.obsolete.removeAll(s.outputs()));
+            module.obsolete.forEach(o -> new File(module.dstDirectory, o).delete());
+            if (catalog) {
+                writeBundleCatalog(model, module.dstDirectory);
+            } else {
+                new File(module.dstDirectory, CfgCatalog.PATH).delete();
+            }
+            if (module.accessorRoot != null) {
+                Set<String> declared = Sets.newHashSet();
+                model.sources().forEach((path, source) -> {
+                    declared.add(className(path));
+                    declared.addAll(source.classes());
+                });
+                accessorWriter().write(accessorCatalogue(model), module.accessorRoot, declared);
+            }
+        }
+        return tasks.size();
+    }
+
+    /**
+     * Returns the number of sources of all modules.
+     *
+     * @return number of sources
+     */
+    int sourceCount() {
+        return modules.stream().mapToInt(m -> m.files == null ? 0 : m.files.size()).sum();
+    }
+
+    // Returns all Java source files under the given root, keyed by their
+    // path relative to the root.
+    private Map<String, File> javaSources(File root) {
+        Map<String, File> files = Maps.newTreeMap();
+        if (root.isDirectory()) {
+            for (File file : Files.fileTreeTraverser().preOrderTraversal(root)) {
+                if (file.isFile() && file.getName().endsWith(JAVA)) {
+                    files.put(root.toURI().relativize(file.toURI()).getPath(), file);
+                }
+            }
+        }
+        return files;
+    }
+
+    // Drops sources which no longer exist from the model, noting the classes
+    // they declared and the catalogues they produced.
+    private void removeSources(Module module, Set<String> affected) {
+        module.model.sources().entrySet().removeIf(entry -> {
+            if (module.files.containsKey(entry.getKey())) {
+                return false;
+            }
+            affected.add(className(entry.getKey()));
+            affected.addAll(entry.getValue().classes());
+            module.obsolete.addAll(entry.getValue().outputs());
+            return true;
+        });
+    }
+
+    // Scans all sources and parses those which are new or changed since the
+    // previous build, noting the classes they declare and the catalogues
+    // they produced. Sources which do not refer to the component annotations
+    // are not parsed, as they cannot produce any catalogues.
+    private void parseSources(Set<String> affected) throws IOException {
+        List<Callable<CfgModel.Source>> tasks = Lists.newArrayList();
+        modules.forEach(module -> module.files.forEach((path, file) -> tasks.add(() -> {
+            Scan scan = scan(file);
+            CfgModel.Source old = module.model.sources().get(path);
+            if (old != null && old.digest().equals(scan.digest)) {
+                return old;
+            }
+            return scan.candidate ? parseSource(file, scan.digest) :
+                    new CfgModel.Source(scan.digest);
+        })));
+
+        Iterator<CfgModel.Source> results = runAll(tasks).iterator();
+        for (Module module : modules) {
+            for (String path : module.files.keySet()) {
+                CfgModel.Source source = results.next();
+                CfgModel.Source old = module.model.sources().put(path, source);
+                if (old == source) {
+                    continue;
+                }
+                affected.add(className(path));
+                affected.addAll(source.classes());
+                module.stale.put(path, Sets.newHashSet());
+                if (old != null) {
+                    affected.addAll(old.classes());
+                    module.stale.get(path).addAll(old.outputs());
+                }
+            }
+        }
+    }
+
+    // Parses the not yet parsed sources, of any module, which may declare
+    // constants referenced by the properties of the stale sources.
+    private void parseReferencedSources() throws IOException {
+        Set<String> classNames = Sets.newHashSet();
+        for (Module module : modules) {
+            for (String path : module.stale.keySet()) {
+                for (CfgModel.Component component : module.model.sources().get(path).components()) {
+                    for (CfgModel.Property property : component.properties()) {
+                        classNames.addAll(references(component, property));
+                    }
+                }
+            }
+        }
+
+        for (String className : classNames) {
+            for (String candidate : sourcePaths(className)) {
+                for (Module module : modules) {
+                    CfgModel.Source source = module.model.sources().get(candidate);
+                    if (source != null && !source.parsed()) {
+                        module.model.sources().put(candidate, parseSource(module.files.get(candidate),
+                                                                          source.digest()));
+                    }
+                }
+            }
+        }
+    }
+
+    // Returns the canonical names of classes which may declare constants
+    // referenced by the given property.
+    private Set<String> references(CfgModel.Component component, CfgModel.Property property) {
+        Set<String> classNames = Sets.newHashSet();
+        for (String value : new String[]{property.name(), property.defaultValue()}) {
+            String expression = value == null ? "" : value.trim();
+            if (CONSTANT.matcher(expression).matches()) {
+                classNames.addAll(candidates(component, expression
+                        .substring(0, expression.lastIndexOf('.'))));
+            }
+        }
+        return classNames;
+    }
+
+    // Returns paths of the sources which may declare the given class.
+    private List<String> sourcePaths(String className) {
+        List<String> paths = Lists.newArrayList();
+        String name = className;
+        while (!name.isEmpty()) {
+            paths.add(name.replace('.', '/') + JAVA);
+            int i = name.lastIndexOf('.');
+            name = i < 0 ? "" : name.substring(0, i);
+        }
+        return paths;
+    }
+
+    // Returns the name of the primary class declared by the given source.
+    private String className(String path) {
+        return path.substring(0, path.length() - JAVA.length()).replace('/', '.');
+    }
+
+    // Scans the memory-mapped source file, computing its digest and noting
+    // whether it refers to the component annotations.
+    private Scan scan(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.duplicate());
+            return new Scan(HashCode.fromBytes(digest.digest()).toString(),
+                            contains(buffer, ANNOTATIONS));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    // Indicates whether the buffer contains the given byte sequence.
+    private boolean contains(ByteBuffer buffer, byte[] bytes) {
+        int limit = buffer.limit() - bytes.length;
+        for (int i = 0; i <= limit; i++) {
+            int j = 0;
+            while (j < bytes.length && buffer.get(i + j) == bytes[j]) {
+                j++;
+            }
+            if (j == bytes.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Runs the given tasks on the worker threads and returns their results
+    // in the order of the tasks.
+    private <T> List<T> runAll(List<Callable<T>> tasks) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<T> results = Lists.newArrayList();
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing sources", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Marks sources which depend on any of the affected classes, or whose
+    // catalogues went missing, as stale.
+    private void findDependents(Module module, Set<String> affected) {
+        module.model.sources().forEach((path, source) -> {
+            if (!module.stale.containsKey(path) &&
+                    (!Collections.disjoint(source.dependencies(), affected) ||
+                            source.outputs().stream()
+                                    .anyMatch(o -> !new File(module.dstDirectory, o).exists()))) {
+                module.stale.put(path, Sets.newHashSet(source.outputs()));
+            }
+        });
+    }
+
+    // Parses the given source file and produces its model.
+    private CfgModel.Source parseSource(File file, String digest) throws IOException {
+        JavaSource javaSource = new JavaProjectBuilder().addSource(file);
+        Map<String, Map<String, String>> fields = Maps.newHashMap();
+        List<CfgModel.Component> components = Lists.newArrayList();
+        javaSource.getClasses().forEach(c -> parseClass(c, fields, components));
+        return new CfgModel.Source(digest, fields, components);
+    }
+
+    // Adds the model of the given class and its nested classes.
+    private void parseClass(JavaClass javaClass, Map<String, Map<String, String>> fields,
+                            List<CfgModel.Component> components) {
+        Map<String, String> initializers = Maps.newHashMap();
+        javaClass.getFields().forEach(f -> {
+            if (f.getCodeBlock() != null) {
+                initializers.put(f.getName(), f.getCodeBlock()
+                        .replaceFirst(".*=", "").replaceFirst(";$", ""));
+            }
+        });
+        fields.put(javaClass.getCanonicalName(), initializers);
+
+        boolean isComponent = javaClass.getAnnotations().stream()
+                .map(ja -> ja.getType().getName().equals(COMPONENT))
+                .findFirst().isPresent();
+        if (isComponent) {
+            List<CfgModel.Property> properties = Lists.newArrayList();
+            javaClass.getFields().forEach(field -> processField(properties, field));
+            components.add(new CfgModel.Component(javaClass.getPackageName(),
+                                                  javaClass.getName(),
+                                                  javaClass.getCanonicalName(),
+                                                  javaClass.getSource().getImports(),
+                                                  properties));
+        }
+        javaClass.getNestedClasses().forEach(c -> parseClass(c, fields, components));
+    }
+
+    // Generates catalogues for all components of the given source.
+    private void processSource(Map<String, CfgModel.Source> index, File dstDirectory,
+                               CfgModel.Source source) throws IOException {
+        source.catalogs().clear();
+        source.dependencies().clear();
+        for (CfgModel.Component component : source.components()) {
+            List<CfgCatalog.Property> properties = new ArrayList<>();
+            List<String> lines = new ArrayList<>();
+            component.properties().forEach(p -> {
+                CfgCatalog.Property property = new CfgCatalog.Property(
+                        expand(index, source, component, p.name()), p.type(),
+                        p.defaultValue() == null ? "" :
+                                expand(index, source, component, p.defaultValue()),
+                        p.description());
+                properties.add(property);
+                lines.add(property.name() + SEP + property.type() +
+                                  SEP + property.defaultValue() +
+                                  SEP + property.description());
+            });
+            if (!lines.isEmpty()) {
+                source.catalogs().put(writeCatalog(dstDirectory, component, lines), properties);
+            }
+        }
+    }
+
+    // Returns the expanded properties of all catalogued components of the
+    // given module, keyed by the component name.
+    private SortedMap<String, List<CfgCatalog.Property>> catalogue(CfgModel model) {
+        SortedMap<String, List<CfgCatalog.Property>> catalogue = Maps.newTreeMap();
+        model.sources().values().forEach(s -> s.catalogs().forEach((path, properties) -> {
+            String name = path.substring(0, path.length() - CFGDEF.length());
+            catalogue.put(name.replace('/', '.'), properties);
+        }));
+        return catalogue;
+    }
+
+    // Returns the expanded properties of the top-level components of the
+    // given module, keyed by their canonical name. Nested components get no
+    // snapshot classes, as their catalogues do not name the enclosing class.
+    private SortedMap<String, List<CfgCatalog.Property>> accessorCatalogue(CfgModel model) {
+        SortedMap<String, List<CfgCatalog.Property>> catalogue = Maps.newTreeMap();
+        model.sources().values().forEach(s -> s.components().stream()
+                .filter(c -> c.className().equals(c.packageName() + "." + c.name()))
+                .forEach(c -> {
+                    List<CfgCatalog.Property> properties = s.catalogs().get(catalogPath(c));
+                    if (properties != null) {
+                        catalogue.put(c.className(), properties);
+                    }
+                }));
+        return catalogue;
+    }
+
+    // Returns the lazily created configuration snapshot class writer.
+    private CfgAccessorWriter accessorWriter() throws IOException {
+        if (accessorWriter == null) {
+            accessorWriter = new CfgAccessorWriter();
+        }
+        return accessorWriter;
+    }
+
+    // Writes the consolidated catalogue of all components of the bundle,
+    // unless it is up-to-date already.
+    private void writeBundleCatalog(CfgModel model, File dstDirectory) throws IOException {
+        SortedMap<String, List<CfgCatalog.Property>> catalogue = catalogue(model);
+        File file = new File(dstDirectory, CfgCatalog.PATH);
+        if (catalogue.isEmpty()) {
+            file.delete();
+            return;
+        }
+        byte[] bytes = CfgCatalog.encode(catalogue);
+        if (!file.exists() || !Arrays.equals(bytes, Files.toByteArray(file))) {
+            file.getParentFile().mkdirs();
+            Files.write(bytes, file);
+        }
+    }
+
+    // Writes the catalogue of the given component and returns its path
+    // relative to the output directory.
+    private String writeCatalog(File dstDirectory, CfgModel.Component component,
+                                List<String> lines) throws IOException {
+        String path = catalogPath(component);
+        File cfgDef = new File(dstDirectory, path);
+        cfgDef.getParentFile().mkdirs();
+        try (FileWriter fw = new FileWriter(cfgDef);
+             PrintWriter pw = new PrintWriter(fw)) {
+            pw.println("# This file is auto-generated by onos-maven-plugin");
+            lines.forEach(pw::println);
+            if (pw.checkError()) {
+                throw new IOException("Unable to write catalog for " + component.name());
+            }
+        }
+        return path;
+    }
+
+    // Returns the path of the catalogue of the given component relative to
+    // the output directory.
+    private static String catalogPath(CfgModel.Component component) {
+        String dirPath = component.packageName().replace('.', '/');
+        String name = component.name().replace('.', '/') + CFGDEF;
+        return dirPath.isEmpty() ? name : dirPath + "/" + name;
+    }
+
+    private void processField(List<CfgModel.Property> properties, JavaField field) {
+        field.getAnnotations().forEach(ja -> {
+            if (ja.getType().getName().equals(PROPERTY)) {
+                properties.add(new CfgModel.Property(ja.getNamedParameter("name").toString(),
+                                                     type(field),
+                                                     defaultValue(field, ja),
+                                                     description(ja)));
+            }
+        });
+    }
+
+    // Returns the property label, with the string literals it may be
+    // concatenated from joined and their quotes removed.
+    private String description(JavaAnnotation annotation) {
+        String description = (String) annotation.getNamedParameter("label");
+        return description.replaceAll("\" \\+ \"", "")
+                .replaceFirst("^[^\"]*\"", "").replaceFirst("\"$", "");
+    }
+
+    // Returns the catalogue type of the given property field.
+    private String type(JavaField field) {
+        String ft = field.getType().getName().toUpperCase();
+        return ft.equals("INT") ? "INTEGER" : ft;
+    }
+
+    // Returns the unexpanded default value expression of the given property,
+    // taken from the annotation parameter matching the field type.
+    private String defaultValue(JavaField field, JavaAnnotation annotation) {
+        String ft = field.getType().getName().toLowerCase();
+        String defValueName = ft.equals("boolean") ? "boolValue" :
+                ft.equals("string") ? "value" : ft + "Value";
+        Object dv = annotation.getNamedParameter(defValueName);
+        return dv == null ? null : dv.toString();
+    }
+
+    // Returns the given literal without its enclosing quotes.
+    private String stripQuotes(String string) {
+        return string.trim().replaceFirst("^[^\"]*\"", "").replaceFirst("\"$", "");
+    }
+
+    // Returns the value of the given expression, resolving references to
+    // constants of the component class or of other classes of the model.
+    private String expand(Map<String, CfgModel.Source> index, CfgModel.Source source,
+                          CfgModel.Component component, String value) {
+        String field = source.field(component.className(), value);
+        if (field != null) {
+            return stripQuotes(field);
+        }
+
+        // Resolve Type.FIELD references to constants of other classes
+        String expression = value.trim();
+        if (CONSTANT.matcher(expression).matches()) {
+            int i = expression.lastIndexOf('.');
+            String name = expression.substring(i + 1);
+            for (String className : candidates(component, expression.substring(0, i))) {
+                source.dependencies().add(className);
+                CfgModel.Source declaring = index.get(className);
+                field = declaring != null ? declaring.field(className, name) : null;
+                if (field != null) {
+                    return stripQuotes(field);
+                }
+            }
+        }
+        return stripQuotes(value);
+    }
+
+    // Returns the canonical names of classes to which the given type
+    // reference may resolve, in order of precedence.
+    private List<String> candidates(CfgModel.Component component, String type) {
+        List<String> candidates = Lists.newArrayList();
+        int i = type.indexOf('.');
+        String first = i < 0 ? type : type.substring(0, i);
+        String rest = i < 0 ? "" : type.substring(i);
+        component.imports().stream()
+                .filter(imp -> imp.equals(first) || imp.endsWith("." + first))
+                .forEach(imp -> candidates.add(imp + rest));
+        candidates.add(component.className() + "." + type);
+        if (!component.packageName().isEmpty()) {
+            candidates.add(component.packageName() + "." + type);
+        }
+        candidates.add(type);
+        return candidates;
+    }
+
+    // Sources, catalogue directory and generation state of a single module.
+    private static final class Module {
+        private final File sourceRoot;
+        private final File dstDirectory;
+        private final CfgModel model;
+        private final File accessorRoot;
+        private final Set<String> obsolete = Sets.newHashSet();
+        private final Map<String, Set<String>> stale = Maps.newTreeMap();
+        private Map<String, File> files;
+
+        private Module(File sourceRoot, File dstDirectory, CfgModel model,
+                       File accessorRoot) {
+            this.sourceRoot = sourceRoot;
+            this.dstDirectory = dstDirectory;
+            this.model = model;
+            this.accessorRoot = accessorRoot;
+        }
+    }
+
+    // Digest and annotation prefilter outcome of a single source file.
+    private static final class Scan {
+        private final String digest;
+        private final boolean candidate;
+
+        private Scan(String digest, boolean candidate) {
+            this.digest = digest;
+            this.candidate = candidate;
+        }
+    }
+
+}
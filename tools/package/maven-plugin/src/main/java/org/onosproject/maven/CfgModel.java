@@ -0,0 +1,367 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Model of the component configuration properties declared by a set of
+ * Java source files, as extracted by the cfg goal.
+ * <p>
+ * The model is serializable so that it can be persisted between builds
+ * and only the sources which changed need to be parsed again. Persisted
+ * models are tagged with the plugin version and the model format, and
+ * are discarded when either differs, as the catalogues they describe may
+ * then no longer match what the plugin produces.
+ * </p>
+ */
+final class CfgModel implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Version of the persisted model and catalogue format; to be bumped
+     * whenever the catalogues produced from the same sources change.
+     */
+    static final int FORMAT = 1;
+
+    private final Map<String, Source> sources = Maps.newTreeMap();
+
+    /**
+     * Loads the model from the given file.
+     *
+     * @param file          model file
+     * @param pluginVersion version of the plugin loading the model
+     * @return loaded model or null if the file is missing, unreadable or
+     * was saved by a different plugin version or in a different format
+     */
+    static CfgModel load(File file, String pluginVersion) {
+        Object model = read(file, pluginVersion);
+        return model instanceof CfgModel ? (CfgModel) model : null;
+    }
+
+    /**
+     * Saves the model into the given file.
+     *
+     * @param file          model file
+     * @param pluginVersion version of the plugin saving the model
+     * @throws IOException if unable to write the file
+     */
+    void save(File file, String pluginVersion) throws IOException {
+        write(this, file, pluginVersion);
+    }
+
+    /**
+     * Loads models of multiple modules from the given file.
+     *
+     * @param file          models file
+     * @param pluginVersion version of the plugin loading the models
+     * @return loaded models keyed by module or null if the file is missing,
+     * unreadable or was saved by a different plugin version or in a
+     * different format
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, CfgModel> loadAll(File file, String pluginVersion) {
+        Object models = read(file, pluginVersion);
+        return models instanceof TreeMap ? (Map<String, CfgModel>) models : null;
+    }
+
+    /**
+     * Saves models of multiple modules into the given file.
+     *
+     * @param models        models keyed by module
+     * @param file          models file
+     * @param pluginVersion version of the plugin saving the models
+     * @throws IOException if unable to write the file
+     */
+    static void saveAll(Map<String, CfgModel> models, File file,
+                        String pluginVersion) throws IOException {
+        write(new TreeMap<>(models), file, pluginVersion);
+    }
+
+    // Reads the serialized object from the given file, if possible and if it
+    // was written in the current format by the given plugin version.
+    private static Object read(File file, String pluginVersion) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (ois.readInt() != FORMAT ||
+                    !String.valueOf(pluginVersion).equals(ois.readUTF())) {
+                return null;
+            }
+            return ois.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    // Writes the serialized object into the given file, preceded by the
+    // format and the given plugin version.
+    private static void write(Object object, File file, String pluginVersion)
+            throws IOException {
+        file.getParentFile().mkdirs();
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            oos.writeInt(FORMAT);
+            oos.writeUTF(String.valueOf(pluginVersion));
+            oos.writeObject(object);
+        }
+    }
+
+    /**
+     * Returns the modelled sources keyed by their path.
+     *
+     * @return map of source path to source model
+     */
+    Map<String, Source> sources() {
+        return sources;
+    }
+
+    /**
+     * Returns an index of the modelled sources keyed by the canonical names
+     * of the classes they declare.
+     *
+     * @return map of class name to source model
+     */
+    Map<String, Source> classIndex() {
+        Map<String, Source> index = Maps.newHashMap();
+        sources.values().forEach(s -> s.classes().forEach(c -> index.put(c, s)));
+        return index;
+    }
+
+    /**
+     * Model of a single Java source file.
+     */
+    static final class Source implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        private final String digest;
+        private final boolean parsed;
+        private final Map<String, Map<String, String>> fields;
+        private final List<Component> components;
+        private final Map<String, List<CfgCatalog.Property>> catalogs = Maps.newTreeMap();
+        private final Set<String> dependencies = Sets.newTreeSet();
+
+        /**
+         * Creates a new source model.
+         *
+         * @param digest     digest of the source contents
+         * @param fields     field initializers keyed by canonical class name
+         *                   and field name, for all classes of the source
+         * @param components component classes declared by the source
+         */
+        Source(String digest, Map<String, Map<String, String>> fields,
+               List<Component> components) {
+            this.digest = digest;
+            this.parsed = true;
+            this.fields = ImmutableMap.copyOf(fields);
+            this.components = ImmutableList.copyOf(components);
+        }
+
+        /**
+         * Creates a model of a source which was not parsed, because it does
+         * not refer to any component annotations.
+         *
+         * @param digest digest of the source contents
+         */
+        Source(String digest) {
+            this.digest = digest;
+            this.parsed = false;
+            this.fields = ImmutableMap.of();
+            this.components = ImmutableList.of();
+        }
+
+        String digest() {
+            return digest;
+        }
+
+        /**
+         * Indicates whether the source was parsed; the classes and fields
+         * of unparsed sources are not known.
+         *
+         * @return true if the source was parsed
+         */
+        boolean parsed() {
+            return parsed;
+        }
+
+        /**
+         * Returns the canonical names of all classes declared by the source.
+         *
+         * @return set of class names
+         */
+        Set<String> classes() {
+            return fields.keySet();
+        }
+
+        List<Component> components() {
+            return components;
+        }
+
+        /**
+         * Returns the initializer of the given field of the given class.
+         *
+         * @param className canonical class name
+         * @param field     field name
+         * @return field initializer or null if there is no such field
+         */
+        String field(String className, String field) {
+            Map<String, String> classFields = fields.get(className);
+            return classFields != null ? classFields.get(field) : null;
+        }
+
+        /**
+         * Returns the expanded properties of the catalogues generated from
+         * this source, keyed by the catalogue path relative to the output
+         * directory.
+         *
+         * @return mutable map of catalogue path to properties
+         */
+        Map<String, List<CfgCatalog.Property>> catalogs() {
+            return catalogs;
+        }
+
+        /**
+         * Returns the catalogue files generated from this source, relative to
+         * the output directory.
+         *
+         * @return set of catalogue paths
+         */
+        Set<String> outputs() {
+            return catalogs.keySet();
+        }
+
+        /**
+         * Returns the canonical names of classes consulted when resolving
+         * constants referenced by this source.
+         *
+         * @return mutable set of class names
+         */
+        Set<String> dependencies() {
+            return dependencies;
+        }
+    }
+
+    /**
+     * Model of a component class and its configuration properties.
+     */
+    static final class Component implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String packageName;
+        private final String name;
+        private final String className;
+        private final List<String> imports;
+        private final List<Property> properties;
+
+        Component(String packageName, String name, String className,
+                  List<String> imports, List<Property> properties) {
+            this.packageName = packageName;
+            this.name = name;
+            this.className = className;
+            this.imports = ImmutableList.copyOf(imports);
+            this.properties = ImmutableList.copyOf(properties);
+        }
+
+        String packageName() {
+            return packageName;
+        }
+
+        String name() {
+            return name;
+        }
+
+        String className() {
+            return className;
+        }
+
+        List<String> imports() {
+            return imports;
+        }
+
+        List<Property> properties() {
+            return properties;
+        }
+    }
+
+    /**
+     * Model of a single configuration property declaration.
+     */
+    static final class Property implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final String type;
+        private final String defaultValue;
+        private final String description;
+
+        Property(String name, String type, String defaultValue, String description) {
+            this.name = name;
+            this.type = type;
+            this.defaultValue = defaultValue;
+            this.description = description;
+        }
+
+        /**
+         * Returns the unexpanded property name expression.
+         *
+         * @return name expression
+         */
+        String name() {
+            return name;
+        }
+
+        String type() {
+            return type;
+        }
+
+        /**
+         * Returns the unexpanded default value expression.
+         *
+         * @return default value expression or null if there is none
+         */
+        String defaultValue() {
+            return defaultValue;
+        }
+
+        String description() {
+            return description;
+        }
+    }
+
+}
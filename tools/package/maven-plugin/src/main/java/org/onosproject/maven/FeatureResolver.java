@@ -0,0 +1,358 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.configuration.XMLConfiguration;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Resolves the transitive closure of bundles required by Apache Karaf
+ * features, following feature dependencies across feature repositories
+ * available in the local Maven repository.
+ * <p>
+ * Features are identified by name and version. As in Karaf, a feature
+ * reference without a version, or with version 0.0.0, selects the highest
+ * available version, a plain version selects exactly that version and a
+ * version range selects the highest version within it.
+ * </p>
+ */
+final class FeatureResolver {
+
+    private static final String FEATURES = "features";
+    private static final String FEATURE = "feature";
+    private static final String BUNDLE = "bundle";
+    private static final String REPOSITORY = "repository";
+    private static final String NAME = "[@name]";
+    private static final String VERSION = "[@version]";
+    private static final String DEFAULT_VERSION = "0.0.0";
+
+    private static final String MVN_URL = "mvn:";
+    private static final String WRAP_URL = "wrap:";
+    private static final String LATEST = "LATEST";
+
+    private final Function<String, File> locator;
+
+    private final Map<String, NavigableMap<Version, HierarchicalConfiguration>> features =
+            Maps.newHashMap();
+    private final Set<String> repositories = Sets.newLinkedHashSet();
+    private final Deque<String> pendingRepositories = Lists.newLinkedList();
+    private final Set<String> bundles = Sets.newLinkedHashSet();
+    private final Set<String> unresolved = Sets.newLinkedHashSet();
+    private final Set<String> foreignBundles = Sets.newLinkedHashSet();
+
+    /**
+     * Creates a new resolver.
+     *
+     * @param locator function locating the local file of a features
+     *                repository URL; returns null if there is none
+     */
+    FeatureResolver(Function<String, File> locator) {
+        this.locator = locator;
+    }
+
+    /**
+     * Resolves bundles of the given features, starting from the specified
+     * features repository contents.
+     *
+     * @param featuresXml contents of the root features repository
+     * @param roots       names of the root features; all features of the
+     *                    root repository if empty
+     * @throws IOException if unable to read or parse a features repository
+     */
+    void resolve(String featuresXml, List<String> roots) throws IOException {
+        List<HierarchicalConfiguration> rootFeatures =
+                load(new StringReader(featuresXml), "features.xml");
+        Deque<Reference> pending = Lists.newLinkedList();
+        roots.forEach(name -> pending.add(new Reference(name, null)));
+        if (roots.isEmpty()) {
+            rootFeatures.forEach(f -> pending.add(
+                    new Reference(f.getString(NAME), f.getString(VERSION, DEFAULT_VERSION))));
+        }
+
+        Set<HierarchicalConfiguration> visited = Sets.newIdentityHashSet();
+        Set<Reference> seen = Sets.newHashSet();
+        while (!pending.isEmpty()) {
+            Reference reference = pending.pop();
+            if (!seen.add(reference)) {
+                continue;
+            }
+            HierarchicalConfiguration feature = find(reference);
+            if (feature == null) {
+                unresolved.add(reference.toString());
+                continue;
+            }
+            if (!visited.add(feature)) {
+                continue;
+            }
+            feature.getList(BUNDLE).forEach(b -> addBundle(b.toString()));
+            feature.configurationsAt(FEATURE).forEach(f -> pending.add(new Reference(
+                    String.valueOf(f.getRootNode().getValue()).trim(), f.getString(VERSION))));
+        }
+    }
+
+    /**
+     * Returns the Maven URLs of all bundles required by the resolved
+     * features, without duplicates.
+     *
+     * @return set of bundle URLs
+     */
+    Set<String> bundles() {
+        return bundles;
+    }
+
+    /**
+     * Returns the URLs of all feature repositories which were loaded from
+     * the local Maven repository while resolving.
+     *
+     * @return set of feature repository URLs
+     */
+    Set<String> repositories() {
+        return repositories;
+    }
+
+    /**
+     * Returns names, qualified by the requested version if any, of features
+     * which could not be found in any of the locally available feature
+     * repositories.
+     *
+     * @return set of feature references
+     */
+    Set<String> unresolved() {
+        return unresolved;
+    }
+
+    /**
+     * Returns the locations of required bundles which cannot be included in
+     * an application package, because they are not Maven URLs of a specific
+     * artifact version in the default repositories.
+     *
+     * @return set of bundle locations
+     */
+    Set<String> foreignBundles() {
+        return foreignBundles;
+    }
+
+    // Finds the feature selected by the given reference, loading further
+    // repositories as long as none matches.
+    private HierarchicalConfiguration find(Reference reference) throws IOException {
+        HierarchicalConfiguration feature = select(reference);
+        while (feature == null && !pendingRepositories.isEmpty()) {
+            String url = pendingRepositories.pop();
+            File file = locator.apply(url);
+            if (file != null && file.exists()) {
+                repositories.add(url);
+                try (Reader reader = new InputStreamReader(new FileInputStream(file),
+                                                           Charsets.UTF_8)) {
+                    load(reader, url);
+                }
+                feature = select(reference);
+            }
+        }
+        return feature;
+    }
+
+    // Returns the highest loaded version of the referenced feature within
+    // the requested range, or null if there is none.
+    private HierarchicalConfiguration select(Reference reference) {
+        NavigableMap<Version, HierarchicalConfiguration> versions =
+                features.get(reference.name);
+        if (versions == null) {
+            return null;
+        }
+        for (Map.Entry<Version, HierarchicalConfiguration> entry :
+                versions.descendingMap().entrySet()) {
+            if (reference.matches(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // Loads features and repository references from the given source.
+    private List<HierarchicalConfiguration> load(Reader reader, String source)
+            throws IOException {
+        XMLConfiguration xml = new XMLConfiguration();
+        xml.setRootElementName(FEATURES);
+        xml.setAttributeSplittingDisabled(true);
+        xml.setDelimiterParsingDisabled(true);
+        try {
+            xml.load(reader);
+        } catch (ConfigurationException e) {
+            throw new IOException("Unable to parse features repository " + source, e);
+        }
+
+        xml.getList(REPOSITORY).stream()
+                .map(r -> r.toString().trim())
+                .filter(r -> !repositories.contains(r) && !pendingRepositories.contains(r))
+                .forEach(pendingRepositories::add);
+
+        List<HierarchicalConfiguration> loaded = xml.configurationsAt(FEATURE);
+        loaded.forEach(f -> features
+                .computeIfAbsent(f.getString(NAME), n -> Maps.newTreeMap())
+                .putIfAbsent(Version.parse(f.getString(VERSION, DEFAULT_VERSION)), f));
+        return loaded;
+    }
+
+    /**
+     * Indicates whether the given URL is a Maven URL naming a specific
+     * version of an artifact, without a repository prefix, such that the
+     * artifact can be taken from the local Maven repository.
+     *
+     * @param url artifact URL
+     * @return true if the artifact can be packaged
+     */
+    static boolean packageable(String url) {
+        if (!url.startsWith(MVN_URL) || url.indexOf('!') >= 0) {
+            return false;
+        }
+        String[] fields = url.substring(MVN_URL.length()).split("/");
+        return fields.length >= 3 && !fields[0].isEmpty() && !fields[1].isEmpty() &&
+                !fields[2].isEmpty() && !fields[2].equals(LATEST) &&
+                fields[2].charAt(0) != '[' && fields[2].charAt(0) != '(';
+    }
+
+    // Adds the given bundle location, normalized to its plain Maven URL.
+    private void addBundle(String location) {
+        String url = location.trim();
+        if (url.startsWith(WRAP_URL)) {
+            url = url.substring(WRAP_URL.length());
+        }
+        int i = url.indexOf('$');
+        url = i > 0 ? url.substring(0, i) : url;
+        if (packageable(url)) {
+            bundles.add(url);
+        } else {
+            foreignBundles.add(location.trim());
+        }
+    }
+
+    // Reference to a feature by name and optional version or version range.
+    static final class Reference {
+        private final String name;
+        private final String version;
+
+        Reference(String name, String version) {
+            this.name = name;
+            this.version = version == null || version.trim().isEmpty() ||
+                    version.trim().equals(DEFAULT_VERSION) ? null : version.trim();
+        }
+
+        // Indicates whether the given feature version satisfies the reference.
+        boolean matches(Version candidate) {
+            if (version == null) {
+                return true;
+            }
+            char first = version.charAt(0);
+            if (first != '[' && first != '(') {
+                return candidate.compareTo(Version.parse(version)) == 0;
+            }
+            char last = version.charAt(version.length() - 1);
+            int comma = version.indexOf(',');
+            if (comma < 0 || (last != ']' && last != ')')) {
+                throw new IllegalArgumentException("Illegal version range " + version +
+                                                           " of feature " + name);
+            }
+            int low = candidate.compareTo(Version.parse(version.substring(1, comma)));
+            int high = candidate.compareTo(
+                    Version.parse(version.substring(comma + 1, version.length() - 1)));
+            return (first == '[' ? low >= 0 : low > 0) && (last == ']' ? high <= 0 : high < 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Reference && name.equals(((Reference) o).name) &&
+                    Objects.equals(version, ((Reference) o).version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, version);
+        }
+
+        @Override
+        public String toString() {
+            return version == null ? name : name + "/" + version;
+        }
+    }
+
+    // OSGi version; Maven versions such as 1.2-SNAPSHOT are read the way
+    // Karaf cleans them, i.e. as 1.2.0.SNAPSHOT.
+    static final class Version implements Comparable<Version> {
+        private final int[] numbers = new int[3];
+        private final String qualifier;
+
+        private Version(String text) {
+            String rest = text.trim();
+            int i = 0;
+            while (i < numbers.length && !rest.isEmpty() && Character.isDigit(rest.charAt(0))) {
+                int end = 0;
+                while (end < rest.length() && Character.isDigit(rest.charAt(end))) {
+                    end++;
+                }
+                numbers[i++] = Integer.parseInt(rest.substring(0, end));
+                rest = rest.substring(end);
+                if (!rest.isEmpty() && (rest.charAt(0) == '.' || rest.charAt(0) == '-')) {
+                    rest = rest.substring(1);
+                }
+            }
+            this.qualifier = rest;
+        }
+
+        static Version parse(String text) {
+            return new Version(text);
+        }
+
+        @Override
+        public int compareTo(Version other) {
+            for (int i = 0; i < numbers.length; i++) {
+                if (numbers[i] != other.numbers[i]) {
+                    return Integer.compare(numbers[i], other.numbers[i]);
+                }
+            }
+            return qualifier.compareTo(other.qualifier);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Version && compareTo((Version) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(numbers[0], numbers[1], numbers[2], qualifier);
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Index of the entries of an ONOS application archive.
+ * <p>
+ * The index is stored uncompressed as the very first entry of the archive.
+ * For every file entry it records the path, the offset of the entry data
+ * within the archive, the uncompressed and compressed sizes, the ZIP
+ * compression method and the SHA-256 digest of the uncompressed contents.
+ * All values are encoded in network byte order:
+ * </p>
+ * <pre>
+ *     int magic, short version, int count,
+ *     count * (short pathLength, byte[] path, long offset, long size,
+ *              long compressedSize, short method, byte[32] sha256)
+ * </pre>
+ */
+public final class OarIndex {
+
+    /**
+     * Path of the index entry within the archive.
+     */
+    public static final String PATH = "oar.idx";
+
+    /**
+     * Version of the index format.
+     */
+    public static final short VERSION = 1;
+
+    private static final int MAGIC = 0x4f494458; // "OIDX"
+    private static final int DIGEST_LENGTH = 32;
+    private static final int HEADER_LENGTH = 4 + 2 + 4;
+    private static final int RECORD_LENGTH = 2 + 8 + 8 + 8 + 2 + DIGEST_LENGTH;
+
+    private final Map<String, Entry> entries;
+
+    private OarIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the indexed entries keyed by their archive path, in archive
+     * order.
+     *
+     * @return map of path to entry
+     */
+    public Map<String, Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Returns the indexed entry with the given path.
+     *
+     * @param path entry path
+     * @return entry or null if there is no such entry
+     */
+    public Entry entry(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Returns the length of the encoded index for entries with given paths.
+     *
+     * @param paths entry paths
+     * @return index length in bytes
+     */
+    static int length(Collection<String> paths) {
+        int length = HEADER_LENGTH;
+        for (String path : paths) {
+            length += RECORD_LENGTH + path.getBytes(Charsets.UTF_8).length;
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the given entries into the binary index form.
+     *
+     * @param entries index entries
+     * @return encoded index
+     */
+    static byte[] encode(Collection<Entry> entries) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(bos)) {
+            dos.writeInt(MAGIC);
+            dos.writeShort(VERSION);
+            dos.writeInt(entries.size());
+            for (Entry entry : entries) {
+                byte[] path = entry.path.getBytes(Charsets.UTF_8);
+                dos.writeShort(path.length);
+                dos.write(path);
+                dos.writeLong(entry.offset);
+                dos.writeLong(entry.size);
+                dos.writeLong(entry.compressedSize);
+                dos.writeShort(entry.method);
+                dos.write(entry.sha256);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode archive index", e);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Decodes the index from the given buffer.
+     *
+     * @param buffer buffer holding the encoded index
+     * @return decoded index
+     * @throws IOException if the buffer does not hold a valid index
+     */
+    static OarIndex decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Unsupported archive index format");
+            }
+            int count = buffer.getInt();
+            ImmutableMap.Builder<String, Entry> builder = ImmutableMap.builder();
+            for (int i = 0; i < count; i++) {
+                byte[] path = new byte[buffer.getShort() & 0xffff];
+                buffer.get(path);
+                long offset = buffer.getLong();
+                long size = buffer.getLong();
+                long compressedSize = buffer.getLong();
+                short method = buffer.getShort();
+                byte[] sha256 = new byte[DIGEST_LENGTH];
+                buffer.get(sha256);
+                Entry entry = new Entry(new String(path, Charsets.UTF_8), offset,
+                                        size, compressedSize, method, sha256);
+                builder.put(entry.path, entry);
+            }
+            return new OarIndex(builder.build());
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated archive index", e);
+        }
+    }
+
+    /**
+     * Indexed archive entry.
+     */
+    public static final class Entry {
+        private final String path;
+        private final long offset;
+        private final long size;
+        private final long compressedSize;
+        private final short method;
+        private final byte[] sha256;
+
+        Entry(String path, long offset, long size, long compressedSize,
+              short method, byte[] sha256) {
+            this.path = path;
+            this.offset = offset;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.method = method;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * Returns the entry path.
+         *
+         * @return entry path
+         */
+        public String path() {
+            return path;
+        }
+
+        /**
+         * Returns the offset of the entry data within the archive.
+         *
+         * @return data offset
+         */
+        public long offset() {
+            return offset;
+        }
+
+        /**
+         * Returns the uncompressed size of the entry.
+         *
+         * @return uncompressed size
+         */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Returns the size of the entry data as stored in the archive.
+         *
+         * @return compressed size
+         */
+        public long compressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * Returns the ZIP compression method of the entry.
+         *
+         * @return 0 for stored or 8 for deflated entries
+         */
+        public short method() {
+            return method;
+        }
+
+        /**
+         * Returns the SHA-256 digest of the uncompressed entry contents.
+         *
+         * @return digest bytes
+         */
+        public byte[] sha256() {
+            return sha256.clone();
+        }
+    }
+
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Lazy reader of indexed ONOS application archives.
+ * <p>
+ * Only the archive index is read when the reader is opened; the data of
+ * individual entries is streamed from memory-mapped windows on demand and
+ * verified against the SHA-256 digest recorded in the index, so that a single entry, e.g.
+ * app.xml, can be obtained without scanning the whole archive.
+ * </p>
+ */
+public final class OarReader implements Closeable {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int LOCAL_HEADER_LENGTH = 30;
+    private static final short STORED = 0;
+    private static final short DEFLATED = 8;
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final FileChannel channel;
+    private final OarIndex index;
+
+    /**
+     * Opens the given application archive and reads its index.
+     *
+     * @param file application archive
+     * @throws IOException if the archive cannot be read or is not indexed
+     */
+    public OarReader(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.index = readIndex();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the archive index.
+     *
+     * @return archive index
+     */
+    public OarIndex index() {
+        return index;
+    }
+
+    /**
+     * Opens a stream over the contents of the entry with the given path;
+     * the contents are verified as they are read and the stream fails at
+     * its end if they do not match the index.
+     *
+     * @param path entry path
+     * @return uncompressed entry contents
+     * @throws IOException if the entry is missing or unreadable
+     */
+    public InputStream open(String path) throws IOException {
+        OarIndex.Entry entry = entry(path);
+        InputStream data = new MappedStream(channel, entry.offset(), entry.compressedSize());
+        if (entry.method() == DEFLATED) {
+            data = new EntryInflaterStream(data);
+        } else if (entry.method() != STORED) {
+            throw new IOException("Unsupported compression method for " + path);
+        }
+        return new VerifyingStream(entry, data);
+    }
+
+    /**
+     * Reads and verifies contents of the entry with the given path.
+     *
+     * @param path entry path
+     * @return uncompressed entry contents
+     * @throws IOException if the entry is missing, corrupted, unreadable or
+     *                     too large to be held in memory
+     */
+    public byte[] read(String path) throws IOException {
+        OarIndex.Entry entry = entry(path);
+        if (entry.size() > MAX_ARRAY_SIZE) {
+            throw new IOException("Archive entry " + path + " is too large to be read; " +
+                                          "extract it instead");
+        }
+        try (InputStream in = open(path)) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    /**
+     * Extracts the entry with the given path into the specified file after
+     * verifying its contents. The contents are streamed into a temporary
+     * file, which replaces the target only once verified.
+     *
+     * @param path   entry path
+     * @param target target file
+     * @throws IOException if the entry is missing, corrupted or unreadable
+     */
+    public void extract(String path, File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory " + dir);
+        }
+        Path tmp = Files.createTempFile(dir.toPath(), target.getName(), ".tmp");
+        try {
+            try (InputStream in = open(path)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Verifies the contents of all indexed entries.
+     *
+     * @throws IOException if any entry is corrupted or unreadable
+     */
+    public void verify() throws IOException {
+        for (String path : index.entries().keySet()) {
+            try (InputStream in = open(path)) {
+                ByteStreams.copy(in, ByteStreams.nullOutputStream());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Returns the index entry with the given path.
+    private OarIndex.Entry entry(String path) throws IOException {
+        OarIndex.Entry entry = index.entry(path);
+        if (entry == null) {
+            throw new IOException("No such archive entry: " + path);
+        }
+        return entry;
+    }
+
+    // Reads the index from the first, uncompressed archive entry.
+    private OarIndex readIndex() throws IOException {
+        byte[] name = OarIndex.PATH.getBytes(Charsets.UTF_8);
+        if (channel.size() < LOCAL_HEADER_LENGTH + name.length) {
+            throw new IOException("Archive is not indexed");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                        LOCAL_HEADER_LENGTH + name.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        byte[] actual = new byte[name.length];
+        if (header.getInt(0) != LOCAL_HEADER || header.getShort(8) != STORED ||
+                header.getShort(26) != name.length) {
+            throw new IOException("Archive is not indexed");
+        }
+        header.position(LOCAL_HEADER_LENGTH);
+        header.get(actual);
+        if (!Arrays.equals(name, actual)) {
+            throw new IOException("Archive is not indexed");
+        }
+
+        long size = header.getInt(22) & 0xffffffffL;
+        int extra = header.getShort(28) & 0xffff;
+        long offset = LOCAL_HEADER_LENGTH + name.length + extra;
+        return OarIndex.decode(channel.map(FileChannel.MapMode.READ_ONLY, offset, size));
+    }
+
+    // Stream over a region of the archive, mapped a window at a time so
+    // that regions of any size can be read.
+    private static final class MappedStream extends InputStream {
+        private static final long WINDOW = 64L * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        private ByteBuffer window = ByteBuffer.allocate(0);
+
+        private MappedStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? window.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            return n;
+        }
+
+        // Maps the next window if the current one is exhausted; returns
+        // false at the end of the region.
+        private boolean fill() throws IOException {
+            if (!window.hasRemaining() && position < end) {
+                long length = Math.min(WINDOW, end - position);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                position += length;
+            }
+            return window.hasRemaining();
+        }
+    }
+
+    // Inflater of raw deflated entry data, which releases its inflater when
+    // closed and, like the JDK zip reader, feeds the inflater a dummy byte
+    // past the end of the data.
+    private static final class EntryInflaterStream extends InflaterInputStream {
+        private boolean eof;
+
+        private EntryInflaterStream(InputStream in) {
+            super(in, new Inflater(true), 64 * 1024);
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("Unexpected end of archive entry");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+
+    // Stream checking the size and SHA-256 digest of the entry contents
+    // passing through it against the index once the end is reached; reads
+    // past the end after a successful verification simply return -1.
+    private static final class VerifyingStream extends FilterInputStream {
+        private final OarIndex.Entry entry;
+        private final MessageDigest digest;
+        private long count;
+        private boolean verified;
+
+        private VerifyingStream(OarIndex.Entry entry, InputStream in) {
+            super(in);
+            this.entry = entry;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                digest.update(b, off, n);
+                count += n;
+                if (count > entry.size()) {
+                    throw new IOException("Oversized archive entry " + entry.path());
+                }
+            } else if (n == -1 && !verified) {
+                if (count != entry.size()) {
+                    throw new IOException("Truncated archive entry " + entry.path());
+                }
+                if (!Arrays.equals(digest.digest(), entry.sha256())) {
+                    throw new IOException("Checksum mismatch for archive entry " +
+                                                  entry.path());
+                }
+                verified = true;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped contents still need to be digested.
+            int length = (int) Math.min(Math.max(n, 0), 8192);
+            return length == 0 ? 0 : Math.max(0, read(new byte[length], 0, length));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * Lists, verifies or extracts entries of an indexed application archive.
+     * <p>
+     * Usage: {@code OarReader archive.oar [path [target]]}
+     * </p>
+     *
+     * @param args command-line arguments
+     * @throws IOException if the archive cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: OarReader archive.oar [path [target]]");
+            System.exit(1);
+        }
+        try (OarReader reader = new OarReader(new File(args[0]))) {
+            if (args.length == 1) {
+                reader.verify();
+                reader.index().entries().values().forEach(e -> System.out.println(
+                        String.format("%10d %s", e.size(), e.path())));
+            } else if (args.length == 2) {
+                try (InputStream in = reader.open(args[1])) {
+                    ByteStreams.copy(in, System.out);
+                }
+                System.out.flush();
+            } else {
+                reader.extract(args[1], new File(args[2]));
+            }
+        }
+    }
+
+}
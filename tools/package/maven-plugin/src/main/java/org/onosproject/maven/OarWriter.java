@@ -0,0 +1,520 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writer of ONOS application archives.
+ * <p>
+ * Entries whose extension marks them as already compressed are STORED and
+ * transferred directly from their source file; all other entries are
+ * deflated in parallel by a pool of workers. The results are then written
+ * sequentially together with a single central directory.
+ * </p>
+ * <p>
+ * The produced archives are reproducible: entries are sorted by path and
+ * carry a fixed timestamp and normalized permissions, so identical inputs
+ * always yield identical bytes.
+ * </p>
+ * <p>
+ * Optionally, an {@link OarIndex} of all file entries is written as the
+ * first entry of the archive.
+ * </p>
+ */
+final class OarWriter {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final short STORED = 0;
+    private static final short DEFLATED = 8;
+    private static final short VERSION_STORED = 10;
+    private static final short VERSION_DEFLATED = 20;
+    private static final short UTF8_NAMES = 0x0800;
+    private static final short MADE_BY_UNIX = (3 << 8) | VERSION_DEFLATED;
+
+    // Fixed MS-DOS timestamp of 1980-01-01 00:00:00
+    private static final short DOS_TIME = 0;
+    private static final short DOS_DATE = (1 << 5) | 1;
+
+    // Unix permissions 0644 for files and 0755 for directories, the latter
+    // also flagged with the MS-DOS directory attribute
+    private static final int FILE_ATTRIBUTES = 0100644 << 16;
+    private static final int DIR_ATTRIBUTES = (040755 << 16) | 0x10;
+
+    private static final int LOCAL_HEADER_LENGTH = 30;
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+
+    private static final long MAX_SIZE = 0xffffffffL;
+    private static final int MAX_ENTRIES = 0xffff;
+
+    private final Set<String> storedExtensions;
+    private final int level;
+    private final int threads;
+    private final boolean indexed;
+
+    private final List<Entry> entries = Lists.newArrayList();
+    private final Set<String> dirs = Sets.newHashSet();
+
+    /**
+     * Creates a new archive writer.
+     *
+     * @param storedExtensions extensions of entries to store uncompressed
+     * @param level            deflate compression level
+     * @param threads          number of deflate workers
+     * @param indexed          true to write the archive index
+     */
+    OarWriter(Set<String> storedExtensions, int level, int threads,
+              boolean indexed) {
+        this.storedExtensions = ImmutableSet.copyOf(storedExtensions);
+        this.level = level;
+        this.threads = Math.max(1, threads);
+        this.indexed = indexed;
+    }
+
+    /**
+     * Adds an entry with the given contents.
+     *
+     * @param path  entry path
+     * @param bytes entry contents
+     */
+    void add(String path, byte[] bytes) {
+        addDirectories(path);
+        entries.add(new Entry(path, bytes, null, method(path)));
+    }
+
+    /**
+     * Adds an entry with contents of the given file.
+     *
+     * @param path entry path
+     * @param file entry source file
+     */
+    void add(String path, File file) {
+        add(path, file, null);
+    }
+
+    /**
+     * Adds an entry with contents of the given file, whose checksums have
+     * already been computed, so that a stored entry is read only once more
+     * when written.
+     *
+     * @param path      entry path
+     * @param file      entry source file
+     * @param checksums checksums of the file; null to compute them
+     */
+    void add(String path, File file, Checksums checksums) {
+        addDirectories(path);
+        Entry entry = new Entry(path, null, file, method(path));
+        entry.checksums = checksums;
+        entries.add(entry);
+    }
+
+    /**
+     * Compresses all entries and writes the archive into the given file.
+     * <p>
+     * The archive is first written into a temporary file alongside the
+     * target, which is then atomically moved into place, so that the
+     * target never holds a partially written archive.
+     * </p>
+     *
+     * @param target archive file
+     * @throws IOException if unable to read entry sources or write archive
+     */
+    void write(File target) throws IOException {
+        if (entries.size() >= MAX_ENTRIES) {
+            throw new IOException("Too many archive entries: " + entries.size());
+        }
+        entries.sort((a, b) -> a.path.compareTo(b.path));
+        prepare();
+
+        List<Entry> archived = indexed ? index() : entries;
+        File tmp = File.createTempFile(target.getName(), ".tmp",
+                                       target.getAbsoluteFile().getParentFile());
+        try {
+            try (FileChannel out = FileChannel.open(tmp.toPath(),
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(out, archived);
+            }
+            java.nio.file.Files.move(tmp.toPath(), target.toPath(),
+                                     StandardCopyOption.ATOMIC_MOVE,
+                                     StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    // Writes the given prepared entries followed by the central directory
+    // into the archive channel.
+    private void write(FileChannel out, List<Entry> archived) throws IOException {
+        for (Entry entry : archived) {
+            entry.offset = out.position();
+            writeFully(out, localHeader(entry));
+            writeData(out, entry);
+        }
+
+        long directoryOffset = out.position();
+        for (Entry entry : archived) {
+            writeFully(out, centralHeader(entry));
+        }
+        long directorySize = out.position() - directoryOffset;
+        writeFully(out, endOfCentralDirectory(archived.size(),
+                                              directoryOffset, directorySize));
+    }
+
+    // Lays out all prepared entries behind the index entry and returns the
+    // list of entries to be archived, starting with the index itself. The
+    // index length depends only on the entry paths, which allows computing
+    // the data offsets before the index is encoded.
+    private List<Entry> index() throws IOException {
+        List<String> paths = entries.stream().filter(e -> !e.isDirectory())
+                .map(e -> e.path).collect(Collectors.toList());
+
+        long position = LOCAL_HEADER_LENGTH +
+                OarIndex.PATH.getBytes(Charsets.UTF_8).length + OarIndex.length(paths);
+        List<OarIndex.Entry> records = Lists.newArrayList();
+        for (Entry entry : entries) {
+            long dataOffset = position + LOCAL_HEADER_LENGTH + entry.name.length;
+            if (!entry.isDirectory()) {
+                records.add(new OarIndex.Entry(entry.path, dataOffset, entry.size,
+                                               entry.compressedSize, entry.method,
+                                               entry.sha256));
+            }
+            position = dataOffset + entry.compressedSize;
+        }
+
+        Entry index = new Entry(OarIndex.PATH, OarIndex.encode(records), null, STORED);
+        index.prepare(level);
+        List<Entry> archived = Lists.newArrayList(index);
+        archived.addAll(entries);
+        return archived;
+    }
+
+    // Adds entries for all parent directories of the given path, which have
+    // not been added yet.
+    private void addDirectories(String path) {
+        int i = path.indexOf('/');
+        while (i > 0) {
+            String dir = path.substring(0, i + 1);
+            if (dirs.add(dir)) {
+                entries.add(new Entry(dir, new byte[0], null, STORED));
+            }
+            i = path.indexOf('/', i + 1);
+        }
+    }
+
+    // Returns the compression method to be used for the given path.
+    private short method(String path) {
+        String extension = Files.getFileExtension(path).toLowerCase();
+        return storedExtensions.contains(extension) ? STORED : DEFLATED;
+    }
+
+    // Computes checksums and compressed data of all entries in parallel.
+    private void prepare() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = Lists.newArrayList();
+            entries.forEach(entry -> tasks.add(() -> {
+                entry.prepare(level);
+                return null;
+            }));
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing archive entries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to compress archive entries", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Writes the entry data into the archive channel.
+    private void writeData(FileChannel out, Entry entry) throws IOException {
+        if (entry.data != null) {
+            writeFully(out, ByteBuffer.wrap(entry.data));
+            return;
+        }
+        try (FileChannel source = FileChannel.open(entry.file.toPath(),
+                                                   StandardOpenOption.READ)) {
+            if (source.size() != entry.size) {
+                throw new IOException(entry.file + " changed while being archived");
+            }
+            long position = 0;
+            while (position < entry.size) {
+                long transferred = source.transferTo(position, entry.size - position, out);
+                if (transferred <= 0) {
+                    throw new IOException(entry.file + " changed while being archived");
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    // Writes the whole buffer into the given channel.
+    private void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    // Produces the local file header for the given entry.
+    private ByteBuffer localHeader(Entry entry) {
+        ByteBuffer bb = buffer(LOCAL_HEADER_LENGTH + entry.name.length);
+        bb.putInt(LOCAL_HEADER)
+                .putShort(entry.method == STORED ? VERSION_STORED : VERSION_DEFLATED)
+                .putShort(UTF8_NAMES)
+                .putShort(entry.method)
+                .putShort(DOS_TIME)
+                .putShort(DOS_DATE)
+                .putInt((int) entry.crc)
+                .putInt((int) entry.compressedSize)
+                .putInt((int) entry.size)
+                .putShort((short) entry.name.length)
+                .putShort((short) 0)
+                .put(entry.name);
+        bb.flip();
+        return bb;
+    }
+
+    // Produces the central directory header for the given entry.
+    private ByteBuffer centralHeader(Entry entry) {
+        short version = entry.method == STORED ? VERSION_STORED : VERSION_DEFLATED;
+        ByteBuffer bb = buffer(CENTRAL_HEADER_LENGTH + entry.name.length);
+        bb.putInt(CENTRAL_HEADER)
+                .putShort(MADE_BY_UNIX)
+                .putShort(version)
+                .putShort(UTF8_NAMES)
+                .putShort(entry.method)
+                .putShort(DOS_TIME)
+                .putShort(DOS_DATE)
+                .putInt((int) entry.crc)
+                .putInt((int) entry.compressedSize)
+                .putInt((int) entry.size)
+                .putShort((short) entry.name.length)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putInt(entry.isDirectory() ? DIR_ATTRIBUTES : FILE_ATTRIBUTES)
+                .putInt((int) entry.offset)
+                .put(entry.name);
+        bb.flip();
+        return bb;
+    }
+
+    // Produces the end of central directory record.
+    private ByteBuffer endOfCentralDirectory(int count, long offset, long size)
+            throws IOException {
+        if (offset > MAX_SIZE) {
+            throw new IOException("Application archive is too large");
+        }
+        ByteBuffer bb = buffer(22);
+        bb.putInt(END_OF_CENTRAL_DIRECTORY)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) count)
+                .putShort((short) count)
+                .putInt((int) size)
+                .putInt((int) offset)
+                .putShort((short) 0);
+        bb.flip();
+        return bb;
+    }
+
+    private ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Archive entry and its computed attributes.
+    private static final class Entry {
+        private final String path;
+        private final byte[] name;
+        private final byte[] bytes;
+        private final File file;
+        private final short method;
+
+        private Checksums checksums;
+        private byte[] data;
+        private byte[] sha256;
+        private long crc;
+        private long size;
+        private long compressedSize;
+        private long offset;
+
+        private Entry(String path, byte[] bytes, File file, short method) {
+            this.path = path;
+            this.name = path.getBytes(Charsets.UTF_8);
+            this.bytes = bytes;
+            this.file = file;
+            this.method = method;
+        }
+
+        private boolean isDirectory() {
+            return path.endsWith("/");
+        }
+
+        // Computes the checksum and, if needed, the compressed entry data;
+        // checksums given upfront are reused.
+        private void prepare(int level) throws IOException {
+            if (bytes == null && checksums == null) {
+                checksums = method == STORED ? Checksums.of(file) : null;
+            }
+            if (checksums != null) {
+                size = checksums.size;
+                crc = checksums.crc;
+                sha256 = checksums.sha256;
+                if (method != STORED) {
+                    data = deflate(Files.toByteArray(file), level);
+                }
+            } else {
+                byte[] contents = bytes != null ? bytes : Files.toByteArray(file);
+                Checksums computed = Checksums.of(contents);
+                size = computed.size;
+                crc = computed.crc;
+                sha256 = computed.sha256;
+                data = method == STORED ? contents : deflate(contents, level);
+            }
+            if (size > MAX_SIZE) {
+                throw new IOException("Archive entry is too large: " + file);
+            }
+            compressedSize = data != null ? data.length : size;
+        }
+
+        // Deflates the given contents using raw deflate format.
+        private static byte[] deflate(byte[] contents, int level) throws IOException {
+            Deflater deflater = new Deflater(level, true);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(contents.length / 2 + 64);
+            try (DeflaterOutputStream dos = new DeflaterOutputStream(bos, deflater)) {
+                dos.write(contents);
+            } finally {
+                deflater.end();
+            }
+            return bos.toByteArray();
+        }
+    }
+
+    /**
+     * CRC-32 and SHA-256 checksums of entry contents.
+     */
+    static final class Checksums {
+        final long size;
+        final long crc;
+        final byte[] sha256;
+
+        private Checksums(long size, long crc, byte[] sha256) {
+            this.size = size;
+            this.crc = crc;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * Computes the checksums of the given file in a single pass.
+         *
+         * @param file file to checksum
+         * @return file checksums
+         * @throws IOException if the file cannot be read
+         */
+        static Checksums of(File file) throws IOException {
+            ChecksumSink sink = new ChecksumSink();
+            Files.asByteSource(file).copyTo(sink);
+            return sink.checksums();
+        }
+
+        /**
+         * Computes the checksums of the given contents.
+         *
+         * @param contents contents to checksum
+         * @return checksums
+         */
+        static Checksums of(byte[] contents) {
+            ChecksumSink sink = new ChecksumSink();
+            sink.write(contents, 0, contents.length);
+            return sink.checksums();
+        }
+
+        /**
+         * Returns the SHA-256 digest as a hexadecimal string.
+         *
+         * @return hex digest
+         */
+        String sha256Hex() {
+            return HashCode.fromBytes(sha256).toString();
+        }
+    }
+
+    // Output stream which only updates the checksums of what it is given.
+    private static final class ChecksumSink extends OutputStream {
+        private final CRC32 crc32 = new CRC32();
+        private final Hasher hasher = Hashing.sha256().newHasher();
+        private long size;
+
+        @Override
+        public void write(int b) {
+            crc32.update(b);
+            hasher.putByte((byte) b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            crc32.update(b, off, len);
+            hasher.putBytes(b, off, len);
+            size += len;
+        }
+
+        // Returns the checksums of everything written so far.
+        private Checksums checksums() {
+            return new Checksums(size, crc32.getValue(), hasher.hash().asBytes());
+        }
+    }
+
+}
@@ -15,7 +15,15 @@
  */
 package org.onosproject.maven;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.XMLConfiguration;
 import org.apache.maven.artifact.repository.ArtifactRepository;
@@ -34,10 +42,14 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import static com.google.common.io.ByteStreams.toByteArray;
 import static org.codehaus.plexus.util.FileUtils.*;
@@ -52,6 +64,7 @@ public class OnosAppMojo extends AbstractMojo {
     private static final String NAME = "[@name]";
     private static final String VERSION = "[@version]";
     private static final String FEATURES_REPO = "[@featuresRepo]";
+    private static final String FEATURES = "[@features]";
     private static final String ARTIFACT = "artifact";
 
     private static final String APP_XML = "app.xml";
@@ -67,6 +80,8 @@ public class OnosAppMojo extends AbstractMojo {
     private static final String XML = "xml";
     private static final String APP_ZIP = "oar";
     private static final String PACKAGE_DIR = "oar";
+    private static final String MANIFEST = "oar.manifest";
+    private static final String CONFIG_KEY = "#config";
 
     private static final String DEFAULT_ORIGIN = "ON.Lab";
     private static final String DEFAULT_VERSION = "${project.version}";
@@ -76,12 +91,11 @@ public class OnosAppMojo extends AbstractMojo {
     private static final String DEFAULT_ARTIFACT =
             "mvn:${project.groupId}/${project.artifactId}/${project.version}";
 
-    private static final int BUFFER_SIZE = 8192;
-
     private String name;
     private String origin;
     private String version = DEFAULT_VERSION;
     private String featuresRepo = DEFAULT_FEATURES_REPO;
+    private String features;
     private List<String> artifacts;
 
     /**
@@ -120,6 +134,12 @@ public class OnosAppMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project.description}")
     protected String projectDescription;
 
+    /**
+     * The version of this plugin.
+     */
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    protected String pluginVersion;
+
     @Parameter(defaultValue = "${localRepository}")
     protected ArtifactRepository localRepository;
 
@@ -135,8 +155,73 @@ public class OnosAppMojo extends AbstractMojo {
     @Component
     protected MavenProjectHelper projectHelper;
 
+    /**
+     * Indicates whether the application package should be rebuilt only
+     * when its inputs changed since the previous build.
+     */
+    @Parameter(property = "onos.app.incremental", defaultValue = "true")
+    protected boolean incremental;
+
+    /**
+     * Indicates whether the package contents should also be staged in the
+     * target/oar directory; useful only for debugging the package layout.
+     */
+    @Parameter(property = "onos.app.stage", defaultValue = "false")
+    protected boolean stage;
+
+    /**
+     * Comma-separated extensions of already compressed entries, which are
+     * stored in the package without being deflated again.
+     */
+    @Parameter(property = "onos.app.storedTypes", defaultValue = "jar,oar,zip,gz")
+    protected String storedTypes;
+
+    /**
+     * Deflate compression level used for all other package entries.
+     */
+    @Parameter(property = "onos.app.compressionLevel", defaultValue = "-1")
+    protected int compressionLevel;
+
+    /**
+     * Number of worker threads used to compress the package entries;
+     * 0 means the number of available processors.
+     */
+    @Parameter(property = "onos.app.compressionThreads", defaultValue = "0")
+    protected int compressionThreads;
+
+    /**
+     * Indicates whether the package should start with an index of its
+     * entries, allowing lazy extraction via {@link OarReader}.
+     */
+    @Parameter(property = "onos.app.index", defaultValue = "true")
+    protected boolean index;
+
+    /**
+     * Indicates whether the package should be self-contained, i.e. include
+     * all bundles and feature repositories in the transitive closure of the
+     * application features, so that activation never needs to resolve
+     * anything remotely.
+     */
+    @Parameter(property = "onos.app.selfContained", defaultValue = "false")
+    protected boolean selfContained;
+
+    /**
+     * Indicates whether application packages should be shared through the
+     * content-addressed package cache.
+     */
+    @Parameter(property = "onos.app.cache", defaultValue = "false")
+    protected boolean cache;
+
+    /**
+     * The directory of the content-addressed package cache.
+     */
+    @Parameter(property = "onos.app.cacheDirectory",
+            defaultValue = "${user.home}/.m2/onos-oar-cache")
+    protected File cacheDirectory;
 
     private File m2Directory;
+    private final Map<String, OarWriter.Checksums> checksums = Maps.newHashMap();
+    private Function<String, String> projectProperties;
     protected File stageDirectory;
     protected String projectPath;
 
@@ -154,31 +239,83 @@ public class OnosAppMojo extends AbstractMojo {
         }
 
         m2Directory = new File(localRepository.getBasedir());
+        projectProperties = Template.resolver(project);
         stageDirectory = new File(dstDirectory, PACKAGE_DIR);
         projectPath = M2_PREFIX + "/" + artifactDir(projectGroupId, projectArtifactId, projectVersion);
 
         origin = (String) project.getProperties().get(ONOS_APP_ORIGIN);
         origin = origin != null ? origin : DEFAULT_ORIGIN;
 
+        try {
+            packageApp(appFile, featuresFile);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Unable to evaluate application package: " +
+                                                     e.getMessage(), e);
+        }
+    }
+
+    // Produces the application package.
+    private void packageApp(File appFile, File featuresFile) throws MojoExecutionException {
         if (appFile.exists()) {
             loadAppFile(appFile);
         } else {
             artifacts = ImmutableList.of(eval(DEFAULT_ARTIFACT));
+            features = projectArtifactId;
         }
 
-        // If there are any artifacts, stage the
+        // If there are any artifacts, package them
         if (!artifacts.isEmpty()) {
             getLog().info("Building ONOS application package for " + name + " (v" + eval(version) + ")");
             artifacts.forEach(a -> getLog().debug("Including artifact: " + a));
 
-            if (stageDirectory.exists() || stageDirectory.mkdirs()) {
-                processAppXml(appFile);
-                processFeaturesXml(featuresFile);
-                processArtifacts();
-                generateAppPackage();
+            Map<String, byte[]> contents = Maps.newLinkedHashMap();
+            contents.put(APP_XML, appXmlContents(appFile));
+            String featuresXml = featuresXmlContents(featuresFile);
+            if (featuresXml != null) {
+                contents.put(featuresXmlPath(), featuresXml.getBytes(Charsets.UTF_8));
+            }
+            Map<String, File> sources = artifactSources();
+            if (selfContained && featuresXml != null) {
+                addFeatureSources(featuresXml, sources);
+            }
+
+            Map<String, String> manifest = manifest(contents, sources);
+            Map<String, String> previous =
+                    incremental ? loadManifest() : Maps.newHashMap();
+            File appZip = appZipFile();
+
+            // Staging does not affect the package, so it is brought up to
+            // date regardless of whether the package itself is; a stale stage
+            // is removed, as the manifest does not track it once disabled.
+            if (stage) {
+                stagePackage(contents, sources, manifest, previous);
+            } else {
+                removeStage();
+            }
+
+            if (manifest.equals(previous) && appZip.exists()) {
+                getLog().info("ONOS application package is up-to-date");
+                projectHelper.attachArtifact(this.project, APP_ZIP, null, appZip);
+                return;
+            }
+
+            // The manifest of the previous build no longer describes the
+            // package once it starts being rewritten, so it is removed first
+            // and saved again only after the package is complete; a build
+            // interrupted in between thus always regenerates the package.
+            invalidateManifest();
+            File cachedZip = cache ? cachedAppZipFile(manifest) : null;
+            if (cachedZip != null && cachedZip.exists()) {
+                getLog().info("Using cached ONOS application package " + cachedZip);
+                copyAppPackage(cachedZip, appZip);
             } else {
-                throw new MojoExecutionException("Unable to create directory: " + stageDirectory);
+                generateAppPackage(contents, sources);
+                if (cachedZip != null) {
+                    cacheAppPackage(appZip, cachedZip);
+                }
             }
+            projectHelper.attachArtifact(this.project, APP_ZIP, null, appZip);
+            saveManifest(manifest);
         }
     }
 
@@ -195,6 +332,7 @@ public class OnosAppMojo extends AbstractMojo {
             name = xml.getString(NAME);
             version = eval(xml.getString(VERSION));
             featuresRepo = eval(xml.getString(FEATURES_REPO));
+            features = eval(xml.getString(FEATURES));
 
             artifacts = xml.configurationsAt(ARTIFACT).stream()
                     .map(cfg -> eval(cfg.getRootNode().getValue().toString()))
@@ -209,36 +347,36 @@ public class OnosAppMojo extends AbstractMojo {
         }
     }
 
-    // Processes and stages the app.xml file.
-    private void processAppXml(File appFile) throws MojoExecutionException {
+    // Produces the evaluated contents of the app.xml file.
+    private byte[] appXmlContents(File appFile) throws MojoExecutionException {
         try {
-            File file = new File(stageDirectory, APP_XML);
-            forceMkdir(stageDirectory);
             String contents;
-
             if (appFile.exists()) {
                 contents = fileRead(appFile);
             } else {
                 byte[] bytes = toByteArray(getClass().getResourceAsStream(APP_XML));
                 contents = new String(bytes);
             }
-            fileWrite(file.getAbsolutePath(), eval(contents));
+            return eval(contents).getBytes(Charsets.UTF_8);
         } catch (IOException e) {
             throw new MojoExecutionException("Unable to process app.xml", e);
         }
     }
 
-    private void processFeaturesXml(File featuresFile) throws MojoExecutionException {
+    // Produces the evaluated contents of the features.xml file or null if
+    // the application does not specify a features repository.
+    private String featuresXmlContents(File featuresFile) throws MojoExecutionException {
         boolean specified = featuresRepo != null && featuresRepo.length() > 0;
 
         // If featuresRepo attribute is specified and there is a features.xml
         // file present, add the features repo as an artifact
         try {
             if (specified && featuresFile.exists()) {
-                processFeaturesXml(new FileInputStream(featuresFile));
+                return featuresXmlContents(new FileInputStream(featuresFile));
             } else if (specified) {
-                processFeaturesXml(getClass().getResourceAsStream(FEATURES_XML));
+                return featuresXmlContents(getClass().getResourceAsStream(FEATURES_XML));
             }
+            return null;
         } catch (FileNotFoundException e) {
             throw new MojoExecutionException("Unable to find features.xml file", e);
         } catch (IOException e) {
@@ -246,25 +384,31 @@ public class OnosAppMojo extends AbstractMojo {
         }
     }
 
-    // Processes and stages the features.xml file.
-    private void processFeaturesXml(InputStream stream) throws IOException {
-        String featuresArtifact =
+    // Produces the evaluated contents of the given features.xml stream.
+    private String featuresXmlContents(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            return eval(new String(toByteArray(in)));
+        }
+    }
+
+    // Returns the package path of the staged features.xml file.
+    private String featuresXmlPath() {
+        return projectPath + "/" +
                 artifactFile(projectArtifactId, projectVersion, XML, "features");
-        File dstDir = new File(stageDirectory, projectPath);
-        forceMkdir(dstDir);
-        String s = eval(new String(toByteArray(stream)));
-        fileWrite(new File(dstDir, featuresArtifact).getAbsolutePath(), s);
     }
 
-    // Stages all artifacts.
-    private void processArtifacts() throws MojoExecutionException {
+    // Resolves all artifacts into a map of package paths to source files.
+    private Map<String, File> artifactSources() throws MojoExecutionException {
+        Map<String, File> sources = Maps.newLinkedHashMap();
         for (String artifact : artifacts) {
-            processArtifact(artifact);
+            addArtifactSource(artifact, sources);
         }
+        return sources;
     }
 
-    // Stages the specified artifact.
-    private void processArtifact(String artifact) throws MojoExecutionException {
+    // Resolves the package path and the source file of the specified artifact.
+    private void addArtifactSource(String artifact, Map<String, File> sources)
+            throws MojoExecutionException {
         if (!artifact.startsWith(MVN_URL)) {
             throw new MojoExecutionException("Unsupported artifact URL:" + artifact);
         }
@@ -274,40 +418,245 @@ public class OnosAppMojo extends AbstractMojo {
             throw new MojoExecutionException("Illegal artifact URL:" + artifact);
         }
 
+        String file = artifactFile(fields);
+
+        if (projectGroupId.equals(fields[0]) && projectArtifactId.equals(fields[1])) {
+            // Local artifact is not installed yet, package it from target directory.
+            sources.put(projectPath + "/" + file, new File(dstDirectory, file));
+        } else {
+            // Other artifacts are packaged from ~/.m2/repository directory.
+            String m2Path = artifactDir(fields);
+            sources.put(M2_PREFIX + "/" + m2Path + "/" + file,
+                        new File(new File(m2Directory, m2Path), file));
+        }
+    }
+
+    // Adds all bundles and feature repositories in the transitive closure
+    // of the application features.
+    private void addFeatureSources(String featuresXml, Map<String, File> sources)
+            throws MojoExecutionException {
+        FeatureResolver resolver = new FeatureResolver(this::repositoryFile);
+        List<String> roots = features == null ? ImmutableList.of() :
+                Splitter.on(',').trimResults().omitEmptyStrings().splitToList(features);
+        try {
+            resolver.resolve(featuresXml, roots);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to resolve application features", e);
+        }
+
+        resolver.unresolved().forEach(f -> getLog().warn(
+                "Feature " + f + " is not available locally and must be provided by ONOS"));
+        resolver.foreignBundles().forEach(b -> getLog().warn(
+                "Bundle " + b + " is not a versioned Maven artifact of the default " +
+                        "repositories and cannot be packaged; it must be reachable " +
+                        "when the application is activated"));
+        for (String url : Iterables.concat(resolver.repositories(), resolver.bundles())) {
+            getLog().debug("Including dependency: " + url);
+            addArtifactSource(url, sources);
+        }
+    }
+
+    // Returns the local repository file of the given feature repository URL,
+    // or null if the URL cannot be located locally.
+    private File repositoryFile(String url) {
+        if (!FeatureResolver.packageable(url) || url.equals(featuresRepo)) {
+            return null;
+        }
+        String[] fields = url.substring(4).split("/");
+        return new File(new File(m2Directory, artifactDir(fields)), artifactFile(fields));
+    }
+
+    // Stages the package contents which changed since the previous build.
+    private void stagePackage(Map<String, byte[]> contents, Map<String, File> sources,
+                              Map<String, String> manifest, Map<String, String> previous)
+            throws MojoExecutionException {
         try {
-            String file = artifactFile(fields);
+            forceMkdir(stageDirectory);
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                File file = new File(stageDirectory, entry.getKey());
+                if (isStale(entry.getKey(), file, manifest, previous)) {
+                    forceMkdir(file.getParentFile());
+                    Files.write(entry.getValue(), file);
+                }
+            }
+            for (Map.Entry<String, File> entry : sources.entrySet()) {
+                File file = new File(stageDirectory, entry.getKey());
+                if (isStale(entry.getKey(), file, manifest, previous)) {
+                    forceMkdir(file.getParentFile());
+                    copyFile(entry.getValue(), file);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to stage application package", e);
+        }
 
-            if (projectGroupId.equals(fields[0]) && projectArtifactId.equals(fields[1])) {
-                // Local artifact is not installed yet, package it from target directory.
-                File dstDir = new File(stageDirectory, projectPath);
-                forceMkdir(dstDir);
-                copyFile(new File(dstDirectory, file), new File(dstDir, file));
-            } else {
-                // Other artifacts are packaged from ~/.m2/repository directory.
-                String m2Path = artifactDir(fields);
-                File srcDir = new File(m2Directory, m2Path);
-                File dstDir = new File(stageDirectory, M2_PREFIX + "/" + m2Path);
-                forceMkdir(dstDir);
-                copyFile(new File(srcDir, file), new File(dstDir, file));
+        // Remove staged files which are no longer part of the package.
+        previous.keySet().stream()
+                .filter(path -> !path.equals(CONFIG_KEY) && !manifest.containsKey(path))
+                .forEach(path -> new File(stageDirectory, path).delete());
+    }
+
+    // Removes the package contents staged by an earlier build, if any.
+    private void removeStage() throws MojoExecutionException {
+        try {
+            deleteDirectory(stageDirectory);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to remove " + stageDirectory, e);
+        }
+    }
+
+    // Indicates whether the staged file for the given package path needs
+    // to be (re)written.
+    private boolean isStale(String path, File file, Map<String, String> manifest,
+                            Map<String, String> previous) {
+        return !file.exists() || !Objects.equals(manifest.get(path), previous.get(path));
+    }
+
+    // Produces the manifest of content digests of all package inputs; the
+    // checksums of the source files are retained for the package writer.
+    private Map<String, String> manifest(Map<String, byte[]> contents,
+                                         Map<String, File> sources)
+            throws MojoExecutionException {
+        Map<String, String> manifest = Maps.newTreeMap();
+        contents.forEach((path, bytes) ->
+                manifest.put(path, Hashing.sha256().hashBytes(bytes).toString()));
+        for (Map.Entry<String, File> entry : sources.entrySet()) {
+            try {
+                OarWriter.Checksums sums = OarWriter.Checksums.of(entry.getValue());
+                checksums.put(entry.getKey(), sums);
+                manifest.put(entry.getKey(), sums.sha256Hex());
+            } catch (IOException e) {
+                throw new MojoExecutionException("Unable to read artifact " +
+                                                         entry.getValue(), e);
             }
+        }
+        manifest.put(CONFIG_KEY, configDigest());
+        return manifest;
+    }
+
+    // Produces digest of the mojo configuration which affects the package,
+    // including the plugin and index format versions, so that packages are
+    // rebuilt once the plugin is upgraded.
+    private String configDigest() {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (String field : new String[]{pluginVersion, String.valueOf(OarIndex.VERSION),
+                name, origin, version, featuresRepo,
+                projectGroupId, projectArtifactId, projectVersion,
+                projectDescription, String.valueOf(artifacts), storedTypes,
+                String.valueOf(compressionLevel), String.valueOf(index),
+                String.valueOf(selfContained)}) {
+            hasher.putString(String.valueOf(field), Charsets.UTF_8).putByte((byte) 0);
+        }
+        return hasher.hash().toString();
+    }
+
+    // Loads the manifest of the previous build, if there is one.
+    private Map<String, String> loadManifest() {
+        File file = new File(dstDirectory, MANIFEST);
+        Properties properties = new Properties();
+        if (file.exists()) {
+            try (FileInputStream stream = new FileInputStream(file)) {
+                properties.load(stream);
+            } catch (IOException e) {
+                getLog().warn("Unable to read " + file + "; rebuilding package");
+                return Maps.newHashMap();
+            }
+        }
+        return Maps.fromProperties(properties);
+    }
+
+    // Removes the manifest of the previous build, if there is one.
+    private void invalidateManifest() throws MojoExecutionException {
+        File file = new File(dstDirectory, MANIFEST);
+        if (file.exists() && !file.delete()) {
+            throw new MojoExecutionException("Unable to remove " + file);
+        }
+    }
+
+    // Saves the manifest of the current build.
+    private void saveManifest(Map<String, String> manifest)
+            throws MojoExecutionException {
+        Properties properties = new Properties();
+        properties.putAll(manifest);
+        try (FileOutputStream stream =
+                     new FileOutputStream(new File(dstDirectory, MANIFEST))) {
+            properties.store(stream, "Generated by onos-maven-plugin");
         } catch (IOException e) {
-            throw new MojoExecutionException("Unable to stage artifact " + artifact, e);
+            throw new MojoExecutionException("Unable to write " + MANIFEST, e);
         }
     }
 
-    // Generates the ONOS package ZIP file.
-    private void generateAppPackage() throws MojoExecutionException {
-        File appZip = new File(dstDirectory, artifactFile(projectArtifactId, projectVersion,
-                                                          APP_ZIP, null));
-        try (FileOutputStream fos = new FileOutputStream(appZip);
-             ZipOutputStream zos = new ZipOutputStream(fos)) {
-            zipDirectory("", stageDirectory, zos);
-            projectHelper.attachArtifact(this.project, APP_ZIP, null, appZip);
+    // Returns the ONOS package ZIP file.
+    private File appZipFile() {
+        return new File(dstDirectory, artifactFile(projectArtifactId, projectVersion,
+                                                   APP_ZIP, null));
+    }
+
+    // Generates the ONOS package ZIP file, streaming every entry directly
+    // from its source.
+    private void generateAppPackage(Map<String, byte[]> contents,
+                                    Map<String, File> sources)
+            throws MojoExecutionException {
+        File appZip = appZipFile();
+        int threads = compressionThreads > 0 ? compressionThreads :
+                Runtime.getRuntime().availableProcessors();
+        Set<String> stored = ImmutableSet.copyOf(
+                Splitter.on(',').trimResults().omitEmptyStrings().split(storedTypes));
+
+        OarWriter writer = new OarWriter(stored, compressionLevel, threads, index);
+        contents.forEach(writer::add);
+        sources.forEach((path, file) -> writer.add(path, file, checksums.get(path)));
+        try {
+            writer.write(appZip);
         } catch (IOException e) {
             throw new MojoExecutionException("Unable to compress application package", e);
         }
     }
 
+    // Returns the cached package file keyed by the digest of all inputs and
+    // of the plugin and index format versions, so that packages produced by
+    // a different writer are never reused.
+    private File cachedAppZipFile(Map<String, String> manifest) {
+        Hasher hasher = Hashing.sha256().newHasher()
+                .putString(String.valueOf(pluginVersion), Charsets.UTF_8).putByte((byte) 0)
+                .putShort(OarIndex.VERSION).putByte((byte) 0);
+        manifest.forEach((path, digest) -> hasher.putString(path, Charsets.UTF_8)
+                .putByte((byte) 0).putString(digest, Charsets.UTF_8).putByte((byte) 0));
+        String key = hasher.hash().toString();
+        return new File(new File(cacheDirectory, key.substring(0, 2)), key + "." + APP_ZIP);
+    }
+
+    // Copies the cached package file into the target directory.
+    private void copyAppPackage(File cachedZip, File appZip) throws MojoExecutionException {
+        try {
+            Files.copy(cachedZip, appZip);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to copy cached application package", e);
+        }
+    }
+
+    // Publishes the generated package file into the package cache; the file
+    // is first copied aside and then atomically moved into place so that
+    // concurrent builds never observe a partially written package.
+    private void cacheAppPackage(File appZip, File cachedZip) {
+        File tmp = null;
+        try {
+            forceMkdir(cachedZip.getParentFile());
+            tmp = File.createTempFile(cachedZip.getName(), ".tmp",
+                                      cachedZip.getParentFile());
+            Files.copy(appZip, tmp);
+            java.nio.file.Files.move(tmp.toPath(), cachedZip.toPath(),
+                                     StandardCopyOption.ATOMIC_MOVE,
+                                     StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            getLog().warn("Unable to cache application package: " + e.getMessage());
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
     // Generates artifact directory name from the specified fields.
     private String artifactDir(String[] fields) {
         return artifactDir(fields[0], fields[1], fields[2]);
@@ -335,38 +684,19 @@ public class OnosAppMojo extends AbstractMojo {
 
     // Returns the given string with project variable substitutions.
     private String eval(String string) {
-        return string == null ? null :
-                string.replaceAll("\\$\\{onos.app.name\\}", name)
-                        .replaceAll("\\$\\{onos.app.origin\\}", origin)
-                        .replaceAll("\\$\\{project.groupId\\}", projectGroupId)
-                        .replaceAll("\\$\\{project.artifactId\\}", projectArtifactId)
-                        .replaceAll("\\$\\{project.version\\}", projectVersion)
-                        .replaceAll("\\$\\{project.description\\}", projectDescription);
+        return string == null ? null : Template.compile(string).render(this::property);
     }
 
-    // Recursively archives the specified directory into a given ZIP stream.
-    private void zipDirectory(String root, File dir, ZipOutputStream zos)
-            throws IOException {
-        byte[] buffer = new byte[BUFFER_SIZE];
-        File[] files = dir.listFiles();
-        if (files != null && files.length > 0) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    String path = root + file.getName() + "/";
-                    zos.putNextEntry(new ZipEntry(path));
-                    zipDirectory(path, file, zos);
-                    zos.closeEntry();
-                } else {
-                    FileInputStream fin = new FileInputStream(file);
-                    zos.putNextEntry(new ZipEntry(root + file.getName()));
-                    int length;
-                    while ((length = fin.read(buffer)) > 0) {
-                        zos.write(buffer, 0, length);
-                    }
-                    zos.closeEntry();
-                    fin.close();
-                }
-            }
+    // Returns value of the given property, with application name and origin
+    // taking precedence over the project properties and model.
+    private String property(String key) {
+        switch (key) {
+            case ONOS_APP_NAME:
+                return name;
+            case ONOS_APP_ORIGIN:
+                return origin;
+            default:
+                return projectProperties.apply(key);
         }
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.Maps;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Produces ONOS component configuration catalogue resources for all
+ * modules of the reactor at once.
+ * <p>
+ * Sources of all modules are modelled together, which allows constants
+ * referenced by component properties to be resolved across modules. The
+ * models are kept between builds in a single file of the top-level
+ * project, so that only the affected sources of any module need to be
+ * processed again. When this goal is used, the per-module cfg goal may be
+ * disabled via {@code -Donos.cfg.skip=true}, e.g.
+ * {@code mvn onos:cfg-aggregate install -Donos.cfg.skip=true}.
+ * </p>
+ */
+@Mojo(name = "cfg-aggregate", aggregator = true)
+public class OnosCfgAggregateMojo extends AbstractMojo {
+
+    private static final String POM = "pom";
+    private static final String ACCESSORS = "generated-sources/onos-cfg";
+
+    /**
+     * All projects of the reactor.
+     */
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true)
+    protected List<MavenProject> reactorProjects;
+
+    /**
+     * Indicates whether only the catalogues affected by sources changed
+     * since the previous build should be regenerated.
+     */
+    @Parameter(property = "onos.cfg.incremental", defaultValue = "true")
+    protected boolean incremental;
+
+    /**
+     * File where the catalogue models of all modules are kept between
+     * builds.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/cfgdef-reactor.state")
+    protected File stateFile;
+
+    /**
+     * Indicates whether a consolidated catalogue of all components of each
+     * bundle should be produced in addition to the .cfgdef resources.
+     */
+    @Parameter(property = "onos.cfg.catalog", defaultValue = "true")
+    protected boolean catalog;
+
+    /**
+     * Indicates whether typed, immutable configuration snapshot classes
+     * should be generated for all components with configuration properties;
+     * they are put in the target/generated-sources/onos-cfg directory of
+     * each module.
+     */
+    @Parameter(property = "onos.cfg.accessors", defaultValue = "false")
+    protected boolean accessors;
+
+    /**
+     * Number of worker threads used to parse sources and write catalogues;
+     * 0 means the number of available processors.
+     */
+    @Parameter(property = "onos.cfg.threads", defaultValue = "0")
+    protected int threads;
+
+    /**
+     * The version of this plugin.
+     */
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    protected String pluginVersion;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        getLog().info("Generating ONOS component configuration catalogues for " +
+                              reactorProjects.size() + " projects...");
+        try {
+            Map<String, CfgModel> previous = incremental ? CfgModel.loadAll(stateFile, pluginVersion) : null;
+            Map<String, CfgModel> models = previous != null ? previous : Maps.newTreeMap();
+            CfgGenerator generator =
+                    new CfgGenerator(OnosCfgMojo.threads(threads), catalog);
+
+            for (MavenProject project : reactorProjects) {
+                File sourceRoot = new File(project.getBasedir(), "src/main/java");
+                if (POM.equals(project.getPackaging()) || !sourceRoot.isDirectory()) {
+                    continue;
+                }
+                CfgModel model = models.computeIfAbsent(project.getGroupId() + ":" +
+                                                                project.getArtifactId(),
+                                                        id -> new CfgModel());
+                generator.addModule(sourceRoot,
+                                    new File(project.getBuild().getOutputDirectory()),
+                                    model, accessors ? accessorDirectory(project) : null);
+            }
+
+            int processed = generator.generate();
+            getLog().info("Processed " + processed + " of " +
+                                  generator.sourceCount() + " sources");
+            CfgModel.saveAll(models, stateFile, pluginVersion);
+            if (accessors) {
+                reactorProjects.stream()
+                        .filter(p -> accessorDirectory(p).isDirectory())
+                        .forEach(p -> p.addCompileSourceRoot(accessorDirectory(p).getPath()));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to generate component configuration catalogues", e);
+        }
+    }
+
+    // Returns the directory of the configuration snapshot classes of the
+    // given project.
+    private File accessorDirectory(MavenProject project) {
+        return new File(project.getBuild().getDirectory(), ACCESSORS);
+    }
+
+}
@@ -15,33 +15,35 @@
  */
 package org.onosproject.maven;
 
-import com.thoughtworks.qdox.JavaProjectBuilder;
-import com.thoughtworks.qdox.model.JavaAnnotation;
-import com.thoughtworks.qdox.model.JavaClass;
-import com.thoughtworks.qdox.model.JavaField;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Produces ONOS component configuration catalogue resources.
+ * <p>
+ * The catalogues are produced incrementally; the digest of every source
+ * file and the catalogues it produced are persisted between builds, so
+ * that only the sources which changed, and the sources which refer to
+ * constants declared by them, need to be processed again; see
+ * {@link CfgGenerator}.
+ * </p>
+ * <p>
+ * Besides the individual .cfgdef resources, a consolidated catalogue of
+ * all components of the bundle is produced; see {@link CfgCatalog}.
+ * Optionally, typed configuration snapshot classes are generated for the
+ * components as well; see {@link CfgAccessorWriter}.
+ * </p>
  */
 @Mojo(name = "cfg", defaultPhase = LifecyclePhase.GENERATE_RESOURCES)
 public class OnosCfgMojo extends AbstractMojo {
 
-    private static final String COMPONENT = "org.apache.felix.scr.annotations.Component";
-    private static final String PROPERTY = "org.apache.felix.scr.annotations.Property";
-    private static final String SEP = "|";
-
     /**
      * The directory where the generated catalogue file will be put.
      */
@@ -54,88 +56,95 @@ public class OnosCfgMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.outputDirectory}")
     protected File dstDirectory;
 
-    @Override
-    public void execute() throws MojoExecutionException {
-        getLog().info("Generating ONOS component configuration catalogues...");
-        try {
-            JavaProjectBuilder builder = new JavaProjectBuilder();
-            builder.addSourceTree(new File(srcDirectory, "src/main/java"));
-            builder.getClasses().forEach(this::processClass);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
-        }
-    }
+    /**
+     * Indicates whether only the catalogues affected by sources changed
+     * since the previous build should be regenerated.
+     */
+    @Parameter(property = "onos.cfg.incremental", defaultValue = "true")
+    protected boolean incremental;
 
-    private void processClass(JavaClass javaClass) {
-        boolean isComponent = javaClass.getAnnotations().stream()
-                .map(ja -> ja.getType().getName().equals(COMPONENT))
-                .findFirst().isPresent();
-        if (isComponent) {
-            List<String> lines = new ArrayList<>();
-            javaClass.getFields().forEach(field -> processField(lines, javaClass, field));
-            if (!lines.isEmpty()) {
-                writeCatalog(javaClass, lines);
-            }
-        }
-    }
+    /**
+     * File where the catalogue model is kept between builds.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/cfgdef.state")
+    protected File stateFile;
 
-    private void writeCatalog(JavaClass javaClass, List<String> lines) {
-        File dir = new File(dstDirectory, javaClass.getPackageName().replace('.', '/'));
-        dir.mkdirs();
+    /**
+     * Indicates whether a consolidated catalogue of all components of the
+     * bundle should be produced in addition to the .cfgdef resources.
+     */
+    @Parameter(property = "onos.cfg.catalog", defaultValue = "true")
+    protected boolean catalog;
 
-        File cfgDef = new File(dir, javaClass.getName().replace('.', '/') + ".cfgdef");
-        try (FileWriter fw = new FileWriter(cfgDef);
-             PrintWriter pw = new PrintWriter(fw)) {
-            pw.println("# This file is auto-generated by onos-maven-plugin");
-            lines.forEach(pw::println);
-        } catch (IOException e) {
-            System.err.println("Unable to write catalog for " + javaClass.getName());
-            e.printStackTrace();
-        }
-    }
+    /**
+     * Number of worker threads used to parse sources and write catalogues;
+     * 0 means the number of available processors.
+     */
+    @Parameter(property = "onos.cfg.threads", defaultValue = "0")
+    protected int threads;
 
-    private void processField(List<String> lines, JavaClass javaClass, JavaField field) {
-        field.getAnnotations().forEach(ja -> {
-            if (ja.getType().getName().equals(PROPERTY)) {
-                lines.add(expand(javaClass, ja.getNamedParameter("name").toString()) +
-                                  SEP + type(field) +
-                                  SEP + defaultValue(javaClass, field, ja) +
-                                  SEP + description(ja));
-            }
-        });
-    }
+    /**
+     * Indicates whether typed, immutable configuration snapshot classes
+     * should be generated for all components with configuration properties.
+     */
+    @Parameter(property = "onos.cfg.accessors", defaultValue = "false")
+    protected boolean accessors;
 
-    // TODO: Stuff below is very much hack-ish and should be redone; it works for now though.
+    /**
+     * The directory where the generated configuration snapshot classes will
+     * be put.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/onos-cfg")
+    protected File accessorDirectory;
 
-    private String description(JavaAnnotation annotation) {
-        String description = (String) annotation.getNamedParameter("label");
-        return description.replaceAll("\" \\+ \"", "")
-                .replaceFirst("^[^\"]*\"", "").replaceFirst("\"$", "");
-    }
+    /**
+     * The version of this plugin.
+     */
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    protected String pluginVersion;
 
-    private String type(JavaField field) {
-        String ft = field.getType().getName().toUpperCase();
-        return ft.equals("INT") ? "INTEGER" : ft;
-    }
+    /**
+     * Maven project
+     */
+    @Parameter(defaultValue = "${project}")
+    protected MavenProject project;
 
-    private String defaultValue(JavaClass javaClass, JavaField field,
-                                JavaAnnotation annotation) {
-        String ft = field.getType().getName().toLowerCase();
-        String defValueName = ft.equals("boolean") ? "boolValue" :
-                ft.equals("string") ? "value" : ft + "Value";
-        Object dv = annotation.getNamedParameter(defValueName);
-        return dv == null ? "" : expand(javaClass, dv.toString());
-    }
+    /**
+     * Indicates whether the catalogue generation should be skipped, e.g.
+     * because the catalogues are produced by the cfg-aggregate goal.
+     */
+    @Parameter(property = "onos.cfg.skip", defaultValue = "false")
+    protected boolean skip;
 
-    private String stripQuotes(String string) {
-        return string.trim().replaceFirst("^[^\"]*\"", "").replaceFirst("\"$", "");
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            return;
+        }
+        getLog().info("Generating ONOS component configuration catalogues...");
+        try {
+            CfgModel previous = incremental ? CfgModel.load(stateFile, pluginVersion) : null;
+            CfgModel model = previous != null ? previous : new CfgModel();
+            CfgGenerator generator = new CfgGenerator(threads(threads), catalog);
+            generator.addModule(new File(srcDirectory, "src/main/java"), dstDirectory, model,
+                                accessors ? accessorDirectory : null);
+
+            int processed = generator.generate();
+            getLog().debug("Processed " + processed + " of " +
+                                   generator.sourceCount() + " sources");
+            model.save(stateFile, pluginVersion);
+            if (accessors && accessorDirectory.isDirectory()) {
+                project.addCompileSourceRoot(accessorDirectory.getPath());
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to generate component configuration catalogues", e);
+        }
     }
 
-    private String expand(JavaClass javaClass, String value) {
-        JavaField field = javaClass.getFieldByName(value);
-        return field == null ? stripQuotes(value) :
-                stripQuotes(field.getCodeBlock().replaceFirst(".*=", "").replaceFirst(";$", ""));
+    // Returns the given number of worker threads, or the number of available
+    // processors if not specified.
+    static int threads(int threads) {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
     }
 
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.apache.maven.project.MavenProject;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Text template with {@code ${name}} placeholders.
+ * <p>
+ * A placeholder preceded by a backslash, e.g. {@code \${name}}, is
+ * escaped and renders literally, without the backslash; any other
+ * {@code $} is a literal as well.
+ * </p>
+ * <p>
+ * The template text is tokenized once, when the template is compiled;
+ * rendering then substitutes all placeholders in a single linear pass
+ * over the precomputed segments, without regular expressions or any
+ * intermediate strings.
+ * </p>
+ */
+final class Template {
+
+    private static final String OPEN = "${";
+    private static final char CLOSE = '}';
+    private static final char ESCAPE = '\\';
+    private static final String PROJECT = "project.";
+
+    private final String text;
+
+    // Offsets of literal segments; literal i spans [starts[i], ends[i]) and
+    // is followed by placeholder names[i], except for the last literal; a
+    // null name joins two literals around an escaped placeholder.
+    private final int[] starts;
+    private final int[] ends;
+    private final String[] names;
+    private final int literalLength;
+
+    private Template(String text, int[] starts, int[] ends, String[] names) {
+        this.text = text;
+        this.starts = starts;
+        this.ends = ends;
+        this.names = names;
+        int length = 0;
+        for (int i = 0; i < starts.length; i++) {
+            length += ends[i] - starts[i];
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles the given template text.
+     *
+     * @param text template text
+     * @return compiled template
+     * @throws IllegalArgumentException if a placeholder is not terminated
+     *                                  or is nested in another one
+     */
+    static Template compile(String text) {
+        int count = 0;
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        String[] names = new String[8];
+
+        int start = 0;
+        int i = text.indexOf(OPEN);
+        while (i >= 0) {
+            boolean escaped = i > 0 && text.charAt(i - 1) == ESCAPE;
+            int end = escaped ? i : text.indexOf(CLOSE, i + OPEN.length());
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated placeholder at offset " + i);
+            }
+            String name = escaped ? null : text.substring(i + OPEN.length(), end);
+            if (name != null && name.contains(OPEN)) {
+                throw new IllegalArgumentException("Nested placeholder at offset " + i);
+            }
+            if (count == names.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                names = Arrays.copyOf(names, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = escaped ? i - 1 : i;
+            names[count] = name;
+            count++;
+            start = escaped ? i : end + 1;
+            i = text.indexOf(OPEN, escaped ? i + OPEN.length() : start);
+        }
+
+        int[] s = Arrays.copyOf(starts, count + 1);
+        int[] e = Arrays.copyOf(ends, count + 1);
+        s[count] = start;
+        e[count] = text.length();
+        return new Template(text, s, e, Arrays.copyOf(names, count));
+    }
+
+    /**
+     * Returns the names of all placeholders used in the template.
+     *
+     * @return set of placeholder names
+     */
+    Set<String> placeholders() {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (String name : names) {
+            if (name != null) {
+                builder.add(name);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Renders the template, substituting every placeholder with the value
+     * produced by the given resolver.
+     *
+     * @param resolver function producing placeholder values; returns null
+     *                 for unknown placeholders
+     * @return rendered text
+     * @throws IllegalArgumentException if any placeholder cannot be resolved
+     */
+    String render(Function<String, String> resolver) {
+        if (names.length == 0) {
+            return text;
+        }
+        String[] values = new String[names.length];
+        int length = literalLength;
+        for (int i = 0; i < names.length; i++) {
+            values[i] = names[i] == null ? "" : resolver.apply(names[i]);
+            if (values[i] == null) {
+                throw new IllegalArgumentException("Unresolved property ${" + names[i] + "}");
+            }
+            length += values[i].length();
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < values.length; i++) {
+            sb.append(text, starts[i], ends[i]).append(values[i]);
+        }
+        return sb.append(text, starts[values.length], ends[values.length]).toString();
+    }
+
+    /**
+     * Returns a caching resolver of properties of the given Maven project.
+     * <p>
+     * Names are resolved first against the project properties, then as
+     * {@code project.*} expressions over the project model, e.g.
+     * {@code project.parent.version}, and finally against the system
+     * properties.
+     * </p>
+     *
+     * @param project Maven project
+     * @return property resolver
+     */
+    static Function<String, String> resolver(MavenProject project) {
+        Map<String, String> cache = Maps.newHashMap();
+        Properties properties = project.getProperties();
+        return name -> {
+            if (!cache.containsKey(name)) {
+                String value = properties.getProperty(name);
+                if (value == null && name.startsWith(PROJECT)) {
+                    value = evaluate(project, name.substring(PROJECT.length()));
+                }
+                cache.put(name, value != null ? value : System.getProperty(name));
+            }
+            return cache.get(name);
+        };
+    }
+
+    // Evaluates the dotted property path against the given model object
+    // using its bean getters.
+    private static String evaluate(Object model, String path) {
+        Object value = model;
+        for (String property : path.split("\\.")) {
+            if (value == null || property.isEmpty()) {
+                return null;
+            }
+            value = getProperty(value, property);
+        }
+        return value == null ? null : value.toString();
+    }
+
+    // Returns value of the named bean property of the given object.
+    private static Object getProperty(Object object, String property) {
+        String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                Method method = object.getClass().getMethod(prefix + suffix);
+                return method.invoke(object);
+            } catch (NoSuchMethodException e) {
+                // Fall through to the next accessor prefix
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+}
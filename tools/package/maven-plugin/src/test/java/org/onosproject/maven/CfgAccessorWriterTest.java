@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Set of tests of the configuration snapshot class writer.
+ */
+public class CfgAccessorWriterTest {
+
+    private static final String COMPONENT = "org.foo.FooManager";
+    private static final String CLASS_FILE = "org/foo/FooManagerConfig.java";
+
+    private static final List<CfgCatalog.Property> PROPERTIES = ImmutableList.of(
+            new CfgCatalog.Property("maxSize", "INTEGER", "10", "Maximum size"),
+            new CfgCatalog.Property("flow.timeout", "LONG", "30", "Flow timeout */ in seconds"),
+            new CfgCatalog.Property("enabled", "BOOLEAN", "true", "Whether enabled"),
+            new CfgCatalog.Property("mode", "STRING", "fast", "Operating \"mode\""),
+            new CfgCatalog.Property("ratio", "DOUBLE", "bogus", "Sampling ratio, see C:\\users\\docs"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generated() throws Exception {
+        File sources = folder.newFolder("sources");
+        new CfgAccessorWriter().write(ImmutableMap.of(COMPONENT, PROPERTIES), sources,
+                                      ImmutableSet.of());
+        String source = Files.toString(new File(sources, CLASS_FILE), UTF_8);
+        assertTrue("missing constant", source.contains(
+                "public static final String FLOW_TIMEOUT = \"flow.timeout\";"));
+        assertTrue("missing field", source.contains("public final long flowTimeout;"));
+        assertTrue("unescaped description", source.contains("Flow timeout *&#47; in seconds"));
+        assertTrue("unescaped description", source.contains("see C:&#92;users&#92;docs"));
+
+        Class<?> config = compile(sources).loadClass("org.foo.FooManagerConfig");
+        Object defaults = config.getMethod("defaults").invoke(null);
+        assertEquals("incorrect default", 10, config.getField("maxSize").get(defaults));
+        assertEquals("incorrect default", 30L, config.getField("flowTimeout").get(defaults));
+        assertEquals("incorrect default", true, config.getField("enabled").get(defaults));
+        assertEquals("incorrect default", "fast", config.getField("mode").get(defaults));
+        assertEquals("incorrect default", 0.0, config.getField("ratio").get(defaults));
+        assertSame("defaults not shared", defaults,
+                   config.getMethod("parse", java.util.Dictionary.class)
+                           .invoke(null, new Hashtable<>()));
+
+        Hashtable<String, Object> properties = new Hashtable<>();
+        properties.put("maxSize", " 20 ");
+        properties.put("flow.timeout", 45);
+        properties.put("enabled", "false");
+        properties.put("ratio", "not a number");
+        properties.put("unknown", "ignored");
+        Object parsed = config.getMethod("parse", java.util.Dictionary.class).invoke(null, properties);
+        assertEquals("incorrect value", 20, config.getField("maxSize").get(parsed));
+        assertEquals("incorrect value", 45L, config.getField("flowTimeout").get(parsed));
+        assertEquals("incorrect value", false, config.getField("enabled").get(parsed));
+        assertEquals("incorrect value", "fast", config.getField("mode").get(parsed));
+        assertEquals("incorrect value", 0.0, config.getField("ratio").get(parsed));
+        assertEquals("incorrect string",
+                     "FooManagerConfig{maxSize=20, flowTimeout=45, enabled=false, mode=fast, ratio=0.0}",
+                     parsed.toString());
+    }
+
+    @Test
+    public void clash() throws IOException {
+        Map<String, List<CfgCatalog.Property>> catalogue = ImmutableMap.of(COMPONENT, ImmutableList.of(
+                new CfgCatalog.Property("foo.bar", "INTEGER", "1", "Dotted"),
+                new CfgCatalog.Property("fooBar", "INTEGER", "2", "Camel case")));
+        try {
+            new CfgAccessorWriter().write(catalogue, folder.newFolder("sources"), ImmutableSet.of());
+            fail("clashing properties accepted");
+        } catch (IOException e) {
+            assertTrue("incorrect message", e.getMessage().contains("foo.bar"));
+        }
+    }
+
+    @Test
+    public void skipped() throws IOException {
+        File sources = folder.newFolder("sources");
+        File stale = new File(sources, "org/foo/GoneConfig.java");
+        new CfgAccessorWriter().write(ImmutableMap.of("org.foo.Gone", PROPERTIES),
+                                      sources, ImmutableSet.of());
+        assertTrue("missing snapshot class", stale.isFile());
+
+        new CfgAccessorWriter().write(ImmutableMap.of(COMPONENT, PROPERTIES,
+                                                      "org.foo.Declared", PROPERTIES,
+                                                      "DefaultPackage", PROPERTIES),
+                                      sources, ImmutableSet.of("org.foo.DeclaredConfig"));
+        assertTrue("missing snapshot class", new File(sources, CLASS_FILE).isFile());
+        assertFalse("declared class generated", new File(sources, "org/foo/DeclaredConfig.java").exists());
+        assertFalse("default package class generated", new File(sources, "DefaultPackageConfig.java").exists());
+        assertFalse("stale class kept", stale.exists());
+    }
+
+    @Test
+    public void foreignFiles() throws IOException {
+        File sources = folder.newFolder("sources");
+        File handWritten = new File(sources, "org/foo/FooHelper.java");
+        File resource = new File(sources, "org/foo/notes.txt");
+        File imposter = new File(sources, "org/foo/BarConfig.java");
+        handWritten.getParentFile().mkdirs();
+        Files.write("package org.foo;\n\nclass FooHelper {\n}\n", handWritten, UTF_8);
+        Files.write("/*\n * This file is auto-generated by onos-maven-plugin from the configuration\n",
+                    resource, UTF_8);
+        Files.write("// This file is auto-generated by onos-maven-plugin from the configuration\n" +
+                            "package org.foo;\n", imposter, UTF_8);
+
+        new CfgAccessorWriter().write(ImmutableMap.of(COMPONENT, PROPERTIES), sources,
+                                      ImmutableSet.of());
+        assertTrue("missing snapshot class", new File(sources, CLASS_FILE).isFile());
+        assertTrue("hand-written class removed", handWritten.isFile());
+        assertTrue("resource removed", resource.isFile());
+        assertTrue("hand-written class removed", imposter.isFile());
+
+        new CfgAccessorWriter().write(ImmutableMap.of(), sources, ImmutableSet.of());
+        assertFalse("stale class kept", new File(sources, CLASS_FILE).exists());
+        assertTrue("hand-written class removed", handWritten.isFile());
+    }
+
+    @Test
+    public void unchanged() throws IOException {
+        File sources = folder.newFolder("sources");
+        CfgAccessorWriter writer = new CfgAccessorWriter();
+        writer.write(ImmutableMap.of(COMPONENT, PROPERTIES), sources, ImmutableSet.of());
+        File file = new File(sources, CLASS_FILE);
+        assertTrue("unable to age file", file.setLastModified(1000L));
+
+        writer.write(ImmutableMap.of(COMPONENT, PROPERTIES), sources, ImmutableSet.of());
+        assertEquals("unchanged file rewritten", 1000L, file.lastModified());
+    }
+
+    // Compiles the sources under the given directory and returns a class
+    // loader of the compiled classes.
+    private ClassLoader compile(File sources) throws IOException {
+        File classes = folder.newFolder("classes");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("no system compiler", compiler);
+        int status = compiler.run(null, null, null, "-d", classes.getPath(),
+                                  new File(sources, CLASS_FILE).getPath());
+        assertEquals("snapshot class does not compile", 0, status);
+        return new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+}
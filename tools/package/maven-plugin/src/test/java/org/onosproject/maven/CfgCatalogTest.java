@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.SortedMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the consolidated configuration catalogue.
+ */
+public class CfgCatalogTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        SortedMap<String, List<CfgCatalog.Property>> catalogue =
+                ImmutableSortedMap.<String, List<CfgCatalog.Property>>of(
+                        "org.foo.FooManager", ImmutableList.of(
+                                new CfgCatalog.Property("maxSize", "INTEGER", "10", "Maximum size"),
+                                new CfgCatalog.Property("mode", "STRING", "", "Operating mode")),
+                        "org.foo.BarManager", ImmutableList.of(
+                                new CfgCatalog.Property("mode", "STRING", "fast", "Operating mode")));
+        byte[] bytes = CfgCatalog.encode(catalogue);
+
+        CfgCatalog decoded = CfgCatalog.decode(ByteBuffer.wrap(bytes));
+        assertEquals("incorrect components",
+                     ImmutableList.of("org.foo.BarManager", "org.foo.FooManager"),
+                     ImmutableList.copyOf(decoded.components()));
+        catalogue.forEach((component, properties) -> assertProperties(properties,
+                                                                      decoded.properties(component)));
+        assertTrue("unknown component catalogued", decoded.properties("org.foo.Baz").isEmpty());
+
+        CfgCatalog read = CfgCatalog.read(new ByteArrayInputStream(bytes));
+        assertProperties(catalogue.get("org.foo.FooManager"), read.properties("org.foo.FooManager"));
+    }
+
+    @Test
+    public void empty() throws IOException {
+        byte[] bytes = CfgCatalog.encode(Maps.newTreeMap());
+        CfgCatalog decoded = CfgCatalog.decode(ByteBuffer.wrap(bytes));
+        assertTrue("components catalogued", decoded.components().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void malformed() throws IOException {
+        CfgCatalog.decode(ByteBuffer.wrap(new byte[]{0, 1, 2, 3, 4, 5}));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws IOException {
+        byte[] bytes = CfgCatalog.encode(ImmutableSortedMap.<String, List<CfgCatalog.Property>>of(
+                "org.foo.FooManager", ImmutableList.of(
+                        new CfgCatalog.Property("maxSize", "INTEGER", "10", "Maximum size"))));
+        CfgCatalog.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+    }
+
+    // Checks that the actual properties match the expected ones.
+    private static void assertProperties(List<CfgCatalog.Property> expected,
+                                         List<CfgCatalog.Property> actual) {
+        assertEquals("incorrect properties", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("incorrect name", expected.get(i).name(), actual.get(i).name());
+            assertEquals("incorrect type", expected.get(i).type(), actual.get(i).type());
+            assertEquals("incorrect default", expected.get(i).defaultValue(),
+                         actual.get(i).defaultValue());
+            assertEquals("incorrect description", expected.get(i).description(),
+                         actual.get(i).description());
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.SortedMap;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the configuration catalogue generator.
+ */
+public class CfgGeneratorTest {
+
+    private static final String PLUGIN_VERSION = "1.0";
+
+    private static final String FOO = "package org.foo;\n\n" +
+            "import org.apache.felix.scr.annotations.Component;\n" +
+            "import org.apache.felix.scr.annotations.Property;\n\n" +
+            "@Component(immediate = true)\n" +
+            "public class FooManager {\n" +
+            "    private static final int DEFAULT_SIZE = 10;\n\n" +
+            "    @Property(name = \"maxSize\", intValue = DEFAULT_SIZE, label = \"Maximum size\")\n" +
+            "    private int maxSize = DEFAULT_SIZE;\n\n" +
+            "    @Property(name = \"mode\", value = Defaults.MODE, label = \"Operating mode\")\n" +
+            "    private String mode = Defaults.MODE;\n\n" +
+            "    @Component\n" +
+            "    public static class Inner {\n" +
+            "        @Property(name = \"enabled\", boolValue = true, label = \"Whether enabled\")\n" +
+            "        private boolean enabled = true;\n" +
+            "    }\n" +
+            "}\n";
+    private static final String BAR = "package org.foo.bar;\n\n" +
+            "import org.apache.felix.scr.annotations.Component;\n" +
+            "import org.apache.felix.scr.annotations.Property;\n\n" +
+            "@Component\n" +
+            "public class BarManager {\n" +
+            "    @Property(name = \"timeout\", longValue = 5L, label = \"Timeout in seconds\")\n" +
+            "    private long timeout = 5L;\n" +
+            "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sources;
+
+    @Before
+    public void setUp() throws IOException {
+        sources = folder.newFolder("src");
+        source("org/foo/FooManager.java", FOO);
+        source("org/foo/Defaults.java", defaults("fast"));
+        source("org/foo/bar/BarManager.java", BAR);
+    }
+
+    @Test
+    public void generate() throws IOException {
+        File output = folder.newFolder("out");
+        File accessors = folder.newFolder("accessors");
+        CfgGenerator generator = new CfgGenerator(2, true);
+        generator.addModule(sources, output, new CfgModel(), accessors);
+
+        assertEquals("incorrect processed sources", 3, generator.generate());
+        assertEquals("incorrect sources", 3, generator.sourceCount());
+        assertEquals("incorrect catalogue",
+                     ImmutableList.of("# This file is auto-generated by onos-maven-plugin",
+                                      "maxSize|INTEGER|10|Maximum size",
+                                      "mode|STRING|fast|Operating mode"),
+                     Files.readLines(new File(output, "org/foo/FooManager.cfgdef"), UTF_8));
+        assertTrue("missing nested catalogue", new File(output, "org/foo/Inner.cfgdef").isFile());
+
+        CfgCatalog catalog = CfgCatalog.read(
+                Files.asByteSource(new File(output, CfgCatalog.PATH)).openStream());
+        assertEquals("incorrect components",
+                     ImmutableList.of("org.foo.FooManager", "org.foo.Inner", "org.foo.bar.BarManager"),
+                     ImmutableList.copyOf(catalog.components()));
+        assertEquals("incorrect default", "5L",
+                     catalog.properties("org.foo.bar.BarManager").get(0).defaultValue());
+
+        assertTrue("missing snapshot class", new File(accessors, "org/foo/FooManagerConfig.java").isFile());
+        assertFalse("nested snapshot class", new File(accessors, "org/foo/InnerConfig.java").exists());
+    }
+
+    @Test
+    public void incremental() throws IOException {
+        File state = new File(folder.getRoot(), "state/cfg.model");
+        File output = folder.newFolder("out");
+        File accessors = folder.newFolder("accessors");
+        CfgModel model = new CfgModel();
+        CfgGenerator generator = new CfgGenerator(2, true);
+        generator.addModule(sources, output, model, accessors);
+        generator.generate();
+        model.save(state, PLUGIN_VERSION);
+        assertNull("state of another plugin version loaded", CfgModel.load(state, "0.9"));
+
+        source("org/foo/Defaults.java", defaults("slow"));
+        model = CfgModel.load(state, PLUGIN_VERSION);
+        generator = new CfgGenerator(2, true);
+        generator.addModule(sources, output, model, accessors);
+        assertEquals("incorrect processed sources", 2, generator.generate());
+
+        File cleanOutput = folder.newFolder("clean-out");
+        File cleanAccessors = folder.newFolder("clean-accessors");
+        generator = new CfgGenerator(2, true);
+        generator.addModule(sources, cleanOutput, new CfgModel(), cleanAccessors);
+        generator.generate();
+
+        assertEquals("incremental catalogues differ", tree(cleanOutput), tree(output));
+        assertEquals("incremental snapshot classes differ", tree(cleanAccessors), tree(accessors));
+        assertTrue("stale default", Files.readLines(new File(output, "org/foo/FooManager.cfgdef"), UTF_8)
+                .contains("mode|STRING|slow|Operating mode"));
+    }
+
+    @Test
+    public void removed() throws IOException {
+        File output = folder.newFolder("out");
+        File accessors = folder.newFolder("accessors");
+        CfgModel model = new CfgModel();
+        CfgGenerator generator = new CfgGenerator(1, true);
+        generator.addModule(sources, output, model, accessors);
+        generator.generate();
+
+        assertTrue("unable to remove source", new File(sources, "org/foo/bar/BarManager.java").delete());
+        generator = new CfgGenerator(1, true);
+        generator.addModule(sources, output, model, accessors);
+        generator.generate();
+
+        assertFalse("stale catalogue", new File(output, "org/foo/bar/BarManager.cfgdef").exists());
+        assertFalse("stale snapshot class",
+                    new File(accessors, "org/foo/bar/BarManagerConfig.java").exists());
+        List<String> components = CfgCatalog.read(
+                Files.asByteSource(new File(output, CfgCatalog.PATH)).openStream()).components();
+        assertEquals("incorrect components", ImmutableList.of("org.foo.FooManager", "org.foo.Inner"),
+                     ImmutableList.copyOf(components));
+    }
+
+    @Test
+    public void catalogDisabled() throws IOException {
+        File output = folder.newFolder("out");
+        CfgModel model = new CfgModel();
+        CfgGenerator generator = new CfgGenerator(1, true);
+        generator.addModule(sources, output, model);
+        generator.generate();
+        assertTrue("missing catalogue", new File(output, CfgCatalog.PATH).isFile());
+
+        generator = new CfgGenerator(1, false);
+        generator.addModule(sources, output, model);
+        generator.generate();
+        assertFalse("stale catalogue", new File(output, CfgCatalog.PATH).exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void unwritable() throws IOException {
+        File output = folder.newFile("out");
+        CfgGenerator generator = new CfgGenerator(1, true);
+        generator.addModule(sources, output, new CfgModel());
+        generator.generate();
+    }
+
+    // Writes the source with the given path and contents.
+    private void source(String path, String contents) throws IOException {
+        File file = new File(sources, path);
+        file.getParentFile().mkdirs();
+        Files.write(contents, file, UTF_8);
+    }
+
+    // Returns the source of the constants class with the given mode.
+    private static String defaults(String mode) {
+        return "package org.foo;\n\n" +
+                "public final class Defaults {\n" +
+                "    public static final String MODE = \"" + mode + "\";\n" +
+                "}\n";
+    }
+
+    // Returns the digests of all files under the given directory, keyed by
+    // their relative path.
+    private static SortedMap<String, HashCode> tree(File directory) throws IOException {
+        SortedMap<String, HashCode> tree = Maps.newTreeMap();
+        for (File file : Files.fileTreeTraverser().preOrderTraversal(directory)) {
+            if (file.isFile()) {
+                tree.put(directory.toURI().relativize(file.toURI()).getPath(),
+                         Files.hash(file, Hashing.sha256()));
+            }
+        }
+        return tree;
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.onosproject.maven.FeatureResolver.Reference;
+import org.onosproject.maven.FeatureResolver.Version;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the Karaf feature resolver.
+ */
+public class FeatureResolverTest {
+
+    private static final String REPO_URL = "mvn:org.foo/foo-features/1.0/xml/features";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void versions() {
+        assertEquals("snapshot versions differ", 0,
+                     Version.parse("1.2-SNAPSHOT").compareTo(Version.parse("1.2.0.SNAPSHOT")));
+        assertEquals("missing micro version", 0,
+                     Version.parse("1.2").compareTo(Version.parse("1.2.0")));
+        assertTrue("incorrect order", Version.parse("1.10").compareTo(Version.parse("1.9.9")) > 0);
+        assertTrue("snapshot not above release",
+                   Version.parse("1.2.0.SNAPSHOT").compareTo(Version.parse("1.2.0")) > 0);
+    }
+
+    @Test
+    public void anyVersion() {
+        assertTrue("version-less reference", new Reference("f", null).matches(Version.parse("3.1")));
+        assertTrue("empty version", new Reference("f", " ").matches(Version.parse("0.1")));
+        assertTrue("0.0.0 version", new Reference("f", "0.0.0").matches(Version.parse("2.0")));
+    }
+
+    @Test
+    public void exactVersion() {
+        Reference reference = new Reference("f", "1.2-SNAPSHOT");
+        assertTrue("exact version", reference.matches(Version.parse("1.2.0.SNAPSHOT")));
+        assertFalse("other version", reference.matches(Version.parse("1.2.0")));
+    }
+
+    @Test
+    public void ranges() {
+        Reference closed = new Reference("f", "[1.2,2.0]");
+        assertTrue("lower bound", closed.matches(Version.parse("1.2")));
+        assertTrue("upper bound", closed.matches(Version.parse("2.0.0")));
+        assertFalse("below range", closed.matches(Version.parse("1.1.9")));
+
+        Reference open = new Reference("f", "(1.2,2.0)");
+        assertFalse("lower bound", open.matches(Version.parse("1.2")));
+        assertTrue("within range", open.matches(Version.parse("1.5-SNAPSHOT")));
+        assertFalse("upper bound", open.matches(Version.parse("2.0")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void illegalRange() {
+        new Reference("f", "[1.2").matches(Version.parse("1.2"));
+    }
+
+    @Test
+    public void resolve() throws IOException {
+        File repo = folder.newFile("foo-features.xml");
+        Files.write("<features>\n" +
+                            "  <feature name=\"base\" version=\"1.0\">\n" +
+                            "    <bundle>mvn:org.foo/base/1.0</bundle>\n" +
+                            "  </feature>\n" +
+                            "  <feature name=\"base\" version=\"2.0\">\n" +
+                            "    <bundle>mvn:org.foo/base/2.0</bundle>\n" +
+                            "  </feature>\n" +
+                            "</features>\n", repo, UTF_8);
+        FeatureResolver resolver = new FeatureResolver(url -> url.equals(REPO_URL) ? repo : null);
+        resolver.resolve("<features>\n" +
+                                 "  <repository>" + REPO_URL + "</repository>\n" +
+                                 "  <feature name=\"app\" version=\"1.0\">\n" +
+                                 "    <feature version=\"[1,2)\">base</feature>\n" +
+                                 "    <feature>missing</feature>\n" +
+                                 "    <bundle>wrap:mvn:org.foo/lib/1.1$Bundle-Version=1.1</bundle>\n" +
+                                 "    <bundle>mvn:org.foo/unversioned</bundle>\n" +
+                                 "    <bundle>mvn:http://repo.foo.org!org.foo/remote/1.0</bundle>\n" +
+                                 "    <bundle>file:/opt/foo.jar</bundle>\n" +
+                                 "  </feature>\n" +
+                                 "</features>\n", ImmutableList.of("app"));
+
+        assertEquals("incorrect bundles",
+                     ImmutableSet.of("mvn:org.foo/lib/1.1", "mvn:org.foo/base/1.0"),
+                     resolver.bundles());
+        assertEquals("incorrect repositories", ImmutableSet.of(REPO_URL), resolver.repositories());
+        assertEquals("incorrect unresolved features", ImmutableSet.of("missing"),
+                     resolver.unresolved());
+        assertEquals("incorrect foreign bundles",
+                     ImmutableSet.of("mvn:org.foo/unversioned",
+                                     "mvn:http://repo.foo.org!org.foo/remote/1.0",
+                                     "file:/opt/foo.jar"),
+                     resolver.foreignBundles());
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.google.common.io.ByteStreams.toByteArray;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Set of tests of the application archive writer and reader.
+ */
+public class OarWriterTest {
+
+    private static final String APP_XML = "app.xml";
+    private static final String BUNDLE = "m2/org/foo/foo-app/1.0/foo-app-1.0.jar";
+
+    private static final short STORED = 0;
+    private static final short DEFLATED = 8;
+
+    private static final int ENTRIES = 64;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] appXml = Strings.repeat("<app name=\"org.foo.app\"/>\n", 200)
+            .getBytes(Charsets.UTF_8);
+    private final byte[] bundle = random(64 * 1024);
+
+    @Test
+    public void roundTrip() throws IOException {
+        File oar = write(folder.newFile("app.oar"));
+
+        try (OarReader reader = new OarReader(oar)) {
+            assertEquals("incorrect method", DEFLATED, reader.index().entry(APP_XML).method());
+            assertEquals("incorrect method", STORED, reader.index().entry(BUNDLE).method());
+            assertNull("directory indexed", reader.index().entry("m2/"));
+            assertArrayEquals("incorrect contents", appXml, reader.read(APP_XML));
+            assertArrayEquals("incorrect contents", bundle, reader.read(BUNDLE));
+
+            File extracted = new File(folder.getRoot(), "extracted/foo-app.jar");
+            reader.extract(BUNDLE, extracted);
+            assertArrayEquals("incorrect extracted contents", bundle, Files.toByteArray(extracted));
+            reader.verify();
+        }
+
+        try (ZipFile zip = new ZipFile(oar)) {
+            assertNotNull("missing index entry", zip.getEntry(OarIndex.PATH));
+            ZipEntry entry = zip.getEntry(APP_XML);
+            assertArrayEquals("incorrect zip contents", appXml, toByteArray(zip.getInputStream(entry)));
+        }
+    }
+
+    @Test
+    public void index() throws IOException {
+        File oar = write(folder.newFile("app.oar"));
+        byte[] bytes = Files.toByteArray(oar);
+
+        try (OarReader reader = new OarReader(oar)) {
+            OarIndex.Entry stored = reader.index().entry(BUNDLE);
+            assertEquals("incorrect size", bundle.length, stored.size());
+            assertEquals("incorrect compressed size", bundle.length, stored.compressedSize());
+            byte[] data = new byte[bundle.length];
+            System.arraycopy(bytes, (int) stored.offset(), data, 0, data.length);
+            assertArrayEquals("incorrect offset", bundle, data);
+
+            OarIndex.Entry deflated = reader.index().entry(APP_XML);
+            assertEquals("incorrect size", appXml.length, deflated.size());
+            assertTrue("entry not compressed", deflated.compressedSize() < appXml.length);
+
+            assertArrayEquals("incorrect digest", Hashing.sha256().hashBytes(appXml).asBytes(),
+                              deflated.sha256());
+            assertArrayEquals("incorrect digest", Hashing.sha256().hashBytes(bundle).asBytes(),
+                              stored.sha256());
+        }
+    }
+
+    @Test
+    public void corrupted() throws IOException {
+        File oar = write(folder.newFile("app.oar"));
+        long offset;
+        try (OarReader reader = new OarReader(oar)) {
+            offset = reader.index().entry(BUNDLE).offset() + bundle.length / 2;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(oar, "rw")) {
+            file.seek(offset);
+            int b = file.read();
+            file.seek(offset);
+            file.write(b ^ 0xff);
+        }
+
+        try (OarReader reader = new OarReader(oar)) {
+            assertArrayEquals("intact entry unreadable", appXml, reader.read(APP_XML));
+            try {
+                reader.verify();
+                fail("corruption not detected");
+            } catch (IOException e) {
+                assertNotNull("missing message", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void readPastEnd() throws IOException {
+        File oar = write(folder.newFile("app.oar"));
+
+        try (OarReader reader = new OarReader(oar);
+             InputStream in = reader.open(APP_XML)) {
+            assertArrayEquals("incorrect contents", appXml, toByteArray(in));
+            assertEquals("end not repeated", -1, in.read());
+            assertEquals("end not repeated", -1, in.read(new byte[16], 0, 16));
+        }
+    }
+
+    @Test
+    public void reproducible() throws IOException {
+        File first = write(folder.newFile("first.oar"));
+        File second = write(folder.newFile("second.oar"));
+        assertArrayEquals("archives differ", Files.toByteArray(first), Files.toByteArray(second));
+    }
+
+    @Test
+    public void compressionMethods() throws IOException {
+        File gz = new File(folder.getRoot(), "foo.tar.gz");
+        Files.write(bundle, gz);
+        OarWriter writer = new OarWriter(ImmutableSet.of("jar", "gz"), 6, 1, true);
+        writer.add("m2/foo.tar.gz", gz);
+        writer.add("m2/FOO.JAR", bundle);
+        writer.add("m2/foo.xml", appXml);
+        writer.add("README", appXml);
+        File oar = folder.newFile("app.oar");
+        writer.write(oar);
+
+        try (OarReader reader = new OarReader(oar)) {
+            assertEquals("incorrect method", STORED, reader.index().entry("m2/foo.tar.gz").method());
+            assertEquals("incorrect method", STORED, reader.index().entry("m2/FOO.JAR").method());
+            assertEquals("incorrect method", DEFLATED, reader.index().entry("m2/foo.xml").method());
+            assertEquals("incorrect method", DEFLATED, reader.index().entry("README").method());
+            assertEquals("stored entry compressed", bundle.length,
+                         reader.index().entry("m2/FOO.JAR").compressedSize());
+        }
+
+        try (ZipFile zip = new ZipFile(oar)) {
+            assertEquals("incorrect zip method", ZipEntry.STORED, zip.getEntry("m2/foo.tar.gz").getMethod());
+            assertEquals("incorrect zip method", ZipEntry.DEFLATED, zip.getEntry("README").getMethod());
+            assertArrayEquals("incorrect zip contents", bundle,
+                              toByteArray(zip.getInputStream(zip.getEntry("m2/FOO.JAR"))));
+            assertArrayEquals("incorrect zip contents", appXml,
+                              toByteArray(zip.getInputStream(zip.getEntry("m2/foo.xml"))));
+        }
+    }
+
+    @Test
+    public void parallelDeflate() throws IOException {
+        File serial = writeMany(folder.newFile("serial.oar"), 1);
+        File parallel = writeMany(folder.newFile("parallel.oar"), 8);
+        assertArrayEquals("archives differ", Files.toByteArray(serial), Files.toByteArray(parallel));
+
+        try (OarReader reader = new OarReader(parallel)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                assertArrayEquals("incorrect contents", contents(i), reader.read(path(i)));
+            }
+            reader.verify();
+        }
+    }
+
+    @Test
+    public void failedWrite() throws IOException {
+        File oar = write(folder.newFile("app.oar"));
+        byte[] previous = Files.toByteArray(oar);
+
+        // A stored entry whose source disappears after its checksums were
+        // computed fails only once the archive is being written.
+        File jar = folder.newFile("vanishing.jar");
+        Files.write(bundle, jar);
+        OarWriter.Checksums checksums = OarWriter.Checksums.of(jar);
+        jar.delete();
+        OarWriter writer = new OarWriter(ImmutableSet.of("jar"), 6, 2, true);
+        writer.add(APP_XML, appXml);
+        writer.add(BUNDLE, jar, checksums);
+        try {
+            writer.write(oar);
+            fail("missing source not detected");
+        } catch (IOException e) {
+            assertArrayEquals("previous archive damaged", previous, Files.toByteArray(oar));
+        }
+
+        // An archive which cannot be moved into place leaves nothing behind.
+        File dir = folder.newFolder("blocked.oar");
+        Files.write(appXml, new File(dir, APP_XML));
+        writer = new OarWriter(ImmutableSet.of("jar"), 6, 2, true);
+        writer.add(APP_XML, appXml);
+        try {
+            writer.write(dir);
+            fail("archive written over a directory");
+        } catch (IOException e) {
+            File[] files = folder.getRoot().listFiles((d, name) -> name.endsWith(".tmp"));
+            assertEquals("temporary file left", 0, files.length);
+        }
+    }
+
+    // Writes an archive with many compressible entries using the given
+    // number of deflate workers into the given file.
+    private File writeMany(File oar, int threads) throws IOException {
+        OarWriter writer = new OarWriter(ImmutableSet.of("jar"), 6, threads, true);
+        for (int i = ENTRIES - 1; i >= 0; i--) {
+            writer.add(path(i), contents(i));
+        }
+        writer.write(oar);
+        return oar;
+    }
+
+    // Returns the path of the i-th of many entries.
+    private static String path(int i) {
+        return "m2/org/foo/entry-" + i + ".xml";
+    }
+
+    // Returns compressible contents of the i-th of many entries.
+    private static byte[] contents(int i) {
+        return Strings.repeat("<entry index=\"" + i + "\"/>\n", 100 + i * 10)
+                .getBytes(Charsets.UTF_8);
+    }
+
+    // Writes an indexed archive with a deflated and a stored entry, the
+    // latter taken from a file, into the given file.
+    private File write(File oar) throws IOException {
+        File jar = new File(folder.getRoot(), "foo-app-1.0.jar");
+        Files.write(bundle, jar);
+        OarWriter writer = new OarWriter(ImmutableSet.of("jar"), 6, 2, true);
+        writer.add(BUNDLE, jar);
+        writer.add(APP_XML, appXml);
+        writer.write(oar);
+        return oar;
+    }
+
+    // Returns incompressible contents of the given length.
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+}
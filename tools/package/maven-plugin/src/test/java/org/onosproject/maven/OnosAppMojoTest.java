@@ -0,0 +1,299 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.maven.artifact.repository.DefaultArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Set of tests of the incremental and cached application packaging.
+ */
+public class OnosAppMojoTest {
+
+    private static final String MANIFEST = "oar.manifest";
+    private static final String OAR = "foo-app-1.0.oar";
+    private static final String BUNDLE = "foo-app-1.0.jar";
+    private static final String LIB = "m2/org/bar/bar-lib/2.0/bar-lib-2.0.jar";
+
+    private static final String UP_TO_DATE = "ONOS application package is up-to-date";
+    private static final String CACHED = "Using cached ONOS application package";
+
+    private static final String APP_XML =
+            "<app name=\"org.foo.app\" origin=\"Foo\" version=\"${project.version}\"\n" +
+            "     featuresRepo=\"mvn:${project.groupId}/${project.artifactId}/${project.version}/xml/features\"\n" +
+            "     features=\"${project.artifactId}\">\n" +
+            "    <description>${project.description}</description>\n" +
+            "    <artifact>mvn:${project.groupId}/${project.artifactId}/${project.version}</artifact>\n" +
+            "    <artifact>mvn:org.bar/bar-lib/2.0</artifact>\n" +
+            "</app>\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File baseDir;
+    private File target;
+    private File repository;
+
+    private final List<String> messages = Lists.newArrayList();
+    private final List<File> attached = Lists.newArrayList();
+
+    @Before
+    public void setUp() throws IOException {
+        baseDir = folder.newFolder("foo-app");
+        target = new File(baseDir, "target");
+        repository = folder.newFolder("repository");
+        Files.write(APP_XML, new File(baseDir, "app.xml"), Charsets.UTF_8);
+        writeBundle("bundle");
+        writeLib("lib");
+    }
+
+    @Test
+    public void unchangedInputs() throws Exception {
+        mojo().execute();
+        File oar = new File(target, OAR);
+        assertTrue("package not generated", oar.exists());
+        assertTrue("manifest not saved", new File(target, MANIFEST).exists());
+        assertTrue("package not attached", attached.contains(oar));
+
+        oar.setLastModified(0);
+        attached.clear();
+        mojo().execute();
+        assertTrue("package not up-to-date", messages.contains(UP_TO_DATE));
+        assertEquals("package rewritten", 0, oar.lastModified());
+        assertTrue("package not attached", attached.contains(oar));
+    }
+
+    @Test
+    public void changedArtifact() throws Exception {
+        mojo().execute();
+        writeLib("updated lib");
+
+        mojo().execute();
+        assertFalse("stale package kept", messages.contains(UP_TO_DATE));
+        assertContents(new File(target, OAR), "updated lib");
+
+        mojo().execute();
+        assertTrue("package not up-to-date", messages.contains(UP_TO_DATE));
+    }
+
+    @Test
+    public void changedConfig() throws Exception {
+        mojo().execute();
+        File oar = new File(target, OAR);
+        oar.setLastModified(0);
+
+        OnosAppMojo mojo = mojo();
+        mojo.compressionLevel = 9;
+        mojo.execute();
+        assertFalse("stale package kept", messages.contains(UP_TO_DATE));
+        assertTrue("package not rewritten", oar.lastModified() != 0);
+        assertContents(oar, "lib");
+
+        mojo = mojo();
+        mojo.compressionLevel = 9;
+        mojo.execute();
+        assertTrue("package not up-to-date", messages.contains(UP_TO_DATE));
+    }
+
+    @Test
+    public void cacheHit() throws Exception {
+        OnosAppMojo mojo = mojo();
+        mojo.cache = true;
+        mojo.execute();
+        byte[] generated = Files.toByteArray(new File(target, OAR));
+
+        // A clean build of the same inputs reuses the cached package.
+        deleteTarget();
+        writeBundle("bundle");
+        mojo = mojo();
+        mojo.cache = true;
+        mojo.execute();
+        assertTrue("cache not used",
+                   messages.stream().anyMatch(m -> m.startsWith(CACHED)));
+        assertArrayEquals("incorrect package", generated,
+                          Files.toByteArray(new File(target, OAR)));
+        assertTrue("manifest not saved", new File(target, MANIFEST).exists());
+
+        mojo().execute();
+        assertTrue("package not up-to-date", messages.contains(UP_TO_DATE));
+    }
+
+    @Test
+    public void failedRebuild() throws Exception {
+        mojo().execute();
+        writeLib("updated lib");
+
+        // Make the package impossible to replace to simulate a build which
+        // fails while the package is being written.
+        File oar = new File(target, OAR);
+        oar.delete();
+        oar.mkdirs();
+        Files.write("blocker", new File(oar, "blocker"), Charsets.UTF_8);
+        try {
+            mojo().execute();
+            fail("package written over a directory");
+        } catch (MojoExecutionException e) {
+            assertFalse("stale manifest kept", new File(target, MANIFEST).exists());
+        }
+
+        // Even with the inputs reverted to those of the last successful
+        // build, the package left behind by the failed build is regenerated.
+        new File(oar, "blocker").delete();
+        oar.delete();
+        Files.write("partial", oar, Charsets.UTF_8);
+        writeLib("lib");
+        mojo().execute();
+        assertFalse("partial package kept", messages.contains(UP_TO_DATE));
+        assertContents(oar, "lib");
+    }
+
+    @Test
+    public void appProperties() throws Exception {
+        Files.write(APP_XML.replace("${project.description}",
+                                    "${onos.app.name} by ${onos.app.origin} for ${foo.target}"),
+                    new File(baseDir, "app.xml"), Charsets.UTF_8);
+        OnosAppMojo mojo = mojo();
+        mojo.project.getProperties().setProperty("onos.app.name", "org.other.app");
+        mojo.project.getProperties().setProperty("onos.app.origin", "Other");
+        mojo.project.getProperties().setProperty("foo.target", "onos");
+
+        String previous = System.setProperty("foo.target", "system");
+        try {
+            mojo.execute();
+        } finally {
+            if (previous == null) {
+                System.clearProperty("foo.target");
+            } else {
+                System.setProperty("foo.target", previous);
+            }
+        }
+
+        // The application name declared by app.xml takes precedence over the
+        // project property, which in turn precedes the system property.
+        try (OarReader reader = new OarReader(new File(target, OAR))) {
+            String appXml = new String(reader.read("app.xml"), Charsets.UTF_8);
+            assertTrue("incorrect app.xml: " + appXml,
+                       appXml.contains("<description>org.foo.app by Other for onos</description>"));
+        }
+    }
+
+    // Returns a new mojo configured for the test project, as a fresh mojo
+    // instance is used by every build.
+    private OnosAppMojo mojo() {
+        Model model = new Model();
+        model.setGroupId("org.foo");
+        model.setArtifactId("foo-app");
+        model.setVersion("1.0");
+        model.setDescription("Foo application");
+
+        OnosAppMojo mojo = new OnosAppMojo();
+        mojo.baseDir = baseDir;
+        mojo.dstDirectory = target;
+        mojo.projectGroupId = model.getGroupId();
+        mojo.projectArtifactId = model.getArtifactId();
+        mojo.projectVersion = model.getVersion();
+        mojo.projectDescription = model.getDescription();
+        mojo.pluginVersion = "1.5-SNAPSHOT";
+        mojo.project = new MavenProject(model);
+        mojo.localRepository = new DefaultArtifactRepository(
+                "local", repository.toURI().toString(), new DefaultRepositoryLayout());
+        mojo.projectHelper = helper();
+        mojo.incremental = true;
+        mojo.storedTypes = "jar,oar,zip,gz";
+        mojo.compressionLevel = -1;
+        mojo.compressionThreads = 1;
+        mojo.index = true;
+        mojo.cacheDirectory = new File(folder.getRoot(), "cache");
+        mojo.setLog(log());
+        messages.clear();
+        return mojo;
+    }
+
+    // Returns a project helper which records the attached artifacts.
+    private MavenProjectHelper helper() {
+        return (MavenProjectHelper) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{MavenProjectHelper.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("attachArtifact")) {
+                        attached.add((File) args[3]);
+                    }
+                    return null;
+                });
+    }
+
+    // Returns a log which records the info messages and discards the rest.
+    private Log log() {
+        return (Log) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{Log.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("info")) {
+                        messages.add(String.valueOf(args[0]));
+                    }
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+    }
+
+    // Writes the project bundle into the target directory.
+    private void writeBundle(String contents) throws IOException {
+        File bundle = new File(target, BUNDLE);
+        bundle.getParentFile().mkdirs();
+        Files.write(contents, bundle, Charsets.UTF_8);
+    }
+
+    // Writes the library artifact into the local repository.
+    private void writeLib(String contents) throws IOException {
+        File lib = new File(repository, LIB.substring("m2/".length()));
+        lib.getParentFile().mkdirs();
+        Files.write(contents, lib, Charsets.UTF_8);
+    }
+
+    // Removes the target directory along with the package and manifest.
+    private void deleteTarget() throws IOException {
+        FileUtils.deleteDirectory(target);
+    }
+
+    // Asserts that the package contains the given library contents.
+    private void assertContents(File oar, String lib) throws IOException {
+        try (OarReader reader = new OarReader(oar)) {
+            assertArrayEquals("incorrect contents", lib.getBytes(Charsets.UTF_8),
+                              reader.read(LIB));
+        }
+    }
+}
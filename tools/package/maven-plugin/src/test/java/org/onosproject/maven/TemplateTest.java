@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.maven;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Set of tests of the placeholder template engine.
+ */
+public class TemplateTest {
+
+    private static final Map<String, String> VALUES = ImmutableMap.of(
+            "a", "A", "b", "B", "empty", "", "dollar", "${a}");
+
+    private static final String SYSTEM = "onos.template.test";
+
+    @Test
+    public void literals() {
+        String text = "costs $5, $a, $ {a}, $}, {a} and a trailing $";
+        Template template = Template.compile(text);
+        assertTrue("literal treated as placeholder", template.placeholders().isEmpty());
+        assertEquals("incorrect rendering", text, template.render(name -> {
+            fail("literal resolved as " + name);
+            return null;
+        }));
+    }
+
+    @Test
+    public void placeholders() {
+        assertEquals("incorrect rendering", "A-B",
+                     render("${a}-${b}"));
+        assertEquals("incorrect rendering", "AAB",
+                     render("${a}${a}${b}"));
+        assertEquals("incorrect rendering", "[]", render("[${empty}]"));
+        assertEquals("value rendered as template", "<${a}>", render("<${dollar}>"));
+        assertEquals("incorrect placeholders", ImmutableSet.of("a", "b"),
+                     Template.compile("${a}${b}${a}").placeholders());
+    }
+
+    @Test
+    public void escaped() {
+        Template template = Template.compile("\\${a} is ${a}; $\\${b}\\${b}");
+        assertEquals("incorrect placeholders", ImmutableSet.of("a"), template.placeholders());
+        assertEquals("incorrect rendering", "${a} is A; $${b}${b}",
+                     template.render(VALUES::get));
+        assertEquals("incorrect rendering", "${unknown}", render("\\${unknown}"));
+        assertEquals("incorrect rendering", "${a", render("\\${a"));
+        assertEquals("incorrect rendering", "C:\\dir A", render("C:\\dir ${a}"));
+    }
+
+    @Test
+    public void unterminated() {
+        assertInvalid("${a");
+        assertInvalid("${a} and ${b");
+        assertInvalid("\\${a} and ${b");
+        assertInvalid("trailing ${");
+    }
+
+    @Test
+    public void nested() {
+        assertInvalid("${a${b}}");
+        assertInvalid("${${a}}");
+    }
+
+    @Test
+    public void unresolved() {
+        List<String> resolved = Lists.newArrayList();
+        try {
+            Template.compile("${a} ${missing} ${b}").render(name -> {
+                resolved.add(name);
+                return VALUES.get(name);
+            });
+            fail("unresolved placeholder rendered");
+        } catch (IllegalArgumentException e) {
+            assertTrue("incorrect message", e.getMessage().contains("${missing}"));
+            assertEquals("resolution not stopped", Lists.newArrayList("a", "missing"), resolved);
+        }
+    }
+
+    @Test
+    public void resolutionOrder() {
+        Model model = new Model();
+        model.setGroupId("org.foo");
+        model.setArtifactId("foo-app");
+        model.setVersion("1.0");
+        MavenProject project = new MavenProject(model);
+        project.getProperties().setProperty("project.version", "2.0");
+        project.getProperties().setProperty(SYSTEM, "project");
+        project.getProperties().setProperty("custom", "value");
+
+        String previous = System.setProperty(SYSTEM, "system");
+        System.setProperty(SYSTEM + ".only", "system");
+        try {
+            Function<String, String> resolver = Template.resolver(project);
+            assertEquals("model preferred over properties", "2.0",
+                         resolver.apply("project.version"));
+            assertEquals("incorrect model value", "org.foo", resolver.apply("project.groupId"));
+            assertEquals("incorrect property", "value", resolver.apply("custom"));
+            assertEquals("system preferred over properties", "project", resolver.apply(SYSTEM));
+            assertEquals("incorrect system property", "system",
+                         resolver.apply(SYSTEM + ".only"));
+            assertNull("missing parent resolved", resolver.apply("project.parent.version"));
+            assertNull("unknown model path resolved", resolver.apply("project.bogus"));
+            assertNull("empty model path resolved", resolver.apply("project..version"));
+
+            // Values are resolved once per resolver.
+            System.setProperty(SYSTEM + ".only", "changed");
+            assertEquals("value not cached", "system", resolver.apply(SYSTEM + ".only"));
+
+            assertEquals("incorrect rendering", "mvn:org.foo/foo-app/2.0",
+                         Template.compile("mvn:${project.groupId}/${project.artifactId}/" +
+                                                  "${project.version}").render(resolver));
+        } finally {
+            if (previous == null) {
+                System.clearProperty(SYSTEM);
+            } else {
+                System.setProperty(SYSTEM, previous);
+            }
+            System.clearProperty(SYSTEM + ".only");
+        }
+    }
+
+    @Test
+    public void largeInput() {
+        String line = "<bundle>mvn:${a}/${b}/$1.0</bundle> \\${a}\n";
+        String expected = "<bundle>mvn:A/B/$1.0</bundle> ${a}\n";
+        int count = 20000;
+        StringBuilder text = new StringBuilder();
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(line);
+            rendered.append(expected);
+        }
+
+        int[] calls = new int[1];
+        Template template = Template.compile(text.toString());
+        assertEquals("incorrect placeholders", ImmutableSet.of("a", "b"), template.placeholders());
+        assertEquals("incorrect rendering", rendered.toString(), template.render(name -> {
+            calls[0]++;
+            return VALUES.get(name);
+        }));
+        assertEquals("incorrect resolution count", 2 * count, calls[0]);
+    }
+
+    // Renders the given text using the test values.
+    private static String render(String text) {
+        return Template.compile(text).render(VALUES::get);
+    }
+
+    // Asserts that the given text is not a valid template.
+    private static void assertInvalid(String text) {
+        try {
+            Template.compile(text);
+            fail("invalid template compiled: " + text);
+        } catch (IllegalArgumentException e) {
+            assertTrue("missing offset", e.getMessage().contains("offset"));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimal command-line argument parser shared by the test tools.
+ * <p>
+ * Options are given as {@code --name value} or {@code --name=value};
+ * options declared as flags take no value. Options may be repeated, and
+ * all other arguments are positional.
+ * </p>
+ */
+public final class Arguments {
+
+    private static final String PREFIX = "--";
+
+    private final Map<String, List<String>> options;
+    private final List<String> positional;
+
+    private Arguments(Map<String, List<String>> options, List<String> positional) {
+        this.options = options;
+        this.positional = positional;
+    }
+
+    /**
+     * Parses the given command-line arguments.
+     *
+     * @param args  command-line arguments
+     * @param flags names of the options which take no value
+     * @return parsed arguments
+     * @throws IllegalArgumentException if an option is missing its value
+     */
+    public static Arguments parse(String[] args, String... flags) {
+        Set<String> flagSet = ImmutableSet.copyOf(flags);
+        Map<String, List<String>> options = Maps.newHashMap();
+        List<String> positional = Lists.newArrayList();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith(PREFIX) || arg.length() == PREFIX.length()) {
+                positional.add(arg);
+                continue;
+            }
+            String name = arg.substring(PREFIX.length());
+            String value;
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                value = name.substring(eq + 1);
+                name = name.substring(0, eq);
+            } else if (flagSet.contains(name)) {
+                value = "true";
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Option " + arg + " requires a value");
+            }
+            options.computeIfAbsent(name, n -> Lists.newArrayList()).add(value);
+        }
+        return new Arguments(options, ImmutableList.copyOf(positional));
+    }
+
+    /**
+     * Indicates whether the given option or flag has been given.
+     *
+     * @param name option name
+     * @return true if the option is present
+     */
+    public boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    /**
+     * Returns the flag value of the given option.
+     *
+     * @param name option name
+     * @return true if the flag is present and not set to false
+     */
+    public boolean flag(String name) {
+        return has(name) && !"false".equals(get(name, null));
+    }
+
+    /**
+     * Returns the last value of the given option.
+     *
+     * @param name         option name
+     * @param defaultValue value to return if the option is absent
+     * @return option value
+     */
+    public String get(String name, String defaultValue) {
+        List<String> values = options.get(name);
+        return values != null ? values.get(values.size() - 1) : defaultValue;
+    }
+
+    /**
+     * Returns all values of the given option; values containing commas
+     * are split into separate values.
+     *
+     * @param name option name
+     * @return list of values; empty if the option is absent
+     */
+    public List<String> getAll(String name) {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        options.getOrDefault(name, ImmutableList.of()).forEach(v -> {
+            for (String s : v.split(",")) {
+                if (!s.isEmpty()) {
+                    builder.add(s);
+                }
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Returns the integer value of the given option.
+     *
+     * @param name         option name
+     * @param defaultValue value to return if the option is absent
+     * @return option value
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    public int getInt(String name, int defaultValue) {
+        return (int) getLong(name, defaultValue);
+    }
+
+    /**
+     * Returns the long integer value of the given option.
+     *
+     * @param name         option name
+     * @param defaultValue value to return if the option is absent
+     * @return option value
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    public long getLong(String name, long defaultValue) {
+        String value = get(name, null);
+        try {
+            return value != null ? Long.parseLong(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + name + " requires an integer", e);
+        }
+    }
+
+    /**
+     * Returns the numeric value of the given option.
+     *
+     * @param name         option name
+     * @param defaultValue value to return if the option is absent
+     * @return option value
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    public double getDouble(String name, double defaultValue) {
+        String value = get(name, null);
+        try {
+            return value != null ? Double.parseDouble(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + name + " requires a number", e);
+        }
+    }
+
+    /**
+     * Returns the positional arguments.
+     *
+     * @return list of positional arguments
+     */
+    public List<String> positional() {
+        return positional;
+    }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.bits;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.tools.Arguments;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Distributor of a file, typically the ONOS package, to a set of nodes,
+ * transferring only the content the nodes do not already have.
+ * <p>
+ * Each node keeps a store of the content-defined chunks it has received.
+ * Only the chunks missing from a node's store are sent to it, after which
+ * the node reassembles the file from its store and verifies its digest.
+ * The nodes are served in parallel; with relay, the first node is served
+ * first and then serves the others, which are reached through it.
+ * Endpoints of the form local:directory allow the distribution to be
+ * verified between local directories.
+ * </p>
+ * <p>
+ * A gzip-compressed file is reassembled from its decompressed content and
+ * compressed anew, so the copy on a node holds the same archive but not
+ * necessarily the same bytes as the source; its cksum differs. The copy
+ * is instead verified against the digest of the decompressed content,
+ * which is recorded in a .sha1 file next to it.
+ * </p>
+ * <pre>
+ * Usage: BitsDistributor --source file --node node... [--target path]
+ *                        [--store path] [--user user] [--relay]
+ *                        [--chunk-kb size]
+ * </pre>
+ */
+public final class BitsDistributor {
+
+    private static final String DEFAULT_STORE = "/tmp/onos-chunks";
+    private static final Splitter LINES = Splitter.on('\n').trimResults().omitEmptyStrings();
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final File source;
+    private final Chunker chunker;
+    private final Manifest manifest;
+    private final String target;
+    private final String store;
+
+    private BitsDistributor(File source, Chunker chunker, Manifest manifest,
+                            String target, String store) {
+        this.source = source;
+        this.chunker = chunker;
+        this.manifest = manifest;
+        this.target = target;
+        this.store = store;
+    }
+
+    /**
+     * Runs the distributor.
+     *
+     * @param args command-line arguments
+     * @throws IOException          if the source cannot be read
+     * @throws InterruptedException if interrupted while distributing
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean ok;
+        try {
+            ok = run(Arguments.parse(args, "relay"));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Distributes the file as described by the given command-line
+     * arguments.
+     *
+     * @param arguments command-line arguments
+     * @return true if all nodes hold the file
+     * @throws IOException          if the source cannot be read
+     * @throws InterruptedException if interrupted while distributing
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    static boolean run(Arguments arguments) throws IOException, InterruptedException {
+        File source = new File(arguments.get("source", ""));
+        if (!source.isFile()) {
+            throw new IllegalArgumentException("No source file given; use --source");
+        }
+        String target = arguments.get("target", source.getAbsolutePath());
+        if (!target.startsWith("/")) {
+            throw new IllegalArgumentException("Target must be an absolute path");
+        }
+        boolean relay = arguments.flag("relay");
+        List<Endpoint> nodes = nodes(arguments, relay);
+        Chunker chunker = Chunker.averaging(arguments.getInt("chunk-kb", 32) * 1024);
+
+        long start = System.currentTimeMillis();
+        Manifest manifest = Manifest.of(source, chunker);
+        System.out.printf("%s: %d chunks, %d distinct, %.1f MB%s, chunked in %.1f s%n",
+                          source.getName(), manifest.chunks.size(), manifest.distinct().size(),
+                          manifest.size / MB, manifest.compressed ? " uncompressed" : "",
+                          (System.currentTimeMillis() - start) / 1000.0);
+
+        BitsDistributor distributor =
+                new BitsDistributor(source, chunker, manifest, target,
+                                    arguments.get("store", DEFAULT_STORE));
+        if (relay) {
+            return distributor.distribute(nodes.subList(0, 1), null) &&
+                    distributor.distribute(nodes.subList(1, nodes.size()), nodes.get(0));
+        }
+        return distributor.distribute(nodes, null);
+    }
+
+    // Returns the nodes given on the command line; with relay, all but
+    // the first are reached through the first.
+    private static List<Endpoint> nodes(Arguments arguments, boolean relay) {
+        String user = arguments.get("user", System.getProperty("user.name"));
+        List<Endpoint> nodes = Lists.newArrayList();
+        for (String spec : arguments.getAll("node")) {
+            nodes.add(Endpoint.parse(spec, user, relay && !nodes.isEmpty() ? nodes.get(0) : null));
+        }
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("No nodes given; use --node");
+        }
+        return nodes;
+    }
+
+    // Distributes the file to the given nodes in parallel, serving them
+    // from the given endpoint or from here; returns true if all succeeded.
+    private boolean distribute(List<Endpoint> nodes, Endpoint server)
+            throws InterruptedException {
+        if (nodes.isEmpty()) {
+            return true;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(nodes.size());
+        try {
+            Map<Endpoint, Future<String>> reports = Maps.newLinkedHashMap();
+            for (Endpoint node : nodes) {
+                reports.put(node, executor.submit(() -> push(node, server)));
+            }
+            boolean ok = true;
+            for (Map.Entry<Endpoint, Future<String>> entry : reports.entrySet()) {
+                try {
+                    System.out.println(entry.getKey() + ": " + entry.getValue().get());
+                } catch (ExecutionException e) {
+                    System.err.println(entry.getKey() + ": " + e.getCause().getMessage());
+                    ok = false;
+                }
+            }
+            return ok;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Brings the file on the given node up to date; returns a report. A
+    // failed reassembly purges the damaged chunks, so a second round
+    // replaces them.
+    private String push(Endpoint node, Endpoint server) throws IOException {
+        long start = System.currentTimeMillis();
+        Set<String> sent = Sets.newHashSet();
+        for (int round = 1; ; round++) {
+            String digest = null;
+            Set<String> present = Sets.newHashSet();
+            for (String line : LINES.split(node.exec(query(node), null))) {
+                if (line.startsWith("=")) {
+                    digest = line.substring(1);
+                } else {
+                    present.add(line);
+                }
+            }
+            if (manifest.digest.equals(digest)) {
+                return "up-to-date";
+            }
+
+            Set<String> missing = Sets.newLinkedHashSet(Sets.difference(manifest.distinct(),
+                                                                        present));
+            if (!missing.isEmpty() && server == null) {
+                node.exec(receive(node), out -> send(out, missing));
+            } else if (!missing.isEmpty()) {
+                // The serving node reads the chunks from its own store and
+                // passes them on to the node, which it reaches directly.
+                server.exec("cd " + server.path(store) + " && tar cf - -T - | " +
+                                    node.invocation(receive(node)),
+                            out -> out.write(lines(missing)));
+            }
+            sent.addAll(missing);
+            try {
+                node.exec(assemble(node), out -> out.write(lines(manifest.chunks)));
+                break;
+            } catch (IOException e) {
+                if (round == 2) {
+                    throw e;
+                }
+            }
+        }
+        return String.format("sent %d of %d chunks (%.1f of %.1f MB) in %.1f s",
+                             sent.size(), manifest.distinct().size(),
+                             manifest.size(sent) / MB, manifest.size / MB,
+                             (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    // Writes the given chunks of the source as a tar stream.
+    private void send(OutputStream out, Set<String> chunks) throws IOException {
+        try (TarWriter tar = new TarWriter(out)) {
+            manifest.select(source, chunker, chunks, tar::entry);
+        }
+    }
+
+    // Returns the command listing the digest of the node's copy of the
+    // file, if any, and the chunks in its store.
+    private String query(Endpoint node) {
+        String file = node.path(target);
+        String digest = node.path(target + ".sha1");
+        return "mkdir -p " + node.path(store) + " && " +
+                "echo \"=$([ -f " + file + " ] && cat " + digest + " 2>/dev/null)\" && " +
+                "ls " + node.path(store);
+    }
+
+    // Returns the command adding the chunks of a tar stream to the store;
+    // chunks are moved there only once completely received.
+    private String receive(Endpoint node) {
+        String chunks = node.path(store);
+        return "in=" + chunks + ".in.$$ && mkdir -p \"$in\" && tar xf - -C \"$in\" && " +
+                "find \"$in\" -type f -exec sh -c 'mv \"$@\" \"$0\"' " + chunks + " {} +; " +
+                "status=$?; rm -rf \"$in\"; exit $status";
+    }
+
+    // Returns the command reassembling the file from the chunks listed in
+    // its input, verifying its digest and pruning the chunks no longer
+    // referenced; if the digest does not match, chunks not matching their
+    // names are removed instead. A compressed file is verified once more
+    // after having been compressed anew.
+    private String assemble(Endpoint node) {
+        String chunks = node.path(store);
+        String finish = manifest.compressed ?
+                "gzip -n -c \"$t.$$.raw\" > \"$t.$$\" && " +
+                        "[ \"$(gzip -dc \"$t.$$\" | $sha | cut -d' ' -f1)\" = " +
+                        manifest.digest + " ]" :
+                "mv \"$t.$$.raw\" \"$t.$$\"";
+        return "t=" + node.path(target) + "; sha=$(command -v sha1sum || echo shasum); " +
+                "mkdir -p \"$(dirname \"$t\")\" && cat > \"$t.$$.list\" && " +
+                "(cd " + chunks + " && xargs cat) < \"$t.$$.list\" > \"$t.$$.raw\" && " +
+                "[ \"$($sha < \"$t.$$.raw\" | cut -d' ' -f1)\" = " + manifest.digest + " ] || " +
+                "{ (cd " + chunks + " && sort -u \"$t.$$.list\" | while read c; do " +
+                "[ \"$($sha < \"$c\" | cut -d' ' -f1)\" = \"$c\" ] || rm -f \"$c\"; done); " +
+                "rm -f \"$t.$$\".*; echo \"Unable to reassemble $t\" >&2; exit 2; }; " +
+                finish + " && mv \"$t.$$\" \"$t\" && echo " + manifest.digest + " > \"$t.sha1\" && " +
+                "(cd " + chunks + " && ls | grep -vxF -f \"$t.$$.list\" | xargs rm -f); " +
+                "status=$?; rm -f \"$t.$$\".*; exit $status";
+    }
+
+    // Returns the given names, one per line.
+    private static byte[] lines(Iterable<String> names) {
+        return (String.join("\n", names) + "\n").getBytes(Charsets.UTF_8);
+    }
+
+}
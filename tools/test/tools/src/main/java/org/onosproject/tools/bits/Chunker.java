@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.bits;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Splitter of a byte stream into content-defined chunks.
+ * <p>
+ * Chunk boundaries are placed where a rolling gear hash over the last 64
+ * bytes matches a mask, so they depend only on the local content. An
+ * insertion or removal therefore changes only the chunks around it,
+ * rather than shifting all chunk boundaries after it.
+ * </p>
+ */
+final class Chunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Fixed seed, so that all parties agree on the boundaries.
+        SplittableRandom random = new SplittableRandom(0x6f6e6f73L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final long mask;
+
+    /**
+     * Creates a chunker.
+     *
+     * @param minSize     minimum chunk size
+     * @param averageSize expected chunk size; a power of two
+     * @param maxSize     maximum chunk size
+     */
+    Chunker(int minSize, int averageSize, int maxSize) {
+        checkArgument(Integer.bitCount(averageSize) == 1, "Average size must be a power of two");
+        checkArgument(0 < minSize && minSize <= averageSize && averageSize <= maxSize,
+                      "Chunk sizes must be ordered");
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        // The high bits of the gear hash depend on the most bytes.
+        int bits = Integer.numberOfTrailingZeros(averageSize);
+        this.mask = bits == 0 ? 0 : -1L << (64 - bits);
+    }
+
+    /**
+     * Creates a chunker with the given average chunk size, and minimum and
+     * maximum sizes of a quarter and eight times of it respectively.
+     *
+     * @param averageSize expected chunk size; a power of two
+     * @return chunker
+     */
+    static Chunker averaging(int averageSize) {
+        return new Chunker(Math.max(1, averageSize / 4), averageSize, averageSize * 8);
+    }
+
+    /**
+     * Splits the given stream into chunks, passing them to the sink in
+     * order.
+     *
+     * @param in   input stream; not closed
+     * @param sink chunk sink
+     * @throws IOException if the stream cannot be read or the sink fails
+     */
+    void split(InputStream in, Sink sink) throws IOException {
+        byte[] chunk = new byte[maxSize];
+        byte[] block = new byte[64 * 1024];
+        int size = 0;
+        long hash = 0;
+        int n;
+        while ((n = in.read(block)) >= 0) {
+            for (int i = 0; i < n; i++) {
+                chunk[size++] = block[i];
+                hash = (hash << 1) + GEAR[block[i] & 0xff];
+                if (size == maxSize || (size >= minSize && (hash & mask) == 0)) {
+                    sink.chunk(chunk, size);
+                    size = 0;
+                    hash = 0;
+                }
+            }
+        }
+        if (size > 0) {
+            sink.chunk(chunk, size);
+        }
+    }
+
+    /**
+     * Receiver of the chunks of a stream.
+     */
+    interface Sink {
+
+        /**
+         * Receives the next chunk.
+         *
+         * @param data   buffer holding the chunk; reused for the next one
+         * @param length chunk length
+         * @throws IOException if the chunk cannot be processed
+         */
+        void chunk(byte[] data, int length) throws IOException;
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.bits;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Host on which the distributed file is stored, reached either directly
+ * or through another endpoint; all work on it is done by plain shell
+ * commands, so that nothing needs to be installed there.
+ * <p>
+ * A local endpoint stands for a directory on this host, under which the
+ * absolute paths of a remote node are mirrored; it allows a distribution
+ * to be verified without any remote nodes.
+ * </p>
+ */
+final class Endpoint {
+
+    private static final String LOCAL = "local:";
+
+    private final String name;
+    private final String login;
+    private final String root;
+    private final Endpoint via;
+
+    private Endpoint(String name, String login, String root, Endpoint via) {
+        this.name = name;
+        this.login = login;
+        this.root = root;
+        this.via = via;
+    }
+
+    /**
+     * Creates an endpoint from its specification, which is either a host
+     * name or address, optionally preceded by user@, or local:directory.
+     *
+     * @param spec endpoint specification
+     * @param user default ssh user
+     * @param via  endpoint through which this one is reached; null if
+     *             reached directly
+     * @return endpoint
+     */
+    static Endpoint parse(String spec, String user, Endpoint via) {
+        if (spec.startsWith(LOCAL)) {
+            String dir = spec.substring(LOCAL.length());
+            if (dir.isEmpty()) {
+                throw new IllegalArgumentException("No directory given in " + spec);
+            }
+            return new Endpoint(spec, null, dir.replaceAll("/+$", ""), via);
+        }
+        return new Endpoint(spec, spec.contains("@") ? spec : user + "@" + spec, "", via);
+    }
+
+    /**
+     * Returns the endpoint name.
+     *
+     * @return endpoint specification
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * Returns the quoted location of the given absolute path on this
+     * endpoint.
+     *
+     * @param path absolute path
+     * @return shell word
+     */
+    String path(String path) {
+        return quote(root + path);
+    }
+
+    /**
+     * Returns the command invoking the given command on this endpoint
+     * from the host of the endpoint it is reached through.
+     *
+     * @param command shell command
+     * @return shell command
+     */
+    String invocation(String command) {
+        return login == null ? "sh -c " + quote(command) :
+                "ssh -o BatchMode=yes -o ConnectTimeout=10 " + login + " " + quote(command);
+    }
+
+    /**
+     * Executes the given command on this endpoint, feeding it the given
+     * input.
+     *
+     * @param command shell command
+     * @param input   writer of the command input; null for none
+     * @return command output
+     * @throws IOException if the command cannot be run or fails; the error
+     *                     output of a failed command is part of the message
+     */
+    String exec(String command, Input input) throws IOException {
+        String local = invocation(command);
+        for (Endpoint hop = via; hop != null; hop = hop.via) {
+            local = hop.invocation(local);
+        }
+        // The error output is kept aside, as failures may be expected and
+        // retried by the caller, and reported only as part of the failure.
+        File errors = File.createTempFile("onos-bits", ".err");
+        try {
+            return exec(local, input, errors);
+        } finally {
+            errors.delete();
+        }
+    }
+
+    // Executes the given local command, feeding it the given input and
+    // sending its error output to the given file.
+    private String exec(String local, Input input, File errors) throws IOException {
+        Process process = new ProcessBuilder("sh", "-c", local)
+                .redirectError(errors)
+                .start();
+        try {
+            // The commands produce little output unless they read no
+            // input, so the input is written before the output is read.
+            try (OutputStream out = process.getOutputStream()) {
+                if (input != null) {
+                    input.write(out);
+                }
+            }
+            String output = new String(ByteStreams.toByteArray(process.getInputStream()),
+                                       Charsets.UTF_8);
+            int status = process.waitFor();
+            if (status != 0) {
+                String error = Files.toString(errors, Charsets.UTF_8).trim();
+                throw new IOException("Command failed on " + name + " with status " + status +
+                                              (error.isEmpty() ? "" : ": " + error));
+            }
+            return output;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while executing on " + name, e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Quotes the given text as a single shell word.
+     *
+     * @param text text to quote
+     * @return shell word
+     */
+    static String quote(String text) {
+        return "'" + text.replace("'", "'\\''") + "'";
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Writer of the input of a command.
+     */
+    interface Input {
+
+        /**
+         * Writes the command input.
+         *
+         * @param out command input stream
+         * @throws IOException if the input cannot be written
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.bits;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Description of a file as the sequence of its content-defined chunks,
+ * each named by the SHA-1 digest of its bytes.
+ * <p>
+ * Gzip-compressed files are chunked after decompression: compression
+ * spreads any change over the rest of the file, whereas the archive
+ * members of an unchanged bundle remain identical byte sequences.
+ * </p>
+ */
+final class Manifest {
+
+    private static final HashFunction SHA1 = Hashing.sha1();
+
+    final List<String> chunks;
+    final Map<String, Integer> sizes;
+    final String digest;
+    final long size;
+    final boolean compressed;
+
+    private Manifest(List<String> chunks, Map<String, Integer> sizes, String digest,
+                     long size, boolean compressed) {
+        this.chunks = ImmutableList.copyOf(chunks);
+        this.sizes = ImmutableMap.copyOf(sizes);
+        this.digest = digest;
+        this.size = size;
+        this.compressed = compressed;
+    }
+
+    /**
+     * Computes the manifest of the given file.
+     *
+     * @param file    file to describe
+     * @param chunker content chunker
+     * @return file manifest
+     * @throws IOException if the file cannot be read
+     */
+    static Manifest of(File file, Chunker chunker) throws IOException {
+        List<String> chunks = Lists.newArrayList();
+        Map<String, Integer> sizes = Maps.newHashMap();
+        Hasher whole = SHA1.newHasher();
+        long[] size = new long[1];
+        boolean compressed = isCompressed(file);
+        try (InputStream in = open(file, compressed)) {
+            chunker.split(in, (data, length) -> {
+                String name = SHA1.hashBytes(data, 0, length).toString();
+                chunks.add(name);
+                sizes.put(name, length);
+                whole.putBytes(data, 0, length);
+                size[0] += length;
+            });
+        }
+        return new Manifest(chunks, sizes, whole.hash().toString(), size[0], compressed);
+    }
+
+    /**
+     * Returns the names of the distinct chunks.
+     *
+     * @return chunk names
+     */
+    Set<String> distinct() {
+        return sizes.keySet();
+    }
+
+    /**
+     * Returns the total size of the given chunks.
+     *
+     * @param names chunk names
+     * @return size in bytes
+     */
+    long size(Set<String> names) {
+        return names.stream().mapToLong(sizes::get).sum();
+    }
+
+    /**
+     * Chunks the given file again, passing each of the wanted chunks to
+     * the sink once.
+     *
+     * @param file    described file
+     * @param chunker content chunker
+     * @param wanted  names of the chunks to pass on
+     * @param sink    receiver of the chunk names and contents
+     * @throws IOException if the file cannot be read or has changed
+     */
+    void select(File file, Chunker chunker, Set<String> wanted, Selection sink)
+            throws IOException {
+        Set<String> remaining = Sets.newHashSet(wanted);
+        try (InputStream in = open(file, compressed)) {
+            chunker.split(in, (data, length) -> {
+                String name = SHA1.hashBytes(data, 0, length).toString();
+                if (remaining.remove(name)) {
+                    sink.chunk(name, data, length);
+                }
+            });
+        }
+        if (!remaining.isEmpty()) {
+            throw new IOException(file + " changed while being distributed");
+        }
+    }
+
+    // Indicates whether the file starts with the gzip magic number.
+    private static boolean isCompressed(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    // Opens the content of the file, decompressing it if necessary.
+    private static InputStream open(File file, boolean compressed) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 256 * 1024);
+        return compressed ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    /**
+     * Receiver of selected chunks.
+     */
+    interface Selection {
+
+        /**
+         * Receives a selected chunk.
+         *
+         * @param name   chunk name
+         * @param data   buffer holding the chunk; reused for the next one
+         * @param length chunk length
+         * @throws IOException if the chunk cannot be processed
+         */
+        void chunk(String name, byte[] data, int length) throws IOException;
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.bits;
+
+import com.google.common.base.Charsets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Minimal writer of a ustar archive of regular files, understood by the
+ * tar command on the receiving side.
+ */
+final class TarWriter implements AutoCloseable {
+
+    private static final int BLOCK = 512;
+
+    private final OutputStream out;
+    private final long mtime = System.currentTimeMillis() / 1000;
+
+    /**
+     * Creates a writer to the given stream.
+     *
+     * @param out output stream; closed with the writer
+     */
+    TarWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a regular file entry.
+     *
+     * @param name   file name; at most 99 characters
+     * @param data   buffer holding the file content
+     * @param length content length
+     * @throws IOException if the entry cannot be written
+     */
+    void entry(String name, byte[] data, int length) throws IOException {
+        byte[] nameBytes = name.getBytes(Charsets.US_ASCII);
+        checkArgument(nameBytes.length < 100, "Name too long");
+        byte[] header = new byte[BLOCK];
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, length);
+        octal(header, 136, 12, mtime);
+        header[156] = '0';
+        System.arraycopy("ustar\00000".getBytes(Charsets.US_ASCII), 0, header, 257, 8);
+
+        // The checksum is computed with its own field taken as blanks.
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        int sum = 0;
+        for (byte b : header) {
+            sum += b & 0xff;
+        }
+        octal(header, 148, 7, sum);
+
+        out.write(header);
+        out.write(data, 0, length);
+        int padding = (BLOCK - length % BLOCK) % BLOCK;
+        out.write(new byte[padding]);
+    }
+
+    // Writes the value as a zero-padded, NUL-terminated octal field.
+    private static void octal(byte[] header, int offset, int width, long value) {
+        String digits = Long.toOctalString(value);
+        checkArgument(digits.length() < width, "Value too large");
+        for (int i = 0; i < width - 1; i++) {
+            int d = i - (width - 1 - digits.length());
+            header[offset + i] = (byte) (d < 0 ? '0' : digits.charAt(d));
+        }
+        header[offset + width - 1] = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.write(new byte[2 * BLOCK]);
+        out.close();
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.build;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Sets;
+
+import java.util.Set;
+
+/**
+ * Project of the reactor, with the other projects it requires to have
+ * been built before it.
+ */
+final class Module {
+
+    final String id;
+    final String dir;
+    final String packaging;
+    final boolean app;
+    final Set<String> requires;
+
+    /**
+     * Creates a module.
+     *
+     * @param id        groupId:artifactId
+     * @param dir       project directory relative to the reactor root; empty
+     *                  for the root itself
+     * @param packaging project packaging
+     * @param app       whether the project is packaged as an ONOS app
+     * @param requires  identifiers of the required reactor projects
+     */
+    Module(String id, String dir, String packaging, boolean app, Set<String> requires) {
+        this.id = id;
+        this.dir = dir;
+        this.packaging = packaging;
+        this.app = app;
+        this.requires = ImmutableSortedSet.copyOf(requires);
+    }
+
+    /**
+     * Returns the artifact identifier.
+     *
+     * @return artifactId
+     */
+    String artifactId() {
+        return id.substring(id.indexOf(':') + 1);
+    }
+
+    /**
+     * Indicates whether the given path, relative to the reactor root,
+     * is an input of this module; of an aggregator, only its descriptor
+     * is. The caller establishes that no nested module is closer.
+     *
+     * @param path file path
+     * @return true if the file affects the module
+     */
+    boolean isInput(String path) {
+        String local = dir.isEmpty() ? path : path.substring(dir.length() + 1);
+        if (packaging.equals("pom")) {
+            return local.equals("pom.xml");
+        }
+        return !local.startsWith("target/");
+    }
+
+    /**
+     * Returns the JSON representation.
+     *
+     * @param mapper object mapper
+     * @return JSON object
+     */
+    ObjectNode toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode()
+                .put("id", id).put("dir", dir).put("packaging", packaging).put("app", app);
+        requires.forEach(node.putArray("requires")::add);
+        return node;
+    }
+
+    /**
+     * Creates a module from its JSON representation.
+     *
+     * @param node JSON object
+     * @return module
+     */
+    static Module fromJson(JsonNode node) {
+        Set<String> requires = Sets.newHashSet();
+        node.path("requires").forEach(r -> requires.add(r.asText()));
+        return new Module(node.path("id").asText(), node.path("dir").asText(),
+                          node.path("packaging").asText(), node.path("app").asBoolean(),
+                          requires);
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.build;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Graph of the projects of a Maven reactor and the build-order relations
+ * between them.
+ * <p>
+ * A project requires its parent, the reactor projects it depends on or
+ * uses as build plugins, and, if it is packaged as an ONOS app, the
+ * reactor projects whose artifacts its app.xml or features.xml embed in
+ * the app archive. The graph is cached along with the size and time of
+ * modification of every file it was derived from, and derived anew only
+ * once any of them has changed.
+ * </p>
+ */
+final class ModuleGraph {
+
+    private static final Pattern ARTIFACT = Pattern.compile("mvn:([^/\\s<\"]+)/([^/\\s<\"]+)");
+    private static final String[] APP_FILES = {
+            "app.xml", "features.xml",
+            "src/main/resources/app.xml", "src/main/resources/features.xml"
+    };
+    private static final String ABSENT = "-";
+
+    private final Map<String, Module> modules;
+    private final Map<String, String> fingerprint;
+
+    private ModuleGraph(Map<String, Module> modules, Map<String, String> fingerprint) {
+        this.modules = ImmutableMap.copyOf(modules);
+        this.fingerprint = ImmutableMap.copyOf(fingerprint);
+    }
+
+    /**
+     * Returns the graph of the reactor rooted at the given directory,
+     * from the given cache if it is still current.
+     *
+     * @param root   reactor root directory
+     * @param cache  cache file; may not exist yet
+     * @param mapper object mapper
+     * @return module graph
+     * @throws IOException if the project descriptors cannot be read
+     */
+    static ModuleGraph load(File root, File cache, ObjectMapper mapper) throws IOException {
+        if (cache.isFile()) {
+            try {
+                JsonNode json = mapper.readTree(cache);
+                if (json.path("root").asText().equals(root.getCanonicalPath())) {
+                    ModuleGraph graph = fromJson(json);
+                    if (graph.isCurrent(root)) {
+                        return graph;
+                    }
+                }
+            } catch (IOException e) {
+                // An unreadable cache is simply replaced.
+            }
+        }
+        ModuleGraph graph = scan(root);
+        Files.createParentDirs(cache);
+        mapper.writeValue(cache, graph.toJson(root, mapper));
+        return graph;
+    }
+
+    /**
+     * Derives the graph of the reactor rooted at the given directory from
+     * the project descriptors.
+     *
+     * @param root reactor root directory
+     * @return module graph
+     * @throws IOException if the project descriptors cannot be read
+     */
+    static ModuleGraph scan(File root) throws IOException {
+        Map<String, PomFile> poms = Maps.newLinkedHashMap();
+        Map<String, String> fingerprint = Maps.newTreeMap();
+        visit(root.toPath(), root.toPath(), ImmutableMap.of(), poms, fingerprint);
+
+        Map<String, String> ids = Maps.newHashMap();
+        poms.forEach((dir, pom) -> ids.put(pom.groupId + ":" + pom.artifactId, dir));
+
+        Map<String, Module> modules = Maps.newLinkedHashMap();
+        for (Map.Entry<String, PomFile> entry : poms.entrySet()) {
+            String dir = entry.getKey();
+            PomFile pom = entry.getValue();
+            String id = pom.groupId + ":" + pom.artifactId;
+            Set<String> requires = Sets.newHashSet(pom.references);
+            if (pom.parent != null) {
+                requires.add(pom.parent);
+            }
+            if (pom.app) {
+                requires.addAll(embedded(root, dir, pom, fingerprint));
+            }
+            requires.retainAll(ids.keySet());
+            requires.remove(id);
+            modules.put(id, new Module(id, dir, pom.packaging, pom.app, requires));
+        }
+        return new ModuleGraph(modules, fingerprint);
+    }
+
+    // Reads the descriptor in the given directory and those of its modules.
+    private static void visit(Path root, Path dir, Map<String, String> inherited,
+                              Map<String, PomFile> poms, Map<String, String> fingerprint)
+            throws IOException {
+        File file = dir.resolve("pom.xml").toFile();
+        String relative = root.relativize(dir).toString();
+        PomFile pom = PomFile.read(file, inherited);
+        poms.put(relative, pom);
+        fingerprint.put(relative.isEmpty() ? "pom.xml" : relative + "/pom.xml", stamp(file));
+        for (String module : pom.modules) {
+            Path child = dir.resolve(module).normalize();
+            if (!poms.containsKey(root.relativize(child).toString())) {
+                visit(root, child, pom.properties, poms, fingerprint);
+            }
+        }
+    }
+
+    // Returns the coordinates of the artifacts embedded by the given app.
+    private static Set<String> embedded(File root, String dir, PomFile pom,
+                                        Map<String, String> fingerprint) throws IOException {
+        Set<String> artifacts = Sets.newHashSet();
+        for (String name : APP_FILES) {
+            String path = dir.isEmpty() ? name : dir + "/" + name;
+            File file = new File(root, path);
+            fingerprint.put(path, stamp(file));
+            if (file.isFile()) {
+                Matcher matcher = ARTIFACT.matcher(Files.toString(file, Charsets.UTF_8));
+                while (matcher.find()) {
+                    artifacts.add(PomFile.resolve(matcher.group(1), pom.properties) + ":" +
+                                          PomFile.resolve(matcher.group(2), pom.properties));
+                }
+            }
+        }
+        return artifacts;
+    }
+
+    // Returns the size and modification time of the given file.
+    private static String stamp(File file) {
+        return file.exists() ? file.length() + "@" + file.lastModified() : ABSENT;
+    }
+
+    // Indicates whether none of the files the graph was derived from has
+    // changed since.
+    private boolean isCurrent(File root) {
+        for (Map.Entry<String, String> entry : fingerprint.entrySet()) {
+            if (!stamp(new File(root, entry.getKey())).equals(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns all modules in reactor order.
+     *
+     * @return modules
+     */
+    Collection<Module> modules() {
+        return modules.values();
+    }
+
+    /**
+     * Returns the module of which the given file is an input.
+     *
+     * @param path file path relative to the reactor root
+     * @return module, or null if the file affects none
+     */
+    Module moduleOf(String path) {
+        Module closest = null;
+        for (Module module : modules.values()) {
+            boolean contains = module.dir.isEmpty() || path.startsWith(module.dir + "/");
+            if (contains && (closest == null || module.dir.length() > closest.dir.length())) {
+                closest = module;
+            }
+        }
+        return closest != null && closest.isInput(path) ? closest : null;
+    }
+
+    /**
+     * Returns the given modules together with all modules requiring them,
+     * directly or indirectly.
+     *
+     * @param changed changed modules
+     * @return affected modules, in reactor order
+     */
+    Set<Module> affected(Collection<Module> changed) {
+        Map<String, List<Module>> dependents = Maps.newHashMap();
+        for (Module module : modules.values()) {
+            for (String required : module.requires) {
+                dependents.computeIfAbsent(required, r -> Lists.newArrayList()).add(module);
+            }
+        }
+        Set<String> affected = Sets.newHashSet();
+        Deque<Module> queue = new ArrayDeque<>(changed);
+        while (!queue.isEmpty()) {
+            Module module = queue.poll();
+            if (affected.add(module.id)) {
+                queue.addAll(dependents.getOrDefault(module.id, Lists.newArrayList()));
+            }
+        }
+        Set<Module> ordered = Sets.newLinkedHashSet();
+        modules.values().stream().filter(m -> affected.contains(m.id)).forEach(ordered::add);
+        return ordered;
+    }
+
+    /**
+     * Orders the given modules into waves, each of which requires only
+     * modules of earlier waves, so that the modules of a wave may be built
+     * in parallel.
+     *
+     * @param selected modules to order
+     * @return waves of modules
+     * @throws IllegalStateException if the modules require each other
+     */
+    List<List<Module>> waves(Set<Module> selected) {
+        Map<String, Module> remaining = Maps.newLinkedHashMap();
+        selected.forEach(m -> remaining.put(m.id, m));
+        List<List<Module>> waves = Lists.newArrayList();
+        while (!remaining.isEmpty()) {
+            List<Module> wave = Lists.newArrayList();
+            for (Module module : remaining.values()) {
+                if (module.requires.stream().noneMatch(remaining::containsKey)) {
+                    wave.add(module);
+                }
+            }
+            if (wave.isEmpty()) {
+                throw new IllegalStateException("Cycle among " + remaining.keySet());
+            }
+            wave.forEach(m -> remaining.remove(m.id));
+            waves.add(wave);
+        }
+        return waves;
+    }
+
+    // Returns the JSON representation of the graph.
+    private ObjectNode toJson(File root, ObjectMapper mapper) throws IOException {
+        ObjectNode json = mapper.createObjectNode().put("root", root.getCanonicalPath());
+        ObjectNode files = json.putObject("fingerprint");
+        fingerprint.forEach(files::put);
+        modules.values().forEach(m -> json.withArray("modules").add(m.toJson(mapper)));
+        return json;
+    }
+
+    // Creates a graph from its JSON representation.
+    private static ModuleGraph fromJson(JsonNode json) {
+        Map<String, Module> modules = Maps.newLinkedHashMap();
+        json.path("modules").forEach(m -> {
+            Module module = Module.fromJson(m);
+            modules.put(module.id, module);
+        });
+        Map<String, String> fingerprint = Maps.newHashMap();
+        Iterator<Map.Entry<String, JsonNode>> files = json.path("fingerprint").fields();
+        while (files.hasNext()) {
+            Map.Entry<String, JsonNode> file = files.next();
+            fingerprint.put(file.getKey(), file.getValue().asText());
+        }
+        return new ModuleGraph(modules, fingerprint);
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.build;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parts of a Maven project descriptor relevant to the order in which the
+ * projects of a reactor are built.
+ */
+final class PomFile {
+
+    private static final String APP_NAME = "onos.app.name";
+    private static final String PLUGIN_GROUP = "org.apache.maven.plugins";
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)\\}");
+
+    final String groupId;
+    final String artifactId;
+    final String packaging;
+    final String parent;
+    final boolean app;
+    final List<String> modules;
+    final List<String> references;
+    final Map<String, String> properties;
+
+    private PomFile(String groupId, String artifactId, String packaging, String parent,
+                    boolean app, List<String> modules, List<String> references,
+                    Map<String, String> properties) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.packaging = packaging;
+        this.parent = parent;
+        this.app = app;
+        this.modules = ImmutableList.copyOf(modules);
+        this.references = ImmutableList.copyOf(references);
+        this.properties = properties;
+    }
+
+    /**
+     * Reads the given project descriptor.
+     *
+     * @param file      pom.xml file
+     * @param inherited properties of the parent project; may be empty
+     * @return project descriptor
+     * @throws IOException if the file cannot be read or parsed
+     */
+    static PomFile read(File file, Map<String, String> inherited) throws IOException {
+        Element project = parse(file).getDocumentElement();
+        Element parentElement = child(project, "parent");
+        String parentGroupId = text(parentElement, "groupId");
+        String groupId = text(project, "groupId");
+        groupId = groupId != null ? groupId : parentGroupId;
+        String artifactId = text(project, "artifactId");
+        if (groupId == null || artifactId == null) {
+            throw new IOException("No coordinates in " + file);
+        }
+
+        Map<String, String> properties = Maps.newHashMap(inherited);
+        boolean app = false;
+        for (Element property : children(child(project, "properties"), null)) {
+            properties.put(property.getTagName(), property.getTextContent().trim());
+            app |= property.getTagName().equals(APP_NAME);
+        }
+        properties.put("project.groupId", groupId);
+        properties.put("project.artifactId", artifactId);
+        properties.put("pom.groupId", groupId);
+        if (parentGroupId != null) {
+            properties.put("project.parent.groupId", parentGroupId);
+        }
+
+        String parent = parentElement == null ? null :
+                resolve(parentGroupId, properties) + ":" +
+                        resolve(text(parentElement, "artifactId"), properties);
+
+        List<String> modules = Lists.newArrayList();
+        for (Element module : children(child(project, "modules"), "module")) {
+            modules.add(module.getTextContent().trim());
+        }
+
+        // Dependencies and build plugins, including the dependencies of
+        // the plugins, all of which have to be built beforehand.
+        List<String> references = Lists.newArrayList();
+        coordinates(child(project, "dependencies"), "dependency", properties, references);
+        for (Element plugin : children(child(child(project, "build"), "plugins"), "plugin")) {
+            String pluginGroupId = resolve(text(plugin, "groupId"), properties);
+            references.add((pluginGroupId != null ? pluginGroupId : PLUGIN_GROUP) + ":" +
+                                   resolve(text(plugin, "artifactId"), properties));
+            coordinates(child(plugin, "dependencies"), "dependency", properties, references);
+        }
+
+        String packaging = text(project, "packaging");
+        return new PomFile(groupId, artifactId, packaging != null ? packaging : "jar",
+                           parent, app, modules, references, properties);
+    }
+
+    /**
+     * Substitutes the properties referenced in the given text.
+     *
+     * @param text       text to resolve; may be null
+     * @param properties property values
+     * @return resolved text, with unknown references left as they are
+     */
+    static String resolve(String text, Map<String, String> properties) {
+        if (text == null) {
+            return null;
+        }
+        Matcher matcher = PROPERTY.matcher(text);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            String value = properties.get(matcher.group(1));
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(
+                    value != null ? value : matcher.group()));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    // Adds the groupId:artifactId coordinates of the given elements.
+    private static void coordinates(Element parent, String tag, Map<String, String> properties,
+                                    List<String> references) {
+        for (Element element : children(parent, tag)) {
+            references.add(resolve(text(element, "groupId"), properties) + ":" +
+                                   resolve(text(element, "artifactId"), properties));
+        }
+    }
+
+    // Parses the given XML file.
+    private static Document parse(File file) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(file);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Unable to parse " + file, e);
+        }
+    }
+
+    // Returns the first child element with the given tag, or null.
+    private static Element child(Element parent, String tag) {
+        List<Element> children = children(parent, tag);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    // Returns the child elements with the given tag, or all if null.
+    private static List<Element> children(Element parent, String tag) {
+        List<Element> children = Lists.newArrayList();
+        if (parent == null) {
+            return children;
+        }
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && (tag == null || ((Element) node).getTagName().equals(tag))) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+
+    // Returns the trimmed text of the given child element, or null.
+    private static String text(Element parent, String tag) {
+        Element child = child(parent, tag);
+        return child == null ? null : child.getTextContent().trim();
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.build;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.onosproject.tools.Arguments;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Driver of a build of only the reactor projects affected by changes.
+ * <p>
+ * The files changed since a git revision, including uncommitted and
+ * untracked ones, are mapped to the projects they are inputs of. These
+ * projects, and all projects requiring them, including ONOS apps that
+ * embed them, are then built in waves: the projects of a wave require
+ * only projects of earlier waves, and are built in parallel by a single
+ * Maven invocation. The first failure ends the build.
+ * </p>
+ * <p>
+ * Later waves take the projects of earlier waves from the local
+ * repository, so building in waves requires goals which install them.
+ * With other goals, e.g. {@code compile}, all affected projects are built
+ * by a single invocation instead, which resolves them within the reactor.
+ * </p>
+ * <pre>
+ * Usage: SelectiveBuild [--root dir] [--since revision] [--files path,...]
+ *                       [--exclude-file file] [--cache file] [--jobs n]
+ *                       [--logs dir] [--mvn command] [--plan]
+ *                       [goal...]
+ * </pre>
+ */
+public final class SelectiveBuild {
+
+    private static final List<String> DEFAULT_GOALS = ImmutableList.of("clean", "install");
+    private static final Set<String> INSTALLING_GOALS = ImmutableSet.of("install", "deploy");
+    private static final Splitter LINES = Splitter.on('\n').trimResults().omitEmptyStrings();
+    private static final int TAIL_LINES = 30;
+
+    private SelectiveBuild() {
+    }
+
+    /**
+     * Runs the selective build.
+     *
+     * @param args command-line arguments
+     * @throws IOException          if the reactor or the changes cannot be
+     *                              read
+     * @throws InterruptedException if interrupted while building
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Arguments arguments;
+        File root;
+        int jobs;
+        try {
+            arguments = Arguments.parse(args, "plan");
+            String onosRoot = System.getenv("ONOS_ROOT");
+            root = new File(arguments.get("root", onosRoot != null ? onosRoot : ".")).getCanonicalFile();
+            if (!new File(root, "pom.xml").isFile()) {
+                throw new IllegalArgumentException("No pom.xml in " + root);
+            }
+            jobs = arguments.getInt("jobs", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        File cache = arguments.has("cache") ? new File(arguments.get("cache", "")) : cacheFile(root);
+        ModuleGraph graph = ModuleGraph.load(root, cache, new ObjectMapper());
+        List<String> files = arguments.has("files") ? arguments.getAll("files") :
+                changedFiles(root, arguments.get("since", "HEAD"));
+        List<Pattern> excludes = excludes(arguments);
+
+        Set<Module> changed = Sets.newLinkedHashSet();
+        for (String file : files) {
+            Module module = graph.moduleOf(file);
+            if (module != null && !isExcluded(root, module, excludes)) {
+                changed.add(module);
+            }
+        }
+        Set<Module> affected = Sets.newLinkedHashSet();
+        graph.affected(changed).stream()
+                .filter(m -> !isExcluded(root, m, excludes)).forEach(affected::add);
+        List<List<Module>> waves = graph.waves(affected);
+
+        System.out.printf("Reactor of %d projects; %d changed, %d affected in %d waves (%d ms)%n",
+                          graph.modules().size(), changed.size(), affected.size(), waves.size(),
+                          System.currentTimeMillis() - start);
+        for (int i = 0; i < waves.size(); i++) {
+            System.out.printf("Wave %d: %s%n", i + 1, names(waves.get(i)));
+        }
+        if (arguments.flag("plan") || waves.isEmpty()) {
+            return;
+        }
+
+        List<String> goals = arguments.positional().isEmpty() ?
+                DEFAULT_GOALS : arguments.positional();
+        File logs = new File(arguments.get("logs", new File(System.getProperty("java.io.tmpdir"),
+                                                            "onos-build-selective").getPath()));
+        logs.mkdirs();
+        String mvn = arguments.get("mvn", "mvn");
+        boolean ok;
+        if (waves.size() == 1 || goals.stream().anyMatch(INSTALLING_GOALS::contains)) {
+            ok = build(root, waves, mvn, goals, jobs, logs);
+        } else {
+            System.out.println("Goals do not install the projects; building all waves at once");
+            List<Module> all = waves.stream().flatMap(List::stream).collect(Collectors.toList());
+            ok = build(root, "1-" + waves.size(), all, mvn, goals, jobs, logs);
+        }
+
+        List<Module> apps = affected.stream().filter(m -> m.app).collect(Collectors.toList());
+        if (ok && !apps.isEmpty()) {
+            System.out.println("App staging required for " + names(apps));
+        }
+        System.out.printf("Build %s in %.1f s%n", ok ? "succeeded" : "failed",
+                          (System.currentTimeMillis() - start) / 1000.0);
+        System.exit(ok ? 0 : 1);
+    }
+
+    // Returns the default cache file, kept in the git directory if any.
+    private static File cacheFile(File root) {
+        try {
+            String gitDir = run(root, "git", "rev-parse", "--git-dir").trim();
+            return new File(new File(root, gitDir).getCanonicalFile(), "onos-module-graph.json");
+        } catch (IOException e) {
+            return new File(System.getProperty("java.io.tmpdir"),
+                            "onos-module-graph-" + Integer.toHexString(root.hashCode()) + ".json");
+        }
+    }
+
+    // Returns the files changed since the given revision, relative to the
+    // root, including uncommitted and untracked files.
+    private static List<String> changedFiles(File root, String since) throws IOException {
+        Set<String> files = Sets.newLinkedHashSet();
+        files.addAll(LINES.splitToList(run(root, "git", "diff", "--name-only", "--relative", since)));
+        files.addAll(LINES.splitToList(run(root, "git", "ls-files", "--others",
+                                           "--exclude-standard")));
+        return Lists.newArrayList(files);
+    }
+
+    // Returns the exclusion patterns read from the exclusion file, if any.
+    private static List<Pattern> excludes(Arguments arguments) throws IOException {
+        List<Pattern> patterns = Lists.newArrayList();
+        if (arguments.has("exclude-file")) {
+            File file = new File(arguments.get("exclude-file", ""));
+            for (String line : LINES.split(Files.toString(file, Charsets.UTF_8))) {
+                patterns.add(Pattern.compile(line));
+            }
+        }
+        return patterns;
+    }
+
+    // Indicates whether the project directory, as an absolute path with a
+    // trailing slash, matches any of the exclusion patterns.
+    private static boolean isExcluded(File root, Module module, List<Pattern> excludes) {
+        String path = new File(root, module.dir).getPath() + "/";
+        return excludes.stream().anyMatch(p -> p.matcher(path).matches());
+    }
+
+    // Builds the waves in order, each by a single Maven invocation building
+    // its projects on parallel threads; returns true if all projects were
+    // built. Separate concurrent invocations would race on the metadata of
+    // the local repository when installing.
+    private static boolean build(File root, List<List<Module>> waves, String mvn,
+                                 List<String> goals, int jobs, File logs)
+            throws IOException, InterruptedException {
+        for (int i = 0; i < waves.size(); i++) {
+            if (!build(root, Integer.toString(i + 1), waves.get(i), mvn, goals, jobs, logs)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Builds the projects of the named wave by a single Maven invocation;
+    // returns true if all were built.
+    private static boolean build(File root, String name, List<Module> wave, String mvn,
+                                 List<String> goals, int jobs, File logs)
+            throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        File log = new File(logs, "wave-" + name + ".log");
+        String projects = wave.stream().map(m -> m.dir.isEmpty() ? "." : m.dir)
+                .collect(Collectors.joining(","));
+        List<String> command = Lists.newArrayList(Splitter.on(' ').omitEmptyStrings().split(mvn));
+        command.addAll(ImmutableList.of("-B", "-T", Integer.toString(jobs),
+                                        "-f", new File(root, "pom.xml").getPath(),
+                                        "-pl", projects));
+        command.addAll(goals);
+        Process process = new ProcessBuilder(command)
+                .directory(root)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        boolean ok = process.waitFor() == 0;
+        double seconds = (System.currentTimeMillis() - start) / 1000.0;
+        if (ok) {
+            System.out.printf("  built  wave %s: %s (%.1f s)%n", name, names(wave), seconds);
+            return true;
+        }
+        List<String> lines = Files.readLines(log, Charsets.UTF_8);
+        StringBuilder sb = new StringBuilder(String.format("  FAILED wave %s (%.1f s), see %s%n",
+                                                           name, seconds, log));
+        lines.subList(Math.max(0, lines.size() - TAIL_LINES), lines.size())
+                .forEach(line -> sb.append("    ").append(line).append('\n'));
+        System.out.print(sb);
+        return false;
+    }
+
+    // Returns the artifact identifiers of the given modules.
+    private static String names(List<Module> modules) {
+        return modules.stream().map(Module::artifactId).collect(Collectors.joining(", "));
+    }
+
+    // Runs the given command in the given directory; returns its output.
+    private static String run(File dir, String... command) throws IOException {
+        Process process = new ProcessBuilder(command).directory(dir)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String output = new String(ByteStreams.toByteArray(process.getInputStream()),
+                                   Charsets.UTF_8);
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException(String.join(" ", command) + " failed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+        return output;
+    }
+
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.health;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.tools.Arguments;
+import org.onosproject.tools.health.HealthCheck.Outcome;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probe of the health of all nodes of a cluster.
+ * <p>
+ * A single session is held per node, over which the checks run. On every
+ * node the start check is performed first, and always if any check judges
+ * state which is only final once the node has started; the remaining
+ * checks then run
+ * concurrently, those not retried once the others have passed. Checks not
+ * yet passed are repeated with exponential backoff until the deadline. The
+ * first failure on any node ends the probe. The verdict, with the outcome,
+ * number of attempts and duration of each check, is printed as JSON and
+ * reflected in the exit status.
+ * </p>
+ * <pre>
+ * Usage: ClusterProbe --node address... [--user user]
+ *                     [--cli path] [--log path] [--apps app,...]
+ *                     [--checks start,logs,components,apps,nodes,summary]
+ *                     [--expect key=value]... [--timeout seconds]
+ *                     [--command-timeout-ms ms]
+ *                     [--stub [--stub-start-ms ms] [--stub-latency-ms ms]
+ *                      [--stub-fail node:check]...]
+ * </pre>
+ */
+public final class ClusterProbe {
+
+    private static final String DEFAULT_CHECKS = "start,logs,components,apps";
+    private static final String DEFAULT_APPS = "drivers,openflow";
+    private static final String APP_PREFIX = "org.onosproject.";
+    private static final long INITIAL_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 4000;
+
+    private final List<String> nodes;
+    private final List<HealthCheck> checks;
+    private final ProbeContext context;
+    private final long commandTimeoutMillis;
+    private final long startedAt = System.currentTimeMillis();
+    private final long deadline;
+
+    private final Map<String, Map<HealthCheck, Result>> results = new ConcurrentHashMap<>();
+    private final List<String> failed = Lists.newCopyOnWriteArrayList();
+    private final CountDownLatch aborted = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private ClusterProbe(List<String> nodes, List<HealthCheck> checks, ProbeContext context,
+                         long timeoutMillis, long commandTimeoutMillis) {
+        this.nodes = nodes;
+        this.checks = checks;
+        this.context = context;
+        this.commandTimeoutMillis = commandTimeoutMillis;
+        this.deadline = startedAt + timeoutMillis;
+        nodes.forEach(node -> results.put(node, new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Runs the probe.
+     *
+     * @param args command-line arguments
+     * @throws IOException          if the verdict cannot be written
+     * @throws InterruptedException if interrupted while probing
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode verdict;
+        try {
+            verdict = probe(Arguments.parse(args, "stub"), mapper);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(verdict));
+        System.exit(verdict.path("ok").asBoolean() ? 0 : 1);
+    }
+
+    /**
+     * Probes the cluster described by the given command-line arguments.
+     *
+     * @param arguments command-line arguments
+     * @param mapper    JSON object mapper
+     * @return verdict of the probe
+     * @throws IOException          if the sessions cannot be set up
+     * @throws InterruptedException if interrupted while probing
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    static ObjectNode probe(Arguments arguments, ObjectMapper mapper)
+            throws IOException, InterruptedException {
+        List<String> nodes = arguments.getAll("node");
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("No nodes given; use --node");
+        }
+        ProbeContext context = new ProbeContext(
+                arguments.get("cli", "/opt/onos/bin/onos"),
+                arguments.get("log", "/opt/onos/log/karaf.log"),
+                apps(arguments), Sets.newHashSet(nodes), expectations(arguments));
+        ClusterProbe probe =
+                new ClusterProbe(nodes, checks(arguments), context,
+                                 TimeUnit.SECONDS.toMillis(arguments.getLong("timeout", 120)),
+                                 arguments.getLong("command-timeout-ms", 30_000));
+        SessionFactory sessions = arguments.flag("stub") ? stubSessions(arguments, context) :
+                sshSessions(arguments.get("user", System.getProperty("user.name")));
+        try {
+            probe.run(sessions);
+        } finally {
+            sessions.close();
+        }
+        return probe.verdict(mapper);
+    }
+
+    // Returns the checks given on the command line, in their canonical
+    // order, together with the start check if any of them requires it.
+    private static List<HealthCheck> checks(Arguments arguments) {
+        Set<HealthCheck> checks = EnumSet.noneOf(HealthCheck.class);
+        List<String> names = arguments.getAll("checks");
+        for (String name : names.isEmpty() ? ImmutableList.of(DEFAULT_CHECKS) : names) {
+            for (String id : name.split(",")) {
+                checks.add(check(id));
+            }
+        }
+        if (checks.stream().anyMatch(HealthCheck::requiresStart)) {
+            checks.add(HealthCheck.START);
+        }
+        return ImmutableList.copyOf(checks);
+    }
+
+    // Returns the check with the given name.
+    private static HealthCheck check(String id) {
+        for (HealthCheck check : HealthCheck.values()) {
+            if (check.id().equals(id)) {
+                return check;
+            }
+        }
+        throw new IllegalArgumentException("Unknown check " + id);
+    }
+
+    // Returns the fully qualified names of the expected applications.
+    private static Set<String> apps(Arguments arguments) {
+        List<String> apps = arguments.getAll("apps");
+        Set<String> names = Sets.newTreeSet();
+        for (String app : apps.isEmpty() ? ImmutableList.of(DEFAULT_APPS) : apps) {
+            for (String name : app.split(",")) {
+                if (!name.isEmpty()) {
+                    names.add(name.startsWith(APP_PREFIX) ? name : APP_PREFIX + name);
+                }
+            }
+        }
+        return names;
+    }
+
+    // Returns the expected summary values given on the command line.
+    private static Map<String, String> expectations(Arguments arguments) {
+        Map<String, String> expected = Maps.newTreeMap();
+        for (String expect : arguments.getAll("expect")) {
+            int eq = expect.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value instead of " + expect);
+            }
+            expected.put(expect.substring(0, eq), expect.substring(eq + 1));
+        }
+        return expected;
+    }
+
+    // Returns a factory of stub sessions configured from the command line.
+    private static SessionFactory stubSessions(Arguments arguments, ProbeContext context) {
+        long start = arguments.getLong("stub-start-ms", 0);
+        long latency = arguments.getLong("stub-latency-ms", 50);
+        Map<String, Set<String>> faults = Maps.newHashMap();
+        for (String fault : arguments.getAll("stub-fail")) {
+            int colon = fault.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected node:check instead of " + fault);
+            }
+            faults.computeIfAbsent(fault.substring(0, colon), n -> Sets.newHashSet())
+                    .add(check(fault.substring(colon + 1)).id());
+        }
+        return new SessionFactory() {
+            @Override
+            public NodeSession open(String node) {
+                return new StubSession(node, context, start, latency,
+                                       faults.getOrDefault(node, Sets.newHashSet()));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    // Returns a factory of ssh sessions sharing a control socket directory.
+    private static SessionFactory sshSessions(String user) throws IOException {
+        File controlDir = Files.createTempDirectory("onos-probe").toFile();
+        return new SessionFactory() {
+            @Override
+            public NodeSession open(String node) throws IOException {
+                return new SshSession(node, user, controlDir);
+            }
+
+            @Override
+            public void close() {
+                File[] files = controlDir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                controlDir.delete();
+            }
+        };
+    }
+
+    // Probes all nodes in parallel; returns true if all checks passed.
+    private boolean run(SessionFactory sessions) throws InterruptedException {
+        List<Future<?>> futures = Lists.newArrayList();
+        for (String node : nodes) {
+            futures.add(executor.submit(() -> probe(sessions, node)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Probe failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return failed.isEmpty();
+    }
+
+    // Probes a single node over its own session.
+    private void probe(SessionFactory sessions, String node) {
+        try (NodeSession session = sessions.open(node)) {
+            List<HealthCheck> pending = Lists.newArrayList(checks);
+            if (pending.remove(HealthCheck.START) && !perform(session, HealthCheck.START)) {
+                return;
+            }
+            List<HealthCheck> retried = Lists.newArrayList();
+            List<HealthCheck> once = Lists.newArrayList();
+            pending.forEach(check -> (check.retried() ? retried : once).add(check));
+            if (performAll(session, retried)) {
+                performAll(session, once);
+            }
+        } catch (IOException e) {
+            fail(node, "session", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Performs the given checks concurrently; returns true if all passed.
+    private boolean performAll(NodeSession session, List<HealthCheck> checks)
+            throws InterruptedException {
+        List<Future<Boolean>> futures = Lists.newArrayList();
+        for (HealthCheck check : checks) {
+            futures.add(executor.submit(() -> perform(session, check)));
+        }
+        boolean passed = true;
+        for (Future<Boolean> future : futures) {
+            try {
+                passed &= future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Check failed", e.getCause());
+            }
+        }
+        return passed;
+    }
+
+    // Performs the given check, repeating it with backoff while pending;
+    // returns true if the check passed.
+    private boolean perform(NodeSession session, HealthCheck check) throws InterruptedException {
+        String node = session.node();
+        long start = System.currentTimeMillis();
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        int attempts = 0;
+        Outcome outcome = null;
+        while (aborted.getCount() > 0) {
+            attempts++;
+            outcome = attempt(session, check);
+            long remaining = deadline - System.currentTimeMillis();
+            if (outcome.status != Outcome.Status.PENDING || !check.retried() || remaining <= 0) {
+                break;
+            }
+            if (aborted.await(Math.min(backoff, remaining), TimeUnit.MILLISECONDS)) {
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+
+        String status;
+        if (outcome != null && outcome.status == Outcome.Status.PASS) {
+            status = "pass";
+        } else if (outcome != null && outcome.status == Outcome.Status.FAIL) {
+            status = "fail";
+        } else if (aborted.getCount() == 0) {
+            status = "cancelled";
+        } else {
+            status = "timeout";
+        }
+        results.get(node).put(check, new Result(status, attempts,
+                                                System.currentTimeMillis() - start,
+                                                outcome != null ? outcome.detail : null));
+        if (!status.equals("pass") && !status.equals("cancelled")) {
+            failed.add(node + "/" + check.id());
+            aborted.countDown();
+        }
+        return status.equals("pass");
+    }
+
+    // Performs a single attempt of the given check.
+    private Outcome attempt(NodeSession session, HealthCheck check) {
+        long timeout = Math.max(1, Math.min(commandTimeoutMillis,
+                                            deadline - System.currentTimeMillis()));
+        try {
+            NodeSession.Result result = session.exec(check.command(context), timeout);
+            if (result.status != 0) {
+                String reason = "exit status " + result.status;
+                return check.retried() ? Outcome.pending(reason) : Outcome.fail(reason);
+            }
+            return check.evaluate(result.output, context);
+        } catch (IOException e) {
+            return Outcome.fail(e.getMessage());
+        }
+    }
+
+    // Records a failure of the given node not attributable to a check.
+    private void fail(String node, String what, String reason) {
+        failed.add(node + "/" + what);
+        aborted.countDown();
+        System.err.println(node + ": " + reason);
+    }
+
+    // Returns the verdict of the probe.
+    private ObjectNode verdict(ObjectMapper mapper) {
+        ObjectNode verdict = mapper.createObjectNode()
+                .put("ok", failed.isEmpty())
+                .put("elapsedMs", System.currentTimeMillis() - startedAt);
+        failed.forEach(verdict.putArray("failed")::add);
+        ObjectNode nodesNode = verdict.putObject("nodes");
+        for (String node : nodes) {
+            Map<HealthCheck, Result> nodeResults = results.get(node);
+            ObjectNode nodeNode = nodesNode.putObject(node);
+            ObjectNode checksNode = mapper.createObjectNode();
+            boolean ok = true;
+            for (HealthCheck check : checks) {
+                Result result = nodeResults.getOrDefault(check, Result.SKIPPED);
+                ok &= result.status.equals("pass");
+                ObjectNode checkNode = checksNode.putObject(check.id())
+                        .put("status", result.status)
+                        .put("attempts", result.attempts)
+                        .put("elapsedMs", result.elapsedMillis);
+                if (result.detail != null) {
+                    checkNode.set("detail", result.detail);
+                }
+            }
+            nodeNode.put("ok", ok);
+            nodeNode.set("checks", checksNode);
+        }
+        return verdict;
+    }
+
+    /**
+     * Source of the sessions with the nodes.
+     */
+    private interface SessionFactory {
+
+        /**
+         * Opens a session with the given node.
+         *
+         * @param node node address
+         * @return node session
+         * @throws IOException if the session cannot be opened
+         */
+        NodeSession open(String node) throws IOException;
+
+        /**
+         * Releases any resources shared by the sessions.
+         */
+        void close();
+    }
+
+    /**
+     * Final result of a check on a node.
+     */
+    private static final class Result {
+
+        static final Result SKIPPED = new Result("skipped", 0, 0, null);
+
+        final String status;
+        final int attempts;
+        final long elapsedMillis;
+        final ObjectNode detail;
+
+        Result(String status, int attempts, long elapsedMillis, ObjectNode detail) {
+            this.status = status;
+            this.attempts = attempts;
+            this.elapsedMillis = elapsedMillis;
+            this.detail = detail;
+        }
+    }
+
+}
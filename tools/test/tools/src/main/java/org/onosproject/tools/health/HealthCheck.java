@@ -0,0 +1,391 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.health;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Health checks of a cluster node, each evaluated by parsing the output of
+ * a single command.
+ */
+enum HealthCheck {
+
+    /**
+     * Karaf reached start level 100 and all bundles are active.
+     */
+    START {
+        @Override
+        String command(ProbeContext context) {
+            return context.cli + " bundle:list 2>/dev/null";
+        }
+
+        @Override
+        Outcome evaluate(String output, ProbeContext context) {
+            if (!output.contains("START LEVEL 100")) {
+                return Outcome.pending("start level 100 not reached");
+            }
+            Map<String, Integer> states = Maps.newTreeMap();
+            List<String> inactive = Lists.newArrayList();
+            for (String line : LINES.split(output)) {
+                List<String> columns = COLUMNS.splitToList(line);
+                // 10 | Active |  80 | 1.2.2.SNAPSHOT | onos-api
+                if (columns.size() < 3 || !isNumber(columns.get(0))) {
+                    continue;
+                }
+                String state = columns.get(1);
+                states.merge(state, 1, Integer::sum);
+                if (!state.equals("Active") && !state.equals("Resolved")) {
+                    inactive.add(columns.get(columns.size() - 1));
+                }
+            }
+            ObjectNode detail = counts(states);
+            return inactive.isEmpty() ? Outcome.pass(detail) :
+                    Outcome.pending(detail.put("notActive", String.join(", ", inactive)));
+        }
+    },
+
+    /**
+     * The log contains no errors or exceptions since the last start.
+     */
+    LOGS {
+        @Override
+        String command(ProbeContext context) {
+            // The log is read from the last start of Karaf on; the matches
+            // are parsed below, only the volume is reduced remotely.
+            return "awk '/org.apache.karaf.main.lock.SimpleFileLock lock/ { n = 0 } " +
+                    "/ ERROR |^[a-zA-Z0-9.]*(Exception|Error)/ { if (n < 1000) e[n++] = $0 } " +
+                    "END { for (i = 0; i < n; i++) print e[i] }' " + context.log;
+        }
+
+        @Override
+        boolean retried() {
+            return false;
+        }
+
+        @Override
+        Outcome evaluate(String output, ProbeContext context) {
+            List<String> errors = Lists.newArrayList(LINES.split(output));
+            ObjectNode detail = JsonNodeFactory.instance.objectNode()
+                    .put("errors", errors.size());
+            if (errors.isEmpty()) {
+                return Outcome.pass(detail);
+            }
+            errors.stream().limit(5).forEach(detail.putArray("first")::add);
+            return Outcome.fail(detail);
+        }
+    },
+
+    /**
+     * No component is unsatisfied.
+     */
+    COMPONENTS {
+        @Override
+        String command(ProbeContext context) {
+            return context.cli + " scr:list 2>/dev/null";
+        }
+
+        @Override
+        Outcome evaluate(String output, ProbeContext context) {
+            Map<String, Integer> states = Maps.newTreeMap();
+            List<String> unsatisfied = Lists.newArrayList();
+            for (String line : LINES.split(output)) {
+                // [  12] [ACTIVE            ] org.onosproject.SomeComponent
+                // or  12 | ACTIVE | org.onosproject.SomeComponent
+                List<String> fields = line.startsWith("[") ?
+                        BRACKETS.splitToList(line) : COLUMNS.splitToList(line);
+                if (fields.size() < 3 || !isNumber(fields.get(0))) {
+                    continue;
+                }
+                String state = fields.get(1);
+                states.merge(state, 1, Integer::sum);
+                if (state.equals("UNSATISFIED")) {
+                    unsatisfied.add(fields.get(2));
+                }
+            }
+            if (states.isEmpty()) {
+                return Outcome.pending("no components listed");
+            }
+            ObjectNode detail = counts(states);
+            return unsatisfied.isEmpty() ? Outcome.pass(detail) :
+                    Outcome.pending(detail.put("unsatisfied", String.join(", ", unsatisfied)));
+        }
+    },
+
+    /**
+     * All and only the expected applications are active. Applications may
+     * still be activating, but an unexpected one fails the check at once.
+     */
+    APPS {
+        @Override
+        String command(ProbeContext context) {
+            return context.cli + " \"onos:apps -s -a\" 2>/dev/null";
+        }
+
+        @Override
+        Outcome evaluate(String output, ProbeContext context) {
+            Set<String> active = Sets.newTreeSet();
+            for (String line : LINES.split(output)) {
+                // *   4 org.onosproject.drivers  1.2.2.SNAPSHOT Default device drivers
+                for (String word : WORDS.split(line)) {
+                    if (word.startsWith("org.")) {
+                        active.add(word);
+                        break;
+                    }
+                }
+            }
+            Set<String> missing = Sets.difference(context.apps, active);
+            Set<String> extra = Sets.difference(active, context.apps);
+            ObjectNode detail = JsonNodeFactory.instance.objectNode()
+                    .put("active", active.size());
+            if (missing.isEmpty() && extra.isEmpty()) {
+                return Outcome.pass(detail);
+            }
+            detail.put("missing", String.join(", ", missing));
+            detail.put("unexpected", String.join(", ", extra));
+            return extra.isEmpty() ? Outcome.pending(detail) : Outcome.fail(detail);
+        }
+    },
+
+    /**
+     * All and only the expected cluster members are active. Members may
+     * still be joining, but the membership is fixed once the node has
+     * started, so a member missing from it or an unexpected one fails the
+     * check at once.
+     */
+    NODES {
+        @Override
+        String command(ProbeContext context) {
+            return context.cli + " onos:nodes 2>/dev/null";
+        }
+
+        @Override
+        Outcome evaluate(String output, ProbeContext context) {
+            Set<String> active = Sets.newTreeSet();
+            Set<String> seen = Sets.newTreeSet();
+            for (String line : LINES.split(output)) {
+                // id=10.0.0.1, address=10.0.0.1:9876, state=ACTIVE *
+                Map<String, String> values = keyValues(line);
+                String address = values.get("address");
+                if (address == null) {
+                    continue;
+                }
+                String ip = address.contains(":") ?
+                        address.substring(0, address.lastIndexOf(':')) : address;
+                seen.add(ip);
+                if (values.getOrDefault("state", "").startsWith("ACTIVE")) {
+                    active.add(ip);
+                }
+            }
+            ObjectNode detail = JsonNodeFactory.instance.objectNode()
+                    .put("members", seen.size()).put("active", active.size());
+            if (active.equals(context.nodes) && seen.equals(context.nodes)) {
+                return Outcome.pass(detail);
+            }
+            detail.put("inactive", String.join(", ", Sets.difference(context.nodes, active)));
+            detail.put("unexpected", String.join(", ", Sets.difference(seen, context.nodes)));
+            return seen.equals(context.nodes) ? Outcome.pending(detail) : Outcome.fail(detail);
+        }
+
+        @Override
+        boolean requiresStart() {
+            return true;
+        }
+    },
+
+    /**
+     * The summary counts match the expected ones. Counts below the expected
+     * ones may still grow as the network is discovered; any other mismatch
+     * fails the check at once.
+     */
+    SUMMARY {
+        @Override
+        String command(ProbeContext context) {
+            return context.cli + " onos:summary 2>/dev/null";
+        }
+
+        @Override
+        Outcome evaluate(String output, ProbeContext context) {
+            Map<String, String> values = new TreeMap<>();
+            for (String line : LINES.split(output)) {
+                values.putAll(keyValues(line));
+            }
+            if (!values.containsKey("nodes")) {
+                return Outcome.pending("no summary listed");
+            }
+            ObjectNode detail = JsonNodeFactory.instance.objectNode();
+            values.forEach(detail::put);
+            List<String> mismatched = Lists.newArrayList();
+            boolean growing = true;
+            for (Map.Entry<String, String> entry : context.summary.entrySet()) {
+                String key = entry.getKey();
+                String expected = entry.getValue();
+                String actual = values.get(key);
+                if (!expected.equals(actual)) {
+                    mismatched.add(key + "=" + actual + " instead of " + expected);
+                    growing &= !key.equals(MEMBERS) && isNumber(expected) &&
+                            actual != null && isNumber(actual) &&
+                            Long.parseLong(actual) < Long.parseLong(expected);
+                }
+            }
+            if (mismatched.isEmpty()) {
+                return Outcome.pass(detail);
+            }
+            detail.put("mismatched", String.join(", ", mismatched));
+            return growing ? Outcome.pending(detail) : Outcome.fail(detail);
+        }
+
+        @Override
+        boolean requiresStart() {
+            return true;
+        }
+    };
+
+    private static final Splitter LINES = Splitter.on('\n').trimResults().omitEmptyStrings();
+    private static final Splitter COLUMNS = Splitter.on('|').trimResults();
+    private static final Splitter WORDS = Splitter.on(CharMatcher.WHITESPACE).omitEmptyStrings();
+    private static final Splitter BRACKETS = Splitter.onPattern("[\\[\\]]").trimResults()
+            .omitEmptyStrings();
+    private static final Splitter PAIRS = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final String MEMBERS = "nodes";
+
+    /**
+     * Returns the command performing the check.
+     *
+     * @param context probe context
+     * @return shell command
+     */
+    abstract String command(ProbeContext context);
+
+    /**
+     * Evaluates the output of the command.
+     *
+     * @param output   command output
+     * @param context  probe context
+     * @return outcome of the check
+     */
+    abstract Outcome evaluate(String output, ProbeContext context);
+
+    /**
+     * Indicates whether a check not yet passed is retried until the
+     * deadline; otherwise its first outcome is final.
+     *
+     * @return true if the check is retried
+     */
+    boolean retried() {
+        return true;
+    }
+
+    /**
+     * Indicates whether the check judges state which is only final once
+     * the node has started, so that the start check must pass first.
+     *
+     * @return true if the check requires the start check
+     */
+    boolean requiresStart() {
+        return false;
+    }
+
+    /**
+     * Returns the check name used on the command line and in the verdict.
+     *
+     * @return check name
+     */
+    String id() {
+        return name().toLowerCase();
+    }
+
+    // Indicates whether the given text is a non-negative integer.
+    private static boolean isNumber(String text) {
+        return !text.isEmpty() && text.chars().allMatch(Character::isDigit);
+    }
+
+    // Parses the comma-separated key=value pairs of the given line.
+    private static Map<String, String> keyValues(String line) {
+        Map<String, String> values = Maps.newLinkedHashMap();
+        for (String pair : PAIRS.split(line)) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                values.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+        return values;
+    }
+
+    // Returns the given counts as a JSON object.
+    private static ObjectNode counts(Map<String, Integer> counts) {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        counts.forEach(node::put);
+        return node;
+    }
+
+    /**
+     * Outcome of a single evaluation of a check.
+     */
+    static final class Outcome {
+
+        /**
+         * Status of a check.
+         */
+        enum Status {
+            /** The check passed. */
+            PASS,
+            /** The check has not passed yet. */
+            PENDING,
+            /** The check failed. */
+            FAIL
+        }
+
+        final Status status;
+        final ObjectNode detail;
+
+        private Outcome(Status status, ObjectNode detail) {
+            this.status = status;
+            this.detail = detail;
+        }
+
+        static Outcome pass(ObjectNode detail) {
+            return new Outcome(Status.PASS, detail);
+        }
+
+        static Outcome pending(ObjectNode detail) {
+            return new Outcome(Status.PENDING, detail);
+        }
+
+        static Outcome pending(String reason) {
+            return pending(JsonNodeFactory.instance.objectNode().put("reason", reason));
+        }
+
+        static Outcome fail(ObjectNode detail) {
+            return new Outcome(Status.FAIL, detail);
+        }
+
+        static Outcome fail(String reason) {
+            return fail(JsonNodeFactory.instance.objectNode().put("reason", reason));
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.health;
+
+import java.io.IOException;
+
+/**
+ * Connection to a cluster node over which shell commands are executed;
+ * commands may be executed concurrently.
+ */
+interface NodeSession extends AutoCloseable {
+
+    /**
+     * Returns the node address.
+     *
+     * @return node address
+     */
+    String node();
+
+    /**
+     * Executes a shell command on the node.
+     *
+     * @param command       shell command
+     * @param timeoutMillis maximum execution time
+     * @return command result
+     * @throws IOException if the connection to the node is lost or the
+     *                     command times out
+     */
+    Result exec(String command, long timeoutMillis) throws IOException;
+
+    @Override
+    void close();
+
+    /**
+     * Exit status and output of a command.
+     */
+    final class Result {
+        final int status;
+        final String output;
+
+        /**
+         * Creates a command result.
+         *
+         * @param status exit status
+         * @param output standard output
+         */
+        Result(int status, String output) {
+            this.status = status;
+            this.output = output;
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.health;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locations on the nodes and expected state the health checks refer to.
+ */
+final class ProbeContext {
+
+    final String cli;
+    final String log;
+    final Set<String> apps;
+    final Set<String> nodes;
+    final Map<String, String> summary;
+
+    /**
+     * Creates a probe context.
+     *
+     * @param cli     path of the ONOS command-line client on the nodes
+     * @param log     path of the ONOS log file on the nodes
+     * @param apps    names of the applications expected to be active
+     * @param nodes   addresses of the expected cluster members
+     * @param summary expected values of the summary, e.g. devices=25
+     */
+    ProbeContext(String cli, String log, Set<String> apps, Set<String> nodes,
+                 Map<String, String> summary) {
+        this.cli = cli;
+        this.log = log;
+        this.apps = ImmutableSortedSet.copyOf(apps);
+        this.nodes = ImmutableSortedSet.copyOf(nodes);
+        this.summary = ImmutableMap.copyOf(summary);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.health;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session with a node over a single ssh connection.
+ * <p>
+ * A master connection is opened once; every command then runs in a new
+ * channel multiplexed over it, which avoids the cost of connection setup
+ * and authentication per command and lets commands run concurrently.
+ * </p>
+ */
+final class SshSession implements NodeSession {
+
+    private static final long CONNECT_TIMEOUT_MILLIS = 30_000;
+    private static final long POLL_MILLIS = 100;
+
+    private final String node;
+    private final String target;
+    private final File controlPath;
+    private final Process master;
+
+    /**
+     * Opens the master connection to the given node.
+     *
+     * @param node       node address
+     * @param user       ssh user
+     * @param controlDir directory for the connection control socket
+     * @throws IOException if the connection cannot be established
+     */
+    SshSession(String node, String user, File controlDir) throws IOException {
+        this.node = node;
+        this.target = user + "@" + node;
+        this.controlPath = new File(controlDir, node);
+        this.master = new ProcessBuilder(command("-M", "-N", "-o", "ControlPersist=no",
+                                                 "-o", "ConnectTimeout=10", target))
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        awaitMaster();
+    }
+
+    // Waits until the master connection accepts channels.
+    private void awaitMaster() throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!master.isAlive()) {
+                throw new IOException("Unable to connect to " + node);
+            }
+            try {
+                Process check = new ProcessBuilder(command("-O", "check", target))
+                        .redirectErrorStream(true).start();
+                ByteStreams.copy(check.getInputStream(), ByteStreams.nullOutputStream());
+                if (check.waitFor() == 0) {
+                    return;
+                }
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while connecting to " + node, e);
+            }
+        }
+        master.destroy();
+        throw new IOException("Timed out connecting to " + node);
+    }
+
+    // Returns an ssh command line using the control socket.
+    private List<String> command(String... args) {
+        return ImmutableList.<String>builder()
+                .add("ssh", "-o", "BatchMode=yes", "-S", controlPath.getPath())
+                .add(args).build();
+    }
+
+    @Override
+    public String node() {
+        return node;
+    }
+
+    @Override
+    public Result exec(String command, long timeoutMillis) throws IOException {
+        if (!master.isAlive()) {
+            throw new IOException("Connection to " + node + " lost");
+        }
+        // Output goes to a file, so that the command can be timed out
+        // without a reader blocking on it.
+        File output = File.createTempFile("onos-probe", ".out");
+        Process process = new ProcessBuilder(command(target, command))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .redirectOutput(output)
+                .start();
+        try {
+            if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Command timed out on " + node);
+            }
+            if (process.exitValue() == 255) {
+                throw new IOException("Connection to " + node + " failed");
+            }
+            return new Result(process.exitValue(), Files.toString(output, Charsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while executing on " + node, e);
+        } finally {
+            process.destroy();
+            output.delete();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            new ProcessBuilder(command("-O", "exit", target))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.PIPE)
+                    .start().waitFor(5, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            // The master is destroyed below in any case.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        master.destroy();
+    }
+
+}
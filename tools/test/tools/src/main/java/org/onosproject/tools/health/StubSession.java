@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.health;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process stand-in for a node, answering the commands of the health
+ * checks with canned ONOS command-line output; it allows the probe to be
+ * exercised without a cluster.
+ * <p>
+ * The stub node starts after a delay; its components become satisfied a
+ * little later. Faults make the named checks fail or never pass.
+ * </p>
+ */
+final class StubSession implements NodeSession {
+
+    private static final long SETTLE_MILLIS = 500;
+
+    private final String node;
+    private final ProbeContext context;
+    private final long startedAt;
+    private final long latencyMillis;
+    private final Set<String> faults;
+
+    /**
+     * Creates a stub node.
+     *
+     * @param node          node address
+     * @param context       probe context supplying the expected state
+     * @param startMillis   time until the node has started
+     * @param latencyMillis time taken by every command
+     * @param faults        names of the checks which are not to pass
+     */
+    StubSession(String node, ProbeContext context, long startMillis, long latencyMillis,
+                Set<String> faults) {
+        this.node = node;
+        this.context = context;
+        this.startedAt = System.currentTimeMillis() + startMillis;
+        this.latencyMillis = latencyMillis;
+        this.faults = ImmutableSet.copyOf(faults);
+    }
+
+    @Override
+    public String node() {
+        return node;
+    }
+
+    @Override
+    public Result exec(String command, long timeoutMillis) throws IOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+        long now = System.currentTimeMillis();
+        boolean started = now >= startedAt;
+        if (command.contains("awk")) {
+            return new Result(0, faults.contains("logs") ?
+                    "2015-06-04 15:31:12,123 | ERROR | main | Stub | Simulated failure\n" : "");
+        }
+        if (!started) {
+            return new Result(1, "");
+        }
+        StringBuilder sb = new StringBuilder();
+        if (command.contains("bundle:list")) {
+            sb.append(faults.contains("start") ? "START LEVEL 80" : "START LEVEL 100")
+                    .append(" , List Threshold: 50\n")
+                    .append(" ID | State    | Lvl | Version        | Name\n")
+                    .append("-----------------------------------------------\n")
+                    .append(" 10 | Active   |  80 | 1.2.2.SNAPSHOT | onos-api\n")
+                    .append(" 11 | Active   |  80 | 1.2.2.SNAPSHOT | onos-core-net\n")
+                    .append(" 12 | Resolved |  80 | 1.2.2.SNAPSHOT | onos-core-fragment\n");
+        } else if (command.contains("scr:list")) {
+            boolean settled = now >= startedAt + SETTLE_MILLIS && !faults.contains("components");
+            sb.append("   ID | State             | Component Name\n")
+                    .append("[  1] [ACTIVE            ] org.onosproject.store.StubStore\n")
+                    .append(settled ? "[  2] [ACTIVE            ]" : "[  2] [UNSATISFIED       ]")
+                    .append(" org.onosproject.net.StubManager\n")
+                    .append("[  3] [DISABLED          ] org.onosproject.StubOptional\n");
+        } else if (command.contains("onos:apps")) {
+            int id = 1;
+            for (String app : context.apps) {
+                sb.append(String.format("* %3d %-32s %-8s %s%n", id++, app,
+                                        "1.2.2.SNAPSHOT", "Stub application"));
+            }
+            if (faults.contains("apps")) {
+                sb.append(String.format("* %3d %-32s %-8s %s%n", id, "org.onosproject.stub",
+                                        "1.2.2.SNAPSHOT", "Unexpected application"));
+            }
+        } else if (command.contains("onos:nodes")) {
+            boolean first = true;
+            for (String member : context.nodes) {
+                String state = first && faults.contains("nodes") ? "INACTIVE" : "ACTIVE";
+                sb.append(String.format("id=%s, address=%s:9876, state=%s%s%n", member, member,
+                                        state, member.equals(node) ? " *" : ""));
+                first = false;
+            }
+        } else if (command.contains("onos:summary")) {
+            int skew = faults.contains("summary") ? 1 : 0;
+            sb.append("node=").append(node).append(", version=1.2.2.stub\n")
+                    .append("nodes=").append(context.nodes.size())
+                    .append(", devices=").append(value("devices") + skew)
+                    .append(", links=").append(value("links") + skew)
+                    .append(", hosts=").append(value("hosts") + skew)
+                    .append(", SCC(s)=1, paths=0, flows=0, intents=0\n");
+        } else {
+            return new Result(127, "");
+        }
+        return new Result(0, sb.toString());
+    }
+
+    // Returns the expected summary value, or zero if none is expected.
+    private int value(String key) {
+        try {
+            return Integer.parseInt(context.summary.getOrDefault(key, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
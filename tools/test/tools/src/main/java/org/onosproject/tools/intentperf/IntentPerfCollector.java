@@ -0,0 +1,295 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.intentperf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.onosproject.tools.Arguments;
+import org.onosproject.tools.intentperf.NodeLog.Chunk;
+import org.onosproject.tools.intentperf.ThroughputParser.Sample;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Collector of the intent throughput logged by the intent performance
+ * application on the nodes of a cluster.
+ * <p>
+ * Each run reads only the part of every node's log written since the
+ * previous run, starting from the byte offsets persisted in the state
+ * directory, and appends the new samples to per-node sample files there.
+ * The samples of all runs are then merged into a cluster-wide series and
+ * summarized, with the warm-up period detected and excluded from the
+ * steady-state statistics. Optionally, the samples of each node are also
+ * written as {@code <node>.perf.log} files, in the time|overall|current
+ * form produced by the former log scraper.
+ * </p>
+ * <pre>
+ * Usage: IntentPerfCollector [--log node=file]... [--remote node]...
+ *                            [--user user] [--path file]
+ *                            [--state dir] [--reset]
+ *                            [--bucket-ms ms] [--window n] [--tolerance t]
+ *                            [--format text|json] [--perf-logs dir]
+ * </pre>
+ */
+public final class IntentPerfCollector {
+
+    private static final String OFFSETS = "offsets.properties";
+    private static final String SAMPLES = ".samples";
+    private static final String DEFAULT_PATH = "/opt/onos/log/karaf.log";
+    private static final String PERF_LOG = ".perf.log";
+    private static final DateTimeFormatter PERF_LOG_TIME =
+            DateTimeFormatter.ofPattern("HH:mm:ss,SSS").withZone(ZoneOffset.UTC);
+
+    private IntentPerfCollector() {
+    }
+
+    /**
+     * Runs the collector.
+     *
+     * @param args command-line arguments
+     * @throws IOException          if the logs or the state cannot be accessed
+     * @throws InterruptedException if interrupted while reading the logs
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Arguments arguments;
+        List<NodeLog> logs;
+        try {
+            arguments = Arguments.parse(args, "reset");
+            logs = logs(arguments);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        Path state = Paths.get(arguments.get("state", "intentperf"));
+        if (arguments.flag("reset")) {
+            reset(state);
+        }
+        Files.createDirectories(state);
+        Properties offsets = loadOffsets(state);
+        boolean ok = collect(logs, offsets, state);
+        storeOffsets(state, offsets);
+        if (!ok) {
+            System.exit(1);
+        }
+
+        SortedMap<String, List<Sample>> samples = loadSamples(state);
+        String perfLogs = arguments.get("perf-logs", null);
+        if (perfLogs != null) {
+            writePerfLogs(Paths.get(perfLogs), samples);
+        }
+
+        ThroughputSeries series = new ThroughputSeries(samples,
+                                                       arguments.getLong("bucket-ms", 5000),
+                                                       arguments.getInt("window", 6),
+                                                       arguments.getDouble("tolerance", 0.1));
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode summary = series.summary(mapper);
+        if (arguments.get("format", "text").equals("json")) {
+            System.out.println(mapper.writerWithDefaultPrettyPrinter()
+                                       .writeValueAsString(summary));
+        } else {
+            printText(summary);
+        }
+    }
+
+    // Returns the logs given on the command line.
+    private static List<NodeLog> logs(Arguments arguments) {
+        List<NodeLog> logs = Lists.newArrayList();
+        for (String log : arguments.getAll("log")) {
+            int eq = log.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected node=file instead of " + log);
+            }
+            logs.add(NodeLog.local(log.substring(0, eq), Paths.get(log.substring(eq + 1))));
+        }
+        String user = arguments.get("user", System.getProperty("user.name"));
+        String path = arguments.get("path", DEFAULT_PATH);
+        for (String node : arguments.getAll("remote")) {
+            logs.add(NodeLog.remote(node, user, path));
+        }
+        if (logs.isEmpty()) {
+            throw new IllegalArgumentException("No logs given; use --log or --remote");
+        }
+        return logs;
+    }
+
+    // Reads the new part of all logs in parallel, appends the samples to
+    // the sample files and advances the offsets; returns false if any of
+    // the logs could not be read.
+    private static boolean collect(List<NodeLog> logs, Properties offsets, Path state)
+            throws InterruptedException, IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(logs.size());
+        try {
+            Map<NodeLog, Future<Chunk>> chunks = Maps.newLinkedHashMap();
+            for (NodeLog log : logs) {
+                long offset = Long.parseLong(offsets.getProperty(log.node(), "0"));
+                chunks.put(log, executor.submit(() -> log.read(offset)));
+            }
+            boolean ok = true;
+            for (Map.Entry<NodeLog, Future<Chunk>> entry : chunks.entrySet()) {
+                String node = entry.getKey().node();
+                try {
+                    Chunk chunk = entry.getValue().get();
+                    appendSamples(state.resolve(node + SAMPLES), chunk.samples);
+                    offsets.setProperty(node, Long.toString(chunk.offset));
+                } catch (ExecutionException e) {
+                    System.err.println("Unable to read log of " + node + ": " +
+                                               e.getCause().getMessage());
+                    ok = false;
+                }
+            }
+            return ok;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Removes the offsets and samples of earlier runs.
+    private static void reset(Path state) throws IOException {
+        if (!Files.isDirectory(state)) {
+            return;
+        }
+        Files.deleteIfExists(state.resolve(OFFSETS));
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(state, "*" + SAMPLES)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    // Loads the persisted log offsets.
+    private static Properties loadOffsets(Path state) throws IOException {
+        Properties offsets = new Properties();
+        Path file = state.resolve(OFFSETS);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, Charsets.UTF_8)) {
+                offsets.load(reader);
+            }
+        }
+        return offsets;
+    }
+
+    // Persists the log offsets.
+    private static void storeOffsets(Path state, Properties offsets) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(state.resolve(OFFSETS), Charsets.UTF_8)) {
+            offsets.store(writer, "Byte offsets of the node logs read so far");
+        }
+    }
+
+    // Appends the samples to the given sample file.
+    private static void appendSamples(Path file, List<Sample> samples) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                file, Charsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Sample sample : samples) {
+                writer.write(sample.timestamp + "," + sample.overall + "," + sample.current);
+                writer.newLine();
+            }
+        }
+    }
+
+    // Loads the samples of all nodes from the sample files.
+    private static SortedMap<String, List<Sample>> loadSamples(Path state) throws IOException {
+        SortedMap<String, List<Sample>> samples = Maps.newTreeMap();
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(state, "*" + SAMPLES)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                List<Sample> list = Lists.newArrayList();
+                try (BufferedReader reader = Files.newBufferedReader(file, Charsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] fields = line.split(",");
+                        list.add(new Sample(Long.parseLong(fields[0]),
+                                            Double.parseDouble(fields[1]),
+                                            Double.parseDouble(fields[2])));
+                    }
+                }
+                list.sort((a, b) -> Long.compare(a.timestamp, b.timestamp));
+                samples.put(name.substring(0, name.length() - SAMPLES.length()), list);
+            }
+        }
+        return samples;
+    }
+
+    // Writes the samples of each node into a <node>.perf.log file in the
+    // given directory, one time|overall|current line per sample.
+    private static void writePerfLogs(Path directory, SortedMap<String, List<Sample>> samples)
+            throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, List<Sample>> entry : samples.entrySet()) {
+            try (BufferedWriter writer = Files.newBufferedWriter(
+                    directory.resolve(entry.getKey() + PERF_LOG), Charsets.UTF_8)) {
+                for (Sample sample : entry.getValue()) {
+                    writer.write(PERF_LOG_TIME.format(Instant.ofEpochMilli(sample.timestamp)) +
+                                         "|" + sample.overall + "|" + sample.current);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    // Prints the summary in human-readable form.
+    private static void printText(ObjectNode summary) {
+        if (summary.path("buckets").asInt() == 0) {
+            System.out.println("No throughput samples found");
+            return;
+        }
+        System.out.printf("Nodes: %d  buckets: %d x %d ms%n",
+                          summary.path("nodes").asInt(), summary.path("buckets").asInt(),
+                          summary.path("bucketMs").asLong());
+        System.out.printf(summary.path("steady").asBoolean() ?
+                                  "Warm-up: %.1f s%n" : "No steady state after %.1f s%n",
+                          summary.path("warmupMs").asLong() / 1000.0);
+        System.out.printf("Cluster: avg=%.1f min=%.1f p5=%.1f p50=%.1f p95=%.1f max=%.1f%n",
+                          summary.path("average").asDouble(), summary.path("min").asDouble(),
+                          summary.path("p5").asDouble(), summary.path("p50").asDouble(),
+                          summary.path("p95").asDouble(), summary.path("max").asDouble());
+        Iterator<Map.Entry<String, JsonNode>> nodes = summary.path("perNode").fields();
+        while (nodes.hasNext()) {
+            Map.Entry<String, JsonNode> node = nodes.next();
+            System.out.printf("  %s: avg=%.1f%n", node.getKey(), node.getValue().asDouble());
+        }
+    }
+
+}
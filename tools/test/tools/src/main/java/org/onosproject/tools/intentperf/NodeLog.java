@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.intentperf;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import org.onosproject.tools.intentperf.ThroughputParser.Sample;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log file of a single node, read incrementally from a byte offset.
+ * <p>
+ * The log is either a local file, e.g. one fetched from the node earlier,
+ * or a file on the node itself, which is read over ssh; in that case only
+ * the bytes past the offset are transferred. A log shorter than the offset
+ * is taken to have been rotated and is read from the start.
+ * </p>
+ */
+final class NodeLog {
+
+    private static final long SSH_TIMEOUT_MINUTES = 10;
+
+    private final String node;
+    private final Path file;
+    private final String user;
+    private final String remotePath;
+
+    private NodeLog(String node, Path file, String user, String remotePath) {
+        this.node = node;
+        this.file = file;
+        this.user = user;
+        this.remotePath = remotePath;
+    }
+
+    /**
+     * Creates a log backed by a local file.
+     *
+     * @param node node name
+     * @param file log file
+     * @return node log
+     */
+    static NodeLog local(String node, Path file) {
+        return new NodeLog(node, file, null, null);
+    }
+
+    /**
+     * Creates a log read from the node over ssh.
+     *
+     * @param node node address
+     * @param user ssh user
+     * @param path path of the log file on the node
+     * @return node log
+     */
+    static NodeLog remote(String node, String user, String path) {
+        return new NodeLog(node, null, user, path);
+    }
+
+    /**
+     * Returns the node name.
+     *
+     * @return node name
+     */
+    String node() {
+        return node;
+    }
+
+    /**
+     * Reads the throughput samples logged past the given offset.
+     *
+     * @param offset byte offset up to which the log was read before
+     * @return samples and the new offset
+     * @throws IOException if the log cannot be read
+     */
+    Chunk read(long offset) throws IOException {
+        return file != null ? readLocal(offset) : readRemote(offset);
+    }
+
+    // Reads the local file from the given offset.
+    private Chunk readLocal(long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = channel.size() < offset ? 0 : offset;
+            channel.position(start);
+            List<Sample> samples = Lists.newArrayList();
+            long consumed = ThroughputParser.parse(Channels.newInputStream(channel),
+                                                   samples::add);
+            return new Chunk(samples, start + consumed);
+        }
+    }
+
+    // Reads the remote file from the given offset; the remote shell
+    // reports the offset it actually used before the log contents.
+    private Chunk readRemote(long offset) throws IOException {
+        String command = String.format(
+                "o=%d; [ $(stat -c %%s %s) -lt $o ] && o=0; echo $o; tail -c +$((o+1)) %s",
+                offset, remotePath, remotePath);
+        Process process = new ProcessBuilder("ssh", "-o", "BatchMode=yes",
+                                             user + "@" + node, command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try (InputStream in = new BufferedInputStream(process.getInputStream())) {
+            long start = readOffset(in);
+            List<Sample> samples = Lists.newArrayList();
+            long consumed = ThroughputParser.parse(in, samples::add);
+            ByteStreams.copy(in, ByteStreams.nullOutputStream());
+            if (!process.waitFor(SSH_TIMEOUT_MINUTES, TimeUnit.MINUTES) ||
+                    process.exitValue() != 0) {
+                throw new IOException("Unable to read " + remotePath + " from " + node);
+            }
+            return new Chunk(samples, start + consumed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading from " + node, e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    // Reads the decimal offset on the first line of the stream.
+    private long readOffset(InputStream in) throws IOException {
+        long value = 0;
+        int digits = 0;
+        int b;
+        while ((b = in.read()) >= '0' && b <= '9') {
+            value = value * 10 + b - '0';
+            digits++;
+        }
+        if (b != '\n' || digits == 0) {
+            throw new IOException("Unable to access " + remotePath + " on " + node);
+        }
+        return value;
+    }
+
+    /**
+     * Samples read from a log together with the offset reached.
+     */
+    static final class Chunk {
+        final List<Sample> samples;
+        final long offset;
+
+        /**
+         * Creates a chunk of samples.
+         *
+         * @param samples samples in log order
+         * @param offset  offset just past the last complete line read
+         */
+        Chunk(List<Sample> samples, long offset) {
+            this.samples = samples;
+            this.offset = offset;
+        }
+    }
+
+}
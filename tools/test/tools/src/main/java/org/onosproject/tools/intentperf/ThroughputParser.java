@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.intentperf;
+
+import com.google.common.base.Charsets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Parser of the throughput records logged by the intent performance
+ * application, e.g.
+ * <pre>
+ * 2015-06-04 15:31:12,123 | INFO  | ... | Throughput: OVERALL=1234.5; CURRENT=2345.6; ...
+ * </pre>
+ * <p>
+ * Lines are scanned as bytes for a fixed marker and the fields are parsed
+ * at known positions, without regular expressions, so the cost is linear
+ * in the size of the log. Only complete lines are consumed, so that a
+ * partially written last line is parsed on the next read.
+ * </p>
+ */
+final class ThroughputParser {
+
+    private static final byte[] MARKER = "Throughput: OVERALL=".getBytes(Charsets.US_ASCII);
+    private static final String CURRENT = "CURRENT=";
+    private static final int TIMESTAMP_LENGTH = "yyyy-MM-dd HH:mm:ss,SSS".length();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ThroughputParser() {
+    }
+
+    /**
+     * Parses the throughput records from the given stream.
+     *
+     * @param in       log stream
+     * @param consumer consumer of the parsed samples
+     * @return number of bytes consumed, i.e. up to the end of the last
+     * complete line
+     * @throws IOException if the stream cannot be read
+     */
+    static long parse(InputStream in, Consumer<Sample> consumer) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length = 0;
+        long consumed = 0;
+        int n;
+        while ((n = in.read(buffer, length, buffer.length - length)) > 0) {
+            length += n;
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '\n') {
+                    parseLine(buffer, start, i, consumer);
+                    start = i + 1;
+                }
+            }
+            consumed += start;
+            System.arraycopy(buffer, start, buffer, 0, length - start);
+            length -= start;
+            if (length == buffer.length) {
+                // Grow the buffer to hold a line longer than it.
+                byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, length);
+                buffer = larger;
+            }
+        }
+        return consumed;
+    }
+
+    // Parses the line in the given range of the buffer, if it holds a
+    // throughput record.
+    private static void parseLine(byte[] buffer, int start, int end,
+                                  Consumer<Sample> consumer) {
+        int marker = indexOf(buffer, start, end, MARKER);
+        if (marker < 0 || end - start < TIMESTAMP_LENGTH) {
+            return;
+        }
+        long timestamp = timestamp(buffer, start);
+        if (timestamp < 0) {
+            return;
+        }
+        String fields = new String(buffer, marker + MARKER.length,
+                                   end - marker - MARKER.length, Charsets.US_ASCII);
+        int semi = fields.indexOf(';');
+        int current = fields.indexOf(CURRENT);
+        if (semi < 0 || current < 0) {
+            return;
+        }
+        int currentEnd = fields.indexOf(';', current);
+        try {
+            double overall = Double.parseDouble(fields.substring(0, semi).trim());
+            double now = Double.parseDouble(fields.substring(current + CURRENT.length(),
+                                                             currentEnd < 0 ? fields.length() :
+                                                                     currentEnd).trim());
+            consumer.accept(new Sample(timestamp, overall, now));
+        } catch (NumberFormatException e) {
+            // Not a well-formed record; skip it.
+        }
+    }
+
+    // Returns the index of the given pattern within the range of the buffer.
+    private static int indexOf(byte[] buffer, int start, int end, byte[] pattern) {
+        byte first = pattern[0];
+        for (int i = start; i <= end - pattern.length; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && buffer[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Parses the yyyy-MM-dd HH:mm:ss,SSS timestamp at the given position as
+    // milliseconds since the epoch, treating it as UTC.
+    private static long timestamp(byte[] b, int p) {
+        int year = digits(b, p, 4);
+        int month = digits(b, p + 5, 2);
+        int day = digits(b, p + 8, 2);
+        int hour = digits(b, p + 11, 2);
+        int minute = digits(b, p + 14, 2);
+        int second = digits(b, p + 17, 2);
+        int millis = digits(b, p + 20, 3);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 ||
+                hour < 0 || minute < 0 || second < 0 || millis < 0) {
+            return -1;
+        }
+        long days = LocalDate.of(year, month, 1).toEpochDay() + day - 1;
+        return ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+    }
+
+    // Parses the given number of decimal digits; -1 if any is not a digit.
+    private static int digits(byte[] b, int p, int count) {
+        int value = 0;
+        for (int i = p; i < p + count; i++) {
+            if (b[i] < '0' || b[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + b[i] - '0';
+        }
+        return value;
+    }
+
+    /**
+     * Throughput record of a single node.
+     */
+    static final class Sample {
+        final long timestamp;
+        final double overall;
+        final double current;
+
+        /**
+         * Creates a throughput sample.
+         *
+         * @param timestamp time of the record in milliseconds since the epoch
+         * @param overall   overall throughput since the start of the run
+         * @param current   throughput over the last reporting period
+         */
+        Sample(long timestamp, double overall, double current) {
+            this.timestamp = timestamp;
+            this.overall = overall;
+            this.current = current;
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.intentperf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Maps;
+import org.onosproject.tools.intentperf.ThroughputParser.Sample;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+
+/**
+ * Cluster-wide throughput time series merged from the samples of all
+ * nodes.
+ * <p>
+ * Samples are grouped into buckets of fixed width. Within each bucket the
+ * last sample of every node is taken, and the cluster throughput of the
+ * bucket is the sum over all nodes which have reported by then; a node
+ * missing from a bucket contributes its most recent earlier value. The
+ * warm-up period ends at the first bucket from which the moving average
+ * stays within the given tolerance of the average of the remaining run.
+ * </p>
+ */
+final class ThroughputSeries {
+
+    private static final double[] PERCENTILES = {5, 50, 95};
+    private static final String[] LABELS = {"p5", "p50", "p95"};
+
+    private final long bucketMillis;
+    private final int window;
+    private final double tolerance;
+    private final SortedMap<String, List<Sample>> samples;
+
+    private long[] buckets;
+    private double[] totals;
+    private int steadyStart;
+
+    /**
+     * Merges the samples of the given nodes.
+     *
+     * @param samples      samples keyed by node, in time order
+     * @param bucketMillis width of the time buckets
+     * @param window       number of buckets of the moving average
+     * @param tolerance    relative tolerance of the steady state, e.g. 0.1
+     */
+    ThroughputSeries(SortedMap<String, List<Sample>> samples, long bucketMillis,
+                     int window, double tolerance) {
+        this.samples = samples;
+        this.bucketMillis = bucketMillis;
+        this.window = Math.max(1, window);
+        this.tolerance = tolerance;
+        merge();
+        steadyStart = detectSteadyState();
+    }
+
+    // Computes the cluster throughput of every bucket.
+    private void merge() {
+        NavigableMap<Long, Map<String, Double>> byBucket = Maps.newTreeMap();
+        samples.forEach((node, list) -> list.forEach(s -> byBucket
+                .computeIfAbsent(s.timestamp / bucketMillis, b -> Maps.newHashMap())
+                .put(node, s.current)));
+
+        buckets = new long[byBucket.size()];
+        totals = new double[byBucket.size()];
+        Map<String, Double> last = Maps.newHashMap();
+        int i = 0;
+        for (Map.Entry<Long, Map<String, Double>> entry : byBucket.entrySet()) {
+            last.putAll(entry.getValue());
+            buckets[i] = entry.getKey() * bucketMillis;
+            totals[i] = last.values().stream().mapToDouble(Double::doubleValue).sum();
+            i++;
+        }
+    }
+
+    // Returns the index of the first bucket of the steady state, i.e. of
+    // the first window whose average is within tolerance of the average of
+    // all buckets from there on; at least another window must follow it,
+    // as the last window trivially matches the rest of the series.
+    private int detectSteadyState() {
+        int n = totals.length;
+        double[] suffix = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            suffix[i] = suffix[i + 1] + totals[i];
+        }
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += totals[i];
+            if (i >= window) {
+                sum -= totals[i - window];
+            }
+            int first = i - window + 1;
+            if (first < 0) {
+                continue;
+            }
+            if (n - first < 2 * window) {
+                break;
+            }
+            double moving = sum / window;
+            double rest = suffix[first] / (n - first);
+            if (Math.abs(moving - rest) <= tolerance * rest) {
+                return first;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Produces the summary of the series: the warm-up duration, the
+     * steady-state average and percentiles of the cluster throughput and
+     * the steady-state averages of the individual nodes.
+     *
+     * @param mapper JSON object mapper
+     * @return summary
+     */
+    ObjectNode summary(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode()
+                .put("nodes", samples.size())
+                .put("buckets", totals.length)
+                .put("bucketMs", bucketMillis);
+        if (totals.length == 0) {
+            return node;
+        }
+        boolean steady = steadyStart < totals.length;
+        node.put("steady", steady);
+        node.put("warmupMs", (steady ? buckets[steadyStart] : buckets[totals.length - 1]) -
+                buckets[0]);
+        double[] values = Arrays.copyOfRange(totals, steady ? steadyStart : 0, totals.length);
+        node.put("average", Arrays.stream(values).average().orElse(0));
+        Arrays.sort(values);
+        node.put("min", values[0]);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            node.put(LABELS[i], percentile(values, PERCENTILES[i]));
+        }
+        node.put("max", values[values.length - 1]);
+
+        long steadyFrom = steady ? buckets[steadyStart] : buckets[0];
+        ObjectNode perNode = node.putObject("perNode");
+        samples.forEach((name, list) -> perNode.put(name, list.stream()
+                .filter(s -> s.timestamp >= steadyFrom)
+                .mapToDouble(s -> s.current).average().orElse(0)));
+        return node;
+    }
+
+    // Returns the given percentile of the sorted values, using the
+    // nearest-rank method.
+    private static double percentile(double[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * Returns the start times of the buckets.
+     *
+     * @return bucket start times in milliseconds since the epoch
+     */
+    long[] buckets() {
+        return buckets.clone();
+    }
+
+    /**
+     * Returns the cluster throughput of the buckets.
+     *
+     * @return cluster throughput per bucket
+     */
+    double[] totals() {
+        return totals.clone();
+    }
+
+}
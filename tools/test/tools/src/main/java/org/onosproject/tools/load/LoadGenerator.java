@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.onosproject.tools.Arguments;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Open-loop load generator for the flow test REST endpoint of the ONOS
+ * demo application.
+ * <p>
+ * Requests are issued to every server at a constant rate or at a rate
+ * ramping linearly between two values, independently of how quickly the
+ * servers respond, so that the saturation point of a cluster shows up as
+ * growing response times rather than silently lowering the offered load.
+ * Response and service times are recorded in HdrHistograms.
+ * </p>
+ * <pre>
+ * Usage: LoadGenerator [--server host]... [--url template]
+ *                      [--rate r] [--end-rate r] [--duration s]
+ *                      [--concurrency n] [--timeout-ms ms]
+ *                      [--flows n] [--neighbours n] [--keep]
+ *                      [--format text|json|csv]
+ *                      [--stub] [--stub-delay-us us] [--stub-jitter-us us]
+ * </pre>
+ * <p>
+ * The rates are given in requests per second per server; without
+ * {@code --end-rate} the rate is constant. With {@code --stub}, the load
+ * is applied to an in-process stand-in for the endpoint.
+ * </p>
+ */
+public final class LoadGenerator {
+
+    private static final String DEFAULT_URL = "http://%s:8181" + StubFlowTestServer.PATH;
+    private static final String LOCALHOST = "127.0.0.1";
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Runs the load generator.
+     *
+     * @param args command-line arguments
+     * @throws IOException          if the stub server cannot be started
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Arguments arguments;
+        try {
+            arguments = Arguments.parse(args, "keep", "stub");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        StubFlowTestServer stub = null;
+        String url = arguments.get("url", DEFAULT_URL);
+        List<String> servers = arguments.getAll("server");
+        if (arguments.flag("stub")) {
+            stub = new StubFlowTestServer(0, arguments.getInt("concurrency", 4) * 4,
+                                          arguments.getLong("stub-delay-us", 1000),
+                                          arguments.getLong("stub-jitter-us", 0));
+            url = "http://%s:" + stub.port() + StubFlowTestServer.PATH;
+            servers = ImmutableList.of(LOCALHOST);
+        } else if (servers.isEmpty()) {
+            servers = ImmutableList.of(LOCALHOST);
+        }
+
+        double rate = arguments.getDouble("rate", 10);
+        double endRate = arguments.getDouble("end-rate", rate);
+        long duration = TimeUnit.SECONDS.toNanos(arguments.getLong("duration", 30));
+        LoadProfile profile = new LoadProfile(rate, endRate, duration);
+        byte[] body = new ObjectMapper().createObjectNode()
+                .put("flowsPerDevice", arguments.getInt("flows", 100))
+                .put("neighbours", arguments.getInt("neighbours", 0))
+                .put("remove", !arguments.flag("keep"))
+                .toString().getBytes(Charsets.UTF_8);
+
+        int concurrency = arguments.getInt("concurrency", 4);
+        int timeout = arguments.getInt("timeout-ms", 30000);
+        String template = url;
+        List<ServerLoad> loads = servers.stream()
+                .map(s -> new ServerLoad(s, url(template, s), body, concurrency, timeout))
+                .collect(toList());
+
+        try {
+            run(profile, loads, timeout);
+        } finally {
+            if (stub != null) {
+                stub.close();
+            }
+        }
+        new LoadReport(profile.isConstant() ? "constant" : "ramp", loads)
+                .print(arguments.get("format", "text"), System.out);
+    }
+
+    /**
+     * Issues all requests of the given profile to all servers and waits
+     * for them to complete.
+     *
+     * @param profile       load profile
+     * @param loads         per-server loads
+     * @param timeoutMillis time allowed for the requests to complete once
+     *                      all have been issued
+     * @throws InterruptedException if interrupted while running
+     */
+    static void run(LoadProfile profile, List<ServerLoad> loads, int timeoutMillis)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        for (long i = 0; ; i++) {
+            long offset = profile.startOffset(i);
+            if (offset < 0) {
+                break;
+            }
+            long intendedStart = start + offset;
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            for (ServerLoad load : loads) {
+                load.submit(intendedStart);
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (ServerLoad load : loads) {
+            if (!load.finish(start, deadline)) {
+                System.err.println("Requests to " + load.server() + " did not complete in time");
+            }
+        }
+    }
+
+    // Returns the request URL of the given server.
+    private static URL url(String template, String server) {
+        try {
+            return new URL(String.format(template, server));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid URL template " + template, e);
+        }
+    }
+
+}
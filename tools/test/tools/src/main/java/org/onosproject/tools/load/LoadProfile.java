@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.load;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Open-loop request schedule; the rate changes linearly from the start
+ * rate to the end rate over the duration of the run, so that equal rates
+ * give a constant-rate run and different rates give a ramp.
+ */
+final class LoadProfile {
+
+    private static final double NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double startRate;
+    private final double endRate;
+    private final long durationNanos;
+
+    /**
+     * Creates a request schedule.
+     *
+     * @param startRate     requests per second at the start of the run
+     * @param endRate       requests per second at the end of the run
+     * @param durationNanos duration of the run in nanoseconds
+     */
+    LoadProfile(double startRate, double endRate, long durationNanos) {
+        checkArgument(startRate >= 0 && endRate >= 0 && startRate + endRate > 0,
+                      "Rates must not be negative and must not both be zero");
+        checkArgument(durationNanos > 0, "Duration must be positive");
+        this.startRate = startRate;
+        this.endRate = endRate;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Returns the intended start of the given request, relative to the
+     * start of the run.
+     *
+     * @param index request index, starting at 0
+     * @return start offset in nanoseconds; -1 if the request falls after
+     * the end of the run
+     */
+    long startOffset(long index) {
+        // Solves r0 * t + (r1 - r0) * t^2 / 2T = index for t, where the
+        // left side is the number of requests issued by the time t.
+        double duration = durationNanos / NANOS;
+        double a = (endRate - startRate) / (2 * duration);
+        double b = startRate;
+        double t = Math.abs(a) < 1e-12 ? index / b :
+                (-b + Math.sqrt(b * b + 4 * a * index)) / (2 * a);
+        if (Double.isNaN(t) || t >= duration) {
+            return -1;
+        }
+        return (long) (t * NANOS);
+    }
+
+    /**
+     * Returns the total number of requests of the run.
+     *
+     * @return number of requests
+     */
+    long requestCount() {
+        return (long) ((startRate + endRate) / 2 * durationNanos / NANOS);
+    }
+
+    /**
+     * Indicates whether the rate is constant.
+     *
+     * @return true if the start and end rates are equal
+     */
+    boolean isConstant() {
+        return startRate == endRate;
+    }
+
+    /**
+     * Returns the duration of the run.
+     *
+     * @return duration in nanoseconds
+     */
+    long durationNanos() {
+        return durationNanos;
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of a load generator run, printed as text, JSON or CSV; all
+ * times are reported in milliseconds.
+ */
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final String[] LABELS = {"p50", "p90", "p99", "p99.9", "p99.99"};
+    private static final String TOTAL = "total";
+    private static final String RESPONSE = "responseTime";
+    private static final String SERVICE = "serviceTime";
+    private static final String ERROR = "errorTime";
+
+    private final String mode;
+    private final List<ServerLoad> loads;
+
+    /**
+     * Creates a report of the given per-server loads.
+     *
+     * @param mode  load mode, e.g. constant or ramp
+     * @param loads per-server loads
+     */
+    LoadReport(String mode, List<ServerLoad> loads) {
+        this.mode = mode;
+        this.loads = loads;
+    }
+
+    /**
+     * Prints the report in the given format.
+     *
+     * @param format text, json or csv
+     * @param out    output stream
+     */
+    void print(String format, PrintStream out) {
+        switch (format) {
+            case "json":
+                printJson(out);
+                break;
+            case "csv":
+                printCsv(out);
+                break;
+            default:
+                printText(out);
+                break;
+        }
+    }
+
+    // Prints one line per server and metric, omitting error times of
+    // servers without errors.
+    private void printText(PrintStream out) {
+        for (Row row : rows()) {
+            if (row.metric.equals(ERROR) && row.histogram.getTotalCount() == 0) {
+                continue;
+            }
+            StringBuilder sb = new StringBuilder(String.format(
+                    Locale.ROOT, "%s %s: sent=%d, ok=%d, errors=%d, rate=%.1f/s, mean=%.3fms",
+                    row.server, row.metric, row.sent, row.completed, row.errors,
+                    row.throughput(), ms(row.histogram.getMean())));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                sb.append(String.format(Locale.ROOT, ", %s=%.3fms", LABELS[i],
+                                        ms(row.histogram.getValueAtPercentile(PERCENTILES[i]))));
+            }
+            sb.append(String.format(Locale.ROOT, ", max=%.3fms",
+                                    ms(row.histogram.getMaxValue())));
+            out.println(sb);
+        }
+    }
+
+    // Prints one CSV record per server and metric.
+    private void printCsv(PrintStream out) {
+        StringBuilder header = new StringBuilder(
+                "server,metric,sent,completed,errors,throughput,min,mean");
+        for (String label : LABELS) {
+            header.append(',').append(label);
+        }
+        out.println(header.append(",max"));
+        for (Row row : rows()) {
+            StringBuilder sb = new StringBuilder(String.format(
+                    Locale.ROOT, "%s,%s,%d,%d,%d,%.3f,%.3f,%.3f", row.server, row.metric,
+                    row.sent, row.completed, row.errors, row.throughput(),
+                    ms(row.histogram.getMinValue()), ms(row.histogram.getMean())));
+            for (double percentile : PERCENTILES) {
+                sb.append(String.format(Locale.ROOT, ",%.3f",
+                                        ms(row.histogram.getValueAtPercentile(percentile))));
+            }
+            sb.append(String.format(Locale.ROOT, ",%.3f", ms(row.histogram.getMaxValue())));
+            out.println(sb);
+        }
+    }
+
+    // Prints the report as a single JSON object.
+    private void printJson(PrintStream out) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode().put("mode", mode);
+        ArrayNode servers = root.putArray("servers");
+        List<Row> rows = rows();
+        for (int i = 0; i < rows.size(); i += 3) {
+            ObjectNode node = json(mapper, rows.get(i), rows.get(i + 1), rows.get(i + 2));
+            if (rows.get(i).server.equals(TOTAL)) {
+                root.set(TOTAL, node);
+            } else {
+                servers.add(node);
+            }
+        }
+        out.println(root.toString());
+    }
+
+    // Produces the JSON summary of the given response, service and error
+    // time rows.
+    private ObjectNode json(ObjectMapper mapper, Row response, Row service, Row error) {
+        ObjectNode node = mapper.createObjectNode()
+                .put("server", response.server)
+                .put("sent", response.sent)
+                .put("completed", response.completed)
+                .put("errors", response.errors)
+                .put("throughput", response.throughput());
+        node.set(RESPONSE, json(mapper, response.histogram));
+        node.set(SERVICE, json(mapper, service.histogram));
+        node.set(ERROR, json(mapper, error.histogram));
+        return node;
+    }
+
+    // Produces the JSON summary of the given histogram.
+    private ObjectNode json(ObjectMapper mapper, Histogram histogram) {
+        ObjectNode node = mapper.createObjectNode()
+                .put("min", ms(histogram.getMinValue()))
+                .put("mean", ms(histogram.getMean()));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            node.put(LABELS[i], ms(histogram.getValueAtPercentile(PERCENTILES[i])));
+        }
+        return node.put("max", ms(histogram.getMaxValue()));
+    }
+
+    // Returns the response, service and error time rows of all servers,
+    // followed by those of the totals.
+    private List<Row> rows() {
+        List<Row> rows = Lists.newArrayList();
+        Histogram totalResponse = null;
+        Histogram totalService = null;
+        Histogram totalError = null;
+        long sent = 0;
+        long completed = 0;
+        long errors = 0;
+        long elapsed = 0;
+        for (ServerLoad load : loads) {
+            rows.add(new Row(load.server(), RESPONSE, load.sent(), load.completed(),
+                             load.errors(), load.elapsedNanos(), load.responseTimes()));
+            rows.add(new Row(load.server(), SERVICE, load.sent(), load.completed(),
+                             load.errors(), load.elapsedNanos(), load.serviceTimes()));
+            rows.add(new Row(load.server(), ERROR, load.sent(), load.completed(),
+                             load.errors(), load.elapsedNanos(), load.errorTimes()));
+            totalResponse = merge(totalResponse, load.responseTimes());
+            totalService = merge(totalService, load.serviceTimes());
+            totalError = merge(totalError, load.errorTimes());
+            sent += load.sent();
+            completed += load.completed();
+            errors += load.errors();
+            elapsed = Math.max(elapsed, load.elapsedNanos());
+        }
+        if (loads.size() > 1) {
+            rows.add(new Row(TOTAL, RESPONSE, sent, completed, errors, elapsed, totalResponse));
+            rows.add(new Row(TOTAL, SERVICE, sent, completed, errors, elapsed, totalService));
+            rows.add(new Row(TOTAL, ERROR, sent, completed, errors, elapsed, totalError));
+        }
+        return rows;
+    }
+
+    // Adds the given histogram to the accumulated one.
+    private static Histogram merge(Histogram total, Histogram histogram) {
+        Histogram copy = histogram.copy();
+        if (total != null) {
+            copy.add(total);
+        }
+        return copy;
+    }
+
+    // Converts the given microseconds to milliseconds.
+    private static double ms(double micros) {
+        return micros / TimeUnit.MILLISECONDS.toMicros(1);
+    }
+
+    // Summary of one metric of one server.
+    private static final class Row {
+        private final String server;
+        private final String metric;
+        private final long sent;
+        private final long completed;
+        private final long errors;
+        private final long elapsedNanos;
+        private final Histogram histogram;
+
+        private Row(String server, String metric, long sent, long completed, long errors,
+                    long elapsedNanos, Histogram histogram) {
+            this.server = server;
+            this.metric = metric;
+            this.sent = sent;
+            this.completed = completed;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.histogram = histogram;
+        }
+
+        // Returns the rate of completed requests per second.
+        private double throughput() {
+            return elapsedNanos > 0 ?
+                    completed * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.load;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load applied to a single server by a pool of request threads.
+ * <p>
+ * Requests are queued at their intended start times regardless of whether
+ * earlier requests have completed. The response time of each request is
+ * measured from its intended start rather than from the moment a thread
+ * picked it up, so that time spent waiting behind a stalled server is
+ * accounted for instead of being omitted; the service time, measured from
+ * the actual start, is recorded separately. Failed and timed out requests
+ * are recorded too, in a histogram of their own, so that a server shedding
+ * load does not seem to respond faster.
+ * </p>
+ */
+final class ServerLoad {
+
+    private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String server;
+    private final URL url;
+    private final byte[] body;
+    private final int timeoutMillis;
+    private final ExecutorService executor;
+
+    private final Histogram responseTimes = new ConcurrentHistogram(HIGHEST_MICROS,
+                                                                     SIGNIFICANT_DIGITS);
+    private final Histogram serviceTimes = new ConcurrentHistogram(HIGHEST_MICROS,
+                                                                    SIGNIFICANT_DIGITS);
+    private final Histogram errorTimes = new ConcurrentHistogram(HIGHEST_MICROS,
+                                                                  SIGNIFICANT_DIGITS);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong lastEnd = new AtomicLong();
+    private volatile long elapsedNanos;
+
+    /**
+     * Creates the load of the given server.
+     *
+     * @param server        server name
+     * @param url           request URL
+     * @param body          request body
+     * @param concurrency   number of concurrent requests
+     * @param timeoutMillis connect and read timeout
+     */
+    ServerLoad(String server, URL url, byte[] body, int concurrency, int timeoutMillis) {
+        this.server = server;
+        this.url = url;
+        this.body = body;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(
+                concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("load-" + server + "-%d")
+                        .setDaemon(true).build());
+    }
+
+    /**
+     * Queues a request with the given intended start.
+     *
+     * @param intendedStart intended start, as given by System.nanoTime
+     */
+    void submit(long intendedStart) {
+        sent.incrementAndGet();
+        executor.execute(() -> execute(intendedStart));
+    }
+
+    // Executes a single request and records its timings, as well as the
+    // time at which the latest request ended.
+    private void execute(long intendedStart) {
+        long start = System.nanoTime();
+        boolean ok = post();
+        long end = System.nanoTime();
+        if (ok) {
+            completed.incrementAndGet();
+            responseTimes.recordValue(micros(end - intendedStart));
+            serviceTimes.recordValue(micros(end - start));
+        } else {
+            errors.incrementAndGet();
+            errorTimes.recordValue(micros(end - intendedStart));
+        }
+        lastEnd.accumulateAndGet(end, Math::max);
+    }
+
+    // Posts the request body and consumes the response, so that the
+    // connection can be reused.
+    private boolean post() {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int code = connection.getResponseCode();
+            InputStream in = code < HttpURLConnection.HTTP_BAD_REQUEST ?
+                    connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                try (InputStream stream = in) {
+                    ByteStreams.copy(stream, ByteStreams.nullOutputStream());
+                }
+            }
+            return code == HttpURLConnection.HTTP_OK;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    // Converts the given nanoseconds to microseconds, within the trackable
+    // range of the histograms.
+    private static long micros(long nanos) {
+        return Math.min(HIGHEST_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    /**
+     * Waits for all queued requests to complete. The elapsed time of the
+     * load extends to the end of its last request, regardless of when
+     * this method is called; if the requests do not complete in time, it
+     * extends to the deadline.
+     *
+     * @param start    start of the run, as given by System.nanoTime
+     * @param deadline time by which the requests must have completed, as
+     *                 given by System.nanoTime
+     * @return true if all requests completed in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean finish(long start, long deadline) throws InterruptedException {
+        executor.shutdown();
+        boolean done = executor.awaitTermination(Math.max(0, deadline - System.nanoTime()),
+                                                 TimeUnit.NANOSECONDS);
+        executor.shutdownNow();
+        long end = done ? lastEnd.get() : System.nanoTime();
+        elapsedNanos = sent.get() > 0 ? end - start : 0;
+        return done;
+    }
+
+    /**
+     * Returns the server name.
+     *
+     * @return server name
+     */
+    String server() {
+        return server;
+    }
+
+    /**
+     * Returns the histogram of response times in microseconds, measured
+     * from the intended starts of the requests.
+     *
+     * @return response time histogram
+     */
+    Histogram responseTimes() {
+        return responseTimes;
+    }
+
+    /**
+     * Returns the histogram of service times in microseconds, measured
+     * from the actual starts of the requests.
+     *
+     * @return service time histogram
+     */
+    Histogram serviceTimes() {
+        return serviceTimes;
+    }
+
+    /**
+     * Returns the histogram of the times in microseconds after which
+     * requests failed or timed out, measured from their intended starts.
+     *
+     * @return error time histogram
+     */
+    Histogram errorTimes() {
+        return errorTimes;
+    }
+
+    /**
+     * Returns the number of requests issued.
+     *
+     * @return number of requests
+     */
+    long sent() {
+        return sent.get();
+    }
+
+    /**
+     * Returns the number of successfully completed requests.
+     *
+     * @return number of requests
+     */
+    long completed() {
+        return completed.get();
+    }
+
+    /**
+     * Returns the number of failed requests.
+     *
+     * @return number of requests
+     */
+    long errors() {
+        return errors.get();
+    }
+
+    /**
+     * Returns the time from the start of the run until all requests of
+     * this server completed.
+     *
+     * @return elapsed time in nanoseconds
+     */
+    long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.load;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.onosproject.tools.Arguments;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the flow test REST endpoint of the ONOS demo
+ * application, which responds after a configurable delay; it allows the
+ * load generator to be exercised without an ONOS cluster.
+ */
+public final class StubFlowTestServer implements AutoCloseable {
+
+    /**
+     * Path of the stand-in endpoint.
+     */
+    public static final String PATH = "/onos/demo/intents/flowTest";
+
+    private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long delayMicros;
+    private final long jitterMicros;
+
+    /**
+     * Starts a stub server on the given port of the loopback interface.
+     *
+     * @param port         port number; 0 for an ephemeral port
+     * @param threads      number of request handling threads
+     * @param delayMicros  minimum response delay in microseconds
+     * @param jitterMicros maximum random delay added to the minimum
+     * @throws IOException if the server cannot be started
+     */
+    public StubFlowTestServer(int port, int threads, long delayMicros, long jitterMicros)
+            throws IOException {
+        this.delayMicros = delayMicros;
+        this.jitterMicros = jitterMicros;
+        this.executor = Executors.newFixedThreadPool(threads);
+        // Headers and body of responses are written separately; without
+        // TCP_NODELAY, small responses would be held back by Nagle's
+        // algorithm waiting for delayed acknowledgements
+        System.setProperty(NO_DELAY, "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Returns the port on which the server listens.
+     *
+     * @return port number
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    // Consumes the request and responds after the configured delay.
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteStreams.copy(in, ByteStreams.nullOutputStream());
+        }
+        long delay = delayMicros + (jitterMicros > 0 ?
+                ThreadLocalRandom.current().nextLong(jitterMicros + 1) : 0);
+        if (delay > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        byte[] body = ("{\"elapsed\":" + elapsed + "}").getBytes(Charsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the stub server until the process is terminated.
+     * <p>
+     * Usage: {@code StubFlowTestServer [--port 8181] [--threads 16]
+     * [--delay-us 1000] [--jitter-us 0]}
+     * </p>
+     *
+     * @param args command-line arguments
+     * @throws IOException if the server cannot be started
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = Arguments.parse(args);
+        StubFlowTestServer server =
+                new StubFlowTestServer(arguments.getInt("port", 8181),
+                                       arguments.getInt("threads", 16),
+                                       arguments.getLong("delay-us", 1000),
+                                       arguments.getLong("jitter-us", 0));
+        System.out.println("Stub flow test server listening on port " + server.port());
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.partitions;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Cluster node taking part in the partition layout.
+ */
+final class ClusterNode {
+
+    final String id;
+    final String ip;
+    final int tcpPort;
+    final double weight;
+    final String rack;
+
+    /**
+     * Creates a cluster node.
+     *
+     * @param id      node identifier
+     * @param ip      node address
+     * @param tcpPort cluster communication port
+     * @param weight  relative capacity of the node
+     * @param rack    failure domain of the node; null if the node shares
+     *                its failure domain with no other node
+     */
+    ClusterNode(String id, String ip, int tcpPort, double weight, String rack) {
+        checkArgument(weight > 0, "Weight of node %s must be positive", id);
+        this.id = id;
+        this.ip = ip;
+        this.tcpPort = tcpPort;
+        this.weight = weight;
+        this.rack = rack != null ? rack : "node:" + id;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+
+}
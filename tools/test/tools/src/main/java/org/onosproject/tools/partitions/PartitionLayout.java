@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.partitions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assignment of partition replicas to cluster nodes, in the format of the
+ * ONOS tablets.json file.
+ */
+final class PartitionLayout {
+
+    private final List<ClusterNode> nodes;
+    private final LinkedHashMap<String, List<String>> partitions;
+
+    /**
+     * Creates a partition layout.
+     *
+     * @param nodes      cluster nodes
+     * @param partitions node identifiers of the replicas, keyed by partition
+     *                   name in partition order
+     */
+    PartitionLayout(List<ClusterNode> nodes, LinkedHashMap<String, List<String>> partitions) {
+        this.nodes = ImmutableList.copyOf(nodes);
+        this.partitions = partitions;
+    }
+
+    /**
+     * Returns the node identifiers of the replicas of all partitions.
+     *
+     * @return replicas keyed by partition name
+     */
+    Map<String, List<String>> partitions() {
+        return partitions;
+    }
+
+    /**
+     * Reads the replicas of all partitions from an existing tablets.json
+     * file; the node details in the file are not needed for planning.
+     *
+     * @param file   tablets.json file
+     * @param mapper JSON object mapper
+     * @return node identifiers of the replicas, keyed by partition name
+     * @throws IOException if the file cannot be read or parsed
+     */
+    static Map<String, List<String>> readPartitions(File file, ObjectMapper mapper)
+            throws IOException {
+        Map<String, List<String>> partitions = Maps.newHashMap();
+        JsonNode root = mapper.readTree(file);
+        Iterator<Map.Entry<String, JsonNode>> it = root.path("partitions").fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            List<String> replicas = Lists.newArrayList();
+            for (JsonNode replica : entry.getValue()) {
+                replicas.add(replica.isTextual() ? replica.asText() : replica.path("id").asText());
+            }
+            partitions.put(entry.getKey(), replicas);
+        }
+        return partitions;
+    }
+
+    /**
+     * Produces the tablets.json representation of the layout.
+     *
+     * @param mapper JSON object mapper
+     * @return layout JSON
+     */
+    ObjectNode toJson(ObjectMapper mapper) {
+        Map<String, ClusterNode> byId = Maps.newHashMap();
+        ObjectNode root = mapper.createObjectNode();
+        ArrayNode nodesNode = root.putArray("nodes");
+        for (ClusterNode node : nodes) {
+            byId.put(node.id, node);
+            addNode(nodesNode, node);
+        }
+        ObjectNode partitionsNode = root.putObject("partitions");
+        partitions.forEach((name, replicas) -> {
+            ArrayNode replicasNode = partitionsNode.putArray(name);
+            replicas.forEach(id -> addNode(replicasNode, byId.get(id)));
+        });
+        return root;
+    }
+
+    // Adds the JSON representation of the node to the array.
+    private static void addNode(ArrayNode array, ClusterNode node) {
+        array.addObject().put("id", node.id).put("ip", node.ip).put("tcpPort", node.tcpPort);
+    }
+
+    /**
+     * Returns the replica moves from the given earlier layout to this one.
+     * Each move relocates one replica of a partition from one node to
+     * another; a move without source creates a replica and a move without
+     * target drops one.
+     *
+     * @param previous replicas of the earlier layout, keyed by partition
+     * @return replica moves in partition order
+     */
+    List<Move> movesFrom(Map<String, List<String>> previous) {
+        List<Move> moves = Lists.newArrayList();
+        partitions.forEach((name, replicas) -> {
+            List<String> before = previous.getOrDefault(name, ImmutableList.of());
+            List<String> removed = Lists.newArrayList(before);
+            removed.removeAll(replicas);
+            List<String> added = Lists.newArrayList(replicas);
+            added.removeAll(before);
+            for (int i = 0; i < Math.max(removed.size(), added.size()); i++) {
+                moves.add(new Move(name, i < removed.size() ? removed.get(i) : null,
+                                   i < added.size() ? added.get(i) : null));
+            }
+        });
+        previous.keySet().stream()
+                .filter(name -> !partitions.containsKey(name)).sorted()
+                .forEach(name -> previous.get(name)
+                        .forEach(id -> moves.add(new Move(name, id, null))));
+        return moves;
+    }
+
+    /**
+     * Relocation of a single partition replica.
+     */
+    static final class Move {
+        final String partition;
+        final String from;
+        final String to;
+
+        /**
+         * Creates a replica move.
+         *
+         * @param partition partition name
+         * @param from      node losing the replica; null if none
+         * @param to        node gaining the replica; null if none
+         */
+        Move(String partition, String from, String to) {
+            this.partition = partition;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Produces the JSON representation of the move.
+         *
+         * @param mapper JSON object mapper
+         * @return move JSON
+         */
+        ObjectNode toJson(ObjectMapper mapper) {
+            ObjectNode node = mapper.createObjectNode().put("partition", partition);
+            if (from != null) {
+                node.put("from", from);
+            }
+            if (to != null) {
+                node.put("to", to);
+            }
+            return node;
+        }
+
+        @Override
+        public String toString() {
+            return partition + ": " + (from != null ? from : "(new)") + " -> " +
+                    (to != null ? to : "(dropped)");
+        }
+    }
+
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.partitions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.onosproject.tools.Arguments;
+import org.onosproject.tools.partitions.PartitionLayout.Move;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Planner of the partition layout of an ONOS cluster.
+ * <p>
+ * Every partition is replicated on a configurable number of distinct
+ * nodes, or on all nodes of clusters smaller than that. The replicas
+ * are divided among the nodes in proportion to their weights, and the
+ * replicas of a partition are spread over as many racks as possible.
+ * When an earlier layout is given, its replicas stay where they are
+ * unless their node is gone, their node holds more than its share or
+ * their rack holds too many replicas of the partition; only the
+ * replicas so displaced and those of new partitions are placed anew, so
+ * that growing or shrinking the cluster moves as few replicas as
+ * possible.
+ * </p>
+ * <pre>
+ * Usage: PartitionPlanner --node ip... [--port 9876] [--replicas 3]
+ *                         [--partitions n] [--weight ip=w]... [--rack ip=r]...
+ *                         [--previous file] [--output file] [--moves file]
+ * </pre>
+ * <p>
+ * The number of partitions defaults to the number of nodes, but never to
+ * fewer than there are in the earlier layout. The replica moves relative
+ * to the earlier layout are listed on standard error and, with
+ * {@code --moves}, written to a JSON file.
+ * </p>
+ */
+public final class PartitionPlanner {
+
+    private static final double EPSILON = 1e-9;
+
+    private final List<ClusterNode> nodes;
+    private final Map<String, ClusterNode> byId = Maps.newHashMap();
+    private final int replicas;
+    private final int rackLimit;
+    private final List<String> names = Lists.newArrayList();
+
+    private final Map<String, Integer> quotas = Maps.newHashMap();
+    private final Map<String, Double> remainders = Maps.newHashMap();
+    private int extras;
+    private final Map<String, Integer> loads = Maps.newHashMap();
+    private final LinkedHashMap<String, List<String>> layout = Maps.newLinkedHashMap();
+
+    /**
+     * Creates a planner for the given nodes.
+     *
+     * @param nodes      cluster nodes, in preference order
+     * @param replicas   number of replicas of every partition; clipped to
+     *                   the number of nodes
+     * @param partitions number of partitions
+     */
+    PartitionPlanner(List<ClusterNode> nodes, int replicas, int partitions) {
+        checkArgument(replicas > 0, "Replication factor must be positive");
+        checkArgument(!nodes.isEmpty(), "No nodes given");
+        checkArgument(partitions > 0, "Number of partitions must be positive");
+        this.nodes = ImmutableList.copyOf(nodes);
+        this.replicas = Math.min(replicas, nodes.size());
+        nodes.forEach(n -> byId.put(n.id, n));
+        checkArgument(byId.size() == nodes.size(), "Duplicate nodes");
+        int racks = nodes.stream().map(n -> n.rack).collect(toSet()).size();
+        this.rackLimit = (this.replicas + racks - 1) / racks;
+        for (int i = 1; i <= partitions; i++) {
+            names.add("p" + i);
+        }
+        computeQuotas();
+    }
+
+    // Divides the replicas among the nodes in proportion to their weights;
+    // no node can hold more than one replica of each partition. The quotas
+    // are the shares rounded down; the replicas left over go to nodes with
+    // fractional shares during planning, so that they can stay where the
+    // earlier layout put them.
+    private void computeQuotas() {
+        int capacity = names.size();
+        double remaining = replicas * names.size();
+        List<ClusterNode> uncapped = Lists.newArrayList(nodes);
+        boolean capped = true;
+        while (capped) {
+            capped = false;
+            double weight = uncapped.stream().mapToDouble(n -> n.weight).sum();
+            for (ClusterNode node : ImmutableList.copyOf(uncapped)) {
+                if (remaining * node.weight / weight > capacity) {
+                    quotas.put(node.id, capacity);
+                    uncapped.remove(node);
+                    remaining -= capacity;
+                    capped = true;
+                }
+            }
+        }
+
+        double weight = uncapped.stream().mapToDouble(n -> n.weight).sum();
+        int assigned = 0;
+        for (ClusterNode node : nodes) {
+            double share = uncapped.contains(node) ? remaining * node.weight / weight : 0;
+            int quota = uncapped.contains(node) ? (int) Math.floor(share + EPSILON) : capacity;
+            quotas.put(node.id, quota);
+            remainders.put(node.id, Math.max(0, share - quota));
+            assigned += uncapped.contains(node) ? quota : 0;
+        }
+        extras = (int) Math.round(remaining) - assigned;
+    }
+
+    /**
+     * Plans the layout, keeping as many replicas of the given earlier
+     * layout in place as possible.
+     *
+     * @param previous replicas of the earlier layout keyed by partition
+     *                 name; empty for a fresh layout
+     * @return new layout
+     */
+    PartitionLayout plan(Map<String, List<String>> previous) {
+        nodes.forEach(n -> loads.put(n.id, 0));
+        for (String name : names) {
+            List<String> members = Lists.newArrayList();
+            for (String id : previous.getOrDefault(name, ImmutableList.of())) {
+                if (byId.containsKey(id) && !members.contains(id) &&
+                        members.size() < replicas) {
+                    members.add(id);
+                    loads.merge(id, 1, Integer::sum);
+                }
+            }
+            layout.put(name, members);
+        }
+        enforceRackLimit();
+        shedExcess();
+        fillByDeficit();
+        fillExtras();
+        fillRemaining();
+        return new PartitionLayout(nodes, layout);
+    }
+
+    // Removes the replicas of a partition in excess of the rack limit,
+    // preferring those of the most loaded nodes.
+    private void enforceRackLimit() {
+        layout.forEach((name, members) -> {
+            for (String rack : members.stream().map(id -> byId.get(id).rack).collect(toSet())) {
+                List<String> inRack = Lists.newArrayList();
+                members.stream().filter(id -> byId.get(id).rack.equals(rack))
+                        .forEach(inRack::add);
+                inRack.sort(Comparator.comparing(this::excess).reversed());
+                for (int i = 0; i < inRack.size() - rackLimit; i++) {
+                    remove(name, inRack.get(i));
+                }
+            }
+        });
+    }
+
+    // Removes replicas from nodes holding more than their quota, starting
+    // with the last partitions; nodes with fractional shares may keep one
+    // replica more, as long as there are replicas left over for them.
+    private void shedExcess() {
+        List<ClusterNode> keeping = Lists.newArrayList();
+        for (ClusterNode node : nodes) {
+            if (excess(node.id) > 0) {
+                keeping.add(node);
+            }
+        }
+        keeping.sort(Comparator.comparing((ClusterNode n) -> -remainders.get(n.id)));
+        Set<String> extra = Sets.newHashSet();
+        keeping.stream().filter(n -> remainders.get(n.id) > EPSILON).limit(extras)
+                .forEach(n -> extra.add(n.id));
+        for (String name : Lists.reverse(names)) {
+            for (String id : ImmutableList.copyOf(layout.get(name))) {
+                if (excess(id) > (extra.contains(id) ? 1 : 0)) {
+                    remove(name, id);
+                }
+            }
+        }
+    }
+
+    // Fills vacancies with nodes holding fewer replicas than their quota,
+    // the nodes furthest below their quota first, each into the eligible
+    // partition with the most vacancies.
+    private void fillByDeficit() {
+        boolean placed = true;
+        while (placed) {
+            placed = false;
+            List<ClusterNode> candidates = Lists.newArrayList(nodes);
+            candidates.sort(Comparator.comparing((ClusterNode n) -> excess(n.id)));
+            for (ClusterNode node : candidates) {
+                if (excess(node.id) >= 0) {
+                    break;
+                }
+                String best = mostVacant(node);
+                if (best == null) {
+                    best = swapInto(node);
+                }
+                if (best != null) {
+                    add(best, node.id);
+                    placed = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    // Places the replicas left over on nodes with fractional shares which
+    // do not hold one already, the largest fractions first.
+    private void fillExtras() {
+        List<ClusterNode> candidates = Lists.newArrayList(nodes);
+        candidates.sort(Comparator.comparing((ClusterNode n) -> -remainders.get(n.id)));
+        int used = (int) nodes.stream().filter(n -> excess(n.id) > 0).count();
+        for (ClusterNode node : candidates) {
+            if (used >= extras || remainders.get(node.id) <= EPSILON) {
+                break;
+            }
+            if (excess(node.id) != 0) {
+                continue;
+            }
+            String best = mostVacant(node);
+            if (best != null) {
+                add(best, node.id);
+                used++;
+            }
+        }
+    }
+
+    // Returns the partition with the most vacancies the node can join.
+    private String mostVacant(ClusterNode node) {
+        String best = null;
+        for (String name : names) {
+            if (eligible(name, node, rackLimit) &&
+                    (best == null || vacancies(name) > vacancies(best))) {
+                best = name;
+            }
+        }
+        return best;
+    }
+
+    // Makes room for the given node by moving a replica of a partition
+    // the node does not hold into a partition with a vacancy the node
+    // cannot take; returns the partition the node may now join, if any.
+    private String swapInto(ClusterNode node) {
+        for (String vacant : names) {
+            if (vacancies(vacant) == 0) {
+                continue;
+            }
+            for (String name : names) {
+                if (name.equals(vacant) || layout.get(name).contains(node.id)) {
+                    continue;
+                }
+                for (String id : layout.get(name)) {
+                    ClusterNode other = byId.get(id);
+                    if (eligible(vacant, other, rackLimit) &&
+                            rackCount(name, node.rack) - (other.rack.equals(node.rack) ? 1 : 0)
+                                    < rackLimit) {
+                        remove(name, id);
+                        add(vacant, id);
+                        return name;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Fills any vacancies left with the least loaded eligible nodes,
+    // relaxing the rack limit only if no other node can take them.
+    private void fillRemaining() {
+        for (String name : names) {
+            while (vacancies(name) > 0) {
+                ClusterNode best = leastLoaded(name, rackLimit);
+                if (best == null) {
+                    best = leastLoaded(name, replicas);
+                    System.err.println("Warning: partition " + name +
+                                               " cannot be spread over enough racks");
+                }
+                add(name, best.id);
+            }
+        }
+    }
+
+    // Returns the eligible node with the lowest load relative to its weight.
+    private ClusterNode leastLoaded(String name, int limit) {
+        ClusterNode best = null;
+        for (ClusterNode node : nodes) {
+            if (eligible(name, node, limit) && (best == null ||
+                    (loads.get(node.id) + 1) / node.weight <
+                            (loads.get(best.id) + 1) / best.weight)) {
+                best = node;
+            }
+        }
+        return best;
+    }
+
+    // Indicates whether the node can join the partition under the limit.
+    private boolean eligible(String name, ClusterNode node, int limit) {
+        return vacancies(name) > 0 && !layout.get(name).contains(node.id) &&
+                rackCount(name, node.rack) < limit;
+    }
+
+    // Returns the number of replicas of the partition in the rack.
+    private int rackCount(String name, String rack) {
+        return (int) layout.get(name).stream()
+                .filter(id -> byId.get(id).rack.equals(rack)).count();
+    }
+
+    // Returns the number of missing replicas of the partition.
+    private int vacancies(String name) {
+        return replicas - layout.get(name).size();
+    }
+
+    // Returns the number of replicas the node holds beyond its quota.
+    private int excess(String id) {
+        return loads.get(id) - quotas.get(id);
+    }
+
+    private void add(String name, String id) {
+        layout.get(name).add(id);
+        loads.merge(id, 1, Integer::sum);
+    }
+
+    private void remove(String name, String id) {
+        layout.get(name).remove(id);
+        loads.merge(id, -1, Integer::sum);
+    }
+
+    /**
+     * Runs the planner.
+     *
+     * @param args command-line arguments
+     * @throws IOException if the earlier layout cannot be read or the
+     *                     results cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Arguments arguments;
+        PartitionPlanner planner;
+        Map<String, List<String>> previous = ImmutableMap.of();
+        try {
+            arguments = Arguments.parse(args);
+            if (arguments.has("previous")) {
+                File file = new File(arguments.get("previous", null));
+                if (file.exists()) {
+                    previous = PartitionLayout.readPartitions(file, mapper);
+                }
+            }
+            List<ClusterNode> nodes = nodes(arguments);
+            int partitions = arguments.getInt("partitions",
+                                              Math.max(nodes.size(), previous.size()));
+            planner = new PartitionPlanner(nodes, arguments.getInt("replicas", 3), partitions);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        PartitionLayout layout = planner.plan(previous);
+        String json = mapper.writerWithDefaultPrettyPrinter()
+                .writeValueAsString(layout.toJson(mapper));
+        if (arguments.has("output")) {
+            Files.write(json + "\n", new File(arguments.get("output", null)), Charsets.UTF_8);
+        } else {
+            System.out.println(json);
+        }
+
+        List<Move> moves = layout.movesFrom(previous);
+        if (!previous.isEmpty()) {
+            moves.forEach(System.err::println);
+            System.err.println(moves.size() + " replica move(s)");
+        }
+        if (arguments.has("moves")) {
+            ArrayNode array = mapper.createArrayNode();
+            moves.forEach(m -> array.add(m.toJson(mapper)));
+            mapper.writerWithDefaultPrettyPrinter()
+                    .writeValue(new File(arguments.get("moves", null)), array);
+        }
+    }
+
+    // Returns the nodes given on the command line.
+    private static List<ClusterNode> nodes(Arguments arguments) {
+        Map<String, String> weights = pairs(arguments.getAll("weight"));
+        Map<String, String> racks = pairs(arguments.getAll("rack"));
+        int port = arguments.getInt("port", 9876);
+        List<ClusterNode> nodes = Lists.newArrayList();
+        for (String ip : arguments.getAll("node")) {
+            double weight;
+            try {
+                weight = Double.parseDouble(weights.getOrDefault(ip, "1"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid weight of node " + ip);
+            }
+            nodes.add(new ClusterNode(ip, ip, port, weight, racks.get(ip)));
+        }
+        Set<String> unknown = Sets.union(weights.keySet(), racks.keySet()).stream()
+                .filter(id -> nodes.stream().noneMatch(n -> n.id.equals(id)))
+                .collect(toSet());
+        checkArgument(unknown.isEmpty(), "Weights or racks given for unknown nodes %s", unknown);
+        return nodes;
+    }
+
+    // Parses the given key=value pairs.
+    private static Map<String, String> pairs(List<String> values) {
+        Map<String, String> pairs = Maps.newHashMap();
+        for (String value : values) {
+            int eq = value.indexOf('=');
+            checkArgument(eq > 0, "Expected node=value instead of %s", value);
+            pairs.put(value.substring(0, eq), value.substring(eq + 1));
+        }
+        return pairs;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.topo;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Three-tier fat-tree of k-port switches: (k/2)^2 core switches and k pods
+ * of k/2 aggregation and k/2 edge switches each, with up to k/2 hosts per
+ * edge switch.
+ * <p>
+ * Edge switches use ports 1 to k/2 for hosts and k/2+1 to k for the
+ * aggregation switches of their pod; aggregation switches use ports 1 to
+ * k/2 for the edge switches and k/2+1 to k for core switches; core switch
+ * port p leads to pod p-1.
+ * </p>
+ */
+final class FatTree implements TopologyFamily {
+
+    private final int k;
+    private final int half;
+    private final int hostsPerEdge;
+    private final long cores;
+
+    /**
+     * Creates a fat-tree topology.
+     *
+     * @param k            number of ports per switch; even
+     * @param hostsPerEdge number of hosts per edge switch, at most k/2
+     */
+    FatTree(int k, int hostsPerEdge) {
+        checkArgument(k >= 2 && k % 2 == 0, "Fat-tree k must be even and at least 2");
+        checkArgument(hostsPerEdge >= 0 && hostsPerEdge <= k / 2,
+                      "Fat-tree hosts per edge switch must be between 0 and k/2");
+        this.k = k;
+        this.half = k / 2;
+        this.hostsPerEdge = hostsPerEdge;
+        this.cores = (long) half * half;
+    }
+
+    @Override
+    public void generate(TopologyWriter writer) throws IOException {
+        for (long c = 0; c < cores; c++) {
+            writer.device(c, "core-" + c, 50, longitude(c, cores));
+        }
+        for (int p = 0; p < k; p++) {
+            for (int a = 0; a < half; a++) {
+                writer.device(agg(p, a), "agg-" + p + "-" + a, 30,
+                              longitude((long) p * half + a, (long) k * half));
+            }
+            for (int e = 0; e < half; e++) {
+                writer.device(edge(p, e), "edge-" + p + "-" + e, 10,
+                              longitude((long) p * half + e, (long) k * half));
+            }
+        }
+
+        for (int p = 0; p < k; p++) {
+            for (int a = 0; a < half; a++) {
+                for (int e = 0; e < half; e++) {
+                    writer.link(edge(p, e), half + 1 + a, agg(p, a), 1 + e);
+                }
+                for (int j = 0; j < half; j++) {
+                    writer.link(agg(p, a), half + 1 + j, (long) a * half + j, 1 + p);
+                }
+            }
+        }
+
+        long host = 0;
+        for (int p = 0; p < k; p++) {
+            for (int e = 0; e < half; e++) {
+                for (int h = 0; h < hostsPerEdge; h++) {
+                    writer.host(host, edge(p, e), 1 + h, -10,
+                                longitude(host, (long) k * half * hostsPerEdge));
+                    host++;
+                }
+            }
+        }
+    }
+
+    // Returns the index of the given aggregation switch.
+    private long agg(int pod, int a) {
+        return cores + (long) pod * k + a;
+    }
+
+    // Returns the index of the given edge switch.
+    private long edge(int pod, int e) {
+        return cores + (long) pod * k + half + e;
+    }
+
+    // Spreads the elements of a tier evenly across the map.
+    private static double longitude(long position, long count) {
+        return -170 + 340.0 * (position + 0.5) / count;
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.topo;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Random geometric topology: switches are scattered over the unit square
+ * and every two switches closer than a radius chosen for the requested
+ * average degree are linked.
+ * <p>
+ * The square is divided into a grid of cells no smaller than the radius,
+ * each holding an equal share of the switches at positions drawn from a
+ * random generator seeded by the cell, so that the switches of any cell
+ * can be recomputed on demand instead of being kept in memory. A switch
+ * uses ports 1 to n for its n neighbours in index order and the ports
+ * after those for hosts.
+ * </p>
+ */
+final class RandomGeometric implements TopologyFamily {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long count;
+    private final double radius;
+    private final int side;
+    private final long base;
+    private final long remainder;
+    private final long seed;
+    private final int hostsPerSwitch;
+
+    // Neighbours of the current switch and of the one it links to.
+    private final long[] mine;
+    private final long[] theirs;
+
+    /**
+     * Creates a random geometric topology.
+     *
+     * @param count          number of switches
+     * @param degree         expected average number of neighbours
+     * @param seed           random seed
+     * @param hostsPerSwitch number of hosts per switch
+     */
+    RandomGeometric(long count, double degree, long seed, int hostsPerSwitch) {
+        checkArgument(count > 0, "Number of switches must be positive");
+        checkArgument(degree > 0, "Degree must be positive");
+        checkArgument(hostsPerSwitch >= 0, "Hosts per switch must not be negative");
+        this.count = count;
+        this.radius = Math.min(1, Math.sqrt(degree / (Math.PI * count)));
+        this.side = Math.max(1, (int) Math.min(Math.floor(1 / radius), Math.sqrt(count)));
+        long cells = (long) side * side;
+        this.base = count / cells;
+        this.remainder = count % cells;
+        this.seed = seed;
+        this.hostsPerSwitch = hostsPerSwitch;
+        // A switch has at most as many neighbours as a 3x3 block of cells
+        int block = (int) (9 * (base + 1));
+        this.mine = new long[block];
+        this.theirs = new long[block];
+    }
+
+    @Override
+    public void generate(TopologyWriter writer) throws IOException {
+        double[] point = new double[2];
+        for (long i = 0; i < count; i++) {
+            position(i, point);
+            writer.device(i, "g" + i, latitude(point[1]), longitude(point[0]));
+        }
+
+        for (long i = 0; i < count; i++) {
+            int n = neighbours(i, mine);
+            for (int p = 0; p < n; p++) {
+                long j = mine[p];
+                if (j > i) {
+                    writer.link(i, p + 1, j, portTowards(j, i));
+                }
+            }
+        }
+
+        for (long i = 0; i < count; i++) {
+            int firstHostPort = neighbours(i, mine) + 1;
+            position(i, point);
+            for (int h = 0; h < hostsPerSwitch; h++) {
+                writer.host(i * hostsPerSwitch + h, i, firstHostPort + h,
+                            latitude(point[1]) - 0.2, longitude(point[0]) + 0.2 * h);
+            }
+        }
+    }
+
+    // Returns the port of switch i leading to its neighbour j.
+    private int portTowards(long i, long j) {
+        int n = neighbours(i, theirs);
+        for (int p = 0; p < n; p++) {
+            if (theirs[p] == j) {
+                return p + 1;
+            }
+        }
+        throw new IllegalStateException("Switch " + j + " is no neighbour of " + i);
+    }
+
+    // Computes the neighbours of the given switch in index order and
+    // returns their number. Cells are visited in row-major order, in which
+    // the switch indices increase.
+    private int neighbours(long i, long[] ids) {
+        long cell = cellOf(i);
+        int cx = (int) (cell % side);
+        int cy = (int) (cell / side);
+        double[] point = new double[2];
+        position(i, point);
+        int n = 0;
+        double[] other = new double[2];
+        for (int y = Math.max(0, cy - 1); y <= Math.min(side - 1, cy + 1); y++) {
+            for (int x = Math.max(0, cx - 1); x <= Math.min(side - 1, cx + 1); x++) {
+                long c = (long) y * side + x;
+                long first = firstOf(c);
+                long last = firstOf(c + 1);
+                for (long j = first; j < last; j++) {
+                    if (j == i) {
+                        continue;
+                    }
+                    position(j, other);
+                    double dx = other[0] - point[0];
+                    double dy = other[1] - point[1];
+                    if (dx * dx + dy * dy <= radius * radius) {
+                        ids[n++] = j;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    // Computes the position of the given switch in the unit square.
+    private void position(long i, double[] point) {
+        long cell = cellOf(i);
+        SplittableRandom random = new SplittableRandom(seed + cell * GOLDEN_GAMMA);
+        long skip = i - firstOf(cell);
+        for (long s = 0; s < skip; s++) {
+            random.nextDouble();
+            random.nextDouble();
+        }
+        point[0] = (cell % side + random.nextDouble()) / side;
+        point[1] = (cell / side + random.nextDouble()) / side;
+    }
+
+    // Returns the index of the first switch of the given cell; the first
+    // cells hold one switch more than the others.
+    private long firstOf(long cell) {
+        return cell * base + Math.min(cell, remainder);
+    }
+
+    // Returns the cell of the given switch.
+    private long cellOf(long i) {
+        long large = remainder * (base + 1);
+        return i < large ? i / (base + 1) : remainder + (i - large) / base;
+    }
+
+    private static double latitude(double y) {
+        return 70 - 140 * y;
+    }
+
+    private static double longitude(double x) {
+        return -170 + 340 * x;
+    }
+
+}
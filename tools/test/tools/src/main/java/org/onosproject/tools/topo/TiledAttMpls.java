@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.topo;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Copies of the AT&amp;T MPLS backbone of tools/test/topos/attmpls.json,
+ * tiled across the map and chained into a ring: the NY54 and ORLD switches
+ * of each copy are linked to the SNFN and SNDG switches of the next.
+ * <p>
+ * Hosts use ports 1 and up, backbone links the ports after those and the
+ * links between copies the port after the backbone links.
+ * </p>
+ */
+final class TiledAttMpls implements TopologyFamily {
+
+    private static final String[] NAMES = {
+            "CMBR", "CHCG", "CLEV", "RLGH", "ATLN", "PHLA", "WASH", "NSVL", "STLS",
+            "NWOR", "HSTN", "SNAN", "DLLS", "ORLD", "DNVR", "KSCY", "SNFN", "SCRM",
+            "PTLD", "STTL", "SLKC", "LA03", "SNDG", "PHNX", "NY54"
+    };
+
+    private static final double[][] LOCATIONS = {
+            {42.373730, -71.109734}, {41.877461, -87.642892}, {41.498928, -81.695217},
+            {35.780150, -78.644026}, {33.749017, -84.394168}, {39.952906, -75.172278},
+            {38.906696, -77.035509}, {36.166410, -86.787305}, {38.626418, -90.198143},
+            {29.951475, -90.078434}, {29.763249, -95.368332}, {29.424331, -98.491745},
+            {32.777665, -96.802064}, {28.538641, -81.381110}, {39.736623, -104.984887},
+            {39.100725, -94.581228}, {37.779751, -122.409791}, {38.581001, -121.497844},
+            {45.523317, -122.677768}, {47.607326, -122.331786}, {40.759577, -111.895079},
+            {34.056346, -118.235951}, {32.714564, -117.153528}, {33.448289, -112.076299},
+            {40.728270, -73.994483}
+    };
+
+    // Backbone links as pairs of switch numbers, s1 being CMBR.
+    private static final int[][] LINKS = {
+            {25, 1}, {25, 2}, {25, 6}, {25, 7}, {1, 6}, {2, 3}, {2, 6}, {2, 9}, {2, 15},
+            {2, 16}, {2, 17}, {2, 20}, {2, 21}, {3, 8}, {3, 9}, {3, 6}, {4, 5}, {4, 7},
+            {5, 7}, {5, 8}, {5, 9}, {5, 13}, {5, 14}, {6, 7}, {8, 9}, {8, 13}, {9, 13},
+            {9, 16}, {9, 22}, {10, 11}, {10, 13}, {10, 14}, {11, 12}, {11, 13}, {11, 14},
+            {12, 24}, {12, 13}, {13, 15}, {13, 16}, {13, 17}, {13, 22}, {15, 16},
+            {15, 17}, {15, 21}, {16, 17}, {17, 18}, {17, 19}, {17, 20}, {17, 21},
+            {17, 22}, {18, 21}, {19, 20}, {21, 22}, {22, 23}, {22, 24}, {23, 24}
+    };
+
+    // Switches linking a copy to the next one, and their peers in it.
+    private static final int[][] GATEWAYS = {{25, 17}, {14, 23}};
+
+    private static final double MIN_LAT = 28.5;
+    private static final double MAX_LAT = 47.7;
+    private static final double MIN_LON = -122.7;
+    private static final double MAX_LON = -71.1;
+
+    private final int tiles;
+    private final int hostsPerSwitch;
+    private final int columns;
+    private final int rows;
+    private final int[][] linkPorts = new int[LINKS.length][2];
+    private final int[] gatewayPorts = new int[NAMES.length];
+
+    /**
+     * Creates a tiled AT&amp;T MPLS topology.
+     *
+     * @param tiles          number of copies of the backbone
+     * @param hostsPerSwitch number of hosts per switch
+     */
+    TiledAttMpls(int tiles, int hostsPerSwitch) {
+        checkArgument(tiles > 0, "Number of tiles must be positive");
+        checkArgument(hostsPerSwitch >= 0, "Hosts per switch must not be negative");
+        this.tiles = tiles;
+        this.hostsPerSwitch = hostsPerSwitch;
+        this.columns = (int) Math.ceil(Math.sqrt(tiles));
+        this.rows = (tiles + columns - 1) / columns;
+
+        int[] next = new int[NAMES.length];
+        Arrays.fill(next, hostsPerSwitch + 1);
+        for (int i = 0; i < LINKS.length; i++) {
+            linkPorts[i][0] = next[LINKS[i][0] - 1]++;
+            linkPorts[i][1] = next[LINKS[i][1] - 1]++;
+        }
+        for (int[] gateway : GATEWAYS) {
+            gatewayPorts[gateway[0] - 1] = next[gateway[0] - 1]++;
+            gatewayPorts[gateway[1] - 1] = next[gateway[1] - 1]++;
+        }
+    }
+
+    @Override
+    public void generate(TopologyWriter writer) throws IOException {
+        for (int t = 0; t < tiles; t++) {
+            for (int s = 0; s < NAMES.length; s++) {
+                writer.device(device(t, s), name(t, s), latitude(t, LOCATIONS[s][0]),
+                              longitude(t, LOCATIONS[s][1]));
+            }
+        }
+
+        for (int t = 0; t < tiles; t++) {
+            for (int i = 0; i < LINKS.length; i++) {
+                writer.link(device(t, LINKS[i][0] - 1), linkPorts[i][0],
+                            device(t, LINKS[i][1] - 1), linkPorts[i][1]);
+            }
+        }
+        // Chain the copies, closing the ring if there are more than two.
+        int chained = tiles > 2 ? tiles : tiles - 1;
+        for (int t = 0; t < chained; t++) {
+            int u = (t + 1) % tiles;
+            for (int[] gateway : GATEWAYS) {
+                int s = gateway[0] - 1;
+                int d = gateway[1] - 1;
+                writer.link(device(t, s), gatewayPorts[s], device(u, d), gatewayPorts[d]);
+            }
+        }
+
+        for (int t = 0; t < tiles; t++) {
+            for (int s = 0; s < NAMES.length; s++) {
+                for (int h = 0; h < hostsPerSwitch; h++) {
+                    long host = device(t, s) * hostsPerSwitch + h;
+                    writer.host(host, device(t, s), 1 + h,
+                                latitude(t, LOCATIONS[s][0] + 1),
+                                longitude(t, LOCATIONS[s][1] + 1.5 + h));
+                }
+            }
+        }
+    }
+
+    // Returns the device index of the given switch of the given copy.
+    private static long device(int tile, int s) {
+        return (long) tile * NAMES.length + s;
+    }
+
+    private static String name(int tile, int s) {
+        return NAMES[s] + "-" + tile;
+    }
+
+    // Scales the copy into its cell of a grid spanning the map.
+    private double latitude(int tile, double latitude) {
+        double height = 140.0 / rows;
+        double top = 70 - (tile / columns) * height;
+        return top - 0.1 * height - 0.8 * height * (MAX_LAT - latitude) / (MAX_LAT - MIN_LAT);
+    }
+
+    private double longitude(int tile, double longitude) {
+        double width = 340.0 / columns;
+        double left = -170 + (tile % columns) * width;
+        return left + 0.1 * width +
+                0.8 * width * (longitude - MIN_LON) / (MAX_LON - MIN_LON);
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.topo;
+
+import java.io.IOException;
+
+/**
+ * Parameterized family of synthetic topologies.
+ * <p>
+ * Implementations compute every element from its index rather than
+ * building the topology in memory, so that arbitrarily large topologies
+ * can be streamed.
+ * </p>
+ */
+interface TopologyFamily {
+
+    /**
+     * Writes all devices, then all links, then all hosts of the topology.
+     *
+     * @param writer topology writer
+     * @throws IOException if the output cannot be written
+     */
+    void generate(TopologyWriter writer) throws IOException;
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.topo;
+
+import org.onosproject.tools.Arguments;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Generator of large synthetic topologies in the JSON format uploaded by
+ * onos-topo-cfg, for scale testing of device, link and host ingestion.
+ * <pre>
+ * Usage: TopologyGenerator --family fat-tree [--k 4] [--hosts n]
+ *        TopologyGenerator --family torus [--dims 10x10] [--hosts 1]
+ *        TopologyGenerator --family geometric [--switches 1000] [--degree 6]
+ *                          [--seed 1] [--hosts 1]
+ *        TopologyGenerator --family attmpls [--tiles 1] [--hosts 1]
+ *
+ *        [--output file] [--chunk n]
+ * </pre>
+ * <p>
+ * The topology is written to standard output, or to the output file;
+ * with {@code --chunk}, it is split into numbered files of at most n
+ * elements each, which can be uploaded in order.
+ * </p>
+ */
+public final class TopologyGenerator {
+
+    private TopologyGenerator() {
+    }
+
+    /**
+     * Runs the topology generator.
+     *
+     * @param args command-line arguments
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments;
+        TopologyFamily family;
+        try {
+            arguments = Arguments.parse(args);
+            family = family(arguments);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        boolean toFile = arguments.has("output");
+        TopologyWriter writer = toFile ?
+                new TopologyWriter(new File(arguments.get("output", null)),
+                                   arguments.getLong("chunk", 0)) :
+                new TopologyWriter(System.out);
+        try {
+            family.generate(writer);
+        } finally {
+            writer.close();
+        }
+        if (toFile) {
+            long[] counts = writer.counts();
+            System.err.printf("%d devices, %d links, %d hosts in %d file(s)%n",
+                              counts[0], counts[1], counts[2], writer.files().size());
+        }
+    }
+
+    // Returns the topology family given on the command line.
+    private static TopologyFamily family(Arguments arguments) {
+        String family = arguments.get("family", "fat-tree");
+        switch (family) {
+            case "fat-tree":
+                int k = arguments.getInt("k", 4);
+                return new FatTree(k, arguments.getInt("hosts", k / 2));
+            case "torus":
+                return new Torus(dimensions(arguments.get("dims", "10x10")),
+                                 arguments.getInt("hosts", 1));
+            case "geometric":
+                return new RandomGeometric(arguments.getLong("switches", 1000),
+                                           arguments.getDouble("degree", 6),
+                                           arguments.getLong("seed", 1),
+                                           arguments.getInt("hosts", 1));
+            case "attmpls":
+                return new TiledAttMpls(arguments.getInt("tiles", 1),
+                                        arguments.getInt("hosts", 1));
+            default:
+                throw new IllegalArgumentException("Unknown topology family " + family);
+        }
+    }
+
+    // Parses dimensions such as 10x10x4.
+    private static int[] dimensions(String value) {
+        String[] parts = value.split("x");
+        int[] dims = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                dims[i] = Integer.parseInt(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid torus dimensions " + value);
+        }
+        return dims;
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.topo;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Streaming writer of topology configuration in the JSON format accepted
+ * by onos-topo-cfg, i.e. by the ONOS topology configuration REST API.
+ * <p>
+ * Elements are written as they are produced, so that memory use does not
+ * depend on the size of the topology. The output may be split into chunk
+ * files holding a bounded number of elements each; as all devices are
+ * written before the links and hosts referring to them, uploading the
+ * chunks in order never refers to a device not yet known.
+ * </p>
+ */
+final class TopologyWriter implements AutoCloseable {
+
+    private static final String[] SECTIONS = {"devices", "links", "hosts"};
+    private static final int DEVICES = 0;
+    private static final int LINKS = 1;
+    private static final int HOSTS = 2;
+
+    private final JsonFactory factory = new JsonFactory();
+    private final File base;
+    private final OutputStream stream;
+    private final long chunkSize;
+    private final List<File> files = newArrayList();
+
+    private JsonGenerator generator;
+    private int section = -1;
+    private long inChunk;
+    private final long[] counts = new long[SECTIONS.length];
+
+    /**
+     * Creates a writer of a single JSON document to the given stream.
+     *
+     * @param stream output stream; not closed by the writer
+     */
+    TopologyWriter(OutputStream stream) {
+        this.base = null;
+        this.stream = stream;
+        this.chunkSize = Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates a writer of JSON files; with a chunk size, the files are
+     * named after the given one with a sequence number appended to the
+     * base name, e.g. topo-0001.json.
+     *
+     * @param file      output file
+     * @param chunkSize maximum number of elements per file; 0 for a
+     *                  single file
+     */
+    TopologyWriter(File file, long chunkSize) {
+        this.base = file;
+        this.stream = null;
+        this.chunkSize = chunkSize > 0 ? chunkSize : Long.MAX_VALUE;
+    }
+
+    /**
+     * Writes a switch.
+     *
+     * @param index     device index, starting at 0
+     * @param name      device name
+     * @param latitude  latitude for the topology view
+     * @param longitude longitude for the topology view
+     * @throws IOException if the output cannot be written
+     */
+    void device(long index, String name, double latitude, double longitude)
+            throws IOException {
+        start(DEVICES);
+        generator.writeStartObject();
+        generator.writeStringField("alias", "s" + (index + 1));
+        generator.writeStringField("uri", uri(index));
+        generator.writeStringField("mac", String.format("%012x", index + 1));
+        annotations(name, latitude, longitude);
+        generator.writeStringField("type", "SWITCH");
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes a link between two device ports.
+     *
+     * @param src     source device index
+     * @param srcPort source port number
+     * @param dst     destination device index
+     * @param dstPort destination port number
+     * @throws IOException if the output cannot be written
+     */
+    void link(long src, int srcPort, long dst, int dstPort) throws IOException {
+        start(LINKS);
+        generator.writeStartObject();
+        generator.writeStringField("src", uri(src) + "/" + srcPort);
+        generator.writeStringField("dst", uri(dst) + "/" + dstPort);
+        generator.writeStringField("type", "DIRECT");
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes a host attached to a device port.
+     *
+     * @param index     host index, starting at 0
+     * @param device    index of the device the host is attached to
+     * @param port      port number of the attachment
+     * @param latitude  latitude for the topology view
+     * @param longitude longitude for the topology view
+     * @throws IOException if the output cannot be written
+     */
+    void host(long index, long device, int port, double latitude, double longitude)
+            throws IOException {
+        long n = index + 1;
+        start(HOSTS);
+        generator.writeStartObject();
+        generator.writeStringField("alias", "h" + n);
+        generator.writeStringField("mac", String.format(
+                "%02x:%02x:%02x:%02x:%02x:%02x", (n >> 40) & 0xff, (n >> 32) & 0xff,
+                (n >> 24) & 0xff, (n >> 16) & 0xff, (n >> 8) & 0xff, n & 0xff));
+        generator.writeNumberField("vlan", -1);
+        generator.writeStringField("location", uri(device) + "/" + port);
+        generator.writeStringField("ip", String.format(
+                "10.%d.%d.%d", (n >> 16) & 0xff, (n >> 8) & 0xff, n & 0xff));
+        annotations("h" + n, latitude, longitude);
+        generator.writeEndObject();
+    }
+
+    // Writes the name and location annotations.
+    private void annotations(String name, double latitude, double longitude)
+            throws IOException {
+        generator.writeObjectFieldStart("annotations");
+        generator.writeStringField("name", name);
+        generator.writeNumberField("latitude", Math.round(latitude * 1e6) / 1e6);
+        generator.writeNumberField("longitude", Math.round(longitude * 1e6) / 1e6);
+        generator.writeEndObject();
+    }
+
+    // Returns the device URI of the given device index.
+    private static String uri(long index) {
+        return String.format("of:%016x", index + 1);
+    }
+
+    // Prepares for writing an element of the given section, starting a
+    // new chunk if the current one is full.
+    private void start(int next) throws IOException {
+        checkState(next >= section, "Devices, links and hosts must be written in order");
+        if (generator != null && inChunk >= chunkSize) {
+            finishChunk();
+        }
+        if (generator == null) {
+            startChunk();
+        }
+        if (next != section) {
+            if (section >= 0) {
+                generator.writeEndArray();
+            }
+            section = next;
+            generator.writeArrayFieldStart(SECTIONS[section]);
+        }
+        inChunk++;
+        counts[next]++;
+    }
+
+    // Opens the next chunk.
+    private void startChunk() throws IOException {
+        if (stream != null) {
+            generator = factory.createGenerator(stream, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } else {
+            File file = chunkSize == Long.MAX_VALUE ? base : chunkFile(files.size() + 1);
+            files.add(file);
+            generator = factory.createGenerator(file, JsonEncoding.UTF8);
+        }
+        generator.useDefaultPrettyPrinter();
+        generator.writeStartObject();
+        if (section >= 0) {
+            generator.writeArrayFieldStart(SECTIONS[section]);
+        }
+        inChunk = 0;
+    }
+
+    // Closes the current chunk.
+    private void finishChunk() throws IOException {
+        if (section >= 0) {
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        generator.close();
+        generator = null;
+    }
+
+    // Returns the name of the chunk file with the given sequence number.
+    private File chunkFile(int sequence) {
+        String name = base.getName();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : ".json";
+        return new File(base.getParentFile(), String.format("%s-%04d%s", stem, sequence,
+                                                            extension));
+    }
+
+    /**
+     * Returns the files written.
+     *
+     * @return output files in order; empty when writing to a stream
+     */
+    List<File> files() {
+        return files;
+    }
+
+    /**
+     * Returns the number of devices, links and hosts written.
+     *
+     * @return element counts, in that order
+     */
+    long[] counts() {
+        return counts.clone();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (generator == null) {
+            startChunk();
+        }
+        finishChunk();
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.topo;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Torus of any number of dimensions, in which every switch is linked to
+ * its successor along each dimension, wrapping around at the end.
+ * <p>
+ * Along dimension d, port 2d+1 leads to the successor and port 2d+2 to the
+ * predecessor; hosts use the ports after those.
+ * </p>
+ */
+final class Torus implements TopologyFamily {
+
+    private final int[] dims;
+    private final int hostsPerSwitch;
+    private final long size;
+
+    /**
+     * Creates a torus topology.
+     *
+     * @param dims           number of switches along each dimension
+     * @param hostsPerSwitch number of hosts per switch
+     */
+    Torus(int[] dims, int hostsPerSwitch) {
+        checkArgument(dims.length > 0, "Torus needs at least one dimension");
+        long n = 1;
+        for (int dim : dims) {
+            checkArgument(dim > 0, "Torus dimensions must be positive");
+            n *= dim;
+        }
+        checkArgument(hostsPerSwitch >= 0, "Hosts per switch must not be negative");
+        this.dims = dims.clone();
+        this.hostsPerSwitch = hostsPerSwitch;
+        this.size = n;
+    }
+
+    @Override
+    public void generate(TopologyWriter writer) throws IOException {
+        int[] coords = new int[dims.length];
+        for (long i = 0; i < size; i++) {
+            coordinates(i, coords);
+            StringBuilder name = new StringBuilder("t");
+            for (int c : coords) {
+                name.append('-').append(c);
+            }
+            writer.device(i, name.toString(), latitude(coords), longitude(coords));
+        }
+
+        for (long i = 0; i < size; i++) {
+            coordinates(i, coords);
+            long stride = 1;
+            for (int d = 0; d < dims.length; d++) {
+                // A dimension of size one has no neighbours; along a
+                // dimension of size two, both directions lead to the same
+                // neighbour, which is linked on both port pairs.
+                if (dims[d] > 1) {
+                    long next = coords[d] + 1 < dims[d] ? i + stride :
+                            i - stride * (dims[d] - 1);
+                    writer.link(i, 2 * d + 1, next, 2 * d + 2);
+                }
+                stride *= dims[d];
+            }
+        }
+
+        int firstHostPort = 2 * dims.length + 1;
+        for (long i = 0; i < size; i++) {
+            coordinates(i, coords);
+            for (int h = 0; h < hostsPerSwitch; h++) {
+                writer.host(i * hostsPerSwitch + h, i, firstHostPort + h,
+                            latitude(coords) - 0.2, longitude(coords) + 0.2 * h);
+            }
+        }
+    }
+
+    // Computes the coordinates of the given switch; the first dimension
+    // varies fastest.
+    private void coordinates(long index, int[] coords) {
+        long rest = index;
+        for (int d = 0; d < dims.length; d++) {
+            coords[d] = (int) (rest % dims[d]);
+            rest /= dims[d];
+        }
+    }
+
+    // Lays out the first dimension horizontally and the others vertically.
+    private double longitude(int[] coords) {
+        return -170 + 340.0 * (coords[0] + 0.5) / dims[0];
+    }
+
+    private double latitude(int[] coords) {
+        long rows = size / dims[0];
+        long row = 0;
+        long stride = 1;
+        for (int d = 1; d < dims.length; d++) {
+            row += coords[d] * stride;
+            stride *= dims[d];
+        }
+        return 70 - 140.0 * (row + 0.5) / rows;
+    }
+
+}
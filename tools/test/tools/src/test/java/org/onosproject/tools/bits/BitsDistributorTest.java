@@ -0,0 +1,228 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.bits;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.onosproject.tools.Arguments;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the distribution of files to local endpoints.
+ */
+public class BitsDistributorTest {
+
+    private static final String TARGET = "/opt/onos.tar.gz";
+    private static final String STORE = "/tmp/onos-chunks";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File source;
+    private byte[] content;
+    private String output;
+    private String errors;
+
+    @Before
+    public void setUp() throws IOException {
+        source = folder.newFile("onos.tar.gz");
+        content = random(2 * 1024 * 1024, 1);
+        write(source, content);
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        File node = folder.newFolder("node");
+        String output = distribute(false, node);
+        assertTrue("nothing sent", output.contains("sent "));
+        assertArrayEquals("incorrect content", content, read(new File(node, TARGET)));
+        assertEquals("incorrect digest", Manifest.of(source, chunker()).digest,
+                     Files.toString(new File(node, TARGET + ".sha1"), Charsets.UTF_8).trim());
+        assertTrue("store not pruned", chunks(node).equals(manifest().distinct()));
+
+        output = distribute(false, node);
+        assertTrue("copy not up-to-date", output.contains("up-to-date"));
+    }
+
+    @Test
+    public void uncompressed() throws Exception {
+        byte[] plain = random(512 * 1024, 2);
+        Files.write(plain, source);
+        File node = folder.newFolder("node");
+        distribute(false, node);
+        assertArrayEquals("incorrect copy", plain, Files.toByteArray(new File(node, TARGET)));
+    }
+
+    @Test
+    public void pruning() throws Exception {
+        File node = folder.newFolder("node");
+        distribute(false, node);
+        Set<String> first = chunks(node);
+
+        // A new version of the file differing in a small part only
+        byte[] changed = content.clone();
+        System.arraycopy(random(1000, 3), 0, changed, content.length / 2, 1000);
+        write(source, changed);
+        String output = distribute(false, node);
+        assertArrayEquals("incorrect content", changed, read(new File(node, TARGET)));
+
+        Set<String> second = chunks(node);
+        assertEquals("store not pruned", manifest().distinct(), second);
+        assertTrue("unchanged chunks not kept", Sets.intersection(first, second).size() >=
+                second.size() - 2);
+        assertTrue("more than the change sent", output.contains("sent 1 of ") ||
+                output.contains("sent 2 of "));
+    }
+
+    @Test
+    public void damagedStore() throws Exception {
+        File node = folder.newFolder("node");
+        distribute(false, node);
+        // Damage a chunk and the copy, so that the next round must
+        // reassemble the file and detect the damage.
+        File chunk = new File(new File(node, STORE), chunks(node).iterator().next());
+        Files.write("damaged".getBytes(Charsets.UTF_8), chunk);
+        new File(node, TARGET + ".sha1").delete();
+        distribute(false, node);
+        assertArrayEquals("incorrect content", content, read(new File(node, TARGET)));
+    }
+
+    @Test
+    public void relay() throws Exception {
+        File proxy = folder.newFolder("proxy");
+        File node = folder.newFolder("node");
+        distribute(true, proxy, node);
+        assertArrayEquals("incorrect content on proxy", content, read(new File(proxy, TARGET)));
+        assertArrayEquals("incorrect content on node", content, read(new File(node, TARGET)));
+        assertEquals("incorrect chunks on node", chunks(proxy), chunks(node));
+
+        // The node is served from the store of the proxy, not from the
+        // source; without the chunks there, it cannot be brought up to date.
+        byte[] changed = content.clone();
+        System.arraycopy(random(1000, 4), 0, changed, 0, 1000);
+        write(source, changed);
+        distribute(false, proxy);
+        new File(node, TARGET + ".sha1").delete();
+        File[] stored = new File(proxy, STORE).listFiles();
+        for (File file : stored) {
+            file.delete();
+        }
+        assertTrue("node served without chunks on proxy", !run(true, proxy, node));
+        assertTrue("failure not reported", errors.contains("Unable to reassemble"));
+    }
+
+    // Distributes the source to the given local nodes, failing if the
+    // distribution fails; returns the output.
+    private String distribute(boolean relay, File... nodes) throws Exception {
+        assertTrue("distribution failed: " + errors, run(relay, nodes));
+        return output;
+    }
+
+    // Distributes the source to the given local nodes; the output and the
+    // error output, expected for failing distributions, are kept aside.
+    private boolean run(boolean relay, File... nodes) throws Exception {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outBytes, true, "UTF-8"));
+        System.setErr(new PrintStream(errBytes, true, "UTF-8"));
+        try {
+            return distributeTo(relay, nodes);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+            output = outBytes.toString("UTF-8");
+            errors = errBytes.toString("UTF-8");
+        }
+    }
+
+    // Distributes the source to the given local nodes.
+    private boolean distributeTo(boolean relay, File... nodes) throws Exception {
+        List<String> args = Lists.newArrayList("--source", source.getPath(),
+                                               "--target", TARGET, "--chunk-kb", "16");
+        for (File node : nodes) {
+            args.add("--node");
+            args.add("local:" + node.getPath());
+        }
+        if (relay) {
+            args.add("--relay");
+        }
+        return BitsDistributor.run(Arguments.parse(args.toArray(new String[0]), "relay"));
+    }
+
+    // Returns the chunker matching the distribution arguments.
+    private static Chunker chunker() {
+        return Chunker.averaging(16 * 1024);
+    }
+
+    // Returns the manifest of the source.
+    private Manifest manifest() throws IOException {
+        return Manifest.of(source, chunker());
+    }
+
+    // Returns the names of the chunks in the store of the node.
+    private static Set<String> chunks(File node) {
+        String[] names = new File(node, STORE).list();
+        return names == null ? Sets.newHashSet() : Sets.newHashSet(names);
+    }
+
+    // Writes the given content gzip-compressed to the file.
+    private static void write(File file, byte[] data) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            out.write(data);
+        }
+    }
+
+    // Reads the decompressed content of the file.
+    private static byte[] read(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    // Returns random data of the given length.
+    private static byte[] random(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.bits;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the content-defined chunker.
+ */
+public class ChunkerTest {
+
+    private final Chunker chunker = Chunker.averaging(4096);
+
+    @Test
+    public void sizes() throws IOException {
+        byte[] data = random(1024 * 1024, 1);
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        List<Integer> sizes = Lists.newArrayList();
+        chunker.split(new ByteArrayInputStream(data), (chunk, length) -> {
+            joined.write(chunk, 0, length);
+            sizes.add(length);
+        });
+
+        assertArrayEquals("chunks do not add up", data, joined.toByteArray());
+        for (int i = 0; i < sizes.size(); i++) {
+            assertTrue("oversized chunk", sizes.get(i) <= 8 * 4096);
+            assertTrue("undersized chunk", sizes.get(i) >= 1024 || i == sizes.size() - 1);
+        }
+        assertTrue("chunks not near average size", sizes.size() > 100 && sizes.size() < 400);
+    }
+
+    @Test
+    public void insertion() throws IOException {
+        byte[] data = random(1024 * 1024, 2);
+        byte[] inserted = random(100, 3);
+        byte[] changed = new byte[data.length + inserted.length];
+        int at = data.length / 2;
+        System.arraycopy(data, 0, changed, 0, at);
+        System.arraycopy(inserted, 0, changed, at, inserted.length);
+        System.arraycopy(data, at, changed, at + inserted.length, data.length - at);
+
+        List<String> before = chunks(data);
+        List<String> after = chunks(changed);
+        List<String> unchanged = Lists.newArrayList(after);
+        unchanged.retainAll(before);
+        // Only the chunks around the insertion may differ.
+        assertTrue("boundaries not stable", unchanged.size() >= before.size() - 2);
+        assertTrue("insertion not detected", unchanged.size() < after.size());
+    }
+
+    // Returns the digests of the chunks of the given data.
+    private List<String> chunks(byte[] data) throws IOException {
+        List<String> names = Lists.newArrayList();
+        chunker.split(new ByteArrayInputStream(data), (chunk, length) ->
+                names.add(Hashing.sha1().hashBytes(chunk, 0, length).toString()));
+        return names;
+    }
+
+    // Returns random data of the given length.
+    private static byte[] random(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+}
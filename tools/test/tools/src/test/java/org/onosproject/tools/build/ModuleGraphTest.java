@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.build;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Set of tests of the module graph, on a small fixture reactor.
+ */
+public class ModuleGraphTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("reactor");
+        pom("", "root", "pom", "<modules><module>api</module><module>core</module>" +
+                "<module>app</module><module>web</module><module>util</module></modules>");
+        pom("api", "api", "jar", "");
+        pom("core", "core", "jar", dependency("api"));
+        pom("web", "web", "jar", dependency("core"));
+        pom("util", "util", "jar", "");
+        pom("app", "app", "bundle", "<properties><onos.app.name>org.test.app" +
+                "</onos.app.name></properties>" + dependency("api"));
+        write("app/src/main/resources/app.xml",
+              "<app name=\"org.test.app\"><artifact>mvn:${project.groupId}/core/1.0" +
+                      "</artifact></app>");
+    }
+
+    @Test
+    public void modules() throws IOException {
+        ModuleGraph graph = ModuleGraph.scan(root);
+        assertEquals("incorrect modules", ImmutableList.of("root", "api", "core", "app", "web",
+                                                           "util"),
+                     graph.modules().stream().map(Module::artifactId)
+                             .collect(Collectors.toList()));
+        assertEquals("incorrect module", "core",
+                     graph.moduleOf("core/src/main/java/Core.java").artifactId());
+        assertEquals("incorrect module", "root", graph.moduleOf("pom.xml").artifactId());
+        assertNull("aggregator input", graph.moduleOf("README.md"));
+        assertNull("build output input", graph.moduleOf("core/target/core-1.0.jar"));
+    }
+
+    @Test
+    public void affected() throws IOException {
+        ModuleGraph graph = ModuleGraph.scan(root);
+        assertEquals("incorrect affected modules", ImmutableList.of("api", "core", "app", "web"),
+                     names(graph.affected(modules(graph, "api"))));
+        // The app embeds the core in its archive.
+        assertEquals("incorrect affected modules", ImmutableList.of("core", "app", "web"),
+                     names(graph.affected(modules(graph, "core"))));
+        assertEquals("incorrect affected modules", ImmutableList.of("util"),
+                     names(graph.affected(modules(graph, "util"))));
+        assertEquals("incorrect affected modules", graph.modules().size(),
+                     graph.affected(modules(graph, "root")).size());
+    }
+
+    @Test
+    public void waves() throws IOException {
+        ModuleGraph graph = ModuleGraph.scan(root);
+        List<List<Module>> waves = graph.waves(graph.affected(modules(graph, "api", "util")));
+        assertEquals("incorrect wave count", 3, waves.size());
+        assertEquals("incorrect wave", ImmutableList.of("api", "util"), names(waves.get(0)));
+        assertEquals("incorrect wave", ImmutableList.of("core"), names(waves.get(1)));
+        assertEquals("incorrect wave", ImmutableList.of("app", "web"), names(waves.get(2)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cycle() throws IOException {
+        pom("api", "api", "jar", dependency("core"));
+        ModuleGraph graph = ModuleGraph.scan(root);
+        graph.waves(graph.affected(modules(graph, "api")));
+    }
+
+    @Test
+    public void cache() throws IOException {
+        File cache = new File(folder.getRoot(), "graph.json");
+        ObjectMapper mapper = new ObjectMapper();
+        ModuleGraph.load(root, cache, mapper);
+        ModuleGraph graph = ModuleGraph.load(root, cache, mapper);
+        assertEquals("incorrect cached graph", ImmutableList.of("core", "app", "web"),
+                     names(graph.affected(modules(graph, "core"))));
+
+        pom("util", "util", "jar", dependency("web"));
+        graph = ModuleGraph.load(root, cache, mapper);
+        assertEquals("stale cached graph", ImmutableList.of("core", "app", "web", "util"),
+                     names(graph.affected(modules(graph, "core"))));
+    }
+
+    // Returns the modules with the given artifact identifiers.
+    private static Set<Module> modules(ModuleGraph graph, String... artifactIds) {
+        Set<String> ids = ImmutableSet.copyOf(artifactIds);
+        return graph.modules().stream().filter(m -> ids.contains(m.artifactId()))
+                .collect(Collectors.toSet());
+    }
+
+    // Returns the artifact identifiers of the given modules.
+    private static List<String> names(Iterable<Module> modules) {
+        return ImmutableList.copyOf(modules).stream().map(Module::artifactId)
+                .collect(Collectors.toList());
+    }
+
+    // Writes the descriptor of a project in the given directory.
+    private void pom(String dir, String artifactId, String packaging, String more)
+            throws IOException {
+        String parent = dir.isEmpty() ? "" : "<parent><groupId>org.test</groupId>" +
+                "<artifactId>root</artifactId><version>1.0</version></parent>";
+        write(dir.isEmpty() ? "pom.xml" : dir + "/pom.xml",
+              "<project>" + parent + "<groupId>org.test</groupId><artifactId>" + artifactId +
+                      "</artifactId><version>1.0</version><packaging>" + packaging +
+                      "</packaging>" + more + "</project>");
+    }
+
+    // Returns a dependency on the given project.
+    private static String dependency(String artifactId) {
+        return "<dependencies><dependency><groupId>${project.groupId}</groupId>" +
+                "<artifactId>" + artifactId + "</artifactId></dependency></dependencies>";
+    }
+
+    // Writes the given file of the reactor.
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.health;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.onosproject.tools.Arguments;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the cluster probe, run against stub nodes.
+ */
+public class ClusterProbeTest {
+
+    private static final String[] NODES = {"10.0.0.1", "10.0.0.2", "10.0.0.3"};
+    private static final String ALL = "start,logs,components,apps,nodes,summary";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void pass() throws Exception {
+        ObjectNode verdict = probe(ALL, 30, "--stub-start-ms", "300");
+        assertTrue("probe failed", verdict.path("ok").asBoolean());
+        for (String node : NODES) {
+            JsonNode checks = verdict.path("nodes").path(node).path("checks");
+            assertEquals("incorrect checks", 6, checks.size());
+            checks.forEach(c -> assertEquals("check not passed", "pass",
+                                             c.path("status").asText()));
+        }
+        JsonNode start = verdict.path("nodes").path(NODES[0]).path("checks").path("start");
+        assertTrue("start not retried", start.path("attempts").asInt() > 1);
+    }
+
+    @Test
+    public void fault() throws Exception {
+        ObjectNode verdict = probe(ALL, 30, "--stub-fail", NODES[1] + ":logs");
+        assertFalse("fault not detected", verdict.path("ok").asBoolean());
+        assertEquals("incorrect failure", NODES[1] + "/logs",
+                     verdict.path("failed").get(0).asText());
+        assertEquals("incorrect status", "fail", verdict.path("nodes").path(NODES[1])
+                .path("checks").path("logs").path("status").asText());
+        assertTrue("probe not ended by failure", verdict.path("elapsedMs").asLong() < 10_000);
+    }
+
+    @Test
+    public void unexpectedApps() throws Exception {
+        ObjectNode verdict = probe("apps", 30, "--stub-fail", NODES[0] + ":apps");
+        assertFalse("fault not detected", verdict.path("ok").asBoolean());
+        assertEquals("incorrect status", "fail", verdict.path("nodes").path(NODES[0])
+                .path("checks").path("apps").path("status").asText());
+        assertTrue("probe not ended by failure", verdict.path("elapsedMs").asLong() < 10_000);
+    }
+
+    @Test
+    public void summaryMismatch() throws Exception {
+        ObjectNode verdict = probe("summary", 30, "--stub-fail", NODES[2] + ":summary",
+                                   "--expect", "devices=4");
+        assertFalse("fault not detected", verdict.path("ok").asBoolean());
+        JsonNode checks = verdict.path("nodes").path(NODES[2]).path("checks");
+        assertEquals("start not required", "pass", checks.path("start").path("status").asText());
+        assertEquals("incorrect status", "fail", checks.path("summary").path("status").asText());
+        assertTrue("probe not ended by failure", verdict.path("elapsedMs").asLong() < 10_000);
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        ObjectNode verdict = probe(ALL, 1, "--stub-fail", NODES[0] + ":nodes");
+        assertFalse("timeout not detected", verdict.path("ok").asBoolean());
+        JsonNode checks = verdict.path("nodes").path(NODES[0]).path("checks");
+        assertEquals("incorrect status", "timeout", checks.path("nodes").path("status").asText());
+        assertTrue("check not retried", checks.path("nodes").path("attempts").asInt() > 1);
+        assertTrue("deadline not honoured", verdict.path("elapsedMs").asLong() >= 1000);
+        assertEquals("later checks not skipped", "skipped",
+                     checks.path("logs").path("status").asText());
+    }
+
+    // Probes the stub nodes with the given checks, timeout in seconds and
+    // further arguments.
+    private ObjectNode probe(String checks, int timeout, String... more) throws Exception {
+        List<String> args = Lists.newArrayList("--stub", "--stub-latency-ms", "5",
+                                               "--checks", checks,
+                                               "--timeout", Integer.toString(timeout));
+        for (String node : NODES) {
+            args.add("--node");
+            args.add(node);
+        }
+        args.addAll(Lists.newArrayList(more));
+        return ClusterProbe.probe(Arguments.parse(args.toArray(new String[0]), "stub"), mapper);
+    }
+
+}
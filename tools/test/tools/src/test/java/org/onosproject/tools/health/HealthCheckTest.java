@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.health;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.onosproject.tools.health.HealthCheck.Outcome;
+import org.onosproject.tools.health.HealthCheck.Outcome.Status;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Set of tests of the evaluation of the health checks, on the output of
+ * the Karaf and ONOS commands.
+ */
+public class HealthCheckTest {
+
+    private static final ProbeContext CONTEXT = new ProbeContext(
+            "/opt/onos/bin/onos", "/opt/onos/log/karaf.log",
+            ImmutableSet.of("org.onosproject.drivers", "org.onosproject.openflow"),
+            ImmutableSet.of("10.128.11.1", "10.128.11.2", "10.128.11.3"),
+            ImmutableMap.of("nodes", "3", "devices", "25", "links", "112"));
+
+    private static final String BUNDLES =
+            "START LEVEL 100 , List Threshold: 50\n" +
+            " ID | State    | Lvl | Version          | Name\n" +
+            "----------------------------------------------------------------------\n" +
+            " 56 | Active   |  80 | 1.2.2.SNAPSHOT   | onlab-misc\n" +
+            " 57 | Active   |  80 | 1.2.2.SNAPSHOT   | onos-api\n" +
+            " 70 | Resolved |  80 | 1.2.2.SNAPSHOT   | onos-of-api-fragment, " +
+            "Hosts: 71\n" +
+            " 71 | Active   |  80 | 1.2.2.SNAPSHOT   | onos-of-api\n";
+
+    private static final String COMPONENTS =
+            "   ID | State             | Component Name\n" +
+            "--------------------------------------------------------------\n" +
+            "[   1] [ACTIVE            ] org.onosproject.store.cluster.impl." +
+            "DistributedClusterStore\n" +
+            "[   2] [ACTIVE            ] org.onosproject.net.device.impl.DeviceManager\n" +
+            "[  28] [DISABLED          ] org.onosproject.net.intent.impl.ObjectiveTracker\n";
+
+    private static final String APPS =
+            "*   4 org.onosproject.drivers          1.2.2.SNAPSHOT Default device drivers\n" +
+            "*  11 org.onosproject.openflow         1.2.2.SNAPSHOT OpenFlow protocol " +
+            "southbound providers\n";
+
+    private static final String NODES =
+            "id=10.128.11.1, address=10.128.11.1:9876, state=ACTIVE *\n" +
+            "id=10.128.11.2, address=10.128.11.2:9876, state=ACTIVE \n" +
+            "id=10.128.11.3, address=10.128.11.3:9876, state=ACTIVE \n";
+
+    private static final String SUMMARY =
+            "node=10.128.11.1, version=1.2.2.SNAPSHOT\n" +
+            "nodes=3, devices=25, links=112, hosts=0, SCC(s)=1, paths=300, flows=0, " +
+            "intents=0\n";
+
+    @Test
+    public void start() {
+        assertEquals(Status.PASS, status(HealthCheck.START, BUNDLES));
+        assertEquals(Status.PENDING, status(HealthCheck.START,
+                                            BUNDLES.replace("LEVEL 100", "LEVEL 80")));
+        assertEquals(Status.PENDING, status(HealthCheck.START,
+                                            BUNDLES.replace("71 | Active  ", "71 | Waiting ")));
+        Outcome outcome = HealthCheck.START.evaluate(BUNDLES, CONTEXT);
+        assertEquals("incorrect active count", 3, outcome.detail.path("Active").asInt());
+        assertEquals("incorrect resolved count", 1, outcome.detail.path("Resolved").asInt());
+    }
+
+    @Test
+    public void logs() {
+        assertEquals(Status.PASS, status(HealthCheck.LOGS, ""));
+        Outcome outcome = HealthCheck.LOGS.evaluate(
+                "2015-06-04 15:31:12,123 | ERROR | event-dispatch | DeviceManager | " +
+                        "Unable to process event\n" +
+                        "java.lang.NullPointerException\n", CONTEXT);
+        assertEquals(Status.FAIL, outcome.status);
+        assertEquals("incorrect error count", 2, outcome.detail.path("errors").asInt());
+    }
+
+    @Test
+    public void components() {
+        assertEquals(Status.PASS, status(HealthCheck.COMPONENTS, COMPONENTS));
+        assertEquals(Status.PENDING, status(HealthCheck.COMPONENTS, COMPONENTS.replace(
+                "[   2] [ACTIVE            ]", "[   2] [UNSATISFIED       ]")));
+        assertEquals(Status.PENDING, status(HealthCheck.COMPONENTS, ""));
+        // Tabular format of later Karaf versions
+        assertEquals(Status.PASS, status(HealthCheck.COMPONENTS,
+                                         " ID | State  | Component Name\n" +
+                                                 "------------------------------\n" +
+                                                 " 1  | ACTIVE | org.onosproject.Foo\n"));
+    }
+
+    @Test
+    public void apps() {
+        assertEquals(Status.PASS, status(HealthCheck.APPS, APPS));
+        assertEquals(Status.PENDING, status(HealthCheck.APPS, APPS.split("\n")[0]));
+        assertEquals(Status.FAIL, status(HealthCheck.APPS, APPS +
+                "*  12 org.onosproject.fwd              1.2.2.SNAPSHOT Reactive forwarding\n"));
+    }
+
+    @Test
+    public void nodes() {
+        assertEquals(Status.PASS, status(HealthCheck.NODES, NODES));
+        assertEquals(Status.PENDING, status(HealthCheck.NODES,
+                                            NODES.replace("11.3:9876, state=ACTIVE",
+                                                          "11.3:9876, state=INACTIVE")));
+        assertEquals(Status.FAIL, status(HealthCheck.NODES,
+                                         NODES.replace("10.128.11.3", "10.128.11.4")));
+    }
+
+    @Test
+    public void summary() {
+        assertEquals(Status.PASS, status(HealthCheck.SUMMARY, SUMMARY));
+        assertEquals(Status.PENDING, status(HealthCheck.SUMMARY, ""));
+        assertEquals(Status.PENDING, status(HealthCheck.SUMMARY,
+                                            SUMMARY.replace("devices=25", "devices=20")));
+        assertEquals(Status.FAIL, status(HealthCheck.SUMMARY,
+                                         SUMMARY.replace("devices=25", "devices=26")));
+        assertEquals(Status.FAIL, status(HealthCheck.SUMMARY,
+                                         SUMMARY.replace("nodes=3", "nodes=1")));
+    }
+
+    // Returns the status of the check evaluated on the given output.
+    private static Status status(HealthCheck check, String output) {
+        return check.evaluate(output, CONTEXT).status;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.intentperf;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ObjectArrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.tools.intentperf.ThroughputParserTest.FIRST;
+import static org.onosproject.tools.intentperf.ThroughputParserTest.SECOND;
+
+/**
+ * Set of tests of the intent throughput collector.
+ */
+public class IntentPerfCollectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void persistedOffsets() throws Exception {
+        Path log = folder.newFile("karaf.log").toPath();
+        Path state = folder.getRoot().toPath().resolve("state");
+        Files.write(log, FIRST.getBytes(Charsets.US_ASCII));
+        collect(log, state);
+        assertEquals("incorrect offset", FIRST.length(), offset(state));
+
+        Files.write(log, SECOND.getBytes(Charsets.US_ASCII), StandardOpenOption.APPEND);
+        collect(log, state);
+        assertEquals("incorrect offset", FIRST.length() + SECOND.length(), offset(state));
+        assertEquals("samples read again", 2, Files.readAllLines(state.resolve("n1.samples"),
+                                                                 Charsets.UTF_8).size());
+
+        collect(log, state);
+        assertEquals("samples read again", 2, Files.readAllLines(state.resolve("n1.samples"),
+                                                                 Charsets.UTF_8).size());
+    }
+
+    @Test
+    public void perfLogs() throws Exception {
+        Path log = folder.newFile("karaf.log").toPath();
+        Path state = folder.getRoot().toPath().resolve("state");
+        Path perfLogs = folder.getRoot().toPath().resolve("perf");
+        Files.write(log, (FIRST + SECOND).getBytes(Charsets.US_ASCII));
+        collect(log, state, "--perf-logs", perfLogs.toString());
+        assertEquals("incorrect perf log",
+                     ImmutableList.of("15:31:12,123|1234.5|2345.6", "15:31:17,123|1300.0|2400.0"),
+                     Files.readAllLines(perfLogs.resolve("n1.perf.log"), Charsets.UTF_8));
+    }
+
+    // Runs the collector on the given log with the given extra arguments,
+    // discarding its output.
+    private static void collect(Path log, Path state, String... extra) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"));
+        try {
+            IntentPerfCollector.main(ObjectArrays.concat(new String[]{
+                    "--log", "n1=" + log, "--state", state.toString(), "--format", "json"
+            }, extra, String.class));
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    // Returns the persisted offset of the log.
+    private static long offset(Path state) throws IOException {
+        Properties offsets = new Properties();
+        try (Reader reader = Files.newBufferedReader(state.resolve("offsets.properties"),
+                                                     Charsets.UTF_8)) {
+            offsets.load(reader);
+        }
+        return Long.parseLong(offsets.getProperty("n1"));
+    }
+
+}
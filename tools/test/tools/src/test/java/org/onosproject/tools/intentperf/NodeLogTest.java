@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.intentperf;
+
+import com.google.common.base.Charsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.onosproject.tools.intentperf.NodeLog.Chunk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.tools.intentperf.ThroughputParserTest.FIRST;
+import static org.onosproject.tools.intentperf.ThroughputParserTest.SECOND;
+import static org.onosproject.tools.intentperf.ThroughputParserTest.TIME;
+
+/**
+ * Set of tests of the node logs.
+ */
+public class NodeLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void incremental() throws IOException {
+        Path file = folder.newFile("karaf.log").toPath();
+        NodeLog log = NodeLog.local("n1", file);
+        write(file, FIRST);
+        Chunk chunk = log.read(0);
+        assertEquals("incorrect sample count", 1, chunk.samples.size());
+        assertEquals("incorrect offset", FIRST.length(), chunk.offset);
+
+        String partial = SECOND.substring(0, 30);
+        append(file, partial);
+        chunk = log.read(chunk.offset);
+        assertEquals("partial line parsed", 0, chunk.samples.size());
+        assertEquals("offset past partial line", FIRST.length(), chunk.offset);
+
+        append(file, SECOND.substring(partial.length()));
+        chunk = log.read(chunk.offset);
+        assertEquals("incorrect sample count", 1, chunk.samples.size());
+        assertEquals("incorrect timestamp", TIME + 5000, chunk.samples.get(0).timestamp);
+        assertEquals("incorrect offset", FIRST.length() + SECOND.length(), chunk.offset);
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        Path file = folder.newFile("karaf.log").toPath();
+        NodeLog log = NodeLog.local("n1", file);
+        write(file, FIRST + SECOND);
+        long offset = log.read(0).offset;
+
+        // Log rotation leaves a new, shorter log behind.
+        write(file, SECOND);
+        Chunk chunk = log.read(offset);
+        assertEquals("truncated log not re-read", 1, chunk.samples.size());
+        assertEquals("incorrect timestamp", TIME + 5000, chunk.samples.get(0).timestamp);
+        assertEquals("incorrect offset", SECOND.length(), chunk.offset);
+    }
+
+    // Replaces the contents of the file.
+    private static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(Charsets.US_ASCII));
+    }
+
+    // Appends the text to the file.
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(Charsets.US_ASCII), StandardOpenOption.APPEND);
+    }
+
+}
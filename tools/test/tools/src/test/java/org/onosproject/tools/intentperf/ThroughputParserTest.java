@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.intentperf;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import org.junit.Test;
+import org.onosproject.tools.intentperf.ThroughputParser.Sample;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Set of tests of the throughput record parser.
+ */
+public class ThroughputParserTest {
+
+    static final long TIME = 1433431872123L;
+
+    static final String FIRST = record("2015-06-04 15:31:12,123", "1234.5", "2345.6");
+    static final String SECOND = record("2015-06-04 15:31:17,123", "1300.0", "2400.0");
+
+    @Test
+    public void records() throws IOException {
+        String log = "2015-06-04 15:31:11,000 | INFO  | main | Starting\n" + FIRST +
+                "not a log line\n" + SECOND;
+        List<Sample> samples = new ArrayList<>();
+        long consumed = ThroughputParser.parse(stream(log), samples::add);
+
+        assertEquals("incorrect consumed bytes", log.length(), consumed);
+        assertEquals("incorrect sample count", 2, samples.size());
+        assertEquals("incorrect timestamp", TIME, samples.get(0).timestamp);
+        assertEquals("incorrect overall", 1234.5, samples.get(0).overall, 0);
+        assertEquals("incorrect current", 2345.6, samples.get(0).current, 0);
+        assertEquals("incorrect timestamp", TIME + 5000, samples.get(1).timestamp);
+    }
+
+    @Test
+    public void partialLine() throws IOException {
+        String partial = SECOND.substring(0, SECOND.length() / 2);
+        List<Sample> samples = new ArrayList<>();
+        long consumed = ThroughputParser.parse(stream(FIRST + partial), samples::add);
+
+        assertEquals("partial line consumed", FIRST.length(), consumed);
+        assertEquals("incorrect sample count", 1, samples.size());
+
+        samples.clear();
+        String rest = (FIRST + SECOND).substring((int) consumed);
+        ThroughputParser.parse(stream(rest), samples::add);
+        assertEquals("partial line not read later", 1, samples.size());
+        assertEquals("incorrect timestamp", TIME + 5000, samples.get(0).timestamp);
+    }
+
+    @Test
+    public void longLine() throws IOException {
+        String padding = Strings.repeat("x", 200 * 1024);
+        String log = FIRST + "2015-06-04 15:31:16,000 | INFO  | " + padding + "\n" + SECOND;
+        List<Sample> samples = new ArrayList<>();
+        long consumed = ThroughputParser.parse(trickle(log), samples::add);
+
+        assertEquals("incorrect consumed bytes", log.length(), consumed);
+        assertEquals("incorrect sample count", 2, samples.size());
+        assertEquals("incorrect timestamp", TIME + 5000, samples.get(1).timestamp);
+    }
+
+    @Test
+    public void malformed() throws IOException {
+        String log = record("2015-13-04 15:31:12,123", "1.0", "2.0") +
+                record("2015-06-04 15:31:12,123", "abc", "2.0") +
+                "2015-06-04 15:31:12,123 | INFO  | Throughput: OVERALL=1.0\n";
+        List<Sample> samples = new ArrayList<>();
+        ThroughputParser.parse(stream(log), samples::add);
+        assertEquals("malformed records parsed", 0, samples.size());
+    }
+
+    /**
+     * Returns a throughput record logged at the given time.
+     *
+     * @param time    log timestamp
+     * @param overall overall throughput
+     * @param current current throughput
+     * @return log line
+     */
+    static String record(String time, String overall, String current) {
+        return time + " | INFO  | pool-8-thread-1  | IntentPerfCollector | " +
+                "Throughput: OVERALL=" + overall + "; CURRENT=" + current +
+                "; INSTALL_REQ=0; WITHDRAW_REQ=0\n";
+    }
+
+    // Returns a stream of the given text.
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(Charsets.US_ASCII));
+    }
+
+    // Returns a stream of the given text which yields at most 1000 bytes
+    // per read, as a slow pipe would.
+    private static InputStream trickle(String text) {
+        return new ByteArrayInputStream(text.getBytes(Charsets.US_ASCII)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.intentperf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.onosproject.tools.intentperf.ThroughputParser.Sample;
+
+import java.util.List;
+import java.util.SortedMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the merged throughput series.
+ */
+public class ThroughputSeriesTest {
+
+    private static final long START = 1433431870000L;
+    private static final long BUCKET = 1000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void warmup() {
+        SortedMap<String, List<Sample>> samples = Maps.newTreeMap();
+        samples.put("n1", series(100, 300, 600, 1000, 1000, 1000, 1000, 1000, 1000,
+                                 1000, 1000, 1000, 1000, 1000, 1000, 1000, 1000));
+        ObjectNode summary = new ThroughputSeries(samples, BUCKET, 3, 0.1).summary(mapper);
+
+        assertTrue("no steady state", summary.path("steady").asBoolean());
+        assertEquals("incorrect warm-up", 3 * BUCKET, summary.path("warmupMs").asLong());
+        assertEquals("incorrect average", 1000, summary.path("average").asDouble(), 0);
+        assertEquals("incorrect p5", 1000, summary.path("p5").asDouble(), 0);
+        assertEquals("incorrect node average", 1000,
+                     summary.path("perNode").path("n1").asDouble(), 0);
+    }
+
+    @Test
+    public void noSteadyState() {
+        SortedMap<String, List<Sample>> samples = Maps.newTreeMap();
+        samples.put("n1", series(100, 200, 400, 800, 1600, 3200));
+        ObjectNode summary = new ThroughputSeries(samples, BUCKET, 3, 0.1).summary(mapper);
+
+        assertFalse("unexpected steady state", summary.path("steady").asBoolean());
+        assertEquals("incorrect warm-up", 5 * BUCKET, summary.path("warmupMs").asLong());
+    }
+
+    @Test
+    public void merged() {
+        SortedMap<String, List<Sample>> samples = Maps.newTreeMap();
+        samples.put("n1", series(100, 100, 100));
+        List<Sample> second = series(50, 70);
+        second.remove(0);
+        samples.put("n2", second);
+        ThroughputSeries series = new ThroughputSeries(samples, BUCKET, 1, 0.1);
+
+        assertArrayEquals("incorrect buckets", new long[]{START, START + BUCKET,
+                START + 2 * BUCKET}, series.buckets());
+        // The second node reports only once; its rate holds until it
+        // reports again.
+        assertArrayEquals("incorrect totals", new double[]{100, 170, 170},
+                          series.totals(), 0);
+    }
+
+    @Test
+    public void empty() {
+        ObjectNode summary = new ThroughputSeries(Maps.newTreeMap(), BUCKET, 3, 0.1)
+                .summary(mapper);
+        assertEquals("incorrect bucket count", 0, summary.path("buckets").asInt());
+    }
+
+    // Returns samples of the given current throughput, one per bucket.
+    private static List<Sample> series(double... current) {
+        List<Sample> samples = Lists.newArrayList();
+        for (int i = 0; i < current.length; i++) {
+            samples.add(new Sample(START + i * BUCKET + 123, 0, current[i]));
+        }
+        return samples;
+    }
+
+}
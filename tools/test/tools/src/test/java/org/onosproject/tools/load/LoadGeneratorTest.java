@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.load;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the load generator.
+ */
+public class LoadGeneratorTest {
+
+    private static final byte[] BODY = "{}".getBytes(Charsets.UTF_8);
+
+    private StubFlowTestServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubFlowTestServer(0, 16, 500, 0);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void completed() throws Exception {
+        ServerLoad first = load("first", server.port());
+        ServerLoad second = load("second", server.port());
+        LoadGenerator.run(profile(), ImmutableList.of(first, second), 5000);
+
+        for (ServerLoad load : ImmutableList.of(first, second)) {
+            assertTrue("no requests sent", load.sent() > 50);
+            assertEquals("incorrect completed count", load.sent(), load.completed());
+            assertEquals("incorrect error count", 0, load.errors());
+            assertEquals("incorrect response count",
+                         load.completed(), load.responseTimes().getTotalCount());
+            assertEquals("incorrect service count",
+                         load.completed(), load.serviceTimes().getTotalCount());
+            assertEquals("incorrect error time count", 0, load.errorTimes().getTotalCount());
+            assertTrue("no service time", load.serviceTimes().getMinValue() >= 500);
+            assertTrue("no elapsed time", load.elapsedNanos() > 0);
+        }
+        // Both loads ran side by side, so neither should account for the
+        // time spent waiting for the other.
+        long difference = Math.abs(first.elapsedNanos() - second.elapsedNanos());
+        assertTrue("elapsed times differ", difference < TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void errors() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        ServerLoad load = load("closed", port);
+        LoadGenerator.run(profile(), ImmutableList.of(load), 5000);
+
+        assertTrue("no requests sent", load.sent() > 50);
+        assertEquals("incorrect completed count", 0, load.completed());
+        assertEquals("incorrect error count", load.sent(), load.errors());
+        assertEquals("incorrect error time count",
+                     load.errors(), load.errorTimes().getTotalCount());
+        assertEquals("incorrect response count", 0, load.responseTimes().getTotalCount());
+    }
+
+    // Returns a profile of about 100 requests in half a second.
+    private static LoadProfile profile() {
+        return new LoadProfile(200, 200, TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    // Returns the load of the stub server at the given port.
+    private static ServerLoad load(String name, int port) throws Exception {
+        URL url = new URL("http", "127.0.0.1", port, StubFlowTestServer.PATH);
+        return new ServerLoad(name, url, BODY, 8, 1000);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.partitions;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.onosproject.tools.partitions.PartitionLayout.Move;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the partition planner.
+ */
+public class PartitionPlannerTest {
+
+    @Test
+    public void fresh() {
+        List<ClusterNode> nodes = nodes(5, null);
+        Map<String, List<String>> layout =
+                new PartitionPlanner(nodes, 3, 5).plan(ImmutableMap.of()).partitions();
+
+        assertEquals("incorrect partitions", 5, layout.size());
+        validate(layout, 3);
+        loads(layout).values().forEach(l -> assertEquals("unbalanced layout", 3, (int) l));
+    }
+
+    @Test
+    public void singleNode() {
+        Map<String, List<String>> layout =
+                new PartitionPlanner(nodes(1, null), 3, 1).plan(ImmutableMap.of()).partitions();
+
+        assertEquals("incorrect partitions", 1, layout.size());
+        validate(layout, 1);
+        assertEquals("incorrect replica", ImmutableList.of("n1"), layout.get("p1"));
+    }
+
+    @Test
+    public void twoNodes() {
+        Map<String, List<String>> layout =
+                new PartitionPlanner(nodes(2, null), 3, 2).plan(ImmutableMap.of()).partitions();
+
+        assertEquals("incorrect partitions", 2, layout.size());
+        validate(layout, 2);
+        loads(layout).values().forEach(l -> assertEquals("unbalanced layout", 2, (int) l));
+    }
+
+    @Test
+    public void grow() {
+        Map<String, List<String>> previous =
+                new PartitionPlanner(nodes(3, null), 3, 3).plan(ImmutableMap.of()).partitions();
+        PartitionLayout layout = new PartitionPlanner(nodes(7, null), 3, 7).plan(previous);
+        Map<String, List<String>> partitions = layout.partitions();
+
+        validate(partitions, 3);
+        for (String name : ImmutableList.of("p1", "p2", "p3")) {
+            assertEquals("partition " + name + " moved",
+                         Sets.newHashSet(previous.get(name)),
+                         Sets.newHashSet(partitions.get(name)));
+        }
+        loads(partitions).values().forEach(l -> assertEquals("unbalanced layout", 3, (int) l));
+
+        List<Move> moves = layout.movesFrom(previous);
+        assertEquals("incorrect move count", 12, moves.size());
+        moves.forEach(m -> assertNull("replica relocated", m.from));
+    }
+
+    @Test
+    public void weights() {
+        List<ClusterNode> nodes = ImmutableList.of(node(1, 2, null), node(2, 2, null),
+                                                   node(3, 1, null), node(4, 1, null));
+        Map<String, List<String>> layout =
+                new PartitionPlanner(nodes, 3, 6).plan(ImmutableMap.of()).partitions();
+
+        validate(layout, 3);
+        Map<String, Integer> loads = loads(layout);
+        assertEquals("incorrect load", 6, (int) loads.get("n1"));
+        assertEquals("incorrect load", 6, (int) loads.get("n2"));
+        assertEquals("incorrect load", 3, (int) loads.get("n3"));
+        assertEquals("incorrect load", 3, (int) loads.get("n4"));
+    }
+
+    @Test
+    public void rackLimit() {
+        List<ClusterNode> nodes = nodes(6, i -> "r" + (i + 1) / 2);
+        // The earlier layout put all replicas of every partition in one rack.
+        Map<String, List<String>> previous = Maps.newHashMap();
+        previous.put("p1", ImmutableList.of("n1", "n2", "n3"));
+        previous.put("p2", ImmutableList.of("n3", "n4", "n5"));
+        Map<String, List<String>> layout =
+                new PartitionPlanner(nodes, 3, 6).plan(previous).partitions();
+
+        validate(layout, 3);
+        layout.forEach((name, replicas) -> {
+            Set<String> racks = Sets.newHashSet();
+            replicas.forEach(id -> racks.add("r" + (Integer.parseInt(id.substring(1)) + 1) / 2));
+            assertEquals("partition " + name + " not spread over racks", 3, racks.size());
+        });
+        loads(layout).values().forEach(l -> assertEquals("unbalanced layout", 3, (int) l));
+    }
+
+    // Checks that every partition has the given number of distinct replicas.
+    private static void validate(Map<String, List<String>> layout, int replicas) {
+        layout.forEach((name, members) -> {
+            assertEquals("incorrect replicas of " + name, replicas, members.size());
+            assertEquals("duplicate replicas of " + name,
+                         replicas, Sets.newHashSet(members).size());
+        });
+    }
+
+    // Returns the number of replicas held by each node.
+    private static Map<String, Integer> loads(Map<String, List<String>> layout) {
+        Map<String, Integer> loads = Maps.newHashMap();
+        layout.values().forEach(members -> members.forEach(
+                id -> loads.merge(id, 1, Integer::sum)));
+        return loads;
+    }
+
+    // Returns the given number of nodes of equal weight, in the racks
+    // given by the function of their numbers, if any.
+    private static List<ClusterNode> nodes(int count, IntFunction<String> racks) {
+        List<ClusterNode> nodes = Lists.newArrayList();
+        for (int i = 1; i <= count; i++) {
+            nodes.add(node(i, 1, racks != null ? racks.apply(i) : null));
+        }
+        return nodes;
+    }
+
+    // Returns the node of the given number.
+    private static ClusterNode node(int i, double weight, String rack) {
+        return new ClusterNode("n" + i, "10.0.0." + i, 9876, weight, rack);
+    }
+
+}
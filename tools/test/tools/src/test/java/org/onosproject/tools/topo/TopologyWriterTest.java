@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tools.topo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Sets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests of the topology writer.
+ */
+public class TopologyWriterTest {
+
+    private static final String[] SECTIONS = {"devices", "links", "hosts"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void chunks() throws IOException {
+        File base = new File(folder.getRoot(), "topo.json");
+        TopologyWriter writer = new TopologyWriter(base, 7);
+        // Fat tree of 20 switches, 32 links and 8 hosts
+        new FatTree(4, 1).generate(writer);
+        writer.close();
+
+        assertEquals("incorrect chunk count", 9, writer.files().size());
+        assertEquals("incorrect chunk name", "topo-0001.json",
+                     writer.files().get(0).getName());
+
+        long[] counts = new long[SECTIONS.length];
+        int last = 0;
+        Set<String> devices = Sets.newHashSet();
+        for (File file : writer.files()) {
+            JsonNode chunk = mapper.readTree(file);
+            assertTrue("chunk is not an object", chunk.isObject());
+            int elements = 0;
+            Iterator<String> names = chunk.fieldNames();
+            while (names.hasNext()) {
+                int section = section(names.next());
+                assertTrue("sections out of order in " + file.getName(), section >= last);
+                last = section;
+                for (JsonNode element : chunk.path(SECTIONS[section])) {
+                    counts[section]++;
+                    elements++;
+                    if (section == 0) {
+                        devices.add(element.path("uri").asText());
+                    } else if (section == 1) {
+                        assertTrue("link to unknown device", devices.contains(
+                                device(element.path("src").asText())));
+                        assertTrue("link to unknown device", devices.contains(
+                                device(element.path("dst").asText())));
+                    } else {
+                        assertTrue("host on unknown device", devices.contains(
+                                device(element.path("location").asText())));
+                    }
+                }
+            }
+            assertTrue("oversized chunk " + file.getName(), elements > 0 && elements <= 7);
+        }
+        assertEquals("incorrect device count", 20, counts[0]);
+        assertEquals("incorrect link count", 32, counts[1]);
+        assertEquals("incorrect host count", 8, counts[2]);
+        assertEquals("incorrect counts", counts[0], writer.counts()[0]);
+    }
+
+    @Test
+    public void stream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TopologyWriter writer = new TopologyWriter(out)) {
+            writer.device(0, "a", 10, 20);
+            writer.device(1, "b", 10, 30);
+            writer.link(0, 1, 1, 1);
+        }
+        JsonNode json = mapper.readTree(out.toByteArray());
+        assertEquals("incorrect devices", 2, json.path("devices").size());
+        assertEquals("incorrect links", 1, json.path("links").size());
+        assertEquals("incorrect link", "of:0000000000000001/1",
+                     json.path("links").get(0).path("src").asText());
+    }
+
+    @Test
+    public void empty() throws IOException {
+        File base = new File(folder.getRoot(), "empty.json");
+        new TopologyWriter(base, 0).close();
+        assertEquals("incorrect empty document", 0, mapper.readTree(base).size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void outOfOrder() throws IOException {
+        try (TopologyWriter writer = new TopologyWriter(new ByteArrayOutputStream())) {
+            writer.link(0, 1, 1, 1);
+            writer.device(0, "a", 10, 20);
+        }
+    }
+
+    // Returns the index of the named section.
+    private static int section(String name) {
+        for (int i = 0; i < SECTIONS.length; i++) {
+            if (SECTIONS[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new AssertionError("unexpected section " + name);
+    }
+
+    // Returns the device URI of the given connect point.
+    private static String device(String connectPoint) {
+        return connectPoint.substring(0, connectPoint.lastIndexOf('/'));
+    }
+
+}